@@ -0,0 +1,107 @@
+package com.mycompany.coherence.hotkeys.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mycompany.coherence.hotkeys.tracker.AccessCountingBackingMap;
+import com.tangosol.util.Binary;
+import com.tangosol.util.ExternalizableHelper;
+import com.tangosol.util.ObservableHashMap;
+
+/**
+ * Overhead of counting the accesses of a backing map: reads and writes of
+ * Binary keys on an ObservableHashMap, standing for a backing map without touch
+ * counts, either plain or wrapped in an AccessCountingBackingMap. The keys are
+ * accessed in a precomputed uniform or Zipfian sequence, each thread starting
+ * at its own offset; the 4 threads benchmarks show the contention on the
+ * stripes of the counts, hot keys always going to the same stripe.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AccessCountingBackingMapBenchmark {
+
+    private static final int SEQUENCE_LENGTH = 1 << 20;
+
+    @Param({ "100000", "1000000" })
+    private int entries;
+
+    @Param({ "UNIFORM", "ZIPFIAN" })
+    private KeyDistribution distribution;
+
+    @Param({ "false", "true" })
+    private boolean counted;
+
+    private Map<Object, Object> backingMap;
+    private Binary[] keys;
+    private int[] sequence;
+    private Binary value;
+
+    @Setup
+    public void setup() {
+	value = ExternalizableHelper.toBinary("Price plan");
+	Map<Object, Object> map = new ObservableHashMap<Object, Object>();
+	backingMap = counted ? new AccessCountingBackingMap(map) : map;
+	keys = new Binary[entries];
+	for (int key = 0; key < entries; key++) {
+	    keys[key] = ExternalizableHelper.toBinary(key);
+	    backingMap.put(keys[key], value);
+	}
+	sequence = distribution.keySequence(entries, SEQUENCE_LENGTH, 42);
+    }
+
+    /**
+     * Position of a thread in the access sequence.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+	private int position = (int) (Thread.currentThread().getId() * 7919);
+
+	int next() {
+	    return position++ & (SEQUENCE_LENGTH - 1);
+	}
+    }
+
+    /**
+     * Reads one entry.
+     */
+    @Benchmark
+    public Object get(Cursor cursor) {
+	return backingMap.get(keys[sequence[cursor.next()]]);
+    }
+
+    /**
+     * Writes one entry.
+     */
+    @Benchmark
+    public Object put(Cursor cursor) {
+	return backingMap.put(keys[sequence[cursor.next()]], value);
+    }
+
+    /**
+     * Reads one entry, from 4 threads.
+     */
+    @Benchmark
+    @Threads(4)
+    public Object getContended(Cursor cursor) {
+	return backingMap.get(keys[sequence[cursor.next()]]);
+    }
+
+}
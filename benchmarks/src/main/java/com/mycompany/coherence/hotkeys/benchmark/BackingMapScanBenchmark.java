@@ -0,0 +1,110 @@
+package com.mycompany.coherence.hotkeys.benchmark;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mycompany.coherence.hotkeys.invocable.BackingMapScanner;
+import com.mycompany.coherence.hotkeys.invocable.EntryProfile;
+import com.mycompany.coherence.hotkeys.invocable.HotKeyData;
+import com.mycompany.coherence.hotkeys.invocable.PrimitiveHotKeys;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.net.cache.LocalCache;
+import com.tangosol.net.partition.PartitionSet;
+import com.tangosol.util.Binary;
+import com.tangosol.util.ExternalizableHelper;
+
+/**
+ * End-to-end benchmark of what HotKeyInvocable does on a storage member in
+ * TOUCH_COUNT mode, against an in-process LocalCache holding Binary keys and
+ * values as a backing map would: cutting the backing map in segments, scanning
+ * them for the top n touch counts and deserializing the keys of the top n, or
+ * scanning them into PrimitiveHotKeys for Integer keys; and, in PROFILE mode,
+ * scanning them into the top n by touch count, value size and idle time with
+ * their statistics. No cluster is started.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class BackingMapScanBenchmark {
+
+    @Param({ "100000", "1000000", "10000000" })
+    private int entries;
+
+    @Param({ "100", "10000" })
+    private int topN;
+
+    @Param({ "UNIFORM", "ZIPFIAN" })
+    private KeyDistribution distribution;
+
+    @Param({ "1", "4" })
+    private int parallelism;
+
+    private LocalCache backingMap;
+    private PartitionSet ownedPartitions;
+    private BackingMapScanner<Integer> scanner;
+
+    @Setup
+    public void setup() {
+	int[] touchCounts = distribution.touchCounts(entries, entries, 42);
+	Binary value = ExternalizableHelper.toBinary("Price plan");
+	backingMap = new LocalCache(Integer.MAX_VALUE);
+	for (int key = 0; key < entries; key++) {
+	    Binary binaryKey = ExternalizableHelper.toBinary(key);
+	    backingMap.put(binaryKey, value);
+	    for (int i = 0; i < touchCounts[key]; i++) {
+		backingMap.get(binaryKey);
+	    }
+	}
+
+	ownedPartitions = new PartitionSet(257);
+	ownedPartitions.fill();
+	scanner = new BackingMapScanner<Integer>(binaryKey -> ExternalizableHelper.fromBinary((Binary) binaryKey),
+		topN);
+    }
+
+    /**
+     * Scans the whole backing map, one operation being one scan.
+     */
+    @Benchmark
+    public SortedCollectionWithCapacity<HotKeyData<Integer>> scan() {
+	List<Collection<?>> segments = BackingMapScanner.getSegments(backingMap, ownedPartitions, parallelism);
+	return scanner.convert(scanner.scan(segments, parallelism));
+    }
+
+    /**
+     * Scans the whole backing map into a top n of primitive int keys and
+     * touch counts, one operation being one scan.
+     */
+    @Benchmark
+    public PrimitiveHotKeys scanPrimitive() {
+	List<Collection<?>> segments = BackingMapScanner.getSegments(backingMap, ownedPartitions, parallelism);
+	return scanner.scanPrimitive(segments, parallelism, false);
+    }
+
+    /**
+     * Profiles the whole backing map, one operation being one scan building the
+     * three rankings and the statistics.
+     */
+    @Benchmark
+    public EntryProfile<Integer> scanProfile() {
+	List<Collection<?>> segments = BackingMapScanner.getSegments(backingMap, ownedPartitions, parallelism);
+	return scanner.scanProfile(segments, parallelism, EntryProfile.Staleness.IDLE);
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.mycompany.coherence.hotkeys.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mycompany.coherence.hotkeys.invocable.HotKeyData;
+
+/**
+ * Benchmark of HotKeyData.compareTo on pairs of hot keys drawn from a
+ * distribution; the more touch counts are tied, the more keys are compared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotKeyDataBenchmark {
+
+    private static final int PAIRS = 1024;
+    private static final int KEYS = 100000;
+
+    @Param({ "UNIFORM", "ZIPFIAN" })
+    private KeyDistribution distribution;
+
+    private HotKeyData<Integer>[] left;
+    private HotKeyData<Integer>[] right;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+	int[] touchCounts = distribution.touchCounts(KEYS, KEYS, 42);
+	Random random = new Random(7);
+	left = new HotKeyData[PAIRS];
+	right = new HotKeyData[PAIRS];
+	for (int i = 0; i < PAIRS; i++) {
+	    int leftKey = random.nextInt(KEYS);
+	    int rightKey = random.nextInt(KEYS);
+	    left[i] = new HotKeyData<Integer>(leftKey, touchCounts[leftKey]);
+	    right[i] = new HotKeyData<Integer>(rightKey, touchCounts[rightKey]);
+	}
+    }
+
+    /**
+     * Compares 1024 pairs, one operation being one comparison.
+     */
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public int compareTo() {
+	int sum = 0;
+	for (int i = 0; i < PAIRS; i++) {
+	    sum += left[i].compareTo(right[i]);
+	}
+	return sum;
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.mycompany.coherence.hotkeys.benchmark;
+
+import java.util.Random;
+
+/**
+ * Distribution of the accesses over the keys of a benchmarked cache, drawn
+ * from the KeyDistribution of the load generator.
+ */
+public enum KeyDistribution {
+
+    /**
+     * Every key is as likely to be accessed.
+     */
+    UNIFORM,
+    /**
+     * The key of rank r is accessed in proportion to 1 / r^0.99, as in the YCSB
+     * workloads; the ranks are shuffled over the keys.
+     */
+    ZIPFIAN;
+
+    private static final double ZIPFIAN_EXPONENT = 0.99;
+
+    /**
+     * Returns the touch count of each key after a number of accesses.
+     * 
+     * @param keys     number of keys
+     * @param accesses number of accesses
+     * @param seed     seed of the random generator
+     * @return touch counts indexed by key
+     */
+    public int[] touchCounts(int keys, long accesses, long seed) {
+	Random random = new Random(seed);
+	int[] keyOfRank = shuffledKeys(keys, random);
+	com.mycompany.coherence.hotkeys.load.KeyDistribution distribution = toLoadDistribution(keys);
+	int[] touchCounts = new int[keys];
+	for (long i = 0; i < accesses; i++) {
+	    touchCounts[keyOfRank[distribution.nextKey(random)]]++;
+	}
+	return touchCounts;
+    }
+
+    /**
+     * Returns a sequence of accessed keys.
+     * 
+     * @param keys     number of keys
+     * @param accesses number of accesses
+     * @param seed     seed of the random generator
+     * @return accessed keys, in order of access
+     */
+    public int[] keySequence(int keys, int accesses, long seed) {
+	Random random = new Random(seed);
+	int[] keyOfRank = shuffledKeys(keys, random);
+	com.mycompany.coherence.hotkeys.load.KeyDistribution distribution = toLoadDistribution(keys);
+	int[] sequence = new int[accesses];
+	for (int i = 0; i < accesses; i++) {
+	    sequence[i] = keyOfRank[distribution.nextKey(random)];
+	}
+	return sequence;
+    }
+
+    private com.mycompany.coherence.hotkeys.load.KeyDistribution toLoadDistribution(int keys) {
+	return this == UNIFORM ? com.mycompany.coherence.hotkeys.load.KeyDistribution.uniform(keys)
+		: com.mycompany.coherence.hotkeys.load.KeyDistribution.zipfian(keys, ZIPFIAN_EXPONENT);
+    }
+
+    private static int[] shuffledKeys(int keys, Random random) {
+	int[] shuffled = new int[keys];
+	for (int i = 0; i < keys; i++) {
+	    shuffled[i] = i;
+	}
+	for (int i = keys - 1; i > 0; i--) {
+	    int j = random.nextInt(i + 1);
+	    int swap = shuffled[i];
+	    shuffled[i] = shuffled[j];
+	    shuffled[j] = swap;
+	}
+	return shuffled;
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.mycompany.coherence.hotkeys.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mycompany.coherence.hotkeys.invocable.HotKeyCandidate;
+import com.mycompany.coherence.hotkeys.tracker.LockContention;
+import com.mycompany.coherence.hotkeys.tracker.LockContentionTracker;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.util.Binary;
+import com.tangosol.util.ExternalizableHelper;
+
+/**
+ * Cost of recording entry processor invocations into a LockContentionTracker,
+ * from one thread and from 4 threads recording the same hot keys into tables
+ * of their own, with tables bounded below and above the number of distinct
+ * keys so that the cost of the evictions shows; and cost of a collection of
+ * the top 100, merging the tables of the threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LockContentionTrackerBenchmark {
+
+    private static final int ENTRIES = 100000;
+    private static final int SEQUENCE_LENGTH = 1 << 20;
+
+    @Param({ "UNIFORM", "ZIPFIAN" })
+    private KeyDistribution distribution;
+
+    @Param({ "1024", "131072" })
+    private int maxKeysPerThread;
+
+    private LockContentionTracker tracker;
+    private Binary[] keys;
+    private int[] sequence;
+
+    @Setup
+    public void setup() {
+	tracker = new LockContentionTracker(maxKeysPerThread);
+	keys = new Binary[ENTRIES];
+	for (int key = 0; key < ENTRIES; key++) {
+	    keys[key] = ExternalizableHelper.toBinary(key);
+	}
+	sequence = distribution.keySequence(ENTRIES, SEQUENCE_LENGTH, 42);
+	for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+	    tracker.record(keys[sequence[i]], 1000, 500);
+	}
+    }
+
+    /**
+     * Position of a thread in the invocation sequence.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+	private int position = (int) (Thread.currentThread().getId() * 7919);
+
+	int next() {
+	    return position++ & (SEQUENCE_LENGTH - 1);
+	}
+    }
+
+    /**
+     * Records one timed invocation.
+     */
+    @Benchmark
+    public void record(Cursor cursor) {
+	tracker.record(keys[sequence[cursor.next()]], 1000, 500);
+    }
+
+    /**
+     * Records one timed invocation, from 4 threads.
+     */
+    @Benchmark
+    @Threads(4)
+    public void recordContended(Cursor cursor) {
+	tracker.record(keys[sequence[cursor.next()]], 1000, 500);
+    }
+
+    /**
+     * Merges the tables and collects the top 100 on their lock wait.
+     */
+    @Benchmark
+    public SortedCollectionWithCapacity<HotKeyCandidate> collect() {
+	SortedCollectionWithCapacity<HotKeyCandidate> results = new SortedCollectionWithCapacity<HotKeyCandidate>(100);
+	tracker.collect(results, null, LockContention.Metric.LOCK_WAIT, 0);
+	return results;
+    }
+
+}
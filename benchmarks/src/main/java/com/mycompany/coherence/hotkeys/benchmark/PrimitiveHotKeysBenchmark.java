@@ -0,0 +1,130 @@
+package com.mycompany.coherence.hotkeys.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mycompany.coherence.hotkeys.invocable.HotKeyData;
+import com.mycompany.coherence.hotkeys.invocable.PrimitiveHotKeys;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.io.pof.ConfigurablePofContext;
+import com.tangosol.util.ExternalizableHelper;
+
+/**
+ * Benchmarks of the top n of primitive keys, the counterparts of the
+ * SortedCollectionWithCapacityBenchmark ones: adding the touch counts of a
+ * whole member, and merging the top n of several members.
+ * <p>
+ * The footprint of a top n of Integer keys, as PrimitiveHotKeys and as
+ * HotKeyData, is compared by building it: run with -prof gc, the
+ * gc.alloc.rate.norm of the build benchmarks is the heap allocated to build a
+ * top n, the growth of the primitive arrays included. Its POF size in both
+ * forms is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class PrimitiveHotKeysBenchmark {
+
+    private static final int MEMBERS = 8;
+
+    @Param({ "100000", "1000000" })
+    private int entries;
+
+    @Param({ "100", "10000" })
+    private int topN;
+
+    @Param({ "UNIFORM", "ZIPFIAN" })
+    private KeyDistribution distribution;
+
+    private int[] touchCounts;
+    private List<PrimitiveHotKeys> memberResults;
+
+    @Setup
+    public void setup() {
+	touchCounts = distribution.touchCounts(entries, entries, 42);
+
+	// keys are spread over the members as partitions would spread them
+	memberResults = new ArrayList<PrimitiveHotKeys>(MEMBERS);
+	for (int i = 0; i < MEMBERS; i++) {
+	    memberResults.add(new PrimitiveHotKeys(topN, false));
+	}
+	for (int key = 0; key < entries; key++) {
+	    memberResults.get(key % MEMBERS).add(key, touchCounts[key]);
+	}
+
+	ConfigurablePofContext pofContext = new ConfigurablePofContext("hotkeys-pof-config.xml");
+	PrimitiveHotKeys hotKeys = buildPrimitive();
+	System.out.println("POF size of a top " + topN + ": HotKeyData "
+		+ ExternalizableHelper.toBinary(hotKeys.toHotKeys(), pofContext).length() + " bytes, primitive "
+		+ ExternalizableHelper.toBinary(hotKeys, pofContext).length() + " bytes");
+    }
+
+    /**
+     * Adds the touch count of every key of a member, one operation being the
+     * whole member.
+     */
+    @Benchmark
+    public PrimitiveHotKeys add() {
+	PrimitiveHotKeys results = new PrimitiveHotKeys(topN, false);
+	for (int key = 0; key < touchCounts.length; key++) {
+	    results.add(key, touchCounts[key]);
+	}
+	return results;
+    }
+
+    /**
+     * Merges the top n of 8 members, one operation being the 8 merges.
+     */
+    @Benchmark
+    public PrimitiveHotKeys merge() {
+	PrimitiveHotKeys mergedResult = new PrimitiveHotKeys(topN, false);
+	for (PrimitiveHotKeys memberResult : memberResults) {
+	    mergedResult.merge(memberResult);
+	}
+	return mergedResult;
+    }
+
+    /**
+     * Builds a top n of Integer keys as PrimitiveHotKeys, one operation being
+     * the whole top n.
+     */
+    @Benchmark
+    public PrimitiveHotKeys buildPrimitive() {
+	PrimitiveHotKeys hotKeys = new PrimitiveHotKeys(topN, false);
+	for (int i = 0; i < topN; i++) {
+	    hotKeys.add(i * 7919, touchCounts[i]);
+	}
+	return hotKeys;
+    }
+
+    /**
+     * Builds the same top n as HotKeyData, one operation being the whole top
+     * n.
+     */
+    @Benchmark
+    public SortedCollectionWithCapacity<HotKeyData<Integer>> buildHotKeyData() {
+	SortedCollectionWithCapacity<HotKeyData<Integer>> hotKeys = new SortedCollectionWithCapacity<HotKeyData<Integer>>(
+		topN);
+	for (int i = 0; i < topN; i++) {
+	    hotKeys.add(new HotKeyData<Integer>(Integer.valueOf(i * 7919), touchCounts[i]));
+	}
+	return hotKeys;
+    }
+
+}
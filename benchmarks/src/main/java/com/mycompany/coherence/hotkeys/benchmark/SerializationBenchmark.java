@@ -0,0 +1,89 @@
+package com.mycompany.coherence.hotkeys.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mycompany.coherence.hotkeys.invocable.HotKeyData;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.io.DefaultSerializer;
+import com.tangosol.io.Serializer;
+import com.tangosol.io.pof.ConfigurablePofContext;
+import com.tangosol.util.Binary;
+import com.tangosol.util.ExternalizableHelper;
+
+/**
+ * Benchmarks of the serialization of the top n of a member, as HotKeyData, in
+ * Java serialization and in the compact POF form of the
+ * SortedCollectionWithCapacityPofSerializer, with or without the binary keys
+ * held by the HotKeyData of a scan. The serialized size of each format is
+ * printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    /**
+     * Serialization format of the top n.
+     */
+    public enum Format {
+	JAVA, POF, POF_BINARY_KEYS
+    }
+
+    @Param({ "100", "10000" })
+    private int topN;
+
+    @Param({ "JAVA", "POF", "POF_BINARY_KEYS" })
+    private Format format;
+
+    private Serializer serializer;
+    private SortedCollectionWithCapacity<HotKeyData<Integer>> collection;
+    private Binary binary;
+
+    @Setup
+    public void setup() {
+	ConfigurablePofContext pofContext = new ConfigurablePofContext("hotkeys-pof-config.xml");
+	serializer = format == Format.JAVA ? new DefaultSerializer() : pofContext;
+	collection = new SortedCollectionWithCapacity<HotKeyData<Integer>>(topN);
+	for (int i = 0; i < topN; i++) {
+	    HotKeyData<Integer> hotKey = new HotKeyData<Integer>(Integer.valueOf(i * 7919), i % 1000);
+	    if (format == Format.POF_BINARY_KEYS) {
+		hotKey.setBinaryKey(ExternalizableHelper.toBinary(hotKey.getKey(), pofContext));
+	    }
+	    collection.add(hotKey);
+	}
+	binary = ExternalizableHelper.toBinary(collection, serializer);
+	System.out.println(format + ": " + topN + " hot keys in " + binary.length() + " bytes");
+    }
+
+    /**
+     * Serializes the top n, one operation being the whole top n.
+     */
+    @Benchmark
+    public Binary serialize() {
+	return ExternalizableHelper.toBinary(collection, serializer);
+    }
+
+    /**
+     * Deserializes the top n, one operation being the whole top n.
+     */
+    @Benchmark
+    public Object deserialize() {
+	return ExternalizableHelper.fromBinary(binary, serializer);
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.mycompany.coherence.hotkeys.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mycompany.coherence.hotkeys.invocable.HotKeyData;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+
+/**
+ * Benchmarks of the bounded top n: adding the hot keys of a whole member one
+ * by one, and merging the top n of several members as the client does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class SortedCollectionWithCapacityBenchmark {
+
+    private static final int MEMBERS = 8;
+
+    @Param({ "100000", "1000000" })
+    private int entries;
+
+    @Param({ "100", "10000" })
+    private int topN;
+
+    @Param({ "UNIFORM", "ZIPFIAN" })
+    private KeyDistribution distribution;
+
+    private List<HotKeyData<Integer>> hotKeys;
+    private List<SortedCollectionWithCapacity<HotKeyData<Integer>>> memberResults;
+
+    @Setup
+    public void setup() {
+	int[] touchCounts = distribution.touchCounts(entries, entries, 42);
+	hotKeys = new ArrayList<HotKeyData<Integer>>(entries);
+	for (int key = 0; key < entries; key++) {
+	    hotKeys.add(new HotKeyData<Integer>(key, touchCounts[key]));
+	}
+
+	// keys are spread over the members as partitions would spread them
+	memberResults = new ArrayList<SortedCollectionWithCapacity<HotKeyData<Integer>>>(MEMBERS);
+	for (int i = 0; i < MEMBERS; i++) {
+	    memberResults.add(new SortedCollectionWithCapacity<HotKeyData<Integer>>(topN));
+	}
+	for (HotKeyData<Integer> hotKey : hotKeys) {
+	    memberResults.get(hotKey.getKey() % MEMBERS).add(hotKey);
+	}
+    }
+
+    /**
+     * Adds every hot key of a member, one operation being the whole member.
+     */
+    @Benchmark
+    public SortedCollectionWithCapacity<HotKeyData<Integer>> add() {
+	SortedCollectionWithCapacity<HotKeyData<Integer>> results = new SortedCollectionWithCapacity<HotKeyData<Integer>>(
+		topN);
+	for (HotKeyData<Integer> hotKey : hotKeys) {
+	    results.add(hotKey);
+	}
+	return results;
+    }
+
+    /**
+     * Merges the top n of 8 members, one operation being the 8 merges.
+     */
+    @Benchmark
+    public SortedCollectionWithCapacity<HotKeyData<Integer>> merge() {
+	SortedCollectionWithCapacity<HotKeyData<Integer>> mergedResult = new SortedCollectionWithCapacity<HotKeyData<Integer>>(
+		topN);
+	for (SortedCollectionWithCapacity<HotKeyData<Integer>> memberResult : memberResults) {
+	    mergedResult.merge(memberResult);
+	}
+	return mergedResult;
+    }
+
+}
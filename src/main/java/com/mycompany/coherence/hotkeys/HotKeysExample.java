@@ -1,10 +1,16 @@
 package com.mycompany.coherence.hotkeys;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.cli.BasicParser;
 import org.apache.commons.cli.CommandLine;
@@ -13,17 +19,37 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
+import com.mycompany.coherence.hotkeys.aggregator.HotKeyAggregator;
+import com.mycompany.coherence.hotkeys.client.HotKeyCollection;
+import com.mycompany.coherence.hotkeys.client.HotKeyCollector;
+import com.mycompany.coherence.hotkeys.client.HotKeyFrontCache;
+import com.mycompany.coherence.hotkeys.history.HotKeyHistory;
+import com.mycompany.coherence.hotkeys.invocable.EntryProfile;
 import com.mycompany.coherence.hotkeys.invocable.HotKeyData;
+import com.mycompany.coherence.hotkeys.invocable.HotKeyDeltaView;
 import com.mycompany.coherence.hotkeys.invocable.HotKeyInvocable;
-import com.mycompany.coherence.hotkeys.invocable.HotKeyInvocationObserver;
+import com.mycompany.coherence.hotkeys.invocable.MultiCacheHotKeyInvocable;
+import com.mycompany.coherence.hotkeys.invocable.MultiCacheHotKeys;
+import com.mycompany.coherence.hotkeys.invocable.PartitionHeat;
+import com.mycompany.coherence.hotkeys.invocable.PartitionHeatMap;
+import com.mycompany.coherence.hotkeys.invocable.ProgressiveHotKeyObserver;
+import com.mycompany.coherence.hotkeys.invocable.ThresholdTopKCollector;
+import com.mycompany.coherence.hotkeys.load.KeyDistribution;
+import com.mycompany.coherence.hotkeys.load.LoadGenerator;
+import com.mycompany.coherence.hotkeys.metrics.HotKeyClientMetrics;
+import com.mycompany.coherence.hotkeys.tracker.LockContention;
+import com.mycompany.coherence.hotkeys.tracker.RateWindow;
+import com.mycompany.coherence.hotkeys.tracker.TimedEntryProcessor;
 import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
 import com.tangosol.net.CacheFactory;
 import com.tangosol.net.DistributedCacheService;
 import com.tangosol.net.Invocable;
-import com.tangosol.net.InvocationObserver;
 import com.tangosol.net.InvocationService;
 import com.tangosol.net.Member;
 import com.tangosol.net.NamedCache;
+import com.tangosol.net.Service;
+import com.tangosol.util.filter.AlwaysFilter;
+import com.tangosol.util.processor.ConditionalPut;
 
 /**
  * This will trigger the invocation of the HotKeyInvocable. This application gas
@@ -36,6 +62,13 @@ public class HotKeysExample {
     protected static final String DEFAULT_INVOCATION_SERVICE_NAME = "InvocationService";
     protected static final boolean DEFAULT_VERBOSITY = false;
     protected static final String DEFAULT_CACHE_NAME = "default_cache";
+    protected static final int DEFAULT_PARALLELISM = 1;
+    protected static final int DEFAULT_CHUNK_SIZE = 0;
+    protected static final int DEFAULT_RUNS = 1;
+    protected static final int DEFAULT_LOAD_THREADS = 4;
+    protected static final long DEFAULT_READ_MILLIS = 10000;
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
 
     private static final int WARMUP_MAX = 1000000;
     private static final int WARMUP_MIN = 0;
@@ -47,7 +80,19 @@ public class HotKeysExample {
     private String distributedCacheServicename;
     private String invocationServiceName;
     private int topN;
-    private Map<Member, SortedCollectionWithCapacity<HotKeyData<Integer>>> invocationResults = new HashMap<Member, SortedCollectionWithCapacity<HotKeyData<Integer>>>();
+    private int parallelism = DEFAULT_PARALLELISM;
+    private HotKeyInvocable.Mode mode = HotKeyInvocable.Mode.TOUCH_COUNT;
+    private RateWindow rateWindow = RateWindow.ONE_MINUTE;
+    private HotKeyInvocable.KeyType keyType = HotKeyInvocable.KeyType.OBJECT;
+    private LockContention.Metric contentionMetric = LockContention.Metric.INVOCATIONS;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private double sampleFraction;
+    private int sampleSize;
+    private final HotKeyClientMetrics metrics = new HotKeyClientMetrics();
+    private HotKeyDeltaView<Integer> deltaView;
+    private SortedCollectionWithCapacity<HotKeyData<Integer>> lastResult;
+    private int deltaThreshold;
+    private long memberTimeoutMillis;
 
     static {
 	cliOptions = new Options();
@@ -59,9 +104,85 @@ public class HotKeysExample {
 		String.format("optional name of DistributedCache service; defaults to %s", DEFAULT_CACHE_SERVICE_NAME));
 	cliOptions.addOption("i", true,
 		String.format("optional name of InvocationService; defaults to %s", DEFAULT_INVOCATION_SERVICE_NAME));
+	cliOptions.addOption("p", true, String.format(
+		"optional number of threads scanning each member's partitions in parallel; defaults to %d",
+		DEFAULT_PARALLELISM));
+	cliOptions.addOption("a", false,
+		"aggregate the hot keys with NamedCache.aggregate instead of running an invocable on each member");
+	cliOptions.addOption("m", false,
+		"collect the exact top n in three rounds pushing touch count thresholds down to the members, "
+			+ "which send about n keys in total instead of n keys each");
+	cliOptions.addOption("w", true,
+		"optional deadline in milliseconds; results are merged as members complete and the merged "
+			+ "top n is reported, marked partial, when the deadline passes");
+	cliOptions.addOption("o", true,
+		"optional timeout in milliseconds of the result of each member; members answering later are "
+			+ "left out and reported as timed out");
+	cliOptions.addOption("s", true, String.format(
+		"optional number of entries after which members send the top n of the entries scanned "
+			+ "since their previous chunk, with -w; "
+			+ "defaults to %d (no intermediate chunk)",
+		DEFAULT_CHUNK_SIZE));
+	cliOptions.addOption("f", true,
+		"optional fraction (0 to 1) of the entries of each member to sample instead of scanning "
+			+ "every entry; the top n is then an estimate");
+	cliOptions.addOption("k", true,
+		"optional number of entries of each member to sample instead of scanning every entry; "
+			+ "the top n is then an estimate");
+	cliOptions.addOption("x", true, String.format(
+		"optional number of times the hot keys are collected, the latency distributions being "
+			+ "reported after the last run; defaults to %d",
+		DEFAULT_RUNS));
+	cliOptions.addOption("u", true,
+		"optional touch count threshold; with -x, members only send the keys that entered or left their "
+			+ "top n, or whose touch count changed by more than the threshold, since the previous run");
+	cliOptions.addOption("l", true,
+		"optional number of hot keys to pin in a client side front cache once collected; "
+			+ "the hot key gets of the warmup are then replayed through it and its hits reported");
+	cliOptions.addOption("g", true,
+		"optional number of hottest partitions to list from the heat map of the partitions of the cache, "
+			+ "with the skew of the touch counts over partitions and members, instead of the hot keys");
+	cliOptions.addOption("b", false, "also sum the binary sizes of the entries of each partition, with -g");
+	cliOptions.addOption("C", true,
+		"optional caches to collect the hot keys of in one invocation per member instead of the -c cache, "
+			+ "as comma separated service:cache patterns, '*' matching any characters, e.g. "
+			+ "PricePlanCacheService:*; members collect the caches concurrently with -p threads");
+	cliOptions.addOption("E", true,
+		"optional staleness to rank the coldest keys on, idle or age: members profile their entries in a "
+			+ "single scan into the top n by touch count, by value size and by staleness, with summary "
+			+ "statistics, instead of the hot keys");
+	cliOptions.addOption("z", true,
+		"optional distribution of the keys read by a load generator instead of the sample gets of the "
+			+ "warmup: uniform, zipfian[:theta], hotspot[:hot key fraction[:hot op fraction]] or "
+			+ "shifting[:theta[:period in milliseconds]]; the keys collected are compared with the keys "
+			+ "read the most");
+	cliOptions.addOption("q", true,
+		"optional number of reads per second of the load generator, with -z; defaults to as fast as possible");
+	cliOptions.addOption("e", true, String.format(
+		"optional duration in milliseconds of the reads of the load generator, with -z; defaults to %d",
+		DEFAULT_READ_MILLIS));
+	cliOptions.addOption("j", true,
+		String.format("optional number of threads loading the cache, and reading it with -z; defaults to %d",
+			DEFAULT_LOAD_THREADS));
+	cliOptions.addOption("y", true,
+		"optional directory of a hot key history the hot keys collected are appended to; the hottest keys "
+			+ "of the whole history and the trajectory of the hottest one are reported after the last run");
+	cliOptions.addOption("v", false,
+		"scan the Integer keys of the cache as primitive ints, members keeping and sending their top n "
+			+ "as packed arrays instead of HotKeyData");
+	cliOptions.addOption("h", true,
+		"optional entry processor statistic to rank the keys on, invocations, lock_wait or execution: "
+			+ "the load generator updates the keys drawn from the -z distribution, zipfian by default, "
+			+ "with timed entry processors instead of reading them, and the keys are collected from "
+			+ "the lock contention trackers of the members");
+	cliOptions.addOption("t", false,
+		"fetch the hot keys from the hot key tracker of the cache instead of scanning its backing map");
+	cliOptions.addOption("r", true,
+		"optional window in minutes (1, 5 or 15) of the decayed access rates to rank on, "
+			+ "from the hot key tracker of the cache");
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException, IOException {
 
 	CommandLine commandLine = null;
 	try {
@@ -81,13 +202,107 @@ public class HotKeysExample {
 	String cacheName = commandLine.getOptionValue("c", DEFAULT_CACHE_NAME);
 	String invocationServiceName = commandLine.getOptionValue("i", DEFAULT_INVOCATION_SERVICE_NAME);
 	int topN = Integer.parseInt(commandLine.getOptionValue("n", String.valueOf(DEFAULT_TOP_N)));
+	int parallelism = Integer.parseInt(commandLine.getOptionValue("p", String.valueOf(DEFAULT_PARALLELISM)));
 
 	printOptions(commandLine);
 
-	warmup(cacheName);
+	NamedCache cache = CacheFactory.getCache(cacheName);
+	LoadGenerator generator = new LoadGenerator(cache, WARMUP_MAX);
+	generator.setValueFactory(key -> "Price plan #" + key);
+	generator.setThreads(
+		Integer.parseInt(commandLine.getOptionValue("j", String.valueOf(DEFAULT_LOAD_THREADS))));
+	warmup(cache, generator);
+	boolean loadGenerated = commandLine.hasOption("z") || commandLine.hasOption("h");
+	if (loadGenerated) {
+	    KeyDistribution distribution = KeyDistribution.parse(commandLine.getOptionValue("z", "zipfian"),
+		    WARMUP_MAX);
+	    generator.setDistribution(distribution);
+	    generator.setTargetOpsPerSecond(Integer.parseInt(commandLine.getOptionValue("q", "0")));
+	    long readMillis = Long.parseLong(commandLine.getOptionValue("e", String.valueOf(DEFAULT_READ_MILLIS)));
+	    if (commandLine.hasOption("h")) {
+		long invocations = generator.invoke(readMillis, key -> new TimedEntryProcessor<Object, Object, Object>(
+			new ConditionalPut(AlwaysFilter.INSTANCE, "Price plan #" + key + " updated")));
+		System.out.println(String.format(
+			"Updated %d keys drawn from a %s distribution in %d ms (%d invocations/s)", invocations,
+			distribution, readMillis, invocations * 1000 / Math.max(readMillis, 1)));
+	    } else {
+		long reads = generator.read(readMillis);
+		System.out.println(String.format("Read %d keys drawn from a %s distribution in %d ms (%d reads/s)",
+			reads, distribution, readMillis, reads * 1000 / Math.max(readMillis, 1)));
+	    }
+	} else {
+	    sampleGets(cache);
+	}
 
 	HotKeysExample hotKeys = new HotKeysExample(cacheName, cacheServiceName, invocationServiceName, topN);
-	hotKeys.fetch();
+	hotKeys.setParallelism(parallelism);
+	hotKeys.setChunkSize(Integer.parseInt(commandLine.getOptionValue("s", String.valueOf(DEFAULT_CHUNK_SIZE))));
+	if (commandLine.hasOption("f")) {
+	    hotKeys.setSampleFraction(Double.parseDouble(commandLine.getOptionValue("f")));
+	}
+	if (commandLine.hasOption("k")) {
+	    hotKeys.setSampleSize(Integer.parseInt(commandLine.getOptionValue("k")));
+	}
+	if (commandLine.hasOption("o")) {
+	    hotKeys.setMemberTimeoutMillis(Long.parseLong(commandLine.getOptionValue("o")));
+	}
+	if (commandLine.hasOption("u")) {
+	    hotKeys.setDeltaThreshold(Integer.parseInt(commandLine.getOptionValue("u")));
+	}
+	if (commandLine.hasOption("v")) {
+	    hotKeys.setKeyType(HotKeyInvocable.KeyType.INT);
+	}
+	if (commandLine.hasOption("t")) {
+	    hotKeys.setMode(HotKeyInvocable.Mode.TRACKER);
+	}
+	if (commandLine.hasOption("r")) {
+	    hotKeys.setMode(HotKeyInvocable.Mode.DECAYED_RATE);
+	    hotKeys.setRateWindow(RateWindow.ofMinutes(Integer.parseInt(commandLine.getOptionValue("r"))));
+	}
+	if (commandLine.hasOption("h")) {
+	    hotKeys.setMode(HotKeyInvocable.Mode.LOCK_CONTENTION);
+	    hotKeys.setContentionMetric(
+		    LockContention.Metric.valueOf(commandLine.getOptionValue("h").toUpperCase()));
+	}
+	HotKeyHistory<Integer> history = null;
+	if (commandLine.hasOption("y")) {
+	    history = new HotKeyHistory<Integer>(new File(commandLine.getOptionValue("y")));
+	}
+	int runs = Integer.parseInt(commandLine.getOptionValue("x", String.valueOf(DEFAULT_RUNS)));
+	for (int run = 0; run < runs; run++) {
+	    if (commandLine.hasOption("g")) {
+		hotKeys.fetchPartitionHeat(Integer.parseInt(commandLine.getOptionValue("g")),
+			commandLine.hasOption("b"));
+	    } else if (commandLine.hasOption("C")) {
+		hotKeys.fetchCaches(commandLine.getOptionValue("C"));
+	    } else if (commandLine.hasOption("E")) {
+		hotKeys.fetchProfile(EntryProfile.Staleness.valueOf(commandLine.getOptionValue("E").toUpperCase()));
+	    } else if (commandLine.hasOption("a")) {
+		hotKeys.aggregate();
+	    } else if (commandLine.hasOption("w")) {
+		hotKeys.fetchProgressively(Long.parseLong(commandLine.getOptionValue("w")));
+	    } else if (commandLine.hasOption("m")) {
+		hotKeys.fetchWithThresholds();
+	    } else {
+		hotKeys.fetch();
+	    }
+	    if (history != null && hotKeys.lastResult != null) {
+		history.append(System.currentTimeMillis(), hotKeys.lastResult);
+	    }
+	}
+	if (history != null) {
+	    hotKeys.reportHistory(history);
+	    history.close();
+	}
+	if (runs > 1) {
+	    System.out.println(hotKeys.getMetrics());
+	}
+	if (loadGenerated) {
+	    hotKeys.reportRecall(generator.getTopReadKeys(topN));
+	}
+	if (commandLine.hasOption("l")) {
+	    hotKeys.pinHotKeys(Integer.parseInt(commandLine.getOptionValue("l")));
+	}
     }
 
     /**
@@ -107,21 +322,25 @@ public class HotKeysExample {
     }
 
     /**
-     * Warms up the cache with sample data.
+     * Warms up the cache with sample data, loaded by parallel bounded batches.
      * 
-     * @param cacheName
+     * @param cache
+     * @param generator
      */
-    private static void warmup(String cacheName) {
-
-	NamedCache cache = CacheFactory.getCache(cacheName);
+    private static void warmup(NamedCache cache, LoadGenerator generator) throws InterruptedException {
 
 	cache.truncate();
 
-	HashMap<Integer, String> newEntries = new HashMap<Integer, String>();
-	for (int i = 0; i < WARMUP_MAX; i++) {
-	    newEntries.put(new Integer(i), "Price plan #" + i);
-	}
-	cache.putAll(newEntries);
+	long loadMillis = generator.load();
+	System.out.println("Loaded " + WARMUP_MAX + " entries in " + loadMillis + " ms");
+    }
+
+    /**
+     * Sample gets of a few hot keys among random gets.
+     * 
+     * @param cache
+     */
+    private static void sampleGets(NamedCache cache) {
 
 	// Sample random gets
 
@@ -144,6 +363,30 @@ public class HotKeysExample {
 
     }
 
+    /**
+     * Pins the hot keys last collected in a HotKeyFrontCache and replays the
+     * hot key gets of the warmup through it.
+     * 
+     * @param capacity number of hot keys pinned
+     */
+    private void pinHotKeys(int capacity) {
+	HotKeyFrontCache<Integer, String> frontCache = new HotKeyFrontCache<Integer, String>(
+		CacheFactory.getCache(getCacheName()), capacity);
+	frontCache.setMinTouchCount(2);
+	frontCache.refresh(lastResult);
+	for (int i = 0; i < 50; i++) {
+	    frontCache.get(50);
+	}
+	for (int i = 0; i < 25; i++) {
+	    frontCache.get(25);
+	}
+	for (int i = 0; i < 10; i++) {
+	    frontCache.get(10);
+	}
+	System.out.println("Pinned " + frontCache.getPinnedKeys() + ": " + frontCache);
+	frontCache.close();
+    }
+
     protected static int nextRandom(int min, int max) {
 	return (int) Math.floor(Math.random() * (max - min + 1) + min);
     }
@@ -167,27 +410,290 @@ public class HotKeysExample {
 
 	showStorageMembers(getStorageMembers());
 
+	HotKeyCollector<Integer> collector = new HotKeyCollector<Integer>(getInvocationService());
+	collector.setParallelism(getParallelism());
+	collector.setMode(getMode());
+	collector.setRateWindow(getRateWindow());
+	collector.setKeyType(keyType);
+	collector.setContentionMetric(contentionMetric);
+	collector.setMemberTimeoutMillis(memberTimeoutMillis);
+	collector.setMetrics(metrics);
+	if (deltaView != null) {
+	    collector.setDeltaView(deltaView, deltaThreshold);
+	}
+
+	try {
+	    HotKeyCollection<Integer> collection = collector.collect(getCacheName(), getCacheServiceName(), getTopN())
+		    .get();
+	    lastResult = collection.getHotKeys();
+	    reportResults(collection);
+	    reportDelta();
+	} catch (InterruptedException ex) {
+	    CacheFactory.log("Interrupted while awaiting invocation completion.");
+	    CacheFactory.log(ex);
+	} catch (ExecutionException ex) {
+	    CacheFactory.log("The collection of the hot keys failed.");
+	    CacheFactory.log(ex.getCause());
+	}
+    }
+
+    /**
+     * Collects the top n keys without waiting for every member: results, and
+     * intermediate chunks of large backing maps, are merged as they arrive and
+     * the merged top n is reported every second until every member completes
+     * or the deadline passes.
+     * 
+     * @param deadlineMillis maximum time to wait for the members
+     */
+    private void fetchProgressively(long deadlineMillis) {
+
+	Set<Member> storageMembers = getStorageMembers();
+	if (storageMembers.size() == 0) {
+	    throw new IllegalStateException(
+		    "There must be storage members in the cluster for fetch top n keys to run.");
+	}
+
+	showStorageMembers(storageMembers);
+
 	long startTime = System.currentTimeMillis();
-	Map<Member, Invocable> tasks = createTasks();
-	final CountDownLatch countDownLatch = new CountDownLatch(tasks.size());
-	InvocationObserver observer = new HotKeyInvocationObserver<Integer>(countDownLatch, startTime,
-		invocationResults);
+	ProgressiveHotKeyObserver<Integer> observer = new ProgressiveHotKeyObserver<Integer>(storageMembers,
+		getTopN());
+	observer.setMetrics(metrics);
+	observer.setDeltaView(deltaView);
+	try {
+	    int localMemberId = getInvocationService().getCluster().getLocalMember().getId();
+	    for (Map.Entry<Member, Invocable> entry : createTasks().entrySet()) {
+		HotKeyInvocable<?> task = (HotKeyInvocable<?>) entry.getValue();
+		task.setChunkSize(getChunkSize(), observer.getRequestId(), localMemberId);
+		getInvocationService().execute(task, Collections.singleton(entry.getKey()), observer);
+	    }
+
+	    long deadline = startTime + deadlineMillis;
+	    long remaining = deadlineMillis;
+	    while (remaining > 0
+		    && !observer.await(Math.min(remaining, PROGRESS_INTERVAL_MILLIS), TimeUnit.MILLISECONDS)) {
+		remaining = deadline - System.currentTimeMillis();
+		List<HotKeyData<Integer>> hottest = observer.getMergedResult().getReversedOrder();
+		System.out.println("After " + (System.currentTimeMillis() - startTime) + " ms, "
+			+ observer.getPendingMembers().size() + " members still scanning, " + observer.getChunkCount()
+			+ " chunks received, hottest key so far: " + (hottest.isEmpty() ? "none" : hottest.get(0)));
+	    }
 
-	for (Map.Entry<Member, Invocable> entry : tasks.entrySet()) {
-	    Member member = entry.getKey();
-	    Invocable invocable = entry.getValue();
-	    getInvocationService().execute(invocable, Collections.singleton(member), observer);
+	    SortedCollectionWithCapacity<HotKeyData<Integer>> result = observer.getMergedResult();
+	    lastResult = result;
+	    metrics.recordCollection(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - startTime),
+		    observer.isPartial());
+	    if (observer.isPartial()) {
+		System.out.println("Partial top " + getTopN() + " hot keys after " + (System.currentTimeMillis() - startTime)
+			+ " ms, missing members " + observer.getPendingMembers());
+	    } else {
+		System.out.println("Total gathering of top " + getTopN() + " hot keys took "
+			+ (System.currentTimeMillis() - startTime) + " ms");
+	    }
+	    reportCoverage(observer.getCoverage());
+	    reportDelta();
+	    System.out.println(result);
+	} catch (InterruptedException ex) {
+	    CacheFactory.log("Interrupted while awaiting invocation completion.");
+	    CacheFactory.log(ex);
+	} finally {
+	    observer.close();
 	}
+    }
+
+    /**
+     * Collects the top n keys with the three rounds of the
+     * ThresholdTopKCollector instead of merging the top n of every member.
+     */
+    private void fetchWithThresholds() {
+
+	Set<Member> storageMembers = getStorageMembers();
+	if (storageMembers.size() == 0) {
+	    throw new IllegalStateException(
+		    "There must be storage members in the cluster for fetch top n keys to run.");
+	}
+
+	showStorageMembers(storageMembers);
+
+	long startTime = System.currentTimeMillis();
+	ThresholdTopKCollector<Integer> collector = new ThresholdTopKCollector<Integer>(getInvocationService(),
+		getCacheName(), getCacheServiceName(), getTopN());
+	collector.setParallelism(getParallelism());
+	collector.setMode(getMode());
+	collector.setRateWindow(getRateWindow());
+	collector.setContentionMetric(contentionMetric);
+	collector.setMetrics(metrics);
 
 	try {
-	    countDownLatch.await();
-	    reportResults(System.currentTimeMillis() - startTime);
+	    SortedCollectionWithCapacity<HotKeyData<Integer>> result = collector.collect(storageMembers);
+	    lastResult = result;
+	    metrics.recordCollection(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - startTime), false);
+	    System.out.println("Total gathering of top " + getTopN() + " hot keys took "
+		    + (System.currentTimeMillis() - startTime) + " ms");
+	    System.out.println("Members sent " + collector.getTransferredRecords(1) + " and "
+		    + collector.getTransferredRecords(2) + " touch counts then " + collector.getTransferredRecords(3)
+		    + " keys, instead of up to " + (long) getTopN() * storageMembers.size() + " keys");
+	    System.out.println(result);
 	} catch (InterruptedException ex) {
 	    CacheFactory.log("Interrupted while awaiting invocation completion.");
 	    CacheFactory.log(ex);
 	}
     }
 
+    /**
+     * Collects the touch counts of every partition of the cache in
+     * PARTITION_HEAT mode and reports their skew and the hottest partitions.
+     * 
+     * @param n     number of hottest partitions listed
+     * @param sizes whether the binary sizes of the entries are summed too
+     */
+    private void fetchPartitionHeat(int n, boolean sizes) {
+
+	Set<Member> storageMembers = getStorageMembers();
+	if (storageMembers.size() == 0) {
+	    throw new IllegalStateException(
+		    "There must be storage members in the cluster for fetch top n keys to run.");
+	}
+
+	long startTime = System.currentTimeMillis();
+	HotKeyInvocable<Integer> task = new HotKeyInvocable<Integer>(getCacheName(), getCacheServiceName(), getTopN());
+	task.setMode(HotKeyInvocable.Mode.PARTITION_HEAT);
+	task.setPartitionSizes(sizes);
+	@SuppressWarnings("unchecked")
+	Map<Member, Object> results = getInvocationService().query(task, storageMembers);
+
+	PartitionHeatMap heatMap = new PartitionHeatMap(getDistributedCacheService().getPartitionCount());
+	for (Map.Entry<Member, Object> entry : results.entrySet()) {
+	    if (entry.getValue() instanceof PartitionHeat) {
+		heatMap.add(entry.getKey(), (PartitionHeat) entry.getValue());
+	    }
+	}
+	metrics.recordCollection(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - startTime),
+		results.size() < storageMembers.size());
+	System.out.println("Total gathering of the heat of the partitions took "
+		+ (System.currentTimeMillis() - startTime) + " ms");
+	System.out.print(heatMap.report(n));
+    }
+
+    /**
+     * Collects the top n of several caches, of one or more services, with a
+     * single MultiCacheHotKeyInvocable per member and merges the results of
+     * the members cache by cache.
+     * 
+     * @param selectors comma separated service:cache patterns
+     */
+    private void fetchCaches(String selectors) {
+
+	MultiCacheHotKeyInvocable<Integer> task = new MultiCacheHotKeyInvocable<Integer>(getTopN());
+	task.setMode(getMode());
+	task.setParallelism(getParallelism());
+	Set<Member> storageMembers = new HashSet<>();
+	for (String selector : selectors.split(",")) {
+	    int separator = selector.indexOf(':');
+	    if (separator < 0) {
+		throw new IllegalArgumentException("A cache selector must be service:cache pattern: " + selector);
+	    }
+	    String serviceName = selector.substring(0, separator).trim();
+	    task.addCaches(serviceName, selector.substring(separator + 1).trim());
+	    Service service = CacheFactory.getService(serviceName);
+	    if (service instanceof DistributedCacheService) {
+		storageMembers.addAll(((DistributedCacheService) service).getOwnershipEnabledMembers());
+	    }
+	}
+	if (storageMembers.size() == 0) {
+	    throw new IllegalStateException(
+		    "There must be storage members in the cluster for fetch top n keys to run.");
+	}
+
+	long startTime = System.currentTimeMillis();
+	@SuppressWarnings("unchecked")
+	Map<Member, Object> results = getInvocationService().query(task, storageMembers);
+
+	MultiCacheHotKeys<Integer> merged = new MultiCacheHotKeys<Integer>();
+	for (Object result : results.values()) {
+	    if (result instanceof MultiCacheHotKeys) {
+		@SuppressWarnings("unchecked")
+		MultiCacheHotKeys<Integer> memberResult = (MultiCacheHotKeys<Integer>) result;
+		merged.merge(memberResult);
+	    }
+	}
+	metrics.recordCollection(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - startTime),
+		results.size() < storageMembers.size());
+	System.out.println("Total gathering of top " + getTopN() + " hot keys of the caches took "
+		+ (System.currentTimeMillis() - startTime) + " ms");
+	System.out.println(merged);
+    }
+
+    /**
+     * Profiles the entries of every storage member in PROFILE mode and reports
+     * the statistics of each member, then the hottest, largest and coldest
+     * keys of the whole cache.
+     * 
+     * @param staleness what the coldest keys are ranked on
+     */
+    private void fetchProfile(EntryProfile.Staleness staleness) {
+
+	Set<Member> storageMembers = getStorageMembers();
+	if (storageMembers.size() == 0) {
+	    throw new IllegalStateException(
+		    "There must be storage members in the cluster for fetch top n keys to run.");
+	}
+
+	long startTime = System.currentTimeMillis();
+	HotKeyInvocable<Integer> task = new HotKeyInvocable<Integer>(getCacheName(), getCacheServiceName(), getTopN());
+	task.setMode(HotKeyInvocable.Mode.PROFILE);
+	task.setParallelism(getParallelism());
+	task.setSampleFraction(getSampleFraction());
+	task.setSampleSize(getSampleSize());
+	task.setStaleness(staleness);
+	@SuppressWarnings("unchecked")
+	Map<Member, Object> results = getInvocationService().query(task, storageMembers);
+
+	EntryProfile<Integer> profile = null;
+	for (Map.Entry<Member, Object> entry : results.entrySet()) {
+	    if (entry.getValue() instanceof EntryProfile) {
+		@SuppressWarnings("unchecked")
+		EntryProfile<Integer> memberProfile = (EntryProfile<Integer>) entry.getValue();
+		System.out.println("Member " + entry.getKey().getId() + ": " + memberProfile.getStatistics());
+		if (profile == null) {
+		    profile = memberProfile;
+		} else {
+		    profile.merge(memberProfile);
+		}
+	    }
+	}
+	metrics.recordCollection(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - startTime),
+		results.size() < storageMembers.size());
+	System.out.println("Total profiling of the entries took " + (System.currentTimeMillis() - startTime) + " ms");
+	if (profile != null) {
+	    lastResult = profile.getHottest();
+	    System.out.println("All members: " + profile.getStatistics());
+	    System.out.println("Hottest (touch count): " + profile.getHottest());
+	    System.out.println("Largest (value bytes): " + profile.getLargest());
+	    System.out.println("Coldest (" + staleness.name().toLowerCase() + " seconds): " + profile.getColdest());
+	}
+    }
+
+    /**
+     * Collects the top n keys with a streaming aggregator running on the
+     * partition parallel aggregation engine of the cache service; no invocation
+     * service is needed.
+     */
+    private void aggregate() {
+
+	long startTime = System.currentTimeMillis();
+	NamedCache cache = CacheFactory.getCache(getCacheName());
+	@SuppressWarnings("unchecked")
+	SortedCollectionWithCapacity<HotKeyData<Integer>> result = (SortedCollectionWithCapacity<HotKeyData<Integer>>) cache
+		.aggregate(AlwaysFilter.INSTANCE, new HotKeyAggregator<Integer>(getTopN()));
+	lastResult = result;
+	metrics.recordCollection(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - startTime), false);
+
+	System.out.println("Total aggregation of top " + getTopN() + " hot keys took "
+		+ (System.currentTimeMillis() - startTime) + " ms");
+	System.out.println(result);
+    }
+
     private InvocationService getInvocationService() {
 	// TODO Auto-generated method stub
 	return (InvocationService) CacheFactory.getService(invocationServiceName);
@@ -222,6 +728,16 @@ public class HotKeysExample {
 	for (Member member : storageMembers) {
 	    HotKeyInvocable<Integer> task = new HotKeyInvocable<Integer>(getCacheName(), getCacheServiceName(),
 		    getTopN());
+	    task.setParallelism(getParallelism());
+	    task.setMode(getMode());
+	    task.setRateWindow(getRateWindow());
+	    task.setSampleFraction(getSampleFraction());
+	    task.setSampleSize(getSampleSize());
+	    task.setKeyType(keyType);
+	    task.setContentionMetric(contentionMetric);
+	    if (deltaView != null) {
+		task.setDelta(deltaView.getDeltaId(), deltaView.getVersion(member), deltaThreshold);
+	    }
 	    fetchHotKeysByMember.put(member, task);
 	}
 	return fetchHotKeysByMember;
@@ -235,26 +751,231 @@ public class HotKeysExample {
 	return this.topN;
     }
 
-    private void reportResults(long executionTime) {
+    private int getParallelism() {
+	return this.parallelism;
+    }
 
-	SortedCollectionWithCapacity<HotKeyData<Integer>> mergedResult = new SortedCollectionWithCapacity<HotKeyData<Integer>>(
-		getTopN());
+    /**
+     * Sets the number of threads each storage member scans its partitions with.
+     * 
+     * @param parallelism
+     */
+    public void setParallelism(int parallelism) {
+	this.parallelism = parallelism;
+    }
 
-	for (Map.Entry<Member, SortedCollectionWithCapacity<HotKeyData<Integer>>> entry : invocationResults
-		.entrySet()) {
-	    Member member = entry.getKey();
-	    if (entry.getValue() != null) {
-		SortedCollectionWithCapacity<HotKeyData<Integer>> result = entry.getValue();
-		System.out.println(
-			"Execution on member " + getShortMemberInfo(member) + " took " + result.getElapsed() + " ms");
-		mergedResult.merge(result);
-	    } else {
-		System.out.println("Error: missing result for member " + member);
+    /**
+     * Sets the time after which the members that have not answered are left
+     * out of a collection.
+     * 
+     * @param memberTimeoutMillis
+     */
+    public void setMemberTimeoutMillis(long memberTimeoutMillis) {
+	this.memberTimeoutMillis = memberTimeoutMillis;
+    }
+
+    private int getChunkSize() {
+	return this.chunkSize;
+    }
+
+    /**
+     * Sets the number of entries after which storage members send the top n
+     * of the entries scanned since their previous chunk when fetching
+     * progressively.
+     * 
+     * @param chunkSize
+     */
+    public void setChunkSize(int chunkSize) {
+	this.chunkSize = chunkSize;
+    }
+
+    private double getSampleFraction() {
+	return this.sampleFraction;
+    }
+
+    /**
+     * Sets the fraction of the entries of each storage member to sample instead
+     * of scanning every entry.
+     * 
+     * @param sampleFraction
+     */
+    public void setSampleFraction(double sampleFraction) {
+	this.sampleFraction = sampleFraction;
+    }
+
+    private int getSampleSize() {
+	return this.sampleSize;
+    }
+
+    /**
+     * Sets the number of entries of each storage member to sample instead of
+     * scanning every entry.
+     * 
+     * @param sampleSize
+     */
+    public void setSampleSize(int sampleSize) {
+	this.sampleSize = sampleSize;
+    }
+
+    /**
+     * Makes storage members send the changes of their top n since the previous
+     * collection instead of their whole top n, rebuilt by a HotKeyDeltaView.
+     * 
+     * @param deltaThreshold largest touch count change left unreported
+     */
+    public void setDeltaThreshold(int deltaThreshold) {
+	this.deltaThreshold = deltaThreshold;
+	this.deltaView = new HotKeyDeltaView<Integer>(getTopN());
+    }
+
+    /**
+     * Returns the latency and merge times of the collections run so far.
+     * 
+     * @return HotKeyClientMetrics
+     */
+    public HotKeyClientMetrics getMetrics() {
+	return this.metrics;
+    }
+
+    private HotKeyInvocable.Mode getMode() {
+	return this.mode;
+    }
+
+    /**
+     * Sets where the storage members fetch the hot keys from.
+     * 
+     * @param mode
+     */
+    public void setMode(HotKeyInvocable.Mode mode) {
+	this.mode = mode;
+    }
+
+    private RateWindow getRateWindow() {
+	return this.rateWindow;
+    }
+
+    /**
+     * Sets the window of the decayed access rates ranked on in DECAYED_RATE
+     * mode.
+     * 
+     * @param rateWindow
+     */
+    public void setRateWindow(RateWindow rateWindow) {
+	this.rateWindow = rateWindow;
+    }
+
+    /**
+     * Sets the type of the keys of the cache, INT for the storage members to
+     * scan the Integer keys as primitives.
+     * 
+     * @param keyType
+     */
+    public void setKeyType(HotKeyInvocable.KeyType keyType) {
+	this.keyType = keyType;
+    }
+
+    /**
+     * Sets the entry processor statistic the keys are ranked on in
+     * LOCK_CONTENTION mode.
+     * 
+     * @param contentionMetric
+     */
+    public void setContentionMetric(LockContention.Metric contentionMetric) {
+	this.contentionMetric = contentionMetric;
+    }
+
+    /**
+     * Reports the execution time of each member, from the invocation to its
+     * result, and the top n, merged by the observer as the member results
+     * arrived.
+     */
+    private void reportResults(HotKeyCollection<Integer> collection) {
+
+	for (Map.Entry<Member, Long> entry : collection.getLatencies().entrySet()) {
+	    System.out.println(
+		    "Execution on member " + getShortMemberInfo(entry.getKey()) + " took " + entry.getValue() + " ms");
+	}
+	for (Member member : collection.getFailedMembers().keySet()) {
+	    System.out.println("Error: missing result for failed member " + member);
+	}
+	for (Member member : collection.getDepartedMembers()) {
+	    System.out.println("Error: missing result for departed member " + member);
+	}
+	for (Member member : collection.getTimedOutMembers()) {
+	    System.out.println("Error: missing result for timed out member " + member);
+	}
+
+	System.out.println("Total gathering of top " + getTopN() + " hot keys took " + collection.getElapsedMillis()
+		+ " ms");
+	reportCoverage(collection.getCoverage());
+	System.out.println(collection.getHotKeys());
+    }
+
+    /**
+     * Reports how many of the keys read, or updated, the most by the load
+     * generator were collected; keys tied at the n-th read count may differ.
+     * 
+     * @param readKeys keys read the most
+     */
+    private void reportRecall(SortedCollectionWithCapacity<HotKeyData<Integer>> readKeys) {
+	if (lastResult == null) {
+	    return;
+	}
+	Set<Integer> collectedKeys = new HashSet<Integer>();
+	for (HotKeyData<Integer> hotKey : lastResult.getSortedSet()) {
+	    collectedKeys.add(hotKey.getKey());
+	}
+	int found = 0;
+	for (HotKeyData<Integer> readKey : readKeys.getSortedSet()) {
+	    if (collectedKeys.contains(readKey.getKey())) {
+		found++;
 	    }
 	}
+	System.out.println(String.format("%d of the %d keys read the most were collected (recall %.1f%%), "
+		+ "keys read the most: %s", found, readKeys.size(), 100.0 * found / Math.max(readKeys.size(), 1),
+		readKeys));
+    }
 
-	System.out.println("Total gathering of top " + getTopN() + " hot keys took " + executionTime + " ms");
-	System.out.println(mergedResult);
+    /**
+     * Reports the hottest keys of the whole history and when the hottest one
+     * became hot.
+     * 
+     * @param history
+     */
+    private void reportHistory(HotKeyHistory<Integer> history) {
+	SortedCollectionWithCapacity<HotKeyData<Integer>> topKeys = history.getTopKeys(0, Long.MAX_VALUE, getTopN());
+	System.out.println("Hottest keys of the " + history.getSnapshotCount() + " snapshots of the history, "
+		+ history.getKeyCount() + " keys: " + topKeys);
+	List<HotKeyData<Integer>> hottest = topKeys.getReversedOrder();
+	if (!hottest.isEmpty()) {
+	    Integer key = hottest.get(0).getKey();
+	    HotKeyHistory.Trajectory trajectory = history.getTrajectory(key, 0, Long.MAX_VALUE);
+	    System.out.println("Key " + key + " is hot since " + new Date(trajectory.getFirstTimestamp())
+		    + ": " + trajectory);
+	}
+    }
+
+    /**
+     * Reports the number of keys the members sent in delta results so far.
+     */
+    private void reportDelta() {
+	if (deltaView != null) {
+	    System.out.println("Members sent " + deltaView.getUpdatedCount() + " entered or changed keys and "
+		    + deltaView.getRemovedCount() + " left keys so far");
+	}
+    }
+
+    /**
+     * Reports the coverage of a sampled top n: every key, hot or not, had
+     * about the coverage as a chance to be sampled.
+     */
+    private void reportCoverage(double coverage) {
+	if (coverage < 1.0) {
+	    System.out.println(String.format(
+		    "Estimated top %d from a sample of %.1f%% of the entries: each hot key had a %.1f%% chance "
+			    + "to be sampled, so about %.1f%% of the true top %d is expected to be found",
+		    getTopN(), coverage * 100, coverage * 100, coverage * 100, getTopN()));
+	}
     }
 
     private String getShortMemberInfo(Member member) {
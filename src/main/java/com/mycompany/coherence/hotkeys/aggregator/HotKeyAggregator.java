@@ -0,0 +1,198 @@
+package com.mycompany.coherence.hotkeys.aggregator;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.mycompany.coherence.hotkeys.invocable.BackingMapScanner;
+import com.mycompany.coherence.hotkeys.invocable.HotKeyCandidate;
+import com.mycompany.coherence.hotkeys.invocable.HotKeyData;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.io.pof.PofReader;
+import com.tangosol.io.pof.PofWriter;
+import com.tangosol.io.pof.PortableObject;
+import com.tangosol.net.BackingMapContext;
+import com.tangosol.net.BackingMapManagerContext;
+import com.tangosol.net.PartitionedService;
+import com.tangosol.net.partition.PartitionAwareBackingMap;
+import com.tangosol.net.partition.PartitionSet;
+import com.tangosol.util.Binary;
+import com.tangosol.util.BinaryEntry;
+import com.tangosol.util.InvocableMap;
+import com.tangosol.util.Streamer;
+
+/**
+ * Streaming aggregator collecting the top n touch counts of a cache, to be run
+ * with NamedCache.aggregate on that cache and an AlwaysFilter. It runs on the
+ * partition parallel aggregation engine of the cache service, so it needs no
+ * invocation service, scales with the aggregation threads and, partitions
+ * being aggregated again on their new owner when they move, sees each
+ * partition once while partitions are transferred.
+ * <p>
+ * Touch counts are not available from the streamed entries: each stream only
+ * gives the partitions of its entries, from their binary keys, and the
+ * partition maps of the backing map are scanned into a bounded top n that is
+ * the partial result of the stream. The partial results are combined with the
+ * same bounded top n. The backing map should be partitioned, otherwise every
+ * stream walks the whole backing map to keep the entries of its partitions.
+ * <p>
+ * Neither the keys nor the values of the streamed entries are read, which
+ * leaves their touch counts unchanged, unless the backing map may expire or
+ * evict entries: the cache service then reads every streamed entry to check
+ * its expiry, which touches it once per aggregation. The touch counts of such
+ * caches are better collected with the HotKeyInvocable.
+ * 
+ * @param K The type of the key of cache entries, should implement Comparable
+ */
+public class HotKeyAggregator<K extends Comparable<K>> implements
+	InvocableMap.StreamingAggregator<Object, Object, SortedCollectionWithCapacity<HotKeyData<K>>,
+		SortedCollectionWithCapacity<HotKeyData<K>>>,
+	PortableObject, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int topN;
+    private transient SortedCollectionWithCapacity<HotKeyData<K>> results;
+    // partitions already scanned by this aggregator, for entries accumulated
+    // one by one
+    private transient PartitionSet scannedPartitions;
+
+    /**
+     * Default constructor, for POF deserialization.
+     */
+    public HotKeyAggregator() {
+    }
+
+    /**
+     * HotKeyAggregator constructor.
+     * 
+     * @param topN number of hot keys to collect
+     */
+    public HotKeyAggregator(int topN) {
+	this.topN = topN;
+    }
+
+    public InvocableMap.StreamingAggregator<Object, Object, SortedCollectionWithCapacity<HotKeyData<K>>,
+	    SortedCollectionWithCapacity<HotKeyData<K>>> supply() {
+	return new HotKeyAggregator<K>(topN);
+    }
+
+    /**
+     * Scans the partitions of the streamed entries, reading only their binary
+     * keys.
+     */
+    public boolean accumulate(Streamer<? extends InvocableMap.Entry<? extends Object, ? extends Object>> streamer) {
+	BackingMapContext backingMapContext = null;
+	PartitionSet partitions = null;
+	while (streamer.hasNext()) {
+	    BinaryEntry<?, ?> entry = (BinaryEntry<?, ?>) streamer.next();
+	    if (backingMapContext == null) {
+		backingMapContext = entry.getBackingMapContext();
+		partitions = newPartitionSet(backingMapContext);
+	    }
+	    partitions.add(backingMapContext.getManagerContext().getKeyPartition(entry.getBinaryKey()));
+	}
+	if (backingMapContext != null) {
+	    scan(backingMapContext, partitions);
+	}
+	return true;
+    }
+
+    /**
+     * Scans the partition of the entry, unless this aggregator already
+     * scanned it; the entry is not read.
+     */
+    public boolean accumulate(InvocableMap.Entry<? extends Object, ? extends Object> entry) {
+	BinaryEntry<?, ?> binaryEntry = (BinaryEntry<?, ?>) entry;
+	BackingMapContext backingMapContext = binaryEntry.getBackingMapContext();
+	if (scannedPartitions == null) {
+	    scannedPartitions = newPartitionSet(backingMapContext);
+	}
+	int partition = backingMapContext.getManagerContext().getKeyPartition(binaryEntry.getBinaryKey());
+	if (!scannedPartitions.contains(partition)) {
+	    PartitionSet partitions = newPartitionSet(backingMapContext);
+	    partitions.add(partition);
+	    scannedPartitions.add(partition);
+	    scan(backingMapContext, partitions);
+	}
+	return true;
+    }
+
+    private static PartitionSet newPartitionSet(BackingMapContext backingMapContext) {
+	return new PartitionSet(
+		((PartitionedService) backingMapContext.getManagerContext().getCacheService()).getPartitionCount());
+    }
+
+    /**
+     * Scans the partition maps of some partitions of the backing map into the
+     * partial result.
+     */
+    private void scan(BackingMapContext backingMapContext, PartitionSet partitions) {
+	BackingMapManagerContext managerContext = backingMapContext.getManagerContext();
+	Map<?, ?> backingMap = managerContext.getBackingMap(backingMapContext.getCacheName());
+	BackingMapScanner<K> scanner = new BackingMapScanner<K>(managerContext.getKeyFromInternalConverter(), topN);
+	// partial results are sent by the cache service itself
+	scanner.setKeepBinaryKeys(true);
+	List<Collection<?>> segments;
+	if (backingMap instanceof PartitionAwareBackingMap) {
+	    segments = BackingMapScanner.getSegments(backingMap, partitions, 1);
+	} else {
+	    List<Object> entries = new ArrayList<>();
+	    for (Map.Entry<?, ?> entry : backingMap.entrySet()) {
+		if (partitions.contains(managerContext.getKeyPartition((Binary) entry.getKey()))) {
+		    entries.add(entry);
+		}
+	    }
+	    segments = Collections.<Collection<?>>singletonList(entries);
+	}
+	SortedCollectionWithCapacity<HotKeyCandidate> candidates = scanner.scan(segments);
+	getResults().merge(scanner.convert(candidates));
+    }
+
+    public boolean combine(SortedCollectionWithCapacity<HotKeyData<K>> partialResult) {
+	getResults().merge(partialResult);
+	return true;
+    }
+
+    public SortedCollectionWithCapacity<HotKeyData<K>> getPartialResult() {
+	return getResults();
+    }
+
+    public SortedCollectionWithCapacity<HotKeyData<K>> finalizeResult() {
+	return getResults();
+    }
+
+    /**
+     * Partitions are aggregated in parallel, and only entries present in the
+     * backing map are of interest.
+     */
+    public int characteristics() {
+	return PARALLEL | PRESENT_ONLY;
+    }
+
+    private SortedCollectionWithCapacity<HotKeyData<K>> getResults() {
+	if (results == null) {
+	    results = new SortedCollectionWithCapacity<HotKeyData<K>>(topN);
+	}
+	return results;
+    }
+
+    /**
+     * POF readExternal
+     */
+    public void readExternal(PofReader pofReader) throws IOException {
+	topN = pofReader.readInt(0);
+    }
+
+    /**
+     * POF writeExternal
+     */
+    public void writeExternal(PofWriter pofWriter) throws IOException {
+	pofWriter.writeInt(0, topN);
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.mycompany.coherence.hotkeys.client;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.mycompany.coherence.hotkeys.invocable.HotKeyData;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.net.Member;
+
+/**
+ * Outcome of a collection of the hot keys of a cache by a HotKeyCollector: the
+ * merged top n of the members that completed, with the members that failed,
+ * left or did not answer before the member timeout.
+ * 
+ * @param K The type of the key of cache entries, should implement Comparable
+ */
+public class HotKeyCollection<K extends Comparable<K>> {
+
+    private final String cacheName;
+    private final SortedCollectionWithCapacity<HotKeyData<K>> hotKeys;
+    private final Map<Member, Long> latencies;
+    private final Map<Member, Throwable> failedMembers;
+    private final Set<Member> departedMembers;
+    private final Set<Member> timedOutMembers;
+    private final double coverage;
+    private final long elapsedMillis;
+
+    /**
+     * HotKeyCollection sole constructor.
+     * 
+     * @param cacheName       name of the cache
+     * @param hotKeys         merged top n of the completed members
+     * @param latencies       latency in milliseconds of each completed member
+     * @param failedMembers   members whose invocable failed, with the failure
+     * @param departedMembers members that left before completing
+     * @param timedOutMembers members that did not complete before the member
+     *                        timeout
+     * @param coverage        fraction of the entries of the completed members
+     *                        scanned
+     * @param elapsedMillis   duration of the collection
+     */
+    public HotKeyCollection(String cacheName, SortedCollectionWithCapacity<HotKeyData<K>> hotKeys,
+	    Map<Member, Long> latencies, Map<Member, Throwable> failedMembers, Set<Member> departedMembers,
+	    Set<Member> timedOutMembers, double coverage, long elapsedMillis) {
+	this.cacheName = cacheName;
+	this.hotKeys = hotKeys;
+	this.latencies = latencies;
+	this.failedMembers = failedMembers;
+	this.departedMembers = departedMembers;
+	this.timedOutMembers = timedOutMembers;
+	this.coverage = coverage;
+	this.elapsedMillis = elapsedMillis;
+    }
+
+    public String getCacheName() {
+	return cacheName;
+    }
+
+    public SortedCollectionWithCapacity<HotKeyData<K>> getHotKeys() {
+	return hotKeys;
+    }
+
+    /**
+     * Returns the time from the start of the collection to the result of each
+     * completed member.
+     * 
+     * @return Map of milliseconds by member
+     */
+    public Map<Member, Long> getLatencies() {
+	return latencies;
+    }
+
+    public Map<Member, Throwable> getFailedMembers() {
+	return failedMembers;
+    }
+
+    public Set<Member> getDepartedMembers() {
+	return departedMembers;
+    }
+
+    public Set<Member> getTimedOutMembers() {
+	return timedOutMembers;
+    }
+
+    public double getCoverage() {
+	return coverage;
+    }
+
+    public long getElapsedMillis() {
+	return elapsedMillis;
+    }
+
+    /**
+     * Tells if some members failed, left or timed out, the top n then missing
+     * the keys they own.
+     * 
+     * @return boolean
+     */
+    public boolean isPartial() {
+	return !failedMembers.isEmpty() || !departedMembers.isEmpty() || !timedOutMembers.isEmpty();
+    }
+
+    /**
+     * Returns the outcome of the collection, without the hot keys.
+     * 
+     * @return String
+     */
+    public String toString() {
+	return "HotKeyCollection [cacheName=" + cacheName + ", hotKeys=" + hotKeys.size() + ", completedMembers="
+		+ latencies.size() + ", failedMembers=" + failedMembers.keySet() + ", departedMembers="
+		+ departedMembers + ", timedOutMembers=" + timedOutMembers + ", elapsedMillis=" + elapsedMillis
+		+ "]";
+    }
+}
@@ -0,0 +1,392 @@
+package com.mycompany.coherence.hotkeys.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.mycompany.coherence.hotkeys.invocable.HotKeyData;
+import com.mycompany.coherence.hotkeys.invocable.HotKeyDeltaView;
+import com.mycompany.coherence.hotkeys.invocable.HotKeyInvocable;
+import com.mycompany.coherence.hotkeys.invocable.HotKeyInvocationObserver;
+import com.mycompany.coherence.hotkeys.metrics.HotKeyClientMetrics;
+import com.mycompany.coherence.hotkeys.tracker.LockContention;
+import com.mycompany.coherence.hotkeys.tracker.RateWindow;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.net.CacheFactory;
+import com.tangosol.net.DistributedCacheService;
+import com.tangosol.net.InvocationService;
+import com.tangosol.net.Member;
+
+/**
+ * Non-blocking collector of the hot keys of caches: each collection runs the
+ * HotKeyInvocable on the storage members of a cache and returns a
+ * CompletableFuture of the merged top n, completed once every member has
+ * completed, failed, left or timed out. No thread waits for the members: the
+ * results are merged by the invocation service as they arrive and the
+ * timeouts of all the collections are run by a single timer thread, so that
+ * any number of collections, of the same or of different caches, can be in
+ * flight at the same time.
+ * <p>
+ * Members that have not answered after the member timeout are left out, the
+ * collection completing with the top n of the others, marked partial; their
+ * late results are dropped. The future of a collection that has not completed
+ * after the overall timeout fails with a TimeoutException. The futures are
+ * completed on the completion executor, the common ForkJoinPool unless set,
+ * never on the threads of the invocation service.
+ * 
+ * @param K The type of the key of cache entries, should implement Comparable
+ */
+public class HotKeyCollector<K extends Comparable<K>> {
+
+    private static ScheduledExecutorService sharedTimer;
+
+    private final InvocationService invocationService;
+    private final ScheduledExecutorService timer;
+    private Executor completionExecutor = ForkJoinPool.commonPool();
+    private long memberTimeoutMillis;
+    private long timeoutMillis;
+    private int parallelism;
+    private HotKeyInvocable.Mode mode = HotKeyInvocable.Mode.TOUCH_COUNT;
+    private RateWindow rateWindow = RateWindow.ONE_MINUTE;
+    private long cpuBudgetMillis;
+    private HotKeyInvocable.KeyType keyType = HotKeyInvocable.KeyType.OBJECT;
+    private LockContention.Metric contentionMetric = LockContention.Metric.INVOCATIONS;
+    private HotKeyClientMetrics metrics;
+    private HotKeyDeltaView<K> deltaView;
+    private int deltaThreshold;
+
+    /**
+     * HotKeyCollector constructor running the timeouts on a timer thread shared
+     * by all the collectors.
+     * 
+     * @param invocationService service running the invocables
+     */
+    public HotKeyCollector(InvocationService invocationService) {
+	this(invocationService, getSharedTimer());
+    }
+
+    /**
+     * HotKeyCollector constructor.
+     * 
+     * @param invocationService service running the invocables
+     * @param timer             executor running the timeouts
+     */
+    public HotKeyCollector(InvocationService invocationService, ScheduledExecutorService timer) {
+	this.invocationService = invocationService;
+	this.timer = timer;
+    }
+
+    private static synchronized ScheduledExecutorService getSharedTimer() {
+	if (sharedTimer == null) {
+	    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+		Thread thread = new Thread(runnable, "HotKeyCollector");
+		thread.setDaemon(true);
+		return thread;
+	    });
+	    executor.setRemoveOnCancelPolicy(true);
+	    sharedTimer = executor;
+	}
+	return sharedTimer;
+    }
+
+    /**
+     * Starts collecting the top n hot keys of a cache on the storage members of
+     * its service.
+     * 
+     * @param cacheName        cache name
+     * @param cacheServiceName cache service name
+     * @param topN             number of hot keys to collect
+     * @return the future of the collection, failed with an
+     *         IllegalStateException if the service has no storage member
+     */
+    public CompletableFuture<HotKeyCollection<K>> collect(String cacheName, String cacheServiceName, int topN) {
+	CompletableFuture<HotKeyCollection<K>> future = new CompletableFuture<>();
+	try {
+	    Set<Member> storageMembers = ((DistributedCacheService) CacheFactory.getService(cacheServiceName))
+		    .getOwnershipEnabledMembers();
+	    if (storageMembers.isEmpty()) {
+		throw new IllegalStateException(
+			"There must be storage members in the cluster for the hot keys to be collected.");
+	    }
+	    new CollectionObserver(cacheName, cacheServiceName, topN, storageMembers, future).start();
+	} catch (RuntimeException ex) {
+	    future.completeExceptionally(ex);
+	}
+	return future;
+    }
+
+    private HotKeyInvocable<K> createTask(String cacheName, String cacheServiceName, int topN, Member member) {
+	HotKeyInvocable<K> task = new HotKeyInvocable<K>(cacheName, cacheServiceName, topN);
+	task.setParallelism(parallelism);
+	task.setMode(mode);
+	task.setRateWindow(rateWindow);
+	task.setCpuBudgetMillis(cpuBudgetMillis);
+	task.setKeyType(keyType);
+	task.setContentionMetric(contentionMetric);
+	if (deltaView != null) {
+	    task.setDelta(deltaView.getDeltaId(), deltaView.getVersion(member), deltaThreshold);
+	}
+	return task;
+    }
+
+    /**
+     * Sets the time after which the members that have not answered are left
+     * out of a collection.
+     * 
+     * @param memberTimeoutMillis timeout in milliseconds, 0 for none
+     */
+    public void setMemberTimeoutMillis(long memberTimeoutMillis) {
+	this.memberTimeoutMillis = memberTimeoutMillis;
+    }
+
+    /**
+     * Sets the time after which the future of a collection that has not
+     * completed fails with a TimeoutException.
+     * 
+     * @param timeoutMillis timeout in milliseconds, 0 for none
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+	this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Sets the executor the futures are completed on, and their dependent
+     * stages run on.
+     * 
+     * @param completionExecutor
+     */
+    public void setCompletionExecutor(Executor completionExecutor) {
+	this.completionExecutor = completionExecutor;
+    }
+
+    /**
+     * Sets the number of threads each storage member scans its partitions with.
+     * 
+     * @param parallelism
+     */
+    public void setParallelism(int parallelism) {
+	this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets where the storage members fetch the hot keys from.
+     * 
+     * @param mode
+     */
+    public void setMode(HotKeyInvocable.Mode mode) {
+	this.mode = mode;
+    }
+
+    /**
+     * Sets the window of the decayed access rates ranked on in DECAYED_RATE
+     * mode.
+     * 
+     * @param rateWindow
+     */
+    public void setRateWindow(RateWindow rateWindow) {
+	this.rateWindow = rateWindow;
+    }
+
+    /**
+     * Sets the CPU time each member may spend scanning its backing map, see
+     * HotKeyInvocable.setCpuBudgetMillis.
+     * 
+     * @param cpuBudgetMillis CPU budget in milliseconds, 0 or less for none
+     */
+    public void setCpuBudgetMillis(long cpuBudgetMillis) {
+	this.cpuBudgetMillis = cpuBudgetMillis;
+    }
+
+    /**
+     * Sets the type of the keys of the cache, see HotKeyInvocable.setKeyType.
+     * 
+     * @param keyType
+     */
+    public void setKeyType(HotKeyInvocable.KeyType keyType) {
+	this.keyType = keyType;
+    }
+
+    /**
+     * Sets the entry processor statistic ranked on in LOCK_CONTENTION mode,
+     * see HotKeyInvocable.setContentionMetric.
+     * 
+     * @param contentionMetric
+     */
+    public void setContentionMetric(LockContention.Metric contentionMetric) {
+	this.contentionMetric = contentionMetric;
+    }
+
+    /**
+     * Sets the metrics to record the collections, members latency and merge
+     * times in.
+     * 
+     * @param metrics
+     */
+    public void setMetrics(HotKeyClientMetrics metrics) {
+	this.metrics = metrics;
+    }
+
+    /**
+     * Makes storage members send the changes of their top n since the previous
+     * collection instead of their whole top n. A view holds the top n of a
+     * single cache: a collector with a delta view must only collect the cache
+     * and top n of the view.
+     * 
+     * @param deltaView      view the deltas are applied to
+     * @param deltaThreshold largest touch count change left unreported
+     */
+    public void setDeltaView(HotKeyDeltaView<K> deltaView, int deltaThreshold) {
+	this.deltaView = deltaView;
+	this.deltaThreshold = deltaThreshold;
+    }
+
+    /**
+     * Observer of a collection, each member being accounted for once, whichever
+     * of its result, failure, departure or timeout comes first.
+     */
+    private class CollectionObserver extends HotKeyInvocationObserver<K> {
+
+	private final String cacheName;
+	private final String cacheServiceName;
+	private final int topN;
+	private final Set<Member> members;
+	private final CompletableFuture<HotKeyCollection<K>> future;
+	private final Set<Member> pendingMembers = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger remaining;
+	private final Map<Member, Long> latencies = new ConcurrentHashMap<>();
+	private final Map<Member, Throwable> failedMembers = new ConcurrentHashMap<>();
+	private final Set<Member> departedMembers = ConcurrentHashMap.newKeySet();
+	private final Set<Member> timedOutMembers = ConcurrentHashMap.newKeySet();
+	private final List<ScheduledFuture<?>> timeouts = new ArrayList<>();
+
+	CollectionObserver(String cacheName, String cacheServiceName, int topN, Set<Member> members,
+		CompletableFuture<HotKeyCollection<K>> future) {
+	    super(new CountDownLatch(members.size()), System.currentTimeMillis(),
+		    Collections.synchronizedMap(new HashMap<Member, SortedCollectionWithCapacity<HotKeyData<K>>>()),
+		    topN);
+	    this.cacheName = cacheName;
+	    this.cacheServiceName = cacheServiceName;
+	    this.topN = topN;
+	    this.members = members;
+	    this.future = future;
+	    this.remaining = new AtomicInteger(members.size());
+	    setMetrics(metrics);
+	    setDeltaView(deltaView);
+	}
+
+	void start() {
+	    pendingMembers.addAll(members);
+	    if (memberTimeoutMillis > 0) {
+		timeouts.add(timer.schedule(this::timeOutPendingMembers, memberTimeoutMillis, TimeUnit.MILLISECONDS));
+	    }
+	    if (timeoutMillis > 0) {
+		TimeoutException timeout = new TimeoutException("The collection of the hot keys of the " + cacheName
+			+ " cache timed out after " + timeoutMillis + " ms.");
+		timeouts.add(timer.schedule(
+			() -> completionExecutor.execute(() -> future.completeExceptionally(timeout)), timeoutMillis,
+			TimeUnit.MILLISECONDS));
+	    }
+	    future.whenComplete((collection, throwable) -> timeouts.forEach(timeout -> timeout.cancel(false)));
+	    for (Member member : members) {
+		try {
+		    invocationService.execute(createTask(cacheName, cacheServiceName, topN, member),
+			    Collections.singleton(member), this);
+		} catch (RuntimeException ex) {
+		    memberFailed(member, ex);
+		}
+	    }
+	}
+
+	public void memberCompleted(Member member, Object result) {
+	    if (pendingMembers.remove(member)) {
+		try {
+		    super.memberCompleted(member, result);
+		    if (!failedMembers.containsKey(member)) {
+			latencies.put(member, getLatency(member));
+		    }
+		} finally {
+		    memberDone();
+		}
+	    } else {
+		CacheFactory.log(String.format("Dropped the late result of %s.", member));
+	    }
+	}
+
+	/**
+	 * Records a member whose result is not a top n, e.g. when the mode of
+	 * the collector collects no hot keys, as failed; the member is already
+	 * accounted for by memberCompleted.
+	 */
+	protected void resultFailed(Member member, RuntimeException exception) {
+	    failedMembers.put(member, exception);
+	    super.memberFailed(member, exception);
+	}
+
+	public void memberFailed(Member member, Throwable throwable) {
+	    if (pendingMembers.remove(member)) {
+		try {
+		    failedMembers.put(member, throwable);
+		    super.memberFailed(member, throwable);
+		} finally {
+		    memberDone();
+		}
+	    }
+	}
+
+	public void memberLeft(Member member) {
+	    if (pendingMembers.remove(member)) {
+		try {
+		    departedMembers.add(member);
+		    super.memberLeft(member);
+		} finally {
+		    memberDone();
+		}
+	    }
+	}
+
+	private void timeOutPendingMembers() {
+	    for (Member member : pendingMembers) {
+		if (pendingMembers.remove(member)) {
+		    timedOutMembers.add(member);
+		    if (metrics != null) {
+			metrics.recordFailedMember();
+		    }
+		    // the member has moved on to a version the view will not see
+		    if (deltaView != null) {
+			deltaView.remove(member);
+		    }
+		    CacheFactory.log(String.format("Task timed out on %s.", member));
+		    memberDone();
+		}
+	    }
+	}
+
+	private void memberDone() {
+	    if (remaining.decrementAndGet() > 0) {
+		return;
+	    }
+	    long elapsedMillis = System.currentTimeMillis() - getStartTime();
+	    HotKeyCollection<K> collection = new HotKeyCollection<K>(cacheName, getMerger().getResult(), latencies,
+		    failedMembers, departedMembers, timedOutMembers, getCoverage(), elapsedMillis);
+	    if (metrics != null) {
+		metrics.recordCollection(TimeUnit.MILLISECONDS.toNanos(elapsedMillis), collection.isPartial());
+	    }
+	    completionExecutor.execute(() -> future.complete(collection));
+	}
+    }
+
+}
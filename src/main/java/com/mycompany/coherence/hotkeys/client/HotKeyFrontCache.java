@@ -0,0 +1,306 @@
+package com.mycompany.coherence.hotkeys.client;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.mycompany.coherence.hotkeys.invocable.HotKeyData;
+import com.mycompany.coherence.hotkeys.sampler.HotKeySampler;
+import com.mycompany.coherence.hotkeys.sampler.HotKeySnapshot;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.net.CacheFactory;
+import com.tangosol.net.NamedCache;
+import com.tangosol.util.MapEvent;
+import com.tangosol.util.MapListener;
+import com.tangosol.util.MultiplexingMapListener;
+
+/**
+ * Client side front of a cache holding the values of its hot keys only, so
+ * that reads of the hottest keys are served locally instead of all going to
+ * the member owning their partition.
+ * <p>
+ * The front is bounded: each refresh pins the hottest keys of a merged top n,
+ * at most the capacity of the front and at least the minimum touch count, and
+ * evicts the pinned keys that are no longer among them. A refresh is
+ * incremental: only the keys entering the hot set are loaded, with one getAll,
+ * and listened to; the keys leaving it are dropped with their listener. The
+ * values of the pinned keys are kept up to date by key listeners on the back
+ * cache, so that reads of the front see the writes of other members.
+ * <p>
+ * Ranking on the decayed rates of the hot key tracker (DECAYED_RATE mode)
+ * makes keys that cool down leave the front; lifetime touch counts keep a key
+ * that was once hot pinned for as long as it stays in the top n.
+ * <p>
+ * When following the snapshots of a HotKeySampler, refreshes run on a thread
+ * of the front rather than on the event dispatcher thread, since they load
+ * values and add listeners; a snapshot published while a refresh runs
+ * replaces any snapshot still waiting, only the latest one being applied.
+ * 
+ * @param K The type of the key of cache entries, should implement Comparable
+ * @param V The type of the value of cache entries
+ */
+public class HotKeyFrontCache<K extends Comparable<K>, V> {
+
+    private final NamedCache backCache;
+    private final int capacity;
+    private int minTouchCount;
+    private final Map<K, V> front = new ConcurrentHashMap<>();
+    private final Set<K> pinnedKeys = ConcurrentHashMap.newKeySet();
+    private final Set<K> loadingKeys = ConcurrentHashMap.newKeySet();
+    private final Set<K> changedWhileLoading = ConcurrentHashMap.newKeySet();
+    private final MapListener valueListener = new ValueListener();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private MapListener snapshotListener;
+    private ExecutorService refresher;
+    private final AtomicReference<SortedCollectionWithCapacity<HotKeyData<K>>> pendingHotKeys = new AtomicReference<>();
+
+    /**
+     * HotKeyFrontCache sole constructor.
+     * 
+     * @param backCache cache whose hot keys are held
+     * @param capacity  maximum number of keys pinned
+     */
+    public HotKeyFrontCache(NamedCache backCache, int capacity) {
+	this.backCache = backCache;
+	this.capacity = capacity;
+    }
+
+    /**
+     * Returns the value of a key, from the front if the key is pinned and
+     * present, from the back cache otherwise.
+     * 
+     * @param key key
+     * @return the value, null if none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+	V value = front.get(key);
+	if (value != null) {
+	    hits.increment();
+	    return value;
+	}
+	misses.increment();
+	return (V) backCache.get(key);
+    }
+
+    /**
+     * Pins the hottest keys of a merged top n in the front, evicting the pinned
+     * keys that are no longer among them.
+     * 
+     * @param hotKeys merged top n
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void refresh(SortedCollectionWithCapacity<HotKeyData<K>> hotKeys) {
+	Set<K> hotSet = new HashSet<>();
+	for (HotKeyData<K> hotKey : hotKeys.getReversedOrder()) {
+	    if (hotSet.size() >= capacity || hotKey.getTouchCount() < minTouchCount) {
+		break;
+	    }
+	    hotSet.add(hotKey.getKey());
+	}
+
+	List<K> cooled = new ArrayList<>();
+	for (K key : pinnedKeys) {
+	    if (!hotSet.contains(key)) {
+		cooled.add(key);
+	    }
+	}
+	for (K key : cooled) {
+	    backCache.removeMapListener(valueListener, key);
+	    pinnedKeys.remove(key);
+	    front.remove(key);
+	}
+
+	hotSet.removeAll(pinnedKeys);
+	if (hotSet.isEmpty()) {
+	    return;
+	}
+	// keys are listened to before being loaded, a value changed while the
+	// getAll is in flight being the one kept
+	loadingKeys.addAll(hotSet);
+	for (K key : hotSet) {
+	    backCache.addMapListener(valueListener, key, false);
+	    pinnedKeys.add(key);
+	}
+	try {
+	    Map<K, V> values = backCache.getAll(hotSet);
+	    for (Map.Entry<K, V> entry : values.entrySet()) {
+		if (entry.getValue() != null && !changedWhileLoading.contains(entry.getKey())) {
+		    front.put(entry.getKey(), entry.getValue());
+		}
+	    }
+	} finally {
+	    loadingKeys.removeAll(hotSet);
+	    changedWhileLoading.removeAll(hotSet);
+	}
+    }
+
+    /**
+     * Refreshes the front with the HotKeySnapshots the HotKeySampler of the
+     * back cache publishes, starting with the last one published; the
+     * snapshots are applied by a single thread of the front, a snapshot
+     * superseding the one still waiting to be applied if any.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void followSnapshots() {
+	if (snapshotListener != null) {
+	    return;
+	}
+	String cacheName = backCache.getCacheName();
+	ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+	    Thread thread = new Thread(runnable, "HotKeyFrontCache:" + cacheName);
+	    thread.setDaemon(true);
+	    return thread;
+	});
+	refresher = executor;
+	snapshotListener = new MultiplexingMapListener() {
+	    protected void onMapEvent(MapEvent event) {
+		if (event.getId() != MapEvent.ENTRY_DELETED) {
+		    submitRefresh(executor, ((HotKeySnapshot<K>) event.getNewValue()).getHotKeys());
+		}
+	    }
+	};
+	CacheFactory.getCache(HotKeySampler.HOT_KEYS_CACHE_NAME).addMapListener(snapshotListener, cacheName, false);
+	HotKeySnapshot<K> snapshot = HotKeySampler.getSnapshot(cacheName);
+	if (snapshot != null) {
+	    refresh(snapshot.getHotKeys());
+	}
+    }
+
+    /**
+     * Hands the top n of a snapshot over to the refresher thread, without
+     * blocking the event dispatcher thread; a refresh is only queued when no
+     * top n is waiting, the waiting one being replaced otherwise.
+     */
+    private void submitRefresh(ExecutorService executor, SortedCollectionWithCapacity<HotKeyData<K>> hotKeys) {
+	if (pendingHotKeys.getAndSet(hotKeys) == null && !executor.isShutdown()) {
+	    executor.execute(this::refreshPending);
+	}
+    }
+
+    /**
+     * Refreshes the front with the latest top n handed over, unless the front
+     * has stopped following the snapshots meanwhile.
+     */
+    private synchronized void refreshPending() {
+	SortedCollectionWithCapacity<HotKeyData<K>> hotKeys = pendingHotKeys.getAndSet(null);
+	if (hotKeys != null && snapshotListener != null) {
+	    try {
+		refresh(hotKeys);
+	    } catch (RuntimeException ex) {
+		CacheFactory.log("The refresh of the hot keys front of " + backCache.getCacheName() + " failed.");
+		CacheFactory.log(ex);
+	    }
+	}
+    }
+
+    /**
+     * Unpins every key and stops following the snapshots.
+     */
+    public synchronized void close() {
+	if (snapshotListener != null) {
+	    CacheFactory.getCache(HotKeySampler.HOT_KEYS_CACHE_NAME).removeMapListener(snapshotListener,
+		    backCache.getCacheName());
+	    snapshotListener = null;
+	    refresher.shutdown();
+	    refresher = null;
+	    pendingHotKeys.set(null);
+	}
+	for (K key : pinnedKeys) {
+	    backCache.removeMapListener(valueListener, key);
+	}
+	pinnedKeys.clear();
+	front.clear();
+    }
+
+    /**
+     * Returns the pinned keys.
+     * 
+     * @return Set
+     */
+    public Set<K> getPinnedKeys() {
+	return pinnedKeys;
+    }
+
+    /**
+     * Returns the number of reads served by the front.
+     * 
+     * @return long
+     */
+    public long getHitCount() {
+	return hits.sum();
+    }
+
+    /**
+     * Returns the number of reads served by the back cache.
+     * 
+     * @return long
+     */
+    public long getMissCount() {
+	return misses.sum();
+    }
+
+    /**
+     * Returns the lowest touch count of the keys pinned.
+     * 
+     * @return int
+     */
+    public int getMinTouchCount() {
+	return minTouchCount;
+    }
+
+    /**
+     * Sets the lowest touch count of the keys pinned, so that a top n of
+     * mostly cold keys does not fill the front.
+     * 
+     * @param minTouchCount lowest touch count, 0 for all keys
+     */
+    public void setMinTouchCount(int minTouchCount) {
+	this.minTouchCount = minTouchCount;
+    }
+
+    /**
+     * Returns the hits and misses of the front.
+     * 
+     * @return String
+     */
+    public String toString() {
+	return "HotKeyFrontCache [cacheName=" + backCache.getCacheName() + ", pinnedKeys=" + pinnedKeys.size()
+		+ ", capacity=" + capacity + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+    }
+
+    /**
+     * Applies the changes of the values of the pinned keys to the front.
+     */
+    private class ValueListener extends MultiplexingMapListener {
+
+	@SuppressWarnings("unchecked")
+	protected void onMapEvent(MapEvent event) {
+	    K key = (K) event.getKey();
+	    if (loadingKeys.contains(key)) {
+		changedWhileLoading.add(key);
+	    }
+	    if (!pinnedKeys.contains(key)) {
+		return;
+	    }
+	    if (event.getId() == MapEvent.ENTRY_DELETED) {
+		front.remove(key);
+	    } else {
+		front.put(key, (V) event.getNewValue());
+		// the key may have been evicted meanwhile, with its listener
+		if (!pinnedKeys.contains(key)) {
+		    front.remove(key);
+		}
+	    }
+	}
+    }
+
+}
@@ -0,0 +1,462 @@
+package com.mycompany.coherence.hotkeys.history;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.mycompany.coherence.hotkeys.invocable.HotKeyData;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.util.ExternalizableHelper;
+
+/**
+ * Append-only history of the top n snapshots of a cache on disk, answering
+ * which keys were the hottest over a time range and how hot a key was over
+ * time without loading the history on the heap.
+ * <p>
+ * The history is a directory of memory-mapped segments, each made of a data
+ * file of fixed-width records (key id and touch count, 8 bytes) and of a time
+ * index file of one fixed-width entry per snapshot (timestamp, first record
+ * and record count, 16 bytes); a snapshot of the top 100 every 10 seconds
+ * takes about 7 MB a day. Keys are stored once, in a key dictionary file
+ * loaded on open, and referred to by id. A segment is rolled when its data or
+ * index file is full; the snapshot count in the header of the index file is
+ * written last, so that a snapshot partly written when the process stopped is
+ * ignored.
+ * <p>
+ * Snapshots must be appended in time order. A history is meant to be written
+ * by a single process; queries can run concurrently with appends.
+ * 
+ * @param K The type of the key of cache entries, should implement Comparable
+ */
+public class HotKeyHistory<K extends Comparable<K>> implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_RECORDS = 1 << 20;
+    public static final int DEFAULT_SEGMENT_SNAPSHOTS = 1 << 16;
+
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 8;
+    static final int INDEX_ENTRY_SIZE = 16;
+    private static final int DATA_MAGIC = 0x484B4844;
+    private static final int INDEX_MAGIC = 0x484B4849;
+    private static final int VERSION = 1;
+    private static final String KEYS_FILE_NAME = "keys.dat";
+
+    private final File directory;
+    private final int segmentRecords;
+    private final int segmentSnapshots;
+    private final Map<K, Integer> keyIds = new HashMap<>();
+    private final List<K> keys = new ArrayList<>();
+    private final FileOutputStream keysOut;
+    private final List<Segment> segments = new ArrayList<>();
+    private volatile int keyCount;
+
+    /**
+     * HotKeyHistory constructor opening, or creating, a history with segments
+     * of the default sizes.
+     * 
+     * @param directory directory of the history, of a single cache
+     * @throws IOException if the history cannot be read
+     */
+    public HotKeyHistory(File directory) throws IOException {
+	this(directory, DEFAULT_SEGMENT_RECORDS, DEFAULT_SEGMENT_SNAPSHOTS);
+    }
+
+    /**
+     * HotKeyHistory constructor opening, or creating, a history.
+     * 
+     * @param directory        directory of the history, of a single cache
+     * @param segmentRecords   number of records of the new segments
+     * @param segmentSnapshots number of snapshots of the new segments
+     * @throws IOException if the history cannot be read
+     */
+    public HotKeyHistory(File directory, int segmentRecords, int segmentSnapshots) throws IOException {
+	this.directory = directory;
+	this.segmentRecords = segmentRecords;
+	this.segmentSnapshots = segmentSnapshots;
+	if (!directory.isDirectory() && !directory.mkdirs()) {
+	    throw new IOException("Could not create the history directory " + directory);
+	}
+	File keysFile = new File(directory, KEYS_FILE_NAME);
+	long keysLength = readKeys(keysFile);
+	try (RandomAccessFile file = new RandomAccessFile(keysFile, "rw")) {
+	    // drops a key partly written when the process stopped
+	    file.setLength(keysLength);
+	}
+	this.keysOut = new FileOutputStream(keysFile, true);
+	for (int number = 0; new File(directory, dataFileName(number)).exists(); number++) {
+	    segments.add(new Segment(number, false));
+	}
+    }
+
+    @SuppressWarnings("unchecked")
+    private long readKeys(File keysFile) throws IOException {
+	long length = 0;
+	if (!keysFile.exists()) {
+	    return length;
+	}
+	try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(keysFile)))) {
+	    while (true) {
+		byte[] bytes;
+		try {
+		    bytes = new byte[in.readInt()];
+		    in.readFully(bytes);
+		} catch (EOFException ex) {
+		    break;
+		}
+		K key = (K) ExternalizableHelper.fromByteArray(bytes);
+		keyIds.put(key, keys.size());
+		keys.add(key);
+		length += 4 + bytes.length;
+	    }
+	}
+	keyCount = keys.size();
+	return length;
+    }
+
+    /**
+     * Appends a snapshot of the top n.
+     * 
+     * @param timestamp time of the snapshot, not before the last one appended
+     * @param hotKeys   top n
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized void append(long timestamp, SortedCollectionWithCapacity<HotKeyData<K>> hotKeys)
+	    throws IOException {
+	Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+	if (segment != null && segment.snapshotCount > 0 && timestamp < segment.getLastTimestamp()) {
+	    throw new IllegalStateException("The snapshot of " + timestamp + " is older than the last one, of "
+		    + segment.getLastTimestamp() + ".");
+	}
+	if (hotKeys.size() > segmentRecords) {
+	    throw new IllegalArgumentException("A snapshot of " + hotKeys.size() + " keys does not fit in segments of "
+		    + segmentRecords + " records.");
+	}
+	if (segment == null || !segment.fits(hotKeys.size())) {
+	    if (segment != null) {
+		segment.seal();
+	    }
+	    segment = new Segment(segments.size(), true);
+	    segments.add(segment);
+	}
+	int[] ids = new int[hotKeys.size()];
+	int[] touchCounts = new int[hotKeys.size()];
+	int i = 0;
+	for (HotKeyData<K> hotKey : hotKeys.getReversedOrder()) {
+	    ids[i] = getOrAddKeyId(hotKey.getKey());
+	    touchCounts[i++] = hotKey.getTouchCount();
+	}
+	segment.append(timestamp, ids, touchCounts);
+    }
+
+    private int getOrAddKeyId(K key) throws IOException {
+	Integer id = keyIds.get(key);
+	if (id == null) {
+	    byte[] bytes = ExternalizableHelper.toByteArray(key);
+	    ByteBuffer entry = ByteBuffer.allocate(4 + bytes.length);
+	    entry.putInt(bytes.length).put(bytes);
+	    keysOut.write(entry.array());
+	    id = keys.size();
+	    synchronized (keys) {
+		keys.add(key);
+	    }
+	    keyIds.put(key, id);
+	    keyCount = keys.size();
+	}
+	return id;
+    }
+
+    /**
+     * Returns the keys of the snapshots of a time range with the highest sum of
+     * their touch counts over the snapshots, i.e. the keys that were the
+     * hottest for the longest; sums above Integer.MAX_VALUE are capped.
+     * 
+     * @param from first time of the range, included
+     * @param to   last time of the range, included
+     * @param n    number of keys
+     * @return SortedCollectionWithCapacity
+     */
+    public SortedCollectionWithCapacity<HotKeyData<K>> getTopKeys(long from, long to, int n) {
+	int knownKeys = keyCount;
+	long[] heat = new long[knownKeys];
+	for (Segment segment : getSegments()) {
+	    ByteBuffer index = segment.index.duplicate();
+	    ByteBuffer data = segment.data.duplicate();
+	    int snapshotCount = segment.snapshotCount;
+	    for (int snapshot = segment.findSnapshot(from, snapshotCount); snapshot < snapshotCount; snapshot++) {
+		int entry = HEADER_SIZE + snapshot * INDEX_ENTRY_SIZE;
+		if (index.getLong(entry) > to) {
+		    break;
+		}
+		int first = index.getInt(entry + 8);
+		int count = index.getInt(entry + 12);
+		for (int record = first; record < first + count; record++) {
+		    int id = data.getInt(HEADER_SIZE + record * RECORD_SIZE);
+		    if (id < knownKeys) {
+			heat[id] += data.getInt(HEADER_SIZE + record * RECORD_SIZE + 4);
+		    }
+		}
+	    }
+	}
+	SortedCollectionWithCapacity<HotKeyData<K>> topKeys = new SortedCollectionWithCapacity<HotKeyData<K>>(n);
+	for (int id = 0; id < knownKeys; id++) {
+	    int touchCount = (int) Math.min(heat[id], Integer.MAX_VALUE);
+	    if (touchCount > 0 && topKeys.accepts(touchCount)) {
+		topKeys.add(new HotKeyData<K>(getKey(id), touchCount));
+	    }
+	}
+	return topKeys;
+    }
+
+    /**
+     * Returns the touch counts of a key in the snapshots of a time range it is
+     * part of; the first timestamp tells when the key became hot.
+     * 
+     * @param key  key
+     * @param from first time of the range, included
+     * @param to   last time of the range, included
+     * @return Trajectory, empty if the key is in no snapshot of the range
+     */
+    public Trajectory getTrajectory(K key, long from, long to) {
+	Integer id;
+	synchronized (this) {
+	    id = keyIds.get(key);
+	}
+	Trajectory trajectory = new Trajectory();
+	if (id == null) {
+	    return trajectory;
+	}
+	for (Segment segment : getSegments()) {
+	    ByteBuffer index = segment.index.duplicate();
+	    ByteBuffer data = segment.data.duplicate();
+	    int snapshotCount = segment.snapshotCount;
+	    for (int snapshot = segment.findSnapshot(from, snapshotCount); snapshot < snapshotCount; snapshot++) {
+		int entry = HEADER_SIZE + snapshot * INDEX_ENTRY_SIZE;
+		long timestamp = index.getLong(entry);
+		if (timestamp > to) {
+		    break;
+		}
+		int first = index.getInt(entry + 8);
+		int count = index.getInt(entry + 12);
+		for (int record = first; record < first + count; record++) {
+		    if (data.getInt(HEADER_SIZE + record * RECORD_SIZE) == id) {
+			trajectory.add(timestamp, data.getInt(HEADER_SIZE + record * RECORD_SIZE + 4));
+			break;
+		    }
+		}
+	    }
+	}
+	return trajectory;
+    }
+
+    /**
+     * Returns the number of snapshots appended.
+     * 
+     * @return long
+     */
+    public long getSnapshotCount() {
+	long snapshotCount = 0;
+	for (Segment segment : getSegments()) {
+	    snapshotCount += segment.snapshotCount;
+	}
+	return snapshotCount;
+    }
+
+    /**
+     * Returns the number of distinct keys of the snapshots.
+     * 
+     * @return int
+     */
+    public int getKeyCount() {
+	return keyCount;
+    }
+
+    private K getKey(int id) {
+	synchronized (keys) {
+	    return keys.get(id);
+	}
+    }
+
+    private synchronized List<Segment> getSegments() {
+	return new ArrayList<>(segments);
+    }
+
+    /**
+     * Forces the last segment to disk and closes the files; the history must
+     * not be used afterwards.
+     */
+    public synchronized void close() throws IOException {
+	if (!segments.isEmpty()) {
+	    segments.get(segments.size() - 1).seal();
+	}
+	keysOut.close();
+    }
+
+    private static String dataFileName(int number) {
+	return String.format("segment-%06d.dat", number);
+    }
+
+    private static String indexFileName(int number) {
+	return String.format("segment-%06d.idx", number);
+    }
+
+    /**
+     * Data and index files of a segment, mapped in memory.
+     */
+    private final class Segment {
+
+	private final MappedByteBuffer data;
+	private final MappedByteBuffer index;
+	private final int recordCapacity;
+	private final int snapshotCapacity;
+	private volatile int snapshotCount;
+	private int recordCount;
+
+	Segment(int number, boolean create) throws IOException {
+	    File dataFile = new File(directory, dataFileName(number));
+	    File indexFile = new File(directory, indexFileName(number));
+	    this.data = map(dataFile, create ? HEADER_SIZE + (long) segmentRecords * RECORD_SIZE : -1, DATA_MAGIC);
+	    this.index = map(indexFile, create ? HEADER_SIZE + (long) segmentSnapshots * INDEX_ENTRY_SIZE : -1,
+		    INDEX_MAGIC);
+	    this.recordCapacity = (data.capacity() - HEADER_SIZE) / RECORD_SIZE;
+	    this.snapshotCapacity = (index.capacity() - HEADER_SIZE) / INDEX_ENTRY_SIZE;
+	    int count = index.getInt(8);
+	    if (count > 0) {
+		int last = HEADER_SIZE + (count - 1) * INDEX_ENTRY_SIZE;
+		this.recordCount = index.getInt(last + 8) + index.getInt(last + 12);
+	    }
+	    this.snapshotCount = count;
+	}
+
+	private MappedByteBuffer map(File file, long size, int magic) throws IOException {
+	    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+		if (size > 0) {
+		    randomAccessFile.setLength(size);
+		}
+		MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+			randomAccessFile.length());
+		if (size > 0) {
+		    buffer.putInt(0, magic);
+		    buffer.putInt(4, VERSION);
+		} else if (buffer.getInt(0) != magic || buffer.getInt(4) != VERSION) {
+		    throw new IOException("The history file " + file + " is not of version " + VERSION + ".");
+		}
+		return buffer;
+	    }
+	}
+
+	boolean fits(int records) {
+	    return snapshotCount < snapshotCapacity && recordCount + records <= recordCapacity;
+	}
+
+	long getLastTimestamp() {
+	    return index.getLong(HEADER_SIZE + (snapshotCount - 1) * INDEX_ENTRY_SIZE);
+	}
+
+	void append(long timestamp, int[] ids, int[] touchCounts) {
+	    for (int i = 0; i < ids.length; i++) {
+		int position = HEADER_SIZE + (recordCount + i) * RECORD_SIZE;
+		data.putInt(position, ids[i]);
+		data.putInt(position + 4, touchCounts[i]);
+	    }
+	    int entry = HEADER_SIZE + snapshotCount * INDEX_ENTRY_SIZE;
+	    index.putLong(entry, timestamp);
+	    index.putInt(entry + 8, recordCount);
+	    index.putInt(entry + 12, ids.length);
+	    recordCount += ids.length;
+	    index.putInt(8, snapshotCount + 1);
+	    snapshotCount++;
+	}
+
+	/**
+	 * Returns the first snapshot at or after a time, by binary search of the
+	 * time index.
+	 */
+	int findSnapshot(long from, int count) {
+	    ByteBuffer entries = index.duplicate();
+	    int low = 0;
+	    int high = count;
+	    while (low < high) {
+		int middle = (low + high) >>> 1;
+		if (entries.getLong(HEADER_SIZE + middle * INDEX_ENTRY_SIZE) < from) {
+		    low = middle + 1;
+		} else {
+		    high = middle;
+		}
+	    }
+	    return low;
+	}
+
+	void seal() {
+	    data.force();
+	    index.force();
+	}
+    }
+
+    /**
+     * Touch counts of a key over time.
+     */
+    public static final class Trajectory {
+
+	private long[] timestamps = new long[16];
+	private int[] touchCounts = new int[16];
+	private int size;
+
+	void add(long timestamp, int touchCount) {
+	    if (size == timestamps.length) {
+		timestamps = Arrays.copyOf(timestamps, size * 2);
+		touchCounts = Arrays.copyOf(touchCounts, size * 2);
+	    }
+	    timestamps[size] = timestamp;
+	    touchCounts[size++] = touchCount;
+	}
+
+	public int size() {
+	    return size;
+	}
+
+	public long[] getTimestamps() {
+	    return Arrays.copyOf(timestamps, size);
+	}
+
+	public int[] getTouchCounts() {
+	    return Arrays.copyOf(touchCounts, size);
+	}
+
+	/**
+	 * Returns the time of the first snapshot the key is part of.
+	 * 
+	 * @return long, -1 if none
+	 */
+	public long getFirstTimestamp() {
+	    return size == 0 ? -1 : timestamps[0];
+	}
+
+	/**
+	 * Returns the timestamps and touch counts.
+	 * 
+	 * @return String
+	 */
+	public String toString() {
+	    StringBuilder builder = new StringBuilder("Trajectory [");
+	    for (int i = 0; i < size; i++) {
+		builder.append(i == 0 ? "" : ", ").append(timestamps[i]).append('=').append(touchCounts[i]);
+	    }
+	    return builder.append(']').toString();
+	}
+    }
+
+}
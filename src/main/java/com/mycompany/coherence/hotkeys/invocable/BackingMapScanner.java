@@ -0,0 +1,670 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.log4j.Logger;
+
+import com.mycompany.coherence.hotkeys.metrics.HotKeyScanMetrics;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.net.BackingMapManagerContext;
+import com.tangosol.net.cache.LocalCache;
+import com.tangosol.net.partition.PartitionAwareBackingMap;
+import com.tangosol.net.partition.PartitionSet;
+import com.tangosol.util.Base;
+import com.tangosol.util.Binary;
+import com.tangosol.util.Converter;
+import com.tangosol.util.ExternalizableHelper;
+
+/**
+ * Scans the entries of a backing map and keeps the top n touch counts.
+ * <p>
+ * Entries are ranked on their touch count and internal (Binary) key, the
+ * binary form being used to break ties; keys are only deserialized for the
+ * final top n, see {@link #convert}.
+ * <p>
+ * A scan is made of segments: the partition maps of the owned partitions when
+ * the backing map is partition aware, slices of a snapshot of the entries
+ * otherwise. Segments are scanned either sequentially or by a fork-join pool,
+ * each worker building its own local top n, the local results being merged
+ * when the workers join. The fork-join pools are shared by the scans of the
+ * member, see {@link #getPool}.
+ * <p>
+ * A scanner counts the entries it visits and the keys it deserializes, and the
+ * CPU time of its fork-join workers, for the HotKeyScanMetrics.
+ * <p>
+ * A profile scan, see {@link #scanProfile}, builds several rankings of the
+ * entries in the same pass, by touch count, value size and staleness, with
+ * their EntryStatistics.
+ * <p>
+ * The keys of a cache whose keys are Integer or Long can be scanned into a
+ * PrimitiveHotKeys instead, see {@link #scanPrimitive}, which keeps no object
+ * per candidate.
+ * <p>
+ * A scan can be capped at a CPU budget, checked before each segment: once the
+ * CPU time spent on the segments by all threads exceeds it, the remaining
+ * segments are skipped, see {@link #getEntriesSkipped()}.
+ * 
+ * @param K The type of the key of cache entries, should implement Comparable
+ */
+public class BackingMapScanner<K extends Comparable<K>> {
+
+    private static final Logger logger = Logger.getLogger("Coherence");
+
+    /**
+     * Number of slices per worker thread a plain backing map is cut into, so
+     * that work can be stolen from slower workers.
+     */
+    private static final int SLICES_PER_THREAD = 4;
+
+    /**
+     * Fork-join pools of the member, by parallelism, created on first use.
+     */
+    private static final ConcurrentMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    private final Converter converter;
+    private final int topN;
+    private int minTouchCount;
+    private boolean keepBinaryKeys;
+    private final LongAdder entriesVisited = new LongAdder();
+    private final LongAdder keysDeserialized = new LongAdder();
+    private final LongAdder workerCpuNanos = new LongAdder();
+    private long cpuBudgetNanos;
+    private final LongAdder segmentCpuNanos = new LongAdder();
+    private final LongAdder entriesSkipped = new LongAdder();
+
+    /**
+     * BackingMapScanner sole constructor.
+     * 
+     * @param converter converter from internal to deserialized keys
+     * @param topN      number of hot keys to keep
+     */
+    public BackingMapScanner(Converter converter, int topN) {
+	this.converter = converter;
+	this.topN = topN;
+    }
+
+    /**
+     * Sets the lowest touch count of the entries kept by a scan and of the
+     * candidates kept by {@link #convert}.
+     * 
+     * @param minTouchCount lowest touch count, 0 for all entries
+     */
+    public void setMinTouchCount(int minTouchCount) {
+	this.minTouchCount = minTouchCount;
+    }
+
+    /**
+     * Keeps the internal key of the hot keys converted, see
+     * {@link HotKeyData#getBinaryKey()}, so that they are sent without
+     * serializing their key again. The result must then be sent with a
+     * serializer compatible with the one of the cache service.
+     * 
+     * @param keepBinaryKeys true to keep the internal keys
+     */
+    public void setKeepBinaryKeys(boolean keepBinaryKeys) {
+	this.keepBinaryKeys = keepBinaryKeys;
+    }
+
+    /**
+     * Sets the CPU time the scans of this scanner may spend on segments, in
+     * total over all threads; segments not started when it is exceeded are
+     * skipped. The budget is only checked between segments, so a scan can
+     * overrun it by the time of one segment per thread.
+     * 
+     * @param cpuBudgetNanos CPU budget in nanoseconds, 0 or less for no budget
+     */
+    public void setCpuBudget(long cpuBudgetNanos) {
+	this.cpuBudgetNanos = cpuBudgetNanos;
+    }
+
+    /**
+     * Tells if the CPU budget was exceeded, i.e. if some segments were skipped.
+     * 
+     * @return boolean
+     */
+    public boolean isCpuBudgetExceeded() {
+	return cpuBudgetNanos > 0 && segmentCpuNanos.sum() >= cpuBudgetNanos;
+    }
+
+    /**
+     * Returns the segments to scan for a backing map.
+     * 
+     * @param backingMap      the backing map
+     * @param ownedPartitions partitions owned by the local member
+     * @param parallelism     number of threads the segments will be scanned by
+     * @return the entry sets of the segments
+     */
+    public static List<Collection<?>> getSegments(Map<?, ?> backingMap, PartitionSet ownedPartitions,
+	    int parallelism) {
+	return getSegments(backingMap, ownedPartitions, parallelism, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the segments to scan for a backing map, a plain backing map being
+     * cut in slices of at most a number of entries.
+     * 
+     * @param backingMap      the backing map
+     * @param ownedPartitions partitions owned by the local member
+     * @param parallelism     number of threads the segments will be scanned by
+     * @param maxSliceSize    maximum number of entries of a slice
+     * @return the entry sets of the segments
+     */
+    public static List<Collection<?>> getSegments(Map<?, ?> backingMap, PartitionSet ownedPartitions,
+	    int parallelism, int maxSliceSize) {
+	List<Collection<?>> segments = new ArrayList<>();
+	if (backingMap instanceof PartitionAwareBackingMap) {
+	    PartitionAwareBackingMap partitionAwareMap = (PartitionAwareBackingMap) backingMap;
+	    for (int partition = ownedPartitions.next(0); partition >= 0; partition = ownedPartitions
+		    .next(partition + 1)) {
+		Map<?, ?> partitionMap = partitionAwareMap.getPartitionMap(partition);
+		if (partitionMap != null) {
+		    segments.add(partitionMap.entrySet());
+		}
+	    }
+	} else if (parallelism > 1 || backingMap.size() > maxSliceSize) {
+	    slice(Arrays.asList(backingMap.entrySet().toArray()), parallelism, maxSliceSize, segments);
+	} else {
+	    segments.add(backingMap.entrySet());
+	}
+	return segments;
+    }
+
+    /**
+     * Returns the segments of a random sample of at least a number of entries
+     * of a backing map. Partitions are cluster sampled: whole owned partitions
+     * are drawn at random until enough entries are sampled, so that the cost
+     * of a scan is proportional to the sample size. A plain backing
+     * map is sampled as a run of consecutive entries from a random start, its
+     * iteration order following the hash of the internal binary keys rather
+     * than their heat; only the sample is copied, but reaching the start walks
+     * the entries before it, so the cost is bounded by the sample size for
+     * partition aware backing maps only.
+     * 
+     * @param backingMap      the backing map
+     * @param ownedPartitions partitions owned by the local member
+     * @param parallelism     number of threads the segments will be scanned by
+     * @param maxSliceSize    maximum number of entries of a slice
+     * @param sampleSize      number of entries to sample
+     * @param random          random generator drawing the sample
+     * @return the entry sets of the segments
+     */
+    public static List<Collection<?>> getSampledSegments(Map<?, ?> backingMap, PartitionSet ownedPartitions,
+	    int parallelism, int maxSliceSize, long sampleSize, Random random) {
+	List<Collection<?>> segments = new ArrayList<>();
+	if (backingMap instanceof PartitionAwareBackingMap) {
+	    List<Collection<?>> partitions = getSegments(backingMap, ownedPartitions, parallelism);
+	    Collections.shuffle(partitions, random);
+	    long sampled = 0;
+	    for (int i = 0; i < partitions.size() && sampled < sampleSize; i++) {
+		segments.add(partitions.get(i));
+		sampled += partitions.get(i).size();
+	    }
+	} else {
+	    int entryCount = backingMap.size();
+	    int size = (int) Math.min(Math.max(sampleSize, 0), entryCount);
+	    int start = random.nextInt(entryCount - size + 1);
+	    List<Object> sample = new ArrayList<>(size);
+	    Iterator<?> entries = backingMap.entrySet().iterator();
+	    for (int i = 0; i < start && entries.hasNext(); i++) {
+		entries.next();
+	    }
+	    // the map may have shrunk since its size was read
+	    while (sample.size() < size && entries.hasNext()) {
+		sample.add(entries.next());
+	    }
+	    slice(sample, parallelism, maxSliceSize, segments);
+	}
+	return segments;
+    }
+
+    /**
+     * Cuts entries in slices, enough for each thread to get several slices and
+     * for no slice to exceed the maximum size.
+     */
+    private static void slice(List<Object> entries, int parallelism, int maxSliceSize, List<Collection<?>> segments) {
+	int slices = Math.min(entries.size(), Math.max(parallelism * SLICES_PER_THREAD,
+		(int) ((entries.size() + (long) maxSliceSize - 1) / maxSliceSize)));
+	for (int i = 0; i < slices; i++) {
+	    segments.add(entries.subList(i * entries.size() / slices, (i + 1) * entries.size() / slices));
+	}
+    }
+
+    /**
+     * Scans the segments on the calling thread.
+     * 
+     * @param segments entry sets to scan
+     * @return the top n candidates
+     */
+    public SortedCollectionWithCapacity<HotKeyCandidate> scan(List<Collection<?>> segments) {
+	return scan(segments, new SortedCollectionWithCapacity<HotKeyCandidate>(topN), this::scanSegment);
+    }
+
+    /**
+     * Scans the segments with a fork-join pool of the given parallelism.
+     * 
+     * @param segments    entry sets to scan
+     * @param parallelism number of threads of the pool
+     * @return the top n candidates
+     */
+    public SortedCollectionWithCapacity<HotKeyCandidate> scan(List<Collection<?>> segments, int parallelism) {
+	if (parallelism <= 1 || segments.size() <= 1) {
+	    return scan(segments);
+	}
+	return invoke(new ScanTask<SortedCollectionWithCapacity<HotKeyCandidate>>(segments, 0, segments.size(),
+		this::scan, SortedCollectionWithCapacity::merge), parallelism);
+    }
+
+    /**
+     * Scans the segments of a cache whose keys are Integer or Long on the
+     * calling thread, into a top n of primitive keys and touch counts. Keys are
+     * deserialized as soon as their entry makes it into the top n so far,
+     * rather than only for the final top n, which is usually several times
+     * more keys but no object is kept per candidate; keys tied with the lowest
+     * touch count of the top n are left out, the first ones scanned winning.
+     * 
+     * @param segments entry sets to scan
+     * @param longKeys true for Long keys, false for Integer keys
+     * @return the top n hot keys
+     */
+    public PrimitiveHotKeys scanPrimitive(List<Collection<?>> segments, boolean longKeys) {
+	return scan(segments, new PrimitiveHotKeys(topN, longKeys), this::scanPrimitiveSegment);
+    }
+
+    /**
+     * Scans the segments of a cache whose keys are Integer or Long with a
+     * fork-join pool of the given parallelism.
+     * 
+     * @param segments    entry sets to scan
+     * @param parallelism number of threads of the pool
+     * @param longKeys    true for Long keys, false for Integer keys
+     * @return the top n hot keys
+     */
+    public PrimitiveHotKeys scanPrimitive(List<Collection<?>> segments, int parallelism, boolean longKeys) {
+	if (parallelism <= 1 || segments.size() <= 1) {
+	    return scanPrimitive(segments, longKeys);
+	}
+	return invoke(new ScanTask<PrimitiveHotKeys>(segments, 0, segments.size(),
+		range -> scanPrimitive(range, longKeys), PrimitiveHotKeys::merge), parallelism);
+    }
+
+    /**
+     * Scans segments into a top n, skipping the segments left once the CPU
+     * budget is exceeded.
+     */
+    private <R> R scan(List<Collection<?>> segments, R results, BiConsumer<Collection<?>, R> segmentScan) {
+	for (Collection<?> segment : segments) {
+	    if (cpuBudgetNanos <= 0) {
+		segmentScan.accept(segment, results);
+	    } else if (isCpuBudgetExceeded()) {
+		entriesSkipped.add(segment.size());
+	    } else {
+		long startCpuNanos = HotKeyScanMetrics.currentThreadCpuNanos();
+		segmentScan.accept(segment, results);
+		segmentCpuNanos.add(HotKeyScanMetrics.currentThreadCpuNanos() - startCpuNanos);
+	    }
+	}
+	return results;
+    }
+
+    private <R> R invoke(ScanTask<R> task, int parallelism) {
+	return getPool(parallelism).invoke(task);
+    }
+
+    /**
+     * Returns the fork-join pool of this member for the given parallelism,
+     * creating it on first use; the pool is kept for the life of the member
+     * and shared by all the scans of that parallelism, its daemon workers
+     * being reclaimed by the pool once idle.
+     * 
+     * @param parallelism number of threads of the pool
+     * @return ForkJoinPool
+     */
+    public static ForkJoinPool getPool(int parallelism) {
+	return POOLS.computeIfAbsent(parallelism, size -> new ForkJoinPool(size, pool -> {
+	    ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+	    worker.setName("HotKeyScanner-" + size + "-" + worker.getPoolIndex());
+	    worker.setDaemon(true);
+	    return worker;
+	}, null, false));
+    }
+
+    /**
+     * Scans the segments, on the calling thread or with a fork-join pool of the
+     * given parallelism, into several rankings at once: the top n touch
+     * counts, the top n binary sizes of the values and the top n idle times or
+     * ages, with the statistics of all the scanned entries. Only the hottest
+     * keys are subject to the minimum touch count.
+     * 
+     * @param segments    entry sets to scan
+     * @param parallelism number of threads of the pool
+     * @param staleness   what the coldest entries are ranked on
+     * @return the profile of the scanned entries
+     */
+    public EntryProfile<K> scanProfile(List<Collection<?>> segments, int parallelism,
+	    EntryProfile.Staleness staleness) {
+	long now = Base.getSafeTimeMillis();
+	ProfileCandidates candidates;
+	if (parallelism <= 1 || segments.size() <= 1) {
+	    candidates = scan(segments, new ProfileCandidates(), (segment, results) -> scanProfileSegment(segment,
+		    results, staleness, now));
+	} else {
+	    candidates = invoke(new ScanTask<ProfileCandidates>(segments, 0, segments.size(),
+		    range -> scan(range, new ProfileCandidates(),
+			    (segment, results) -> scanProfileSegment(segment, results, staleness, now)),
+		    ProfileCandidates::merge), parallelism);
+	}
+	return new EntryProfile<K>(staleness, convert(candidates.hottest, minTouchCount),
+		convert(candidates.largest, 0), convert(candidates.coldest, 0), candidates.statistics);
+    }
+
+    /**
+     * Deserializes the keys of the final top n candidates, leaving out the ones
+     * below the minimum touch count.
+     * 
+     * @param candidates the top n candidates
+     * @return the top n hot keys
+     */
+    public SortedCollectionWithCapacity<HotKeyData<K>> convert(
+	    SortedCollectionWithCapacity<HotKeyCandidate> candidates) {
+	return convert(candidates, minTouchCount);
+    }
+
+    /**
+     * Deserializes the keys of the final top n candidates, leaving out the ones
+     * ranked below a minimum.
+     */
+    private SortedCollectionWithCapacity<HotKeyData<K>> convert(
+	    SortedCollectionWithCapacity<HotKeyCandidate> candidates, int minRank) {
+	boolean debug = logger.isDebugEnabled();
+	SortedCollectionWithCapacity<HotKeyData<K>> results = new SortedCollectionWithCapacity<HotKeyData<K>>(topN);
+	for (HotKeyCandidate candidate : candidates.getReversedOrder()) {
+	    if (candidate.getTouchCount() < minRank) {
+		break;
+	    }
+	    HotKeyData<K> hotKey = convert(candidate);
+	    results.add(hotKey);
+	    if (debug) {
+		logger.debug("key=" + hotKey.getKey() + ", touchCount=" + candidate.getTouchCount());
+	    }
+	}
+	return results;
+    }
+
+    /**
+     * Deserializes the key of a candidate.
+     * 
+     * @param candidate a top n candidate
+     * @return the hot key
+     */
+    @SuppressWarnings("unchecked")
+    public HotKeyData<K> convert(HotKeyCandidate candidate) {
+	K key = (K) converter.convert(candidate.getBinaryKey());
+	keysDeserialized.increment();
+	HotKeyData<K> hotKey = new HotKeyData<K>(key, candidate.getTouchCount(), candidate.getRates());
+	hotKey.setContention(candidate.getContention());
+	if (keepBinaryKeys) {
+	    hotKey.setBinaryKey(ExternalizableHelper.removeIntDecoration(candidate.getBinaryKey()));
+	}
+	return hotKey;
+    }
+
+    /**
+     * Sums the touch counts, the number of entries and optionally the binary
+     * sizes of the keys and values of the entries of the owned partitions of a
+     * backing map, in one pass on the calling thread, into arrays indexed by
+     * partition id.
+     * 
+     * @param backingMap      the backing map
+     * @param ownedPartitions partitions owned by the local member
+     * @param managerContext  context to get the partition of an internal key
+     * @param touchCounts     touch counts by partition id, added to
+     * @param entryCounts     entry counts by partition id, added to
+     * @param binarySizes     binary sizes by partition id, added to; null not
+     *                        to measure them
+     */
+    public void scanPartitionHeat(Map<?, ?> backingMap, PartitionSet ownedPartitions,
+	    BackingMapManagerContext managerContext, long[] touchCounts, long[] entryCounts, long[] binarySizes) {
+	long visited = 0;
+	if (backingMap instanceof PartitionAwareBackingMap) {
+	    PartitionAwareBackingMap partitionAwareMap = (PartitionAwareBackingMap) backingMap;
+	    for (int partition = ownedPartitions.next(0); partition >= 0; partition = ownedPartitions
+		    .next(partition + 1)) {
+		Map<?, ?> partitionMap = partitionAwareMap.getPartitionMap(partition);
+		if (partitionMap != null) {
+		    for (Object entry : partitionMap.entrySet()) {
+			addHeat((LocalCache.Entry) entry, partition, touchCounts, entryCounts, binarySizes);
+			visited++;
+		    }
+		}
+	    }
+	} else {
+	    for (Object entry : backingMap.entrySet()) {
+		LocalCache.Entry localCacheEntry = (LocalCache.Entry) entry;
+		int partition = managerContext.getKeyPartition(localCacheEntry.getKey());
+		if (ownedPartitions.contains(partition)) {
+		    addHeat(localCacheEntry, partition, touchCounts, entryCounts, binarySizes);
+		}
+		visited++;
+	    }
+	}
+	entriesVisited.add(visited);
+    }
+
+    private void addHeat(LocalCache.Entry entry, int partition, long[] touchCounts, long[] entryCounts,
+	    long[] binarySizes) {
+	touchCounts[partition] += entry.getTouchCount();
+	entryCounts[partition]++;
+	if (binarySizes != null) {
+	    binarySizes[partition] += ((Binary) entry.getKey()).length();
+	    if (entry.getValue() instanceof Binary) {
+		binarySizes[partition] += ((Binary) entry.getValue()).length();
+	    }
+	}
+    }
+
+    /**
+     * Adds the entries of a segment to the top n candidates.
+     * 
+     * @param entries entries of LocalCache.Entry type
+     * @param results the top n to add to
+     */
+    protected void scanSegment(Collection<?> entries, SortedCollectionWithCapacity<HotKeyCandidate> results) {
+	// the candidate is only created for entries that make it into the top n
+	// so far
+	long visited = 0;
+	for (Object entry : entries) {
+	    visited++;
+	    LocalCache.Entry localCacheEntry = (LocalCache.Entry) entry;
+	    int touchCount = localCacheEntry.getTouchCount();
+	    if (touchCount >= minTouchCount && results.accepts(touchCount)) {
+		results.add(new HotKeyCandidate((Binary) localCacheEntry.getKey(), touchCount));
+	    }
+	}
+	entriesVisited.add(visited);
+    }
+
+    /**
+     * Adds the entries of a segment to the rankings and statistics of a
+     * profile.
+     * 
+     * @param entries   entries of LocalCache.Entry type
+     * @param results   the rankings to add to
+     * @param staleness what the coldest entries are ranked on
+     * @param now       time of the scan
+     */
+    protected void scanProfileSegment(Collection<?> entries, ProfileCandidates results,
+	    EntryProfile.Staleness staleness, long now) {
+	long visited = 0;
+	for (Object entry : entries) {
+	    visited++;
+	    LocalCache.Entry localCacheEntry = (LocalCache.Entry) entry;
+	    Binary binaryKey = (Binary) localCacheEntry.getKey();
+	    int touchCount = localCacheEntry.getTouchCount();
+	    Object value = localCacheEntry.getValue();
+	    int valueBytes = value instanceof Binary ? ((Binary) value).length() : 0;
+	    long created = localCacheEntry.getCreatedMillis();
+	    long lastTouch = localCacheEntry.getLastTouchMillis();
+	    int staleSeconds = (int) Math.min(
+		    Math.max(now - (staleness == EntryProfile.Staleness.AGE ? created : lastTouch), 0) / 1000,
+		    Integer.MAX_VALUE);
+	    results.statistics.add(touchCount, binaryKey.length(), valueBytes, created, lastTouch,
+		    localCacheEntry.getExpiryMillis(), now);
+	    if (touchCount >= minTouchCount && results.hottest.accepts(touchCount)) {
+		results.hottest.add(new HotKeyCandidate(binaryKey, touchCount));
+	    }
+	    // sizes and staleness are coarse and often tied, the first entries
+	    // scanned winning the ties with the lowest ones kept
+	    if (results.largest.acceptsAnyElement(valueBytes)) {
+		results.largest.add(new HotKeyCandidate(binaryKey, valueBytes));
+	    }
+	    if (results.coldest.acceptsAnyElement(staleSeconds)) {
+		results.coldest.add(new HotKeyCandidate(binaryKey, staleSeconds));
+	    }
+	}
+	entriesVisited.add(visited);
+    }
+
+    /**
+     * Adds the entries of a segment to a top n of primitive keys, deserializing
+     * the keys of the entries it accepts whatever their key.
+     * 
+     * @param entries entries of LocalCache.Entry type
+     * @param results the top n to add to
+     */
+    protected void scanPrimitiveSegment(Collection<?> entries, PrimitiveHotKeys results) {
+	long visited = 0;
+	for (Object entry : entries) {
+	    visited++;
+	    LocalCache.Entry localCacheEntry = (LocalCache.Entry) entry;
+	    int touchCount = localCacheEntry.getTouchCount();
+	    if (touchCount >= minTouchCount && results.acceptsAnyKey(touchCount)) {
+		Object key = converter.convert(localCacheEntry.getKey());
+		keysDeserialized.increment();
+		if (!(results.isLongKeys() ? key instanceof Long : key instanceof Integer)) {
+		    throw new IllegalStateException("A primitive scan needs "
+			    + (results.isLongKeys() ? "Long" : "Integer") + " keys, found a key of "
+			    + (key == null ? null : key.getClass()));
+		}
+		results.add(((Number) key).longValue(), touchCount);
+	    }
+	}
+	entriesVisited.add(visited);
+    }
+
+    /**
+     * Returns the number of entries visited by the scans of this scanner.
+     * 
+     * @return long
+     */
+    public long getEntriesVisited() {
+	return entriesVisited.sum();
+    }
+
+    /**
+     * Returns the number of entries of the segments skipped because the CPU
+     * budget was exceeded.
+     * 
+     * @return long
+     */
+    public long getEntriesSkipped() {
+	return entriesSkipped.sum();
+    }
+
+    /**
+     * Returns the number of keys deserialized by {@link #convert}.
+     * 
+     * @return long
+     */
+    public long getKeysDeserialized() {
+	return keysDeserialized.sum();
+    }
+
+    /**
+     * Returns the CPU time of the fork-join workers of the parallel scans; scans
+     * on the calling thread are not included.
+     * 
+     * @return long nanoseconds
+     */
+    public long getWorkerCpuNanos() {
+	return workerCpuNanos.sum();
+    }
+
+    /**
+     * Rankings and statistics of a profile under construction, local to a
+     * worker until merged.
+     */
+    protected class ProfileCandidates {
+
+	private final SortedCollectionWithCapacity<HotKeyCandidate> hottest = new SortedCollectionWithCapacity<HotKeyCandidate>(
+		topN);
+	private final SortedCollectionWithCapacity<HotKeyCandidate> largest = new SortedCollectionWithCapacity<HotKeyCandidate>(
+		topN);
+	private final SortedCollectionWithCapacity<HotKeyCandidate> coldest = new SortedCollectionWithCapacity<HotKeyCandidate>(
+		topN);
+	private final EntryStatistics statistics = new EntryStatistics();
+
+	void merge(ProfileCandidates other) {
+	    hottest.merge(other.hottest);
+	    largest.merge(other.largest);
+	    coldest.merge(other.coldest);
+	    statistics.merge(other.statistics);
+	}
+    }
+
+    /**
+     * Fork-join task scanning a range of segments into a local top n.
+     */
+    private class ScanTask<R> extends RecursiveTask<R> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final List<Collection<?>> segments;
+	private final int from;
+	private final int to;
+	private final Function<List<Collection<?>>, R> sequentialScan;
+	private final BiConsumer<R, R> merge;
+
+	ScanTask(List<Collection<?>> segments, int from, int to, Function<List<Collection<?>>, R> sequentialScan,
+		BiConsumer<R, R> merge) {
+	    this.segments = segments;
+	    this.from = from;
+	    this.to = to;
+	    this.sequentialScan = sequentialScan;
+	    this.merge = merge;
+	}
+
+	protected R compute() {
+	    if (to - from <= 1) {
+		long startCpuNanos = HotKeyScanMetrics.currentThreadCpuNanos();
+		try {
+		    return sequentialScan
+			    .apply(from < to ? segments.subList(from, to) : Collections.<Collection<?>>emptyList());
+		} finally {
+		    workerCpuNanos.add(HotKeyScanMetrics.currentThreadCpuNanos() - startCpuNanos);
+		}
+	    }
+	    int middle = (from + to) >>> 1;
+	    ScanTask<R> left = new ScanTask<R>(segments, from, middle, sequentialScan, merge);
+	    left.fork();
+	    R results = new ScanTask<R>(segments, middle, to, sequentialScan, merge).compute();
+	    merge.accept(results, left.join());
+	    return results;
+	}
+    }
+
+}
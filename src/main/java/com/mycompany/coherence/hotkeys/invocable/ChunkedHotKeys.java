@@ -0,0 +1,74 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import com.tangosol.io.pof.PofReader;
+import com.tangosol.io.pof.PofWriter;
+import com.tangosol.io.pof.PortableObject;
+
+/**
+ * Result of a member whose scan was sent in chunks: the result of the
+ * partitions that were not sent in a chunk, with the number of HotKeyChunk the
+ * member sent before it. The ProgressiveHotKeyObserver of the request holds
+ * the member as completed only once it has merged that many chunks of the
+ * member, so that a chunk that was lost, or arrived after the observer was
+ * closed, leaves the top n partial.
+ */
+public class ChunkedHotKeys implements PortableObject, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Object result;
+    private int chunkCount;
+
+    /**
+     * Default constructor, for POF deserialization.
+     */
+    public ChunkedHotKeys() {
+    }
+
+    /**
+     * ChunkedHotKeys constructor.
+     * 
+     * @param result     result of the partitions not sent in a chunk
+     * @param chunkCount number of chunks sent before the result
+     */
+    public ChunkedHotKeys(Object result, int chunkCount) {
+	this.result = result;
+	this.chunkCount = chunkCount;
+    }
+
+    public Object getResult() {
+	return result;
+    }
+
+    public int getChunkCount() {
+	return chunkCount;
+    }
+
+    /**
+     * POF readExternal
+     */
+    public void readExternal(PofReader pofReader) throws IOException {
+	result = pofReader.readObject(0);
+	chunkCount = pofReader.readInt(1);
+    }
+
+    /**
+     * POF writeExternal
+     */
+    public void writeExternal(PofWriter pofWriter) throws IOException {
+	pofWriter.writeObject(0, result);
+	pofWriter.writeInt(1, chunkCount);
+    }
+
+    /**
+     * Returns the result and the number of chunks sent before it.
+     * 
+     * @return String
+     */
+    public String toString() {
+	return "ChunkedHotKeys [result=" + result + ", chunkCount=" + chunkCount + "]";
+    }
+}
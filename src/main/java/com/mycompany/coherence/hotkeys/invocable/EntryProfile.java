@@ -0,0 +1,154 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.io.pof.PofReader;
+import com.tangosol.io.pof.PofWriter;
+import com.tangosol.io.pof.PortableObject;
+
+/**
+ * Result of a member in PROFILE mode: several bounded rankings of its entries
+ * built in a single pass over its backing map, with the EntryStatistics of
+ * all the entries scanned.
+ * <p>
+ * The rankings are HotKeyData whose touch count holds what they are ranked
+ * on: the touch count for the hottest keys, the binary size of the value for
+ * the largest ones and the idle time, or age, in seconds for the coldest
+ * ones. The profiles of the members are merged with {@link #merge}.
+ * 
+ * @param K The type of the key of cache entries, should implement Comparable
+ */
+public class EntryProfile<K extends Comparable<K>> implements PortableObject, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Staleness staleness = Staleness.IDLE;
+    private SortedCollectionWithCapacity<HotKeyData<K>> hottest;
+    private SortedCollectionWithCapacity<HotKeyData<K>> largest;
+    private SortedCollectionWithCapacity<HotKeyData<K>> coldest;
+    private EntryStatistics statistics;
+
+    /**
+     * What the coldest entries are ranked on.
+     */
+    public enum Staleness {
+	/**
+	 * Time since the last touch of the entry.
+	 */
+	IDLE,
+	/**
+	 * Time since the creation of the entry, i.e. its last write.
+	 */
+	AGE
+    }
+
+    /**
+     * Default constructor, for POF deserialization.
+     */
+    public EntryProfile() {
+    }
+
+    /**
+     * EntryProfile constructor.
+     * 
+     * @param staleness  what the coldest entries are ranked on
+     * @param hottest    top n touch counts
+     * @param largest    top n value sizes, in bytes
+     * @param coldest    top n idle times or ages, in seconds
+     * @param statistics statistics of all the entries scanned
+     */
+    public EntryProfile(Staleness staleness, SortedCollectionWithCapacity<HotKeyData<K>> hottest,
+	    SortedCollectionWithCapacity<HotKeyData<K>> largest, SortedCollectionWithCapacity<HotKeyData<K>> coldest,
+	    EntryStatistics statistics) {
+	this.staleness = staleness;
+	this.hottest = hottest;
+	this.largest = largest;
+	this.coldest = coldest;
+	this.statistics = statistics;
+    }
+
+    public Staleness getStaleness() {
+	return staleness;
+    }
+
+    /**
+     * Returns the top n keys by touch count.
+     * 
+     * @return SortedCollectionWithCapacity<HotKeyData<K>>
+     */
+    public SortedCollectionWithCapacity<HotKeyData<K>> getHottest() {
+	return hottest;
+    }
+
+    /**
+     * Returns the top n keys by binary size of their value, held as touch
+     * count.
+     * 
+     * @return SortedCollectionWithCapacity<HotKeyData<K>>
+     */
+    public SortedCollectionWithCapacity<HotKeyData<K>> getLargest() {
+	return largest;
+    }
+
+    /**
+     * Returns the top n keys by idle time or age in seconds, see
+     * {@link #getStaleness()}, held as touch count.
+     * 
+     * @return SortedCollectionWithCapacity<HotKeyData<K>>
+     */
+    public SortedCollectionWithCapacity<HotKeyData<K>> getColdest() {
+	return coldest;
+    }
+
+    public EntryStatistics getStatistics() {
+	return statistics;
+    }
+
+    /**
+     * Merges the rankings and statistics of another profile, e.g. of another
+     * member, into this one.
+     * 
+     * @param other
+     */
+    public void merge(EntryProfile<K> other) {
+	hottest.merge(other.hottest);
+	largest.merge(other.largest);
+	coldest.merge(other.coldest);
+	statistics.merge(other.statistics);
+    }
+
+    /**
+     * POF readExternal
+     */
+    @SuppressWarnings("unchecked")
+    public void readExternal(PofReader pofReader) throws IOException {
+	staleness = Staleness.values()[pofReader.readInt(0)];
+	hottest = (SortedCollectionWithCapacity<HotKeyData<K>>) pofReader.readObject(1);
+	largest = (SortedCollectionWithCapacity<HotKeyData<K>>) pofReader.readObject(2);
+	coldest = (SortedCollectionWithCapacity<HotKeyData<K>>) pofReader.readObject(3);
+	statistics = (EntryStatistics) pofReader.readObject(4);
+    }
+
+    /**
+     * POF writeExternal
+     */
+    public void writeExternal(PofWriter pofWriter) throws IOException {
+	pofWriter.writeInt(0, staleness.ordinal());
+	pofWriter.writeObject(1, hottest);
+	pofWriter.writeObject(2, largest);
+	pofWriter.writeObject(3, coldest);
+	pofWriter.writeObject(4, statistics);
+    }
+
+    /**
+     * Returns the rankings and the statistics.
+     * 
+     * @return String
+     */
+    public String toString() {
+	return "EntryProfile [staleness=" + staleness + ", hottest=" + hottest + ", largest=" + largest + ", coldest="
+		+ coldest + ", statistics=" + statistics + "]";
+    }
+}
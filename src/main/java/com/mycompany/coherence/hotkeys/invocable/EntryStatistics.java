@@ -0,0 +1,233 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import com.tangosol.io.pof.PofReader;
+import com.tangosol.io.pof.PofWriter;
+import com.tangosol.io.pof.PortableObject;
+
+/**
+ * Summary of the entries scanned by a member in PROFILE mode: their touch
+ * counts, binary sizes and timestamps, and how many of them have been idle
+ * for at least each of the IDLE_THRESHOLDS_MILLIS, to tune eviction and
+ * expiry. Statistics of several scans, or members, are merged with
+ * {@link #merge}.
+ */
+public class EntryStatistics implements PortableObject, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Idle times the idle entries are counted for: 1 minute, 10 minutes, 1
+     * hour and 1 day.
+     */
+    public static final long[] IDLE_THRESHOLDS_MILLIS = { TimeUnit.MINUTES.toMillis(1),
+	    TimeUnit.MINUTES.toMillis(10), TimeUnit.HOURS.toMillis(1), TimeUnit.DAYS.toMillis(1) };
+
+    private long entries;
+    private long totalTouchCount;
+    private int maxTouchCount;
+    private long untouchedEntries;
+    private long totalKeyBytes;
+    private long totalValueBytes;
+    private int maxValueBytes;
+    private long expiringEntries;
+    private long oldestCreatedMillis = Long.MAX_VALUE;
+    private long oldestTouchMillis = Long.MAX_VALUE;
+    private long[] idleEntries = new long[IDLE_THRESHOLDS_MILLIS.length];
+
+    /**
+     * Default constructor, of statistics of no entry; also used for POF
+     * deserialization.
+     */
+    public EntryStatistics() {
+    }
+
+    /**
+     * Adds an entry to the statistics.
+     * 
+     * @param touchCount      touch count of the entry
+     * @param keyBytes        binary size of the key
+     * @param valueBytes      binary size of the value
+     * @param createdMillis   creation time of the entry
+     * @param lastTouchMillis time of the last touch of the entry
+     * @param expiryMillis    expiry time of the entry, 0 if it does not expire
+     * @param now             time of the scan
+     */
+    public void add(int touchCount, int keyBytes, int valueBytes, long createdMillis, long lastTouchMillis,
+	    long expiryMillis, long now) {
+	entries++;
+	totalTouchCount += touchCount;
+	maxTouchCount = Math.max(maxTouchCount, touchCount);
+	if (touchCount == 0) {
+	    untouchedEntries++;
+	}
+	totalKeyBytes += keyBytes;
+	totalValueBytes += valueBytes;
+	maxValueBytes = Math.max(maxValueBytes, valueBytes);
+	if (expiryMillis > 0) {
+	    expiringEntries++;
+	}
+	oldestCreatedMillis = Math.min(oldestCreatedMillis, createdMillis);
+	oldestTouchMillis = Math.min(oldestTouchMillis, lastTouchMillis);
+	long idleMillis = now - lastTouchMillis;
+	for (int i = 0; i < IDLE_THRESHOLDS_MILLIS.length && idleMillis >= IDLE_THRESHOLDS_MILLIS[i]; i++) {
+	    idleEntries[i]++;
+	}
+    }
+
+    /**
+     * Adds the statistics of other entries to these ones.
+     * 
+     * @param other
+     */
+    public void merge(EntryStatistics other) {
+	entries += other.entries;
+	totalTouchCount += other.totalTouchCount;
+	maxTouchCount = Math.max(maxTouchCount, other.maxTouchCount);
+	untouchedEntries += other.untouchedEntries;
+	totalKeyBytes += other.totalKeyBytes;
+	totalValueBytes += other.totalValueBytes;
+	maxValueBytes = Math.max(maxValueBytes, other.maxValueBytes);
+	expiringEntries += other.expiringEntries;
+	oldestCreatedMillis = Math.min(oldestCreatedMillis, other.oldestCreatedMillis);
+	oldestTouchMillis = Math.min(oldestTouchMillis, other.oldestTouchMillis);
+	for (int i = 0; i < idleEntries.length && i < other.idleEntries.length; i++) {
+	    idleEntries[i] += other.idleEntries[i];
+	}
+    }
+
+    public long getEntries() {
+	return entries;
+    }
+
+    public long getTotalTouchCount() {
+	return totalTouchCount;
+    }
+
+    public int getMaxTouchCount() {
+	return maxTouchCount;
+    }
+
+    /**
+     * Returns the number of entries whose touch count is 0, i.e. that were
+     * never read since they were written.
+     * 
+     * @return long
+     */
+    public long getUntouchedEntries() {
+	return untouchedEntries;
+    }
+
+    public long getTotalKeyBytes() {
+	return totalKeyBytes;
+    }
+
+    public long getTotalValueBytes() {
+	return totalValueBytes;
+    }
+
+    public int getMaxValueBytes() {
+	return maxValueBytes;
+    }
+
+    /**
+     * Returns the mean binary size of the values.
+     * 
+     * @return double bytes, 0 if there is no entry
+     */
+    public double getMeanValueBytes() {
+	return entries == 0 ? 0 : (double) totalValueBytes / entries;
+    }
+
+    /**
+     * Returns the number of entries with an expiry time.
+     * 
+     * @return long
+     */
+    public long getExpiringEntries() {
+	return expiringEntries;
+    }
+
+    /**
+     * Returns the creation time of the oldest entry.
+     * 
+     * @return long milliseconds, Long.MAX_VALUE if there is no entry
+     */
+    public long getOldestCreatedMillis() {
+	return oldestCreatedMillis;
+    }
+
+    /**
+     * Returns the last touch time of the entry idle the longest.
+     * 
+     * @return long milliseconds, Long.MAX_VALUE if there is no entry
+     */
+    public long getOldestTouchMillis() {
+	return oldestTouchMillis;
+    }
+
+    /**
+     * Returns the number of entries idle for at least each of the
+     * IDLE_THRESHOLDS_MILLIS.
+     * 
+     * @return long[] parallel to IDLE_THRESHOLDS_MILLIS
+     */
+    public long[] getIdleEntries() {
+	return idleEntries;
+    }
+
+    /**
+     * POF readExternal
+     */
+    public void readExternal(PofReader pofReader) throws IOException {
+	entries = pofReader.readLong(0);
+	totalTouchCount = pofReader.readLong(1);
+	maxTouchCount = pofReader.readInt(2);
+	untouchedEntries = pofReader.readLong(3);
+	totalKeyBytes = pofReader.readLong(4);
+	totalValueBytes = pofReader.readLong(5);
+	maxValueBytes = pofReader.readInt(6);
+	expiringEntries = pofReader.readLong(7);
+	oldestCreatedMillis = pofReader.readLong(8);
+	oldestTouchMillis = pofReader.readLong(9);
+	idleEntries = pofReader.readLongArray(10);
+    }
+
+    /**
+     * POF writeExternal
+     */
+    public void writeExternal(PofWriter pofWriter) throws IOException {
+	pofWriter.writeLong(0, entries);
+	pofWriter.writeLong(1, totalTouchCount);
+	pofWriter.writeInt(2, maxTouchCount);
+	pofWriter.writeLong(3, untouchedEntries);
+	pofWriter.writeLong(4, totalKeyBytes);
+	pofWriter.writeLong(5, totalValueBytes);
+	pofWriter.writeInt(6, maxValueBytes);
+	pofWriter.writeLong(7, expiringEntries);
+	pofWriter.writeLong(8, oldestCreatedMillis);
+	pofWriter.writeLong(9, oldestTouchMillis);
+	pofWriter.writeLongArray(10, idleEntries);
+    }
+
+    /**
+     * Returns the statistics, sizes in bytes.
+     * 
+     * @return String
+     */
+    public String toString() {
+	StringBuilder idle = new StringBuilder();
+	for (int i = 0; i < IDLE_THRESHOLDS_MILLIS.length; i++) {
+	    idle.append(i == 0 ? "" : ", ").append(">=").append(TimeUnit.MILLISECONDS.toMinutes(IDLE_THRESHOLDS_MILLIS[i]))
+		    .append("min=").append(idleEntries[i]);
+	}
+	return "EntryStatistics [entries=" + entries + ", totalTouchCount=" + totalTouchCount + ", maxTouchCount="
+		+ maxTouchCount + ", untouchedEntries=" + untouchedEntries + ", keyBytes=" + totalKeyBytes
+		+ ", valueBytes=" + totalValueBytes + ", maxValueBytes=" + maxValueBytes + ", meanValueBytes="
+		+ String.format("%.1f", getMeanValueBytes()) + ", expiringEntries=" + expiringEntries
+		+ ", idleEntries=[" + idle + "]]";
+    }
+}
@@ -0,0 +1,99 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.util.Binary;
+
+/**
+ * Top n a member last sent to a client asking for deltas, with the touch
+ * counts the client holds, registered by delta id and cache name.
+ * <p>
+ * The baseline is what the client knows rather than what was scanned: a key
+ * whose touch count changed by no more than the threshold keeps its previous
+ * count, so that small changes do not add up unreported. Baselines not used
+ * for {@link #EXPIRY_MILLIS} are dropped, the client then getting a full
+ * delta.
+ */
+final class HotKeyBaseline {
+
+    static final long EXPIRY_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    private static final ConcurrentMap<String, HotKeyBaseline> baselines = new ConcurrentHashMap<>();
+
+    private long version;
+    private Map<Binary, HotKeyData<?>> hotKeys = new HashMap<>();
+    private volatile long lastUsed = System.currentTimeMillis();
+
+    private HotKeyBaseline() {
+    }
+
+    /**
+     * Returns the delta between the baseline of a client and the top n just
+     * collected, which becomes the new baseline.
+     * 
+     * @param deltaId           id of the client
+     * @param cacheName         name of the cache
+     * @param baseVersion       version the client holds, -1 if none
+     * @param threshold         largest touch count change left unreported
+     * @param minTouchCount     lowest touch count of the keys kept
+     * @param candidates        top n collected
+     * @param scanner           scanner deserializing the keys sent
+     * @param sampledEntryCount number of entries scanned
+     * @param entryCount        number of entries of the member
+     * @return HotKeyDelta
+     */
+    static <K extends Comparable<K>> HotKeyDelta<K> computeDelta(String deltaId, String cacheName, long baseVersion,
+	    int threshold, int minTouchCount, SortedCollectionWithCapacity<HotKeyCandidate> candidates,
+	    BackingMapScanner<K> scanner, long sampledEntryCount, long entryCount) {
+	long now = System.currentTimeMillis();
+	baselines.values().removeIf(baseline -> now - baseline.lastUsed > EXPIRY_MILLIS);
+	HotKeyBaseline baseline = baselines.computeIfAbsent(deltaId + '/' + cacheName, id -> new HotKeyBaseline());
+	synchronized (baseline) {
+	    baseline.lastUsed = now;
+	    return baseline.update(baseVersion, threshold, minTouchCount, candidates, scanner, sampledEntryCount,
+		    entryCount);
+	}
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K extends Comparable<K>> HotKeyDelta<K> update(long baseVersion, int threshold, int minTouchCount,
+	    SortedCollectionWithCapacity<HotKeyCandidate> candidates, BackingMapScanner<K> scanner,
+	    long sampledEntryCount, long entryCount) {
+	boolean full = baseVersion < 0 || baseVersion != version;
+	Map<Binary, HotKeyData<?>> next = new HashMap<>();
+	SortedCollectionWithCapacity<HotKeyData<K>> updated = new SortedCollectionWithCapacity<HotKeyData<K>>(
+		Math.max(candidates.size(), 1));
+	for (HotKeyCandidate candidate : candidates.getReversedOrder()) {
+	    if (candidate.getTouchCount() < minTouchCount) {
+		break;
+	    }
+	    HotKeyData<K> known = full ? null : (HotKeyData<K>) hotKeys.get(candidate.getBinaryKey());
+	    if (known != null && Math.abs(candidate.getTouchCount() - known.getTouchCount()) <= threshold) {
+		next.put(candidate.getBinaryKey(), known);
+	    } else {
+		HotKeyData<K> hotKey = scanner.convert(candidate);
+		next.put(candidate.getBinaryKey(), hotKey);
+		updated.add(hotKey);
+	    }
+	}
+	List<K> removed = new ArrayList<>();
+	if (!full) {
+	    for (Map.Entry<Binary, HotKeyData<?>> entry : hotKeys.entrySet()) {
+		if (!next.containsKey(entry.getKey())) {
+		    removed.add((K) entry.getValue().getKey());
+		}
+	    }
+	}
+	hotKeys = next;
+	version++;
+	return new HotKeyDelta<K>(version, full ? -1 : baseVersion, updated, removed, sampledEntryCount, entryCount);
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.io.Serializable;
+
+import com.mycompany.coherence.hotkeys.tracker.AccessRates;
+import com.mycompany.coherence.hotkeys.tracker.LockContention;
+import com.mycompany.coherence.hotkeys.util.Ranked;
+import com.tangosol.util.Binary;
+
+/**
+ * Scan time holder for touch count and internal (Binary) key of an entry. The
+ * key is only deserialized once a candidate is known to be part of the final
+ * top n, see {@link BackingMapScanner#convert}.
+ */
+public class HotKeyCandidate implements Serializable, Comparable<HotKeyCandidate>, Ranked {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Binary binaryKey;
+    private final int touchCount;
+    private final AccessRates rates;
+    private final LockContention contention;
+
+    /**
+     * HotKeyCandidate constructor.
+     * 
+     * @param binaryKey  internal key of the entry
+     * @param touchCount touch count
+     */
+    public HotKeyCandidate(Binary binaryKey, int touchCount) {
+	this(binaryKey, touchCount, null);
+    }
+
+    /**
+     * HotKeyCandidate constructor.
+     * 
+     * @param binaryKey  internal key of the entry
+     * @param touchCount touch count
+     * @param rates      decayed access rates, null if unknown
+     */
+    public HotKeyCandidate(Binary binaryKey, int touchCount, AccessRates rates) {
+	this(binaryKey, touchCount, rates, null);
+    }
+
+    /**
+     * HotKeyCandidate constructor.
+     * 
+     * @param binaryKey  internal key of the entry
+     * @param touchCount touch count
+     * @param rates      decayed access rates, null if unknown
+     * @param contention entry processor statistics, null if unknown
+     */
+    public HotKeyCandidate(Binary binaryKey, int touchCount, AccessRates rates, LockContention contention) {
+	this.binaryKey = binaryKey;
+	this.touchCount = touchCount;
+	this.rates = rates;
+	this.contention = contention;
+    }
+
+    public Binary getBinaryKey() {
+	return binaryKey;
+    }
+
+    public int getTouchCount() {
+	return touchCount;
+    }
+
+    public AccessRates getRates() {
+	return rates;
+    }
+
+    public LockContention getContention() {
+	return contention;
+    }
+
+    /**
+     * Returns the touch count as the rank of this candidate.
+     */
+    public long getRank() {
+	return touchCount;
+    }
+
+    /**
+     * Orders by touch count, then by the binary form of the key.
+     */
+    public int compareTo(HotKeyCandidate o) {
+	int result = Integer.compare(this.touchCount, o.touchCount);
+	if (result == 0) {
+	    return this.binaryKey.compareTo(o.binaryKey);
+	} else {
+	    return result;
+	}
+    }
+
+    public int hashCode() {
+	return binaryKey.hashCode();
+    }
+
+    public boolean equals(Object obj) {
+	if (this == obj)
+	    return true;
+	if (obj == null)
+	    return false;
+	if (getClass() != obj.getClass())
+	    return false;
+	return binaryKey.equals(((HotKeyCandidate) obj).binaryKey);
+    }
+
+    /**
+     * Returns the binary key and the touch count value.
+     * 
+     * @return String
+     */
+    public String toString() {
+	return "[binaryKey=" + binaryKey + ", touchCount=" + touchCount + "]";
+    }
+}
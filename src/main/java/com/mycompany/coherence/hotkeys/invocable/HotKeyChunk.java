@@ -0,0 +1,77 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.io.pof.PofReader;
+import com.tangosol.io.pof.PofWriter;
+import com.tangosol.io.pof.PortableObject;
+import com.tangosol.net.AbstractInvocable;
+
+/**
+ * Invocable a HotKeyInvocable sends back to the member that invoked it with
+ * the top n of a chunk of its partitions, while it goes on scanning the
+ * others; it is merged into the live top n of the ProgressiveHotKeyObserver of
+ * the request.
+ * 
+ * @param K The type of the key of cache entries, should implement Comparable
+ */
+public class HotKeyChunk<K extends Comparable<K>> extends AbstractInvocable implements PortableObject, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String requestId;
+    private SortedCollectionWithCapacity<HotKeyData<K>> chunk;
+    private int memberId;
+
+    /**
+     * Default constructor, for POF deserialization.
+     */
+    public HotKeyChunk() {
+    }
+
+    /**
+     * HotKeyChunk constructor.
+     * 
+     * @param requestId id of the ProgressiveHotKeyObserver of the request
+     * @param chunk     top n of some of the partitions of the member
+     * @param memberId  id of the member that scanned the chunk
+     */
+    public HotKeyChunk(String requestId, SortedCollectionWithCapacity<HotKeyData<K>> chunk, int memberId) {
+	this.requestId = requestId;
+	this.chunk = chunk;
+	this.memberId = memberId;
+    }
+
+    /**
+     * Merges the chunk into the observer of the request, if it is still open;
+     * otherwise it is dropped and the result of the request stays partial.
+     */
+    public void run() {
+	ProgressiveHotKeyObserver<?> observer = ProgressiveHotKeyObserver.getObserver(requestId);
+	if (observer != null) {
+	    observer.acceptChunk(memberId, chunk);
+	}
+    }
+
+    /**
+     * POF readExternal
+     */
+    @SuppressWarnings("unchecked")
+    public void readExternal(PofReader pofReader) throws IOException {
+	requestId = pofReader.readString(0);
+	chunk = (SortedCollectionWithCapacity<HotKeyData<K>>) pofReader.readObject(1);
+	memberId = pofReader.readInt(2);
+    }
+
+    /**
+     * POF writeExternal
+     */
+    public void writeExternal(PofWriter pofWriter) throws IOException {
+	pofWriter.writeString(0, requestId);
+	pofWriter.writeObject(1, chunk);
+	pofWriter.writeInt(2, memberId);
+    }
+
+}
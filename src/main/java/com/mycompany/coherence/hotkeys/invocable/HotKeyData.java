@@ -3,20 +3,38 @@ package com.mycompany.coherence.hotkeys.invocable;
 import java.io.Serializable;
 import java.util.Objects;
 
+import com.mycompany.coherence.hotkeys.tracker.AccessRates;
+import com.mycompany.coherence.hotkeys.tracker.LockContention;
+import com.mycompany.coherence.hotkeys.util.Ranked;
+import com.tangosol.util.Binary;
+
 /**
- * Aggregator's holder for touch count and key (K type) of an entry.
+ * Aggregator's holder for touch count and key (K type) of an entry. When the
+ * key comes from a hot key tracker, it also holds the decayed access rates of
+ * the key and, when ranking on a rate window, the touch count is the decayed
+ * rate times the length of that window, i.e. the number of accesses over the
+ * window at the current rate. When the key comes from a LockContentionTracker,
+ * it holds the entry processor statistics of the key, the touch count being
+ * the metric ranked on.
+ * <p>
+ * A hot key may also hold its key in binary form, as serialized by the
+ * serializer it is sent with, so that its POF serializers send it as it is
+ * instead of serializing the key again.
  * 
  * @param K The type of the key, should implement Comparable
  */
-public class HotKeyData<K extends Comparable<K>> implements Serializable, Comparable<HotKeyData<K>> {
+public class HotKeyData<K extends Comparable<K>> implements Serializable, Comparable<HotKeyData<K>>, Ranked {
 
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
     private K key;
-    private Integer touchCount = new Integer(0);
+    private int touchCount;
+    private AccessRates rates;
+    private LockContention contention;
+    private transient Binary binaryKey;
 
     /**
-     * HotKeyData sole constructor.
+     * HotKeyData constructor.
      * 
      * @param key   key of the entry
      * @param count touch count
@@ -26,12 +44,45 @@ public class HotKeyData<K extends Comparable<K>> implements Serializable, Compar
 	this.touchCount = count;
     }
 
+    /**
+     * HotKeyData constructor.
+     * 
+     * @param key   key of the entry
+     * @param count touch count
+     * @param rates decayed access rates, null if unknown
+     */
+    public HotKeyData(K key, int count, AccessRates rates) {
+	this(key, count);
+	this.rates = rates;
+    }
+
     public K getKey() {
 	return key;
     }
 
     public void setKey(K key) {
 	this.key = key;
+	this.binaryKey = null;
+    }
+
+    /**
+     * Returns the key in binary form, as serialized by the serializer this hot
+     * key is sent with.
+     * 
+     * @return Binary, null if unknown
+     */
+    public Binary getBinaryKey() {
+	return binaryKey;
+    }
+
+    /**
+     * Sets the key in binary form, which must be the key as serialized by the
+     * serializer this hot key is sent with.
+     * 
+     * @param binaryKey binary key, null if unknown
+     */
+    public void setBinaryKey(Binary binaryKey) {
+	this.binaryKey = binaryKey;
     }
 
     public int getTouchCount() {
@@ -42,11 +93,34 @@ public class HotKeyData<K extends Comparable<K>> implements Serializable, Compar
 	this.touchCount = touchCount;
     }
 
+    public AccessRates getRates() {
+	return rates;
+    }
+
+    public void setRates(AccessRates rates) {
+	this.rates = rates;
+    }
+
+    public LockContention getContention() {
+	return contention;
+    }
+
+    public void setContention(LockContention contention) {
+	this.contention = contention;
+    }
+
+    /**
+     * Returns the touch count as the rank of this holder.
+     */
+    public long getRank() {
+	return touchCount;
+    }
+
     /**
      * 
      */
     public int compareTo(HotKeyData<K> o) {
-	int result = this.touchCount.compareTo(o.touchCount);
+	int result = Integer.compare(this.touchCount, o.touchCount);
 	if (result == 0) {
 	    // return order based on the key
 	    return this.key.compareTo(o.getKey());
@@ -72,11 +146,13 @@ public class HotKeyData<K extends Comparable<K>> implements Serializable, Compar
     }
 
     /**
-     * Returns the key and the touch count value.
+     * Returns the key, the touch count value and the rates and entry processor
+     * statistics if known.
      * 
      * @return String
      */
     public String toString() {
-	return "[key=" + key + ", touchCount=" + touchCount + "]";
+	return "[key=" + key + ", touchCount=" + touchCount + (rates == null ? "" : ", rates=" + rates)
+		+ (contention == null ? "" : ", contention=" + contention) + "]";
     }
 }
@@ -0,0 +1,100 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.io.IOException;
+
+import com.mycompany.coherence.hotkeys.tracker.AccessRates;
+import com.mycompany.coherence.hotkeys.tracker.LockContention;
+import com.tangosol.io.pof.PofContext;
+import com.tangosol.io.pof.PofReader;
+import com.tangosol.io.pof.PofSerializer;
+import com.tangosol.io.pof.PofWriter;
+import com.tangosol.util.Binary;
+import com.tangosol.util.ExternalizableHelper;
+
+/**
+ * POF serializer of HotKeyData: the key in its binary form, the touch count
+ * and, when known, the access rates packed in a double array and the entry
+ * processor statistics packed in a long array. The binary key held by the
+ * HotKeyData, if any, is written as it is; the binary key read is kept by the
+ * HotKeyData deserialized.
+ */
+public class HotKeyDataPofSerializer implements PofSerializer<HotKeyData<?>> {
+
+    public void serialize(PofWriter pofWriter, HotKeyData<?> data) throws IOException {
+	pofWriter.writeBinary(0, getBinaryKey(data, pofWriter.getPofContext()));
+	pofWriter.writeInt(1, data.getTouchCount());
+	if (data.getRates() != null) {
+	    pofWriter.writeDoubleArray(2, packRates(new AccessRates[] { data.getRates() }));
+	}
+	if (data.getContention() != null) {
+	    pofWriter.writeLongArray(3, LockContention.pack(new LockContention[] { data.getContention() }));
+	}
+	pofWriter.writeRemainder(null);
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public HotKeyData<?> deserialize(PofReader pofReader) throws IOException {
+	Binary binaryKey = pofReader.readBinary(0);
+	int touchCount = pofReader.readInt(1);
+	AccessRates[] rates = unpackRates(pofReader.readDoubleArray(2));
+	LockContention[] contentions = LockContention.unpack(pofReader.readLongArray(3));
+	pofReader.readRemainder();
+	Comparable key = (Comparable) ExternalizableHelper.fromBinary(binaryKey, pofReader.getPofContext());
+	HotKeyData data = new HotKeyData(key, touchCount, rates == null ? null : rates[0]);
+	if (contentions != null) {
+	    data.setContention(contentions[0]);
+	}
+	data.setBinaryKey(binaryKey);
+	return data;
+    }
+
+    /**
+     * Returns the key of a hot key in binary form, only serializing it when the
+     * hot key does not hold it.
+     * 
+     * @param data       the hot key
+     * @param pofContext the POF context the hot key is written with
+     * @return Binary
+     */
+    public static Binary getBinaryKey(HotKeyData<?> data, PofContext pofContext) {
+	Binary binaryKey = data.getBinaryKey();
+	return binaryKey == null ? ExternalizableHelper.toBinary(data.getKey(), pofContext) : binaryKey;
+    }
+
+    /**
+     * Packs access rates, three doubles each, NaN standing for unknown rates.
+     * 
+     * @param rates access rates, possibly null
+     * @return double[]
+     */
+    public static double[] packRates(AccessRates[] rates) {
+	double[] packed = new double[rates.length * 3];
+	for (int i = 0; i < rates.length; i++) {
+	    AccessRates rate = rates[i];
+	    packed[i * 3] = rate == null ? Double.NaN : rate.getOneMinuteRate();
+	    packed[i * 3 + 1] = rate == null ? Double.NaN : rate.getFiveMinuteRate();
+	    packed[i * 3 + 2] = rate == null ? Double.NaN : rate.getFifteenMinuteRate();
+	}
+	return packed;
+    }
+
+    /**
+     * Unpacks access rates packed by {@link #packRates(AccessRates[])}.
+     * 
+     * @param packed packed rates, possibly null or empty
+     * @return AccessRates[] or null if there are no packed rates
+     */
+    public static AccessRates[] unpackRates(double[] packed) {
+	if (packed == null || packed.length == 0) {
+	    return null;
+	}
+	AccessRates[] rates = new AccessRates[packed.length / 3];
+	for (int i = 0; i < rates.length; i++) {
+	    if (!Double.isNaN(packed[i * 3])) {
+		rates[i] = new AccessRates(packed[i * 3], packed[i * 3 + 1], packed[i * 3 + 2]);
+	    }
+	}
+	return rates;
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.io.pof.PofReader;
+import com.tangosol.io.pof.PofWriter;
+import com.tangosol.io.pof.PortableObject;
+
+/**
+ * Result of a member asked for a delta, see HotKeyInvocable.setDelta: the
+ * changes of its top n since the version the client holds, i.e. the keys that
+ * entered the top n or whose touch count changed by more than the threshold,
+ * and the keys that left it.
+ * <p>
+ * A full delta, sent when the member has no baseline matching the version of
+ * the client, holds the whole top n. A HotKeyDeltaView applies the deltas of
+ * each member to rebuild its top n.
+ * 
+ * @param K The type of the key of cache entries, should implement Comparable
+ */
+public class HotKeyDelta<K extends Comparable<K>> implements PortableObject, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long version;
+    private long baseVersion;
+    private SortedCollectionWithCapacity<HotKeyData<K>> updated;
+    private Collection<K> removed;
+    private long sampledEntryCount;
+    private long entryCount;
+
+    /**
+     * Default constructor, for POF deserialization.
+     */
+    public HotKeyDelta() {
+    }
+
+    /**
+     * HotKeyDelta constructor.
+     * 
+     * @param version           version of the top n once the delta is applied
+     * @param baseVersion       version the delta applies to, -1 for a full delta
+     * @param updated           keys that entered the top n or whose touch count
+     *                          changed
+     * @param removed           keys that left the top n
+     * @param sampledEntryCount number of entries scanned
+     * @param entryCount        number of entries of the member
+     */
+    public HotKeyDelta(long version, long baseVersion, SortedCollectionWithCapacity<HotKeyData<K>> updated,
+	    Collection<K> removed, long sampledEntryCount, long entryCount) {
+	this.version = version;
+	this.baseVersion = baseVersion;
+	this.updated = updated;
+	this.removed = removed;
+	this.sampledEntryCount = sampledEntryCount;
+	this.entryCount = entryCount;
+    }
+
+    public long getVersion() {
+	return version;
+    }
+
+    public long getBaseVersion() {
+	return baseVersion;
+    }
+
+    /**
+     * Tells if the delta holds the whole top n rather than changes.
+     * 
+     * @return boolean
+     */
+    public boolean isFull() {
+	return baseVersion < 0;
+    }
+
+    public SortedCollectionWithCapacity<HotKeyData<K>> getUpdated() {
+	return updated;
+    }
+
+    public Collection<K> getRemoved() {
+	return removed;
+    }
+
+    public long getSampledEntryCount() {
+	return sampledEntryCount;
+    }
+
+    public long getEntryCount() {
+	return entryCount;
+    }
+
+    /**
+     * POF readExternal
+     */
+    @SuppressWarnings("unchecked")
+    public void readExternal(PofReader pofReader) throws IOException {
+	version = pofReader.readLong(0);
+	baseVersion = pofReader.readLong(1);
+	updated = (SortedCollectionWithCapacity<HotKeyData<K>>) pofReader.readObject(2);
+	removed = pofReader.readCollection(3, new ArrayList<K>());
+	sampledEntryCount = pofReader.readLong(4);
+	entryCount = pofReader.readLong(5);
+    }
+
+    /**
+     * POF writeExternal
+     */
+    public void writeExternal(PofWriter pofWriter) throws IOException {
+	pofWriter.writeLong(0, version);
+	pofWriter.writeLong(1, baseVersion);
+	pofWriter.writeObject(2, updated);
+	pofWriter.writeCollection(3, removed);
+	pofWriter.writeLong(4, sampledEntryCount);
+	pofWriter.writeLong(5, entryCount);
+    }
+
+    /**
+     * Returns the versions and the changed keys.
+     * 
+     * @return String
+     */
+    public String toString() {
+	return "HotKeyDelta [version=" + version + ", baseVersion=" + baseVersion + ", updated=" + updated
+		+ ", removed=" + removed + "]";
+    }
+}
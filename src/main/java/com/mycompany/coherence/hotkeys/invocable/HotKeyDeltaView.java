@@ -0,0 +1,156 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.net.CacheFactory;
+import com.tangosol.net.Member;
+
+/**
+ * Client side top n of each member rebuilt from the HotKeyDelta results of
+ * successive invocations, so that members polled often only send the keys
+ * that changed.
+ * <p>
+ * Each view has its own delta id, the members keeping a baseline per delta id;
+ * the invocables of a view must be given its delta id and the version it holds
+ * for their member, see {@link #getVersion(Member)}. A member whose delta does
+ * not apply to the version held, or whose result is lost, is dropped from the
+ * view and sends its whole top n the next time.
+ * 
+ * @param K The type of the key of cache entries, should implement Comparable
+ */
+public class HotKeyDeltaView<K extends Comparable<K>> {
+
+    private final String deltaId = UUID.randomUUID().toString();
+    private final int topN;
+    private final Map<Member, MemberView<K>> members = new ConcurrentHashMap<>();
+    private final LongAdder updatedCount = new LongAdder();
+    private final LongAdder removedCount = new LongAdder();
+
+    /**
+     * HotKeyDeltaView sole constructor.
+     * 
+     * @param topN number of hot keys of each member
+     */
+    public HotKeyDeltaView(int topN) {
+	this.topN = topN;
+    }
+
+    /**
+     * Returns the id the members keep the baselines of this view by.
+     * 
+     * @return String
+     */
+    public String getDeltaId() {
+	return deltaId;
+    }
+
+    /**
+     * Returns the version of the top n of a member held by this view.
+     * 
+     * @param member member
+     * @return long version, -1 if none
+     */
+    public long getVersion(Member member) {
+	MemberView<K> view = members.get(member);
+	return view == null ? -1 : view.version;
+    }
+
+    /**
+     * Applies the delta of a member to its top n.
+     * 
+     * @param member member the delta comes from
+     * @param delta  result of the member
+     * @return the rebuilt top n of the member, null if the delta does not apply
+     *         to the version held
+     */
+    public SortedCollectionWithCapacity<HotKeyData<K>> apply(Member member, HotKeyDelta<K> delta) {
+	MemberView<K> view = members.computeIfAbsent(member, m -> new MemberView<K>());
+	synchronized (view) {
+	    if (delta.isFull()) {
+		view.hotKeys.clear();
+	    } else if (delta.getBaseVersion() != view.version) {
+		members.remove(member);
+		CacheFactory.log(String.format("Dropped the hot keys of %s, whose delta applies to version %d "
+			+ "instead of %d.", member, delta.getBaseVersion(), view.version));
+		return null;
+	    }
+	    for (K key : delta.getRemoved()) {
+		view.hotKeys.remove(key);
+	    }
+	    for (HotKeyData<K> hotKey : delta.getUpdated().getSortedSet()) {
+		view.hotKeys.put(hotKey.getKey(), hotKey);
+	    }
+	    view.version = delta.getVersion();
+	    updatedCount.add(delta.getUpdated().size());
+	    removedCount.add(delta.getRemoved().size());
+	    return view.getTopN(topN);
+	}
+    }
+
+    /**
+     * Drops the top n of a member, e.g. after its result was lost, so that its
+     * whole top n is asked for the next time.
+     * 
+     * @param member member
+     */
+    public void remove(Member member) {
+	members.remove(member);
+    }
+
+    /**
+     * Returns the top n of all the members held.
+     * 
+     * @return SortedCollectionWithCapacity
+     */
+    public SortedCollectionWithCapacity<HotKeyData<K>> getResult() {
+	SortedCollectionWithCapacity<HotKeyData<K>> result = new SortedCollectionWithCapacity<HotKeyData<K>>(topN);
+	for (MemberView<K> view : members.values()) {
+	    synchronized (view) {
+		result.merge(view.getTopN(topN));
+	    }
+	}
+	return result;
+    }
+
+    /**
+     * Returns the number of entered or changed keys received so far.
+     * 
+     * @return long
+     */
+    public long getUpdatedCount() {
+	return updatedCount.sum();
+    }
+
+    /**
+     * Returns the number of left keys received so far.
+     * 
+     * @return long
+     */
+    public long getRemovedCount() {
+	return removedCount.sum();
+    }
+
+    /**
+     * Top n of a member with the version it was last updated to.
+     */
+    private static final class MemberView<K extends Comparable<K>> {
+
+	private long version = -1;
+	private final Map<K, HotKeyData<K>> hotKeys = new HashMap<>();
+
+	SortedCollectionWithCapacity<HotKeyData<K>> getTopN(int topN) {
+	    SortedCollectionWithCapacity<HotKeyData<K>> result = new SortedCollectionWithCapacity<HotKeyData<K>>(
+		    topN);
+	    for (HotKeyData<K> hotKey : hotKeys.values()) {
+		result.add(hotKey);
+	    }
+	    return result;
+	}
+    }
+
+}
@@ -2,21 +2,38 @@ package com.mycompany.coherence.hotkeys.invocable;
 
 import java.io.IOException;
 import java.io.Serializable;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 
+import com.mycompany.coherence.hotkeys.metrics.HotKeyScanMetrics;
+import com.mycompany.coherence.hotkeys.tracker.AccessCountingBackingMap;
+import com.mycompany.coherence.hotkeys.tracker.AccessCounts;
+import com.mycompany.coherence.hotkeys.tracker.HeavyHitterSketch;
+import com.mycompany.coherence.hotkeys.tracker.HotKeyTracker;
+import com.mycompany.coherence.hotkeys.tracker.LockContention;
+import com.mycompany.coherence.hotkeys.tracker.LockContentionTracker;
+import com.mycompany.coherence.hotkeys.tracker.RateWindow;
 import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacityPofSerializer;
 import com.tangosol.io.pof.PofReader;
 import com.tangosol.io.pof.PofWriter;
 import com.tangosol.io.pof.PortableObject;
 import com.tangosol.net.AbstractInvocable;
-import com.tangosol.net.BackingMapContext;
+import com.tangosol.net.BackingMapManagerContext;
 import com.tangosol.net.CacheFactory;
 import com.tangosol.net.DistributedCacheService;
+import com.tangosol.net.InvocationService;
 import com.tangosol.net.Member;
-import com.tangosol.net.cache.LocalCache;
+import com.tangosol.net.partition.PartitionSet;
 import com.tangosol.util.Converter;
+import com.tangosol.util.ExternalizableHelper;
 
 /**
  * Invocable that will handle fetching touch count on each entry of a member on
@@ -33,12 +50,108 @@ public class HotKeyInvocable<K extends Comparable<K>> extends AbstractInvocable
 
     private static final Logger logger = Logger.getLogger("Coherence");
 
+    /**
+     * Maximum number of entries of the slices a plain backing map is cut into
+     * when the scan has a CPU budget, the budget being checked between slices.
+     */
+    private static final int BUDGET_SLICE_SIZE = 16384;
+
     private String cacheName;
     private String cacheServiceName;
     private int topN;
+    private int parallelism;
+    private Mode mode = Mode.TOUCH_COUNT;
+    private RateWindow rateWindow = RateWindow.ONE_MINUTE;
+    private int minTouchCount;
+    private boolean countsOnly;
+    private int chunkSize;
+    private String requestId;
+    private int resultMemberId;
+    private double sampleFraction;
+    private int sampleSize;
+    private long cpuBudgetMillis;
+    private String deltaId;
+    private long baseVersion = -1;
+    private int deltaThreshold;
+    private boolean partitionSizes;
+    private KeyType keyType = KeyType.OBJECT;
+    private LockContention.Metric contentionMetric = LockContention.Metric.INVOCATIONS;
+    private EntryProfile.Staleness staleness = EntryProfile.Staleness.IDLE;
+    private transient long sampledEntryCount;
+    private transient long entryCount;
+    private transient long chunkBytes;
+    private transient boolean chunked;
+    private transient int chunkCount;
+
+    /**
+     * Where the hot keys are fetched from.
+     */
+    public enum Mode {
+	/**
+	 * Scan of the touch count of every entry of the backing map.
+	 */
+	TOUCH_COUNT,
+	/**
+	 * Estimated counts of the heavy hitters sketch of the cache, which needs
+	 * the backing map to be a TrackingLocalCache; answers in O(capacity of the
+	 * sketch) instead of O(entries).
+	 */
+	TRACKER,
+	/**
+	 * Decayed counts over the rate window of the heavy hitters sketch of the
+	 * cache, i.e. its recent heat rather than its lifetime count; also needs
+	 * the backing map to be a TrackingLocalCache.
+	 */
+	DECAYED_RATE,
+	/**
+	 * Sums of the touch counts of the entries of each owned partition, and
+	 * optionally of their binary sizes, instead of the hot keys; the result is
+	 * a PartitionHeat. Needs a local cache backing map.
+	 */
+	PARTITION_HEAT,
+	/**
+	 * Entry processor statistics of the LockContentionTracker of the cache,
+	 * ranked on the contention metric, i.e. the keys whose locks throttle the
+	 * writes rather than the keys read the most; needs a
+	 * LockContentionInterceptor on the cache.
+	 */
+	LOCK_CONTENTION,
+	/**
+	 * Single scan of every entry of the backing map into the top n touch
+	 * counts, the top n value sizes and the top n idle times or ages, with
+	 * the statistics of the entries; the result is an EntryProfile. Needs a
+	 * local cache backing map.
+	 */
+	PROFILE
+    }
+
+    /**
+     * Type of the keys of the cache, for a scan of Integer or Long keys to keep
+     * them as primitives.
+     */
+    public enum KeyType {
+	/**
+	 * Any key, the top n being made of HotKeyData.
+	 */
+	OBJECT,
+	/**
+	 * Integer keys, the top n being PrimitiveHotKeys.
+	 */
+	INT,
+	/**
+	 * Long keys, the top n being PrimitiveHotKeys.
+	 */
+	LONG
+    }
+
+    /**
+     * Default constructor, for POF deserialization.
+     */
+    public HotKeyInvocable() {
+    }
 
     /**
-     * HotKeyInvocable sole constructor.
+     * HotKeyInvocable constructor.
      * 
      * @param cacheName        cache name
      * @param cacheServiceName cache service name
@@ -52,38 +165,625 @@ public class HotKeyInvocable<K extends Comparable<K>> extends AbstractInvocable
     }
 
     /**
-     * Fetches the touch count of each entry of the backing map.
+     * Fetches the touch count of each entry of the backing map, or the
+     * estimated counts of the hot key tracker of the cache, depending on the
+     * mode. The result is the top n hot keys, SampledHotKeys when the backing
+     * map is sampled or its scan has a CPU budget, their HotKeyDelta when a
+     * delta is asked for, or their TouchCountHistogram when only the counts
+     * are asked for. In PARTITION_HEAT mode the result is the PartitionHeat of
+     * the owned partitions. A scan of INT or LONG keys returns PrimitiveHotKeys
+     * rather than HotKeyData, see {@link #setKeyType}. In LOCK_CONTENTION mode
+     * the HotKeyData hold the entry processor statistics of their keys. In
+     * PROFILE mode the result is the EntryProfile of the member. The result of
+     * a scan sent in chunks is wrapped in a ChunkedHotKeys, see
+     * {@link #setChunkSize}.
+     * <p>
+     * When the backing map is an AccessCountingBackingMap, its counts are
+     * collected instead of the touch counts of the entries, neither sampled
+     * nor sent in chunks since they are read in O(counted keys) without
+     * visiting any entry.
+     * <p>
+     * The cost of the scan is recorded in the HotKeyScanMetrics of the cache.
      */
     public void run() {
 
-	SortedCollectionWithCapacity<HotKeyData<K>> results = new SortedCollectionWithCapacity<HotKeyData<K>>(
-		this.topN);
-
+	long startNanos = System.nanoTime();
+	long startCpuNanos = HotKeyScanMetrics.currentThreadCpuNanos();
 	DistributedCacheService cacheService = (DistributedCacheService) CacheFactory.getService(cacheServiceName);
+	BackingMapManagerContext managerContext = cacheService.getBackingMapManager().getContext();
+	Converter converter = managerContext.getKeyFromInternalConverter();
+	BackingMapScanner<K> scanner = new BackingMapScanner<K>(converter, this.topN);
+	scanner.setMinTouchCount(minTouchCount);
+	scanner.setKeepBinaryKeys(
+		ExternalizableHelper.isSerializerCompatible(cacheService.getSerializer(), getService().getSerializer()));
+
+	SortedCollectionWithCapacity<HotKeyCandidate> candidates = null;
+	PrimitiveHotKeys primitiveHotKeys = null;
+	EntryProfile<K> profile = null;
+	if (getMode() == Mode.PARTITION_HEAT) {
+	    // no candidate
+	} else if (getMode() == Mode.PROFILE) {
+	    profile = scanner.scanProfile(getScanSegments(cacheService, scanner, false), parallelism,
+		    getStaleness());
+	    endScan(scanner);
+	} else if (getMode() == Mode.TRACKER || getMode() == Mode.DECAYED_RATE) {
+	    candidates = collectFromTracker(managerContext);
+	} else if (getMode() == Mode.LOCK_CONTENTION) {
+	    candidates = collectFromContentionTracker(managerContext);
+	} else {
+	    AccessCounts accessCounts = getAccessCounts(cacheService);
+	    if (accessCounts == null && isPrimitiveScan()) {
+		primitiveHotKeys = scanner.scanPrimitive(getScanSegments(cacheService, scanner, false), parallelism,
+			getKeyType() == KeyType.LONG);
+		endScan(scanner);
+	    } else if (accessCounts == null) {
+		candidates = scanBackingMap(cacheService, scanner);
+	    } else {
+		candidates = collectFromAccessCounts(accessCounts, managerContext);
+	    }
+	}
+
+	Object result;
+	if (getMode() == Mode.PARTITION_HEAT) {
+	    result = scanPartitionHeat(cacheService, scanner);
+	} else if (profile != null) {
+	    result = profile;
+	} else if (primitiveHotKeys != null && (isSampled() || cpuBudgetMillis > 0)) {
+	    result = new SampledHotKeys<K>(primitiveHotKeys.<K>toHotKeys(), sampledEntryCount, entryCount);
+	} else if (primitiveHotKeys != null) {
+	    result = primitiveHotKeys;
+	} else if (countsOnly) {
+	    result = TouchCountHistogram.of(candidates.getReversedOrder(), minTouchCount);
+	} else if (deltaId != null) {
+	    result = HotKeyBaseline.computeDelta(deltaId, cacheName, baseVersion, deltaThreshold, minTouchCount,
+		    candidates, scanner, sampledEntryCount, entryCount);
+	} else if ((isSampled() || cpuBudgetMillis > 0) && getMode() == Mode.TOUCH_COUNT) {
+	    result = new SampledHotKeys<K>(scanner.convert(candidates), sampledEntryCount, entryCount);
+	} else {
+	    result = scanner.convert(candidates);
+	}
+	if (chunked) {
+	    result = new ChunkedHotKeys(result, chunkCount);
+	}
+	this.setResult(result);
+
+	long wallNanos = System.nanoTime() - startNanos;
+	long cpuNanos = HotKeyScanMetrics.currentThreadCpuNanos() - startCpuNanos + scanner.getWorkerCpuNanos();
+	HotKeyScanMetrics.forCache(cacheName).recordScan(wallNanos, cpuNanos, scanner.getEntriesVisited(),
+		scanner.getKeysDeserialized(), chunkBytes + estimateSerializedSize(result));
+    }
+
+    /**
+     * Returns an estimate of the serialized size of a result or chunk, from
+     * the number of values it sends and the binary size of the keys its hot
+     * keys hold, so that results are not serialized a second time only to be
+     * measured.
+     */
+    static long estimateSerializedSize(Object result) {
+	int valueBytes = SortedCollectionWithCapacityPofSerializer.ESTIMATED_VALUE_BYTES;
+	if (result instanceof SortedCollectionWithCapacity) {
+	    return SortedCollectionWithCapacityPofSerializer.estimateSize((SortedCollectionWithCapacity<?>) result);
+	} else if (result instanceof ChunkedHotKeys) {
+	    return valueBytes + estimateSerializedSize(((ChunkedHotKeys) result).getResult());
+	} else if (result instanceof SampledHotKeys) {
+	    return 2 * 8 + estimateSerializedSize(((SampledHotKeys<?>) result).getHotKeys());
+	} else if (result instanceof HotKeyDelta) {
+	    HotKeyDelta<?> delta = (HotKeyDelta<?>) result;
+	    return 4 * 8 + estimateSerializedSize(delta.getUpdated())
+		    + (delta.getRemoved() == null ? 0 : delta.getRemoved().size() * 2 * valueBytes);
+	} else if (result instanceof TouchCountHistogram) {
+	    return valueBytes + ((TouchCountHistogram) result).size() * 2 * valueBytes;
+	} else if (result instanceof PartitionHeat) {
+	    PartitionHeat heat = (PartitionHeat) result;
+	    return valueBytes
+		    + heat.getPartitions().length * (valueBytes + (heat.getBinarySizes() == null ? 2 : 3) * 8);
+	} else if (result instanceof PrimitiveHotKeys) {
+	    PrimitiveHotKeys primitiveHotKeys = (PrimitiveHotKeys) result;
+	    return 2 * valueBytes + primitiveHotKeys.size() * ((primitiveHotKeys.isLongKeys() ? 8 : 4) + valueBytes);
+	} else if (result instanceof EntryProfile) {
+	    EntryProfile<?> profile = (EntryProfile<?>) result;
+	    return 16 * 8 + estimateSerializedSize(profile.getHottest()) + estimateSerializedSize(profile.getLargest())
+		    + estimateSerializedSize(profile.getColdest());
+	}
+	return 0;
+    }
+
+    /**
+     * Scans the backing map of the cache for the top n touch counts.
+     */
+    private SortedCollectionWithCapacity<HotKeyCandidate> scanBackingMap(DistributedCacheService cacheService,
+	    BackingMapScanner<K> scanner) {
+	chunked = chunkSize > 0 && requestId != null && !countsOnly && deltaId == null;
+	List<Collection<?>> segments = getScanSegments(cacheService, scanner, chunked);
+	SortedCollectionWithCapacity<HotKeyCandidate> candidates = chunked ? scanInChunks(segments, scanner)
+		: scanner.scan(segments, parallelism);
+	endScan(scanner);
+	return candidates;
+    }
+
+    /**
+     * Returns the segments of the backing map to scan, sampled if asked for,
+     * in random order when the scan has a CPU budget.
+     */
+    private List<Collection<?>> getScanSegments(DistributedCacheService cacheService, BackingMapScanner<K> scanner,
+	    boolean chunked) {
 	Member localMember = cacheService.getCluster().getLocalMember();
 	int localMemberId = localMember.getId();
-	Set backingMapEntries = cacheService.getBackingMapManager().getContext().getBackingMap(cacheName).entrySet();
-
-	BackingMapContext backingMapContext = cacheService.getBackingMapManager().getContext()
-		.getBackingMapContext(cacheName);
-	Converter converter = backingMapContext.getManagerContext().getKeyFromInternalConverter();
+	Map backingMap = cacheService.getBackingMapManager().getContext().getBackingMap(cacheName);
 
 	if (logger.isDebugEnabled()) {
-	    logger.debug("There are " + backingMapEntries.size() + " entries in the " + cacheName
+	    logger.debug("There are " + backingMap.size() + " entries in the " + cacheName
 		    + " cache on local member id " + localMemberId);
 	}
 
-	for (Object entry : backingMapEntries) {
-	    LocalCache.Entry localCacheEntry = (LocalCache.Entry) entry;
-	    K key = (K) converter.convert(localCacheEntry.getKey());
-	    results.add(new HotKeyData<K>(key, localCacheEntry.getTouchCount()));
-	    if (logger.isDebugEnabled()) {
-		logger.debug("key=" + converter.convert(localCacheEntry.getKey()) + ", touchCount="
-			+ localCacheEntry.getTouchCount());
+	PartitionSet ownedPartitions = cacheService.getOwnedPartitions(localMember);
+	int maxSliceSize = chunked ? chunkSize : Integer.MAX_VALUE;
+	if (cpuBudgetMillis > 0) {
+	    maxSliceSize = Math.min(maxSliceSize, BUDGET_SLICE_SIZE);
+	    scanner.setCpuBudget(TimeUnit.MILLISECONDS.toNanos(cpuBudgetMillis));
+	}
+	List<Collection<?>> segments;
+	entryCount = backingMap.size();
+	if (isSampled()) {
+	    long size = sampleSize > 0 ? sampleSize : (long) Math.ceil(sampleFraction * entryCount);
+	    segments = BackingMapScanner.getSampledSegments(backingMap, ownedPartitions, parallelism, maxSliceSize,
+		    size, ThreadLocalRandom.current());
+	    sampledEntryCount = 0;
+	    for (Collection<?> segment : segments) {
+		sampledEntryCount += segment.size();
 	    }
+	} else {
+	    segments = BackingMapScanner.getSegments(backingMap, ownedPartitions, parallelism, maxSliceSize);
+	    sampledEntryCount = entryCount;
 	}
+	if (cpuBudgetMillis > 0) {
+	    // the segments left out when the budget runs out are then a random
+	    // sample rather than the highest partitions
+	    segments = new ArrayList<>(segments);
+	    Collections.shuffle(segments, ThreadLocalRandom.current());
+	}
+	return segments;
+    }
+
+    /**
+     * Accounts for the entries skipped by a scan that exceeded its CPU budget.
+     */
+    private void endScan(BackingMapScanner<K> scanner) {
+	sampledEntryCount -= scanner.getEntriesSkipped();
+	if (scanner.isCpuBudgetExceeded()) {
+	    logger.warn("The scan of the " + cacheName + " cache exceeded its CPU budget of " + cpuBudgetMillis
+		    + " ms, " + scanner.getEntriesSkipped() + " entries were skipped");
+	}
+    }
+
+    /**
+     * Scans segments sending the top n of every chunk of about chunkSize
+     * entries but the last one as soon as it is scanned, the last one being
+     * the result.
+     */
+    private SortedCollectionWithCapacity<HotKeyCandidate> scanInChunks(List<Collection<?>> segments,
+	    BackingMapScanner<K> scanner) {
+	int from = 0;
+	long entries = 0;
+	for (int i = 0; i < segments.size() - 1; i++) {
+	    entries += segments.get(i).size();
+	    if (entries >= chunkSize) {
+		sendChunk(scanner.convert(scanner.scan(segments.subList(from, i + 1), parallelism)));
+		from = i + 1;
+		entries = 0;
+	    }
+	}
+	return scanner.scan(segments.subList(from, segments.size()), parallelism);
+    }
+
+    /**
+     * Sums the touch counts, and optionally the binary sizes, of the entries of
+     * each owned partition; only the partitions still owned once scanned are
+     * reported.
+     */
+    private PartitionHeat scanPartitionHeat(DistributedCacheService cacheService, BackingMapScanner<K> scanner) {
+	BackingMapManagerContext managerContext = cacheService.getBackingMapManager().getContext();
+	PartitionSet ownedPartitions = cacheService.getOwnedPartitions(cacheService.getCluster().getLocalMember());
+	int partitionCount = cacheService.getPartitionCount();
+	long[] touchCounts = new long[partitionCount];
+	long[] entryCounts = new long[partitionCount];
+	long[] binarySizes = partitionSizes ? new long[partitionCount] : null;
+	scanner.scanPartitionHeat(managerContext.getBackingMap(cacheName), ownedPartitions, managerContext,
+		touchCounts, entryCounts, binarySizes);
+	// partitions that moved away while scanned are left to their new owner
+	ownedPartitions.retain(cacheService.getOwnedPartitions(cacheService.getCluster().getLocalMember()));
+	return new PartitionHeat(ownedPartitions, touchCounts, entryCounts, binarySizes);
+    }
+
+    /**
+     * Sends the top n of a chunk of the scanned partitions to the member the
+     * result goes to, without waiting for it to be merged; the chunks sent are
+     * counted for the result to tell the observer how many to wait for.
+     */
+    private void sendChunk(SortedCollectionWithCapacity<HotKeyData<K>> chunk) {
+	InvocationService invocationService = getService();
+	Member resultMember = invocationService.getInfo().getServiceMember(resultMemberId);
+	if (resultMember != null) {
+	    HotKeyChunk<K> hotKeyChunk = new HotKeyChunk<K>(requestId, chunk,
+		    invocationService.getCluster().getLocalMember().getId());
+	    invocationService.execute(hotKeyChunk, Collections.singleton(resultMember), null);
+	    chunkCount++;
+	    chunkBytes += requestId.length() + estimateSerializedSize(chunk);
+	}
+    }
+
+    /**
+     * Collects the top n estimated counts, or decayed counts, from the hot key
+     * tracker of the cache, keeping only keys this member owns.
+     */
+    private SortedCollectionWithCapacity<HotKeyCandidate> collectFromTracker(BackingMapManagerContext managerContext) {
+	HeavyHitterSketch sketch = HotKeyTracker.getSketch(cacheName);
+	if (sketch == null) {
+	    throw new IllegalStateException("There is no hot key tracker for the " + cacheName
+		    + " cache on this member; its backing map must be a TrackingLocalCache.");
+	}
+	SortedCollectionWithCapacity<HotKeyCandidate> candidates = new SortedCollectionWithCapacity<HotKeyCandidate>(
+		this.topN);
+	RateWindow window = getMode() == Mode.DECAYED_RATE ? getRateWindow() : null;
+	sketch.collect(candidates, managerContext::isKeyOwned, window);
+	return candidates;
+    }
+
+    /**
+     * Collects the top n entry processor statistics, ranked on the contention
+     * metric, from the lock contention tracker of the cache, keeping only keys
+     * this member owns.
+     */
+    private SortedCollectionWithCapacity<HotKeyCandidate> collectFromContentionTracker(
+	    BackingMapManagerContext managerContext) {
+	SortedCollectionWithCapacity<HotKeyCandidate> candidates = new SortedCollectionWithCapacity<HotKeyCandidate>(
+		this.topN);
+	LockContentionTracker tracker = LockContentionTracker.getTracker(cacheName);
+	if (tracker != null) {
+	    tracker.collect(candidates, managerContext::isKeyOwned, getContentionMetric(), minTouchCount);
+	} else if (logger.isDebugEnabled()) {
+	    logger.debug("No entry processor was recorded for the " + cacheName + " cache on this member");
+	}
+	return candidates;
+    }
+
+    /**
+     * Returns the access counts of the backing map of the cache, or null if the
+     * backing map is not an AccessCountingBackingMap.
+     */
+    private AccessCounts getAccessCounts(DistributedCacheService cacheService) {
+	Map backingMap = cacheService.getBackingMapManager().getContext().getBackingMap(cacheName);
+	if (backingMap instanceof AccessCountingBackingMap) {
+	    return ((AccessCountingBackingMap) backingMap).getAccessCounts();
+	}
+	return null;
+    }
+
+    /**
+     * Collects the top n reads plus writes from the access counts of the
+     * backing map, keeping only keys this member owns.
+     */
+    private SortedCollectionWithCapacity<HotKeyCandidate> collectFromAccessCounts(AccessCounts accessCounts,
+	    BackingMapManagerContext managerContext) {
+	SortedCollectionWithCapacity<HotKeyCandidate> candidates = new SortedCollectionWithCapacity<HotKeyCandidate>(
+		this.topN);
+	accessCounts.collect(candidates, managerContext::isKeyOwned, minTouchCount);
+	return candidates;
+    }
+
+    /**
+     * Returns where the hot keys are fetched from.
+     * 
+     * @return Mode
+     */
+    public Mode getMode() {
+	return mode == null ? Mode.TOUCH_COUNT : mode;
+    }
+
+    /**
+     * Sets where the hot keys are fetched from.
+     * 
+     * @param mode
+     */
+    public void setMode(Mode mode) {
+	this.mode = mode;
+    }
+
+    /**
+     * Returns the window of the decayed counts ranked on in DECAYED_RATE mode.
+     * 
+     * @return RateWindow
+     */
+    public RateWindow getRateWindow() {
+	return rateWindow == null ? RateWindow.ONE_MINUTE : rateWindow;
+    }
+
+    /**
+     * Sets the window of the decayed counts ranked on in DECAYED_RATE mode.
+     * 
+     * @param rateWindow
+     */
+    public void setRateWindow(RateWindow rateWindow) {
+	this.rateWindow = rateWindow;
+    }
+
+    /**
+     * Returns the number of threads scanning the owned partitions.
+     * 
+     * @return int
+     */
+    public int getParallelism() {
+	return parallelism;
+    }
+
+    /**
+     * Sets the number of threads scanning the owned partitions in parallel, each
+     * one building its own top n before they are merged; 1 or less scans on the
+     * invocation service thread.
+     * 
+     * @param parallelism size of the fork-join pool
+     */
+    public void setParallelism(int parallelism) {
+	this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the lowest touch count of the hot keys fetched.
+     * 
+     * @return int
+     */
+    public int getMinTouchCount() {
+	return minTouchCount;
+    }
+
+    /**
+     * Sets the lowest touch count of the hot keys fetched; keys below it are
+     * left out even if there are less than n keys above it.
+     * 
+     * @param minTouchCount lowest touch count, 0 for all keys
+     */
+    public void setMinTouchCount(int minTouchCount) {
+	this.minTouchCount = minTouchCount;
+    }
+
+    /**
+     * Returns whether only the touch counts of the top n are returned.
+     * 
+     * @return boolean
+     */
+    public boolean isCountsOnly() {
+	return countsOnly;
+    }
+
+    /**
+     * Sets whether only the touch counts of the top n are returned, as a
+     * TouchCountHistogram, without deserializing or sending any key.
+     * 
+     * @param countsOnly
+     */
+    public void setCountsOnly(boolean countsOnly) {
+	this.countsOnly = countsOnly;
+    }
+
+    /**
+     * Returns the number of entries after which the top n scanned so far is
+     * sent as an intermediate chunk.
+     * 
+     * @return int
+     */
+    public int getChunkSize() {
+	return chunkSize;
+    }
+
+    /**
+     * Sets the number of entries after which the top n of the partitions
+     * scanned since the previous chunk is sent, as a HotKeyChunk, to the
+     * ProgressiveHotKeyObserver of a request while the scan goes on; 0 or less
+     * sends no chunk. Only backing map scans are sent in chunks, and not when
+     * a delta is asked for; the result of a scan sent in chunks is then a
+     * ChunkedHotKeys holding the number of chunks sent.
+     * 
+     * @param chunkSize      number of entries of a chunk
+     * @param requestId      id of the ProgressiveHotKeyObserver of the request
+     * @param resultMemberId id of the member running the observer
+     */
+    public void setChunkSize(int chunkSize, String requestId, int resultMemberId) {
+	this.chunkSize = chunkSize;
+	this.requestId = requestId;
+	this.resultMemberId = resultMemberId;
+    }
+
+    /**
+     * Tells if the backing map scan is sampled.
+     * 
+     * @return boolean
+     */
+    public boolean isSampled() {
+	return sampleFraction > 0 || sampleSize > 0;
+    }
+
+    /**
+     * Returns the fraction of the entries of each member sampled.
+     * 
+     * @return double
+     */
+    public double getSampleFraction() {
+	return sampleFraction;
+    }
+
+    /**
+     * Sets the fraction of the entries of each member sampled instead of
+     * scanning every entry, see BackingMapScanner.getSampledSegments; 0 or less
+     * scans every entry unless a sample size is set.
+     * 
+     * @param sampleFraction fraction between 0 and 1
+     */
+    public void setSampleFraction(double sampleFraction) {
+	this.sampleFraction = sampleFraction;
+    }
+
+    /**
+     * Returns the number of entries of each member sampled.
+     * 
+     * @return int
+     */
+    public int getSampleSize() {
+	return sampleSize;
+    }
+
+    /**
+     * Sets the number of entries of each member sampled instead of scanning
+     * every entry, which bounds the cost of a scan whatever the size of the
+     * backing map; takes precedence over the sample fraction, 0 or less scans
+     * every entry unless a sample fraction is set.
+     * 
+     * @param sampleSize number of entries
+     */
+    public void setSampleSize(int sampleSize) {
+	this.sampleSize = sampleSize;
+    }
+
+    /**
+     * Returns the CPU time each member may spend scanning its backing map.
+     * 
+     * @return long milliseconds
+     */
+    public long getCpuBudgetMillis() {
+	return cpuBudgetMillis;
+    }
 
-	this.setResult(results);
+    /**
+     * Sets the CPU time each member may spend scanning its backing map, over
+     * all its scanning threads; partitions are then scanned in random order
+     * and the ones not reached when the budget runs out are skipped, the
+     * result being SampledHotKeys whose coverage tells the fraction of the
+     * entries scanned. 0 or less sets no budget. The budget is not enforced on
+     * JVMs without thread CPU time measurement.
+     * 
+     * @param cpuBudgetMillis CPU budget in milliseconds
+     */
+    public void setCpuBudgetMillis(long cpuBudgetMillis) {
+	this.cpuBudgetMillis = cpuBudgetMillis;
+    }
+
+    /**
+     * Returns the id of the client the delta is computed for, null if the
+     * whole top n is returned.
+     * 
+     * @return String
+     */
+    public String getDeltaId() {
+	return deltaId;
+    }
+
+    /**
+     * Asks for the changes of the top n since the version the client holds
+     * rather than the whole top n: the member keeps, per client and cache, the
+     * top n it last sent as a baseline and returns a HotKeyDelta of the keys
+     * that entered the top n or whose touch count changed by more than the
+     * threshold, and of the keys that left it. The whole top n is returned,
+     * as a full delta, when the member has no baseline of that version, e.g.
+     * the first time or after a lost result.
+     * 
+     * @param deltaId     id of the client, see HotKeyDeltaView
+     * @param baseVersion version of the top n of this member the client holds,
+     *                    -1 if none
+     * @param threshold   largest touch count change left unreported
+     */
+    public void setDelta(String deltaId, long baseVersion, int threshold) {
+	this.deltaId = deltaId;
+	this.baseVersion = baseVersion;
+	this.deltaThreshold = threshold;
+    }
+
+    /**
+     * Tells if the binary sizes of the entries are summed in PARTITION_HEAT
+     * mode.
+     * 
+     * @return boolean
+     */
+    public boolean isPartitionSizes() {
+	return partitionSizes;
+    }
+
+    /**
+     * Sets whether the binary sizes of the keys and values of the entries are
+     * summed per partition, besides their touch counts, in PARTITION_HEAT
+     * mode.
+     * 
+     * @param partitionSizes
+     */
+    public void setPartitionSizes(boolean partitionSizes) {
+	this.partitionSizes = partitionSizes;
+    }
+
+    /**
+     * Returns the type of the keys of the cache.
+     * 
+     * @return KeyType
+     */
+    public KeyType getKeyType() {
+	return keyType == null ? KeyType.OBJECT : keyType;
+    }
+
+    /**
+     * Sets the type of the keys of the cache. With INT or LONG keys, a scan of
+     * the touch counts keeps the keys and counts in primitive arrays instead
+     * of a candidate per entry, and the result is PrimitiveHotKeys, or
+     * SampledHotKeys of HotKeyData when sampled or on a CPU budget. Chunks,
+     * deltas, counts only and the other modes ignore it.
+     * 
+     * @param keyType
+     */
+    public void setKeyType(KeyType keyType) {
+	this.keyType = keyType;
+    }
+
+    /**
+     * Returns the entry processor statistic ranked on in LOCK_CONTENTION mode.
+     * 
+     * @return LockContention.Metric
+     */
+    public LockContention.Metric getContentionMetric() {
+	return contentionMetric == null ? LockContention.Metric.INVOCATIONS : contentionMetric;
+    }
+
+    /**
+     * Sets the entry processor statistic ranked on, as touch count, in
+     * LOCK_CONTENTION mode: the invocations, or the cumulative lock wait or
+     * execution time in microseconds.
+     * 
+     * @param contentionMetric
+     */
+    public void setContentionMetric(LockContention.Metric contentionMetric) {
+	this.contentionMetric = contentionMetric;
+    }
+
+    /**
+     * Returns what the coldest entries are ranked on in PROFILE mode.
+     * 
+     * @return EntryProfile.Staleness
+     */
+    public EntryProfile.Staleness getStaleness() {
+	return staleness == null ? EntryProfile.Staleness.IDLE : staleness;
+    }
+
+    /**
+     * Sets what the coldest entries are ranked on in PROFILE mode: the time
+     * since their last touch, or since their creation.
+     * 
+     * @param staleness
+     */
+    public void setStaleness(EntryProfile.Staleness staleness) {
+	this.staleness = staleness;
+    }
+
+    /**
+     * Tells if the touch counts are scanned into PrimitiveHotKeys.
+     */
+    private boolean isPrimitiveScan() {
+	return getKeyType() != KeyType.OBJECT && getMode() == Mode.TOUCH_COUNT && !countsOnly && deltaId == null
+		&& !(chunkSize > 0 && requestId != null);
     }
 
     /**
@@ -93,6 +793,24 @@ public class HotKeyInvocable<K extends Comparable<K>> extends AbstractInvocable
 	cacheName = pofReader.readString(0);
 	cacheServiceName = pofReader.readString(1);
 	topN = pofReader.readInt(2);
+	parallelism = pofReader.readInt(3);
+	mode = Mode.values()[pofReader.readInt(4)];
+	rateWindow = RateWindow.values()[pofReader.readInt(5)];
+	minTouchCount = pofReader.readInt(6);
+	countsOnly = pofReader.readBoolean(7);
+	chunkSize = pofReader.readInt(8);
+	requestId = pofReader.readString(9);
+	resultMemberId = pofReader.readInt(10);
+	sampleFraction = pofReader.readDouble(11);
+	sampleSize = pofReader.readInt(12);
+	cpuBudgetMillis = pofReader.readLong(13);
+	deltaId = pofReader.readString(14);
+	baseVersion = pofReader.readLong(15);
+	deltaThreshold = pofReader.readInt(16);
+	partitionSizes = pofReader.readBoolean(17);
+	keyType = KeyType.values()[pofReader.readInt(18)];
+	contentionMetric = LockContention.Metric.values()[pofReader.readInt(19)];
+	staleness = EntryProfile.Staleness.values()[pofReader.readInt(20)];
     }
 
     /**
@@ -102,6 +820,24 @@ public class HotKeyInvocable<K extends Comparable<K>> extends AbstractInvocable
 	pofWriter.writeString(0, cacheName);
 	pofWriter.writeString(1, cacheServiceName);
 	pofWriter.writeInt(2, topN);
+	pofWriter.writeInt(3, parallelism);
+	pofWriter.writeInt(4, getMode().ordinal());
+	pofWriter.writeInt(5, getRateWindow().ordinal());
+	pofWriter.writeInt(6, minTouchCount);
+	pofWriter.writeBoolean(7, countsOnly);
+	pofWriter.writeInt(8, chunkSize);
+	pofWriter.writeString(9, requestId);
+	pofWriter.writeInt(10, resultMemberId);
+	pofWriter.writeDouble(11, sampleFraction);
+	pofWriter.writeInt(12, sampleSize);
+	pofWriter.writeLong(13, cpuBudgetMillis);
+	pofWriter.writeString(14, deltaId);
+	pofWriter.writeLong(15, baseVersion);
+	pofWriter.writeInt(16, deltaThreshold);
+	pofWriter.writeBoolean(17, partitionSizes);
+	pofWriter.writeInt(18, getKeyType().ordinal());
+	pofWriter.writeInt(19, getContentionMetric().ordinal());
+	pofWriter.writeInt(20, getStaleness().ordinal());
     }
 
 }
@@ -1,8 +1,13 @@
 package com.mycompany.coherence.hotkeys.invocable;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+import com.mycompany.coherence.hotkeys.metrics.HotKeyClientMetrics;
+import com.mycompany.coherence.hotkeys.util.ConcurrentTopNMerger;
 import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
 import com.tangosol.net.CacheFactory;
 import com.tangosol.net.InvocationObserver;
@@ -10,13 +15,26 @@ import com.tangosol.net.Member;
 
 /**
  * InvocationObserver for observing the progress of asynchronous Invocable
- * execution.
+ * execution. When built with a top n, member results are also folded into a
+ * ConcurrentTopNMerger as they arrive, without locking, so that the merged top
+ * n is ready when the last member completes. SampledHotKeys results are
+ * unwrapped, their coverage being accumulated, PrimitiveHotKeys results are
+ * converted to HotKeyData, and HotKeyDelta results are
+ * applied to the HotKeyDeltaView of the observer, the rebuilt top n of the
+ * member being merged. The latency of the members and
+ * the merge times are recorded in HotKeyClientMetrics when set.
  */
 public class HotKeyInvocationObserver<K extends Comparable<K>> implements InvocationObserver {
 
     private CountDownLatch countDownLatch;
     private long startTime;
     private Map<Member, SortedCollectionWithCapacity<HotKeyData<K>>> invocationResults;
+    private ConcurrentTopNMerger<HotKeyData<K>> merger;
+    private final LongAdder sampledEntryCount = new LongAdder();
+    private final LongAdder entryCount = new LongAdder();
+    private final Map<Member, Long> latencies = new ConcurrentHashMap<>();
+    private HotKeyClientMetrics metrics;
+    private HotKeyDeltaView<K> deltaView;
 
     public HotKeyInvocationObserver(CountDownLatch countDownLatch, long startTime,
 	    Map<Member, SortedCollectionWithCapacity<HotKeyData<K>>> invocationResults) {
@@ -25,25 +43,126 @@ public class HotKeyInvocationObserver<K extends Comparable<K>> implements Invoca
 	this.invocationResults = invocationResults;
     }
 
+    /**
+     * HotKeyInvocationObserver constructor merging the member results as they
+     * arrive; the invocation results map must be thread-safe.
+     * 
+     * @param countDownLatch    latch counted down by each member
+     * @param startTime         start time of the invocation
+     * @param invocationResults results by member, null for failed members
+     * @param topN              number of hot keys to merge
+     */
+    public HotKeyInvocationObserver(CountDownLatch countDownLatch, long startTime,
+	    Map<Member, SortedCollectionWithCapacity<HotKeyData<K>>> invocationResults, int topN) {
+	this(countDownLatch, startTime, invocationResults);
+	this.merger = new ConcurrentTopNMerger<HotKeyData<K>>(topN);
+    }
+
+    /**
+     * Converts the result of a member to its top n and merges it; a result of
+     * a type the observer cannot merge, e.g. a PartitionHeat, is recorded as a
+     * failure of the member. The member is counted down whatever happens.
+     */
     public void memberCompleted(Member member, Object result) {
-	invocationResults.put(member, (SortedCollectionWithCapacity<HotKeyData<K>>) result);
-	countDownLatch.countDown();
+	SortedCollectionWithCapacity<HotKeyData<K>> memberResult;
+	try {
+	    memberResult = toHotKeys(member, result);
+	} catch (RuntimeException ex) {
+	    resultFailed(member, ex);
+	    return;
+	}
+	try {
+	    long latency = System.currentTimeMillis() - startTime;
+	    latencies.put(member, latency);
+	    if (metrics != null) {
+		metrics.recordMemberLatency(TimeUnit.MILLISECONDS.toNanos(latency));
+	    }
+	    if (merger != null && memberResult != null) {
+		merge(memberResult);
+	    }
+	    invocationResults.put(member, memberResult);
+	} finally {
+	    memberDone(member);
+	}
 	CacheFactory.log(String.format("Task completed on %s.", member));
     }
 
+    /**
+     * Returns the top n of a member result, null for a dropped delta.
+     * 
+     * @throws IllegalStateException if the result is not a top n of HotKeyData
+     */
+    @SuppressWarnings("unchecked")
+    private SortedCollectionWithCapacity<HotKeyData<K>> toHotKeys(Member member, Object result) {
+	if (result instanceof SampledHotKeys) {
+	    SampledHotKeys<K> sample = (SampledHotKeys<K>) result;
+	    sampledEntryCount.add(sample.getSampledEntryCount());
+	    entryCount.add(sample.getEntryCount());
+	    result = sample.getHotKeys();
+	} else if (result instanceof PrimitiveHotKeys) {
+	    result = ((PrimitiveHotKeys) result).<K>toHotKeys();
+	} else if (result instanceof HotKeyDelta) {
+	    HotKeyDelta<K> delta = (HotKeyDelta<K>) result;
+	    sampledEntryCount.add(delta.getSampledEntryCount());
+	    entryCount.add(delta.getEntryCount());
+	    if (deltaView == null) {
+		CacheFactory.log(String.format("Dropped a delta from %s, the observer has no delta view.", member));
+		result = null;
+	    } else {
+		result = deltaView.apply(member, delta);
+	    }
+	}
+	if (result != null && !(result instanceof SortedCollectionWithCapacity)) {
+	    throw new IllegalStateException(
+		    "Unexpected result of type " + result.getClass().getName() + " from " + member);
+	}
+	return (SortedCollectionWithCapacity<HotKeyData<K>>) result;
+    }
+
+    /**
+     * Records a member whose result could not be merged as failed.
+     * 
+     * @param member    member
+     * @param exception why the result could not be merged
+     */
+    protected void resultFailed(Member member, RuntimeException exception) {
+	memberFailed(member, exception);
+    }
+
     public void memberFailed(Member member, Throwable throwable) {
+	if (metrics != null) {
+	    metrics.recordFailedMember();
+	}
+	if (deltaView != null) {
+	    deltaView.remove(member);
+	}
 	invocationResults.put(member, null);
-	countDownLatch.countDown();
+	memberDone(member);
 	CacheFactory.log(String.format("Task failed on %s.", member));
 	CacheFactory.log(throwable);
     }
 
     public void memberLeft(Member member) {
+	if (metrics != null) {
+	    metrics.recordFailedMember();
+	}
+	if (deltaView != null) {
+	    deltaView.remove(member);
+	}
 	invocationResults.put(member, null);
-	countDownLatch.countDown();
+	memberDone(member);
 	CacheFactory.log(String.format("Member left before task completed: %s", member));
     }
 
+    /**
+     * Counts the latch down for a member that completed, failed or left.
+     * 
+     * @param member member
+     */
+    protected void memberDone(Member member) {
+	countDownLatch.countDown();
+    }
+
     public void invocationCompleted() {
 	CacheFactory.log("invocation completed");
     }
@@ -60,4 +179,92 @@ public class HotKeyInvocationObserver<K extends Comparable<K>> implements Invoca
 	return invocationResults;
     }
 
+    /**
+     * Returns the time from the start of the invocation to the result of a
+     * member, i.e. its scan time plus the round trip, or -1 if the member has
+     * not completed.
+     * 
+     * @param member member
+     * @return long milliseconds
+     */
+    public long getLatency(Member member) {
+	Long latency = latencies.get(member);
+	return latency == null ? -1 : latency;
+    }
+
+    /**
+     * Returns the fraction of the entries of the completed members that were
+     * sampled, 1 if their backing maps were fully scanned. Each hot key had
+     * about that chance to be sampled, so it is also the expected fraction of
+     * the true top n found.
+     * 
+     * @return double
+     */
+    public double getCoverage() {
+	long entries = entryCount.sum();
+	return entries == 0 ? 1.0 : (double) sampledEntryCount.sum() / entries;
+    }
+
+    /**
+     * Folds a result into the merged top n, timing the merge.
+     * 
+     * @param result top n of a member, or of a chunk of its partitions
+     */
+    protected void merge(SortedCollectionWithCapacity<HotKeyData<K>> result) {
+	long start = System.nanoTime();
+	merger.merge(result);
+	if (metrics != null) {
+	    metrics.recordMerge(System.nanoTime() - start);
+	}
+    }
+
+    /**
+     * Returns the metrics the members latency and merge times are recorded in,
+     * null if none.
+     * 
+     * @return HotKeyClientMetrics
+     */
+    public HotKeyClientMetrics getMetrics() {
+	return metrics;
+    }
+
+    /**
+     * Sets the metrics to record the members latency and merge times in; they
+     * can be shared by several observers.
+     * 
+     * @param metrics
+     */
+    public void setMetrics(HotKeyClientMetrics metrics) {
+	this.metrics = metrics;
+    }
+
+    /**
+     * Returns the view the delta results are applied to, null if none.
+     * 
+     * @return HotKeyDeltaView
+     */
+    public HotKeyDeltaView<K> getDeltaView() {
+	return deltaView;
+    }
+
+    /**
+     * Sets the view the delta results of the members are applied to; it is
+     * meant to be kept across the invocations of a client.
+     * 
+     * @param deltaView
+     */
+    public void setDeltaView(HotKeyDeltaView<K> deltaView) {
+	this.deltaView = deltaView;
+    }
+
+    /**
+     * Returns the merger of the member results, null if the observer was built
+     * without a top n.
+     * 
+     * @return ConcurrentTopNMerger
+     */
+    public ConcurrentTopNMerger<HotKeyData<K>> getMerger() {
+	return merger;
+    }
+
 }
@@ -0,0 +1,273 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.io.pof.PofReader;
+import com.tangosol.io.pof.PofWriter;
+import com.tangosol.io.pof.PortableObject;
+import com.tangosol.net.AbstractInvocable;
+import com.tangosol.net.CacheFactory;
+import com.tangosol.net.DistributedCacheService;
+import com.tangosol.net.Service;
+
+/**
+ * Invocable collecting the top n hot keys of several caches, of one or more
+ * cache services, in a single invocation per member, instead of a
+ * HotKeyInvocable per cache; the result is a MultiCacheHotKeys holding the top
+ * n of each cache.
+ * <p>
+ * Caches are selected per service by name patterns, '*' matching any
+ * sequence of characters, expanded on each member against the caches of the
+ * service whose backing map the member holds. Each selected cache is then
+ * collected by a HotKeyInvocable run locally, so that every mode collecting
+ * hot keys, the access counting backing maps and the HotKeyScanMetrics work
+ * as for a single cache; caches are collected concurrently by the fork-join
+ * pool of the member for the given parallelism, see
+ * {@link BackingMapScanner#getPool}. A cache whose collection fails is reported
+ * in the errors of the result rather than failing the other caches.
+ * 
+ * @param K The type of the key of cache entries, should implement Comparable
+ */
+public class MultiCacheHotKeyInvocable<K extends Comparable<K>> extends AbstractInvocable
+	implements PortableObject, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = Logger.getLogger("Coherence");
+
+    private int topN;
+    private String[] serviceNames = new String[0];
+    private String[] cachePatterns = new String[0];
+    private int parallelism;
+    private HotKeyInvocable.Mode mode = HotKeyInvocable.Mode.TOUCH_COUNT;
+    private int minTouchCount;
+
+    /**
+     * Default constructor, for POF deserialization.
+     */
+    public MultiCacheHotKeyInvocable() {
+    }
+
+    /**
+     * MultiCacheHotKeyInvocable constructor.
+     * 
+     * @param topN number of hot keys to keep per cache
+     */
+    public MultiCacheHotKeyInvocable(int topN) {
+	this.topN = topN;
+    }
+
+    /**
+     * Selects caches of a cache service.
+     * 
+     * @param serviceName   name of the distributed cache service
+     * @param cachePatterns names of the caches, '*' matching any sequence of
+     *                      characters, e.g. "*" for every cache of the
+     *                      service
+     */
+    public void addCaches(String serviceName, String... cachePatterns) {
+	int length = this.serviceNames.length;
+	this.serviceNames = Arrays.copyOf(this.serviceNames, length + cachePatterns.length);
+	this.cachePatterns = Arrays.copyOf(this.cachePatterns, length + cachePatterns.length);
+	for (int i = 0; i < cachePatterns.length; i++) {
+	    this.serviceNames[length + i] = serviceName;
+	    this.cachePatterns[length + i] = cachePatterns[i];
+	}
+    }
+
+    /**
+     * Expands the cache patterns and collects the top n of each selected cache
+     * of this member, concurrently.
+     */
+    public void run() {
+	int memberId = getService().getCluster().getLocalMember().getId();
+	MultiCacheHotKeys<K> result = new MultiCacheHotKeys<K>();
+	Map<String, Set<String>> caches = selectCaches(result, memberId);
+	List<Runnable> collections = new ArrayList<>();
+	for (Map.Entry<String, Set<String>> service : caches.entrySet()) {
+	    for (String cacheName : service.getValue()) {
+		collections.add(() -> collect(service.getKey(), cacheName, result, memberId));
+	    }
+	}
+
+	if (parallelism <= 1 || collections.size() <= 1) {
+	    collections.forEach(Runnable::run);
+	} else {
+	    ForkJoinPool pool = BackingMapScanner.getPool(parallelism);
+	    List<ForkJoinTask<?>> tasks = new ArrayList<>(collections.size());
+	    for (Runnable collection : collections) {
+		tasks.add(pool.submit(collection));
+	    }
+	    tasks.forEach(ForkJoinTask::join);
+	}
+	this.setResult(result);
+    }
+
+    /**
+     * Returns the caches matching the patterns, by service name, whose backing
+     * map this member holds; services that are not distributed cache services
+     * are reported as errors.
+     */
+    private Map<String, Set<String>> selectCaches(MultiCacheHotKeys<K> result, int memberId) {
+	Map<String, Set<String>> caches = new LinkedHashMap<>();
+	for (int i = 0; i < serviceNames.length; i++) {
+	    Service service = CacheFactory.getService(serviceNames[i]);
+	    if (!(service instanceof DistributedCacheService)) {
+		result.addError(serviceNames[i], cachePatterns[i],
+			"member " + memberId + ": " + serviceNames[i] + " is not a distributed cache service");
+		continue;
+	    }
+	    DistributedCacheService cacheService = (DistributedCacheService) service;
+	    Pattern pattern = toPattern(cachePatterns[i]);
+	    Set<String> serviceCaches = caches.computeIfAbsent(serviceNames[i], name -> new LinkedHashSet<>());
+	    for (Enumeration<?> names = cacheService.getCacheNames(); names.hasMoreElements();) {
+		String cacheName = (String) names.nextElement();
+		if (pattern.matcher(cacheName).matches()
+			&& cacheService.getBackingMapManager().getContext().getBackingMap(cacheName) != null) {
+		    serviceCaches.add(cacheName);
+		}
+	    }
+	}
+	if (logger.isDebugEnabled()) {
+	    logger.debug("Collecting the hot keys of " + caches + " on member id " + memberId);
+	}
+	return caches;
+    }
+
+    /**
+     * Converts a cache name pattern to a regular expression, '*' matching any
+     * sequence of characters and every other character itself.
+     */
+    private static Pattern toPattern(String cachePattern) {
+	StringBuilder regex = new StringBuilder();
+	for (String literal : cachePattern.split("\\*", -1)) {
+	    if (regex.length() > 0) {
+		regex.append(".*");
+	    }
+	    regex.append(Pattern.quote(literal));
+	}
+	return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Collects the top n of a cache with a HotKeyInvocable run on this member.
+     */
+    @SuppressWarnings("unchecked")
+    private void collect(String serviceName, String cacheName, MultiCacheHotKeys<K> result, int memberId) {
+	try {
+	    HotKeyInvocable<K> task = new HotKeyInvocable<K>(cacheName, serviceName, topN);
+	    task.setMode(getMode());
+	    task.setMinTouchCount(minTouchCount);
+	    task.init(getService());
+	    task.run();
+	    result.add(serviceName, cacheName, (SortedCollectionWithCapacity<HotKeyData<K>>) task.getResult());
+	} catch (RuntimeException ex) {
+	    logger.warn("The collection of the hot keys of the " + cacheName + " cache failed", ex);
+	    result.addError(serviceName, cacheName, "member " + memberId + ": " + ex);
+	}
+    }
+
+    /**
+     * Returns how the hot keys of each cache are collected.
+     * 
+     * @return HotKeyInvocable.Mode
+     */
+    public HotKeyInvocable.Mode getMode() {
+	return mode == null ? HotKeyInvocable.Mode.TOUCH_COUNT : mode;
+    }
+
+    /**
+     * Sets how the hot keys of each cache are collected, see HotKeyInvocable;
+     * only the modes whose result is a top n of HotKeyData are supported.
+     * 
+     * @param mode TOUCH_COUNT, TRACKER, DECAYED_RATE or LOCK_CONTENTION
+     */
+    public void setMode(HotKeyInvocable.Mode mode) {
+	if (mode == HotKeyInvocable.Mode.PARTITION_HEAT || mode == HotKeyInvocable.Mode.PROFILE) {
+	    throw new IllegalArgumentException("The " + mode + " mode does not collect hot keys");
+	}
+	this.mode = mode;
+    }
+
+    /**
+     * Returns the number of caches collected concurrently on each member.
+     * 
+     * @return int
+     */
+    public int getParallelism() {
+	return parallelism;
+    }
+
+    /**
+     * Sets the number of caches collected concurrently on each member, each
+     * cache being scanned by a single thread; 1 or less collects them one
+     * after the other on the invocation service thread.
+     * 
+     * @param parallelism size of the fork-join pool
+     */
+    public void setParallelism(int parallelism) {
+	this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the lowest touch count of the hot keys fetched.
+     * 
+     * @return int
+     */
+    public int getMinTouchCount() {
+	return minTouchCount;
+    }
+
+    /**
+     * Sets the lowest touch count of the hot keys fetched from every cache.
+     * 
+     * @param minTouchCount lowest touch count, 0 for all keys
+     */
+    public void setMinTouchCount(int minTouchCount) {
+	this.minTouchCount = minTouchCount;
+    }
+
+    /**
+     * POF readExternal
+     */
+    public void readExternal(PofReader pofReader) throws IOException {
+	topN = pofReader.readInt(0);
+	serviceNames = toStrings(pofReader.readObjectArray(1, new Object[0]));
+	cachePatterns = toStrings(pofReader.readObjectArray(2, new Object[0]));
+	parallelism = pofReader.readInt(3);
+	mode = HotKeyInvocable.Mode.values()[pofReader.readInt(4)];
+	minTouchCount = pofReader.readInt(5);
+    }
+
+    private static String[] toStrings(Object[] objects) {
+	return Arrays.copyOf(objects, objects.length, String[].class);
+    }
+
+    /**
+     * POF writeExternal
+     */
+    public void writeExternal(PofWriter pofWriter) throws IOException {
+	pofWriter.writeInt(0, topN);
+	pofWriter.writeObjectArray(1, serviceNames);
+	pofWriter.writeObjectArray(2, cachePatterns);
+	pofWriter.writeInt(3, parallelism);
+	pofWriter.writeInt(4, getMode().ordinal());
+	pofWriter.writeInt(5, minTouchCount);
+    }
+
+}
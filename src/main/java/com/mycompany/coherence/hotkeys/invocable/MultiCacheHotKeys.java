@@ -0,0 +1,217 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.io.pof.PofReader;
+import com.tangosol.io.pof.PofWriter;
+import com.tangosol.io.pof.PortableObject;
+
+/**
+ * Result of a MultiCacheHotKeyInvocable: the top n hot keys of each cache
+ * collected, by cache service and cache name, and the error of each cache
+ * whose collection failed. The results of the members are merged cache by
+ * cache with {@link #merge}.
+ * <p>
+ * It is sent as parallel arrays of service names, cache names, top n and
+ * errors, each top n being sent in the compact form of the
+ * SortedCollectionWithCapacityPofSerializer.
+ * 
+ * @param K The type of the key of cache entries, should implement Comparable
+ */
+public class MultiCacheHotKeys<K extends Comparable<K>> implements PortableObject, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, Map<String, SortedCollectionWithCapacity<HotKeyData<K>>>> hotKeys = new TreeMap<>();
+    private final Map<String, Map<String, String>> errors = new TreeMap<>();
+
+    /**
+     * Default constructor, of no cache; also used for POF deserialization.
+     */
+    public MultiCacheHotKeys() {
+    }
+
+    /**
+     * Adds the top n of a cache, merging it with the top n of the cache
+     * already added if any; the top n added is copied, so that it is left
+     * unchanged by later merges.
+     * 
+     * @param serviceName  name of the cache service
+     * @param cacheName    name of the cache
+     * @param cacheHotKeys top n of the cache
+     */
+    public synchronized void add(String serviceName, String cacheName,
+	    SortedCollectionWithCapacity<HotKeyData<K>> cacheHotKeys) {
+	Map<String, SortedCollectionWithCapacity<HotKeyData<K>>> serviceHotKeys = hotKeys
+		.computeIfAbsent(serviceName, name -> new TreeMap<>());
+	SortedCollectionWithCapacity<HotKeyData<K>> current = serviceHotKeys.get(cacheName);
+	if (current == null) {
+	    current = new SortedCollectionWithCapacity<HotKeyData<K>>(cacheHotKeys.getMaxCapacity());
+	    serviceHotKeys.put(cacheName, current);
+	}
+	current.merge(cacheHotKeys);
+    }
+
+    /**
+     * Adds the error of a cache whose collection failed, appending it to the
+     * errors of the cache already added if any.
+     * 
+     * @param serviceName name of the cache service
+     * @param cacheName   name of the cache, or the pattern that could not be
+     *                    expanded
+     * @param error       description of the error
+     */
+    public synchronized void addError(String serviceName, String cacheName, String error) {
+	errors.computeIfAbsent(serviceName, name -> new TreeMap<>()).merge(cacheName, error,
+		(current, added) -> current + "; " + added);
+    }
+
+    /**
+     * Merges the top n and errors of another result, e.g. of another member,
+     * into this one.
+     * 
+     * @param other
+     */
+    public synchronized void merge(MultiCacheHotKeys<K> other) {
+	synchronized (other) {
+	    for (Map.Entry<String, Map<String, SortedCollectionWithCapacity<HotKeyData<K>>>> service : other.hotKeys
+		    .entrySet()) {
+		for (Map.Entry<String, SortedCollectionWithCapacity<HotKeyData<K>>> cache : service.getValue()
+			.entrySet()) {
+		    add(service.getKey(), cache.getKey(), cache.getValue());
+		}
+	    }
+	    for (Map.Entry<String, Map<String, String>> service : other.errors.entrySet()) {
+		for (Map.Entry<String, String> cache : service.getValue().entrySet()) {
+		    addError(service.getKey(), cache.getKey(), cache.getValue());
+		}
+	    }
+	}
+    }
+
+    /**
+     * Returns the top n of the caches, by service name then cache name.
+     * 
+     * @return Map<String, Map<String, SortedCollectionWithCapacity<HotKeyData<K>>>>
+     */
+    public Map<String, Map<String, SortedCollectionWithCapacity<HotKeyData<K>>>> getHotKeys() {
+	return hotKeys;
+    }
+
+    /**
+     * Returns the top n of a cache.
+     * 
+     * @param serviceName name of the cache service
+     * @param cacheName   name of the cache
+     * @return SortedCollectionWithCapacity<HotKeyData<K>>, null if the cache
+     *         was not collected
+     */
+    public synchronized SortedCollectionWithCapacity<HotKeyData<K>> getHotKeys(String serviceName,
+	    String cacheName) {
+	Map<String, SortedCollectionWithCapacity<HotKeyData<K>>> serviceHotKeys = hotKeys.get(serviceName);
+	return serviceHotKeys == null ? null : serviceHotKeys.get(cacheName);
+    }
+
+    /**
+     * Returns the errors of the caches whose collection failed, by service name
+     * then cache name.
+     * 
+     * @return Map<String, Map<String, String>>
+     */
+    public Map<String, Map<String, String>> getErrors() {
+	return errors;
+    }
+
+    /**
+     * POF readExternal
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void readExternal(PofReader pofReader) throws IOException {
+	Object[] serviceNames = pofReader.readObjectArray(0, new Object[0]);
+	Object[] cacheNames = pofReader.readObjectArray(1, new Object[0]);
+	Object[] cacheHotKeys = pofReader.readObjectArray(2, new Object[0]);
+	for (int i = 0; i < serviceNames.length; i++) {
+	    add((String) serviceNames[i], (String) cacheNames[i],
+		    (SortedCollectionWithCapacity<HotKeyData<K>>) cacheHotKeys[i]);
+	}
+	Object[] errorServiceNames = pofReader.readObjectArray(3, new Object[0]);
+	Object[] errorCacheNames = pofReader.readObjectArray(4, new Object[0]);
+	Object[] cacheErrors = pofReader.readObjectArray(5, new Object[0]);
+	for (int i = 0; i < errorServiceNames.length; i++) {
+	    addError((String) errorServiceNames[i], (String) errorCacheNames[i], (String) cacheErrors[i]);
+	}
+    }
+
+    /**
+     * POF writeExternal
+     */
+    public synchronized void writeExternal(PofWriter pofWriter) throws IOException {
+	int caches = 0;
+	for (Map<String, SortedCollectionWithCapacity<HotKeyData<K>>> serviceHotKeys : hotKeys.values()) {
+	    caches += serviceHotKeys.size();
+	}
+	Object[] serviceNames = new Object[caches];
+	Object[] cacheNames = new Object[caches];
+	Object[] cacheHotKeys = new Object[caches];
+	int i = 0;
+	for (Map.Entry<String, Map<String, SortedCollectionWithCapacity<HotKeyData<K>>>> service : hotKeys
+		.entrySet()) {
+	    for (Map.Entry<String, SortedCollectionWithCapacity<HotKeyData<K>>> cache : service.getValue()
+		    .entrySet()) {
+		serviceNames[i] = service.getKey();
+		cacheNames[i] = cache.getKey();
+		cacheHotKeys[i++] = cache.getValue();
+	    }
+	}
+	pofWriter.writeObjectArray(0, serviceNames);
+	pofWriter.writeObjectArray(1, cacheNames);
+	pofWriter.writeObjectArray(2, cacheHotKeys);
+
+	int failedCaches = 0;
+	for (Map<String, String> serviceErrors : errors.values()) {
+	    failedCaches += serviceErrors.size();
+	}
+	Object[] errorServiceNames = new Object[failedCaches];
+	Object[] errorCacheNames = new Object[failedCaches];
+	Object[] cacheErrors = new Object[failedCaches];
+	i = 0;
+	for (Map.Entry<String, Map<String, String>> service : errors.entrySet()) {
+	    for (Map.Entry<String, String> cache : service.getValue().entrySet()) {
+		errorServiceNames[i] = service.getKey();
+		errorCacheNames[i] = cache.getKey();
+		cacheErrors[i++] = cache.getValue();
+	    }
+	}
+	pofWriter.writeObjectArray(3, errorServiceNames);
+	pofWriter.writeObjectArray(4, errorCacheNames);
+	pofWriter.writeObjectArray(5, cacheErrors);
+    }
+
+    /**
+     * Returns the top n of each cache, one cache per line, then the errors.
+     * 
+     * @return String
+     */
+    public synchronized String toString() {
+	StringBuilder builder = new StringBuilder("MultiCacheHotKeys [\n");
+	for (Map.Entry<String, Map<String, SortedCollectionWithCapacity<HotKeyData<K>>>> service : hotKeys
+		.entrySet()) {
+	    for (Map.Entry<String, SortedCollectionWithCapacity<HotKeyData<K>>> cache : service.getValue()
+		    .entrySet()) {
+		builder.append(service.getKey()).append('/').append(cache.getKey()).append(": ")
+			.append(cache.getValue()).append('\n');
+	    }
+	}
+	for (Map.Entry<String, Map<String, String>> service : errors.entrySet()) {
+	    for (Map.Entry<String, String> cache : service.getValue().entrySet()) {
+		builder.append(service.getKey()).append('/').append(cache.getKey()).append(" failed: ")
+			.append(cache.getValue()).append('\n');
+	    }
+	}
+	return builder.append(']').toString();
+    }
+}
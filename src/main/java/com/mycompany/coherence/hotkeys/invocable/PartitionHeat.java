@@ -0,0 +1,117 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import com.tangosol.io.pof.PofReader;
+import com.tangosol.io.pof.PofWriter;
+import com.tangosol.io.pof.PortableObject;
+import com.tangosol.net.partition.PartitionSet;
+
+/**
+ * Result of a member in PARTITION_HEAT mode: the sums of the touch counts, the
+ * entry counts and optionally the binary sizes of the entries of each of its
+ * owned partitions, as arrays parallel to the array of the owned partition
+ * ids. A PartitionHeatMap merges the results of the members.
+ */
+public class PartitionHeat implements PortableObject, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int partitionCount;
+    private int[] partitions;
+    private long[] touchCounts;
+    private long[] entryCounts;
+    private long[] binarySizes;
+
+    /**
+     * Default constructor, for POF deserialization.
+     */
+    public PartitionHeat() {
+    }
+
+    /**
+     * PartitionHeat constructor keeping the owned partitions of sums indexed
+     * by partition id.
+     * 
+     * @param ownedPartitions partitions owned by the member
+     * @param touchCounts     touch counts by partition id
+     * @param entryCounts     entry counts by partition id
+     * @param binarySizes     binary sizes by partition id, null if not measured
+     */
+    public PartitionHeat(PartitionSet ownedPartitions, long[] touchCounts, long[] entryCounts, long[] binarySizes) {
+	this.partitionCount = ownedPartitions.getPartitionCount();
+	this.partitions = new int[ownedPartitions.cardinality()];
+	this.touchCounts = new long[partitions.length];
+	this.entryCounts = new long[partitions.length];
+	this.binarySizes = new long[binarySizes == null ? 0 : partitions.length];
+	int i = 0;
+	for (int partition = ownedPartitions.next(0); partition >= 0; partition = ownedPartitions
+		.next(partition + 1)) {
+	    this.partitions[i] = partition;
+	    this.touchCounts[i] = touchCounts[partition];
+	    this.entryCounts[i] = entryCounts[partition];
+	    if (binarySizes != null) {
+		this.binarySizes[i] = binarySizes[partition];
+	    }
+	    i++;
+	}
+    }
+
+    public int getPartitionCount() {
+	return partitionCount;
+    }
+
+    public int[] getPartitions() {
+	return partitions;
+    }
+
+    public long[] getTouchCounts() {
+	return touchCounts;
+    }
+
+    public long[] getEntryCounts() {
+	return entryCounts;
+    }
+
+    /**
+     * Returns the binary sizes of the keys and values of the owned partitions,
+     * an empty array if they were not measured.
+     * 
+     * @return long[]
+     */
+    public long[] getBinarySizes() {
+	return binarySizes;
+    }
+
+    /**
+     * POF readExternal
+     */
+    public void readExternal(PofReader pofReader) throws IOException {
+	partitionCount = pofReader.readInt(0);
+	partitions = pofReader.readIntArray(1);
+	touchCounts = pofReader.readLongArray(2);
+	entryCounts = pofReader.readLongArray(3);
+	binarySizes = pofReader.readLongArray(4);
+    }
+
+    /**
+     * POF writeExternal
+     */
+    public void writeExternal(PofWriter pofWriter) throws IOException {
+	pofWriter.writeInt(0, partitionCount);
+	pofWriter.writeIntArray(1, partitions);
+	pofWriter.writeLongArray(2, touchCounts);
+	pofWriter.writeLongArray(3, entryCounts);
+	pofWriter.writeLongArray(4, binarySizes);
+    }
+
+    /**
+     * Returns the number of partitions reported.
+     * 
+     * @return String
+     */
+    public String toString() {
+	return "PartitionHeat [partitionCount=" + partitionCount + ", ownedPartitions=" + partitions.length + "]";
+    }
+}
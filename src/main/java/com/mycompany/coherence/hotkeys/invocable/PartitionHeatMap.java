@@ -0,0 +1,261 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tangosol.net.Member;
+
+/**
+ * Cluster-wide heat map of the partitions of a cache, merged from the
+ * PartitionHeat results of the members, with skew statistics telling how
+ * unevenly the accesses are spread over partitions and members.
+ * <p>
+ * Statistics are computed over the partitions reported, partitions whose
+ * owner did not answer, or that were moving while scanned, being left out.
+ * The max/mean ratio is 1 for a perfectly even spread and the number of
+ * partitions when all accesses go to one of them; the Gini coefficient is 0
+ * for an even spread and close to 1 when a few partitions take all accesses.
+ */
+public class PartitionHeatMap {
+
+    private final int partitionCount;
+    private final long[] touchCounts;
+    private final long[] entryCounts;
+    private final long[] binarySizes;
+    private final Member[] owners;
+    private boolean sized;
+
+    /**
+     * PartitionHeatMap sole constructor.
+     * 
+     * @param partitionCount number of partitions of the cache service
+     */
+    public PartitionHeatMap(int partitionCount) {
+	this.partitionCount = partitionCount;
+	this.touchCounts = new long[partitionCount];
+	this.entryCounts = new long[partitionCount];
+	this.binarySizes = new long[partitionCount];
+	this.owners = new Member[partitionCount];
+    }
+
+    /**
+     * Adds the partitions of a member.
+     * 
+     * @param member member the result comes from
+     * @param heat   result of the member
+     */
+    public synchronized void add(Member member, PartitionHeat heat) {
+	if (heat.getPartitionCount() != partitionCount) {
+	    throw new IllegalStateException("The heat of " + member + " has " + heat.getPartitionCount()
+		    + " partitions instead of " + partitionCount + ".");
+	}
+	int[] partitions = heat.getPartitions();
+	boolean hasSizes = heat.getBinarySizes().length == partitions.length && partitions.length > 0;
+	for (int i = 0; i < partitions.length; i++) {
+	    int partition = partitions[i];
+	    touchCounts[partition] = heat.getTouchCounts()[i];
+	    entryCounts[partition] = heat.getEntryCounts()[i];
+	    binarySizes[partition] = hasSizes ? heat.getBinarySizes()[i] : 0;
+	    owners[partition] = member;
+	}
+	sized |= hasSizes;
+    }
+
+    /**
+     * Returns the partitions reported, hottest first.
+     * 
+     * @param n maximum number of partitions returned
+     * @return List
+     */
+    public synchronized List<Partition> getHottestPartitions(int n) {
+	List<Partition> partitions = new ArrayList<>();
+	for (int partition = 0; partition < partitionCount; partition++) {
+	    if (owners[partition] != null) {
+		partitions.add(new Partition(partition, touchCounts[partition], entryCounts[partition],
+			binarySizes[partition], owners[partition]));
+	    }
+	}
+	partitions.sort(Comparator.comparingLong(Partition::getTouchCount).reversed());
+	return partitions.subList(0, Math.min(n, partitions.size()));
+    }
+
+    /**
+     * Returns the sum of the touch counts of the reported partitions of each
+     * member.
+     * 
+     * @return Map
+     */
+    public synchronized Map<Member, Long> getMemberTouchCounts() {
+	Map<Member, Long> memberTouchCounts = new LinkedHashMap<>();
+	for (int partition = 0; partition < partitionCount; partition++) {
+	    if (owners[partition] != null) {
+		memberTouchCounts.merge(owners[partition], touchCounts[partition], Long::sum);
+	    }
+	}
+	return memberTouchCounts;
+    }
+
+    /**
+     * Returns the number of partitions reported.
+     * 
+     * @return int
+     */
+    public synchronized int getReportedPartitionCount() {
+	return reportedTouchCounts().length;
+    }
+
+    /**
+     * Returns the highest touch count of a partition over the mean of the
+     * partitions.
+     * 
+     * @return double, 0 if there is no touch
+     */
+    public synchronized double getPartitionMaxToMean() {
+	return maxToMean(reportedTouchCounts());
+    }
+
+    /**
+     * Returns the Gini coefficient of the touch counts of the partitions.
+     * 
+     * @return double
+     */
+    public synchronized double getPartitionGini() {
+	return gini(reportedTouchCounts());
+    }
+
+    /**
+     * Returns the highest touch count of a member over the mean of the members.
+     * 
+     * @return double, 0 if there is no touch
+     */
+    public synchronized double getMemberMaxToMean() {
+	return maxToMean(getMemberTouchCounts().values().stream().mapToLong(Long::longValue).toArray());
+    }
+
+    private long[] reportedTouchCounts() {
+	long[] reported = new long[partitionCount];
+	int count = 0;
+	for (int partition = 0; partition < partitionCount; partition++) {
+	    if (owners[partition] != null) {
+		reported[count++] = touchCounts[partition];
+	    }
+	}
+	return Arrays.copyOf(reported, count);
+    }
+
+    /**
+     * Returns the highest value over the mean.
+     * 
+     * @param values values
+     * @return double, 0 if the values are all 0
+     */
+    public static double maxToMean(long[] values) {
+	long sum = 0;
+	long max = 0;
+	for (long value : values) {
+	    sum += value;
+	    max = Math.max(max, value);
+	}
+	return sum == 0 ? 0 : (double) max * values.length / sum;
+    }
+
+    /**
+     * Returns the Gini coefficient of values, i.e. the mean absolute
+     * difference of all pairs of values over twice their mean, computed from
+     * the sorted values in O(n log n).
+     * 
+     * @param values non negative values
+     * @return double between 0 and 1 - 1/n, 0 if the values are all 0
+     */
+    public static double gini(long[] values) {
+	long[] sorted = values.clone();
+	Arrays.sort(sorted);
+	double weightedSum = 0;
+	double sum = 0;
+	for (int i = 0; i < sorted.length; i++) {
+	    weightedSum += (double) (i + 1) * sorted[i];
+	    sum += sorted[i];
+	}
+	int n = sorted.length;
+	return sum == 0 ? 0 : 2 * weightedSum / (n * sum) - (double) (n + 1) / n;
+    }
+
+    /**
+     * Returns the skew statistics and the hottest partitions.
+     * 
+     * @param n number of hottest partitions listed
+     * @return String
+     */
+    public synchronized String report(int n) {
+	StringBuilder report = new StringBuilder();
+	report.append(String.format(
+		"%d of %d partitions reported, partition max/mean %.2f, Gini %.3f, member max/mean %.2f%n",
+		getReportedPartitionCount(), partitionCount, getPartitionMaxToMean(), getPartitionGini(),
+		getMemberMaxToMean()));
+	for (Map.Entry<Member, Long> entry : getMemberTouchCounts().entrySet()) {
+	    report.append(String.format("Member %d: touchCount=%d%n", entry.getKey().getId(), entry.getValue()));
+	}
+	for (Partition partition : getHottestPartitions(n)) {
+	    report.append(partition.toString(sized)).append(System.lineSeparator());
+	}
+	return report.toString();
+    }
+
+    public String toString() {
+	return report(10);
+    }
+
+    /**
+     * Heat of a partition with its owner.
+     */
+    public static final class Partition {
+
+	private final int id;
+	private final long touchCount;
+	private final long entryCount;
+	private final long binarySize;
+	private final Member owner;
+
+	Partition(int id, long touchCount, long entryCount, long binarySize, Member owner) {
+	    this.id = id;
+	    this.touchCount = touchCount;
+	    this.entryCount = entryCount;
+	    this.binarySize = binarySize;
+	    this.owner = owner;
+	}
+
+	public int getId() {
+	    return id;
+	}
+
+	public long getTouchCount() {
+	    return touchCount;
+	}
+
+	public long getEntryCount() {
+	    return entryCount;
+	}
+
+	public long getBinarySize() {
+	    return binarySize;
+	}
+
+	public Member getOwner() {
+	    return owner;
+	}
+
+	String toString(boolean sized) {
+	    return "[partition=" + id + ", touchCount=" + touchCount + ", entries=" + entryCount
+		    + (sized ? ", bytes=" + binarySize : "") + ", owner=" + owner.getId() + "]";
+	}
+
+	public String toString() {
+	    return toString(true);
+	}
+    }
+
+}
@@ -0,0 +1,270 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.io.pof.PofReader;
+import com.tangosol.io.pof.PofWriter;
+import com.tangosol.io.pof.PortableObject;
+
+/**
+ * Top n of a cache whose keys are Integer or Long, kept without any object per
+ * hot key: a bounded min-heap on two parallel arrays, the keys widened to long
+ * and their touch counts, ordered on the touch count then the key like
+ * HotKeyData. It is both the top n a BackingMapScanner builds in a primitive
+ * scan and the result a member sends, serialized as packed arrays.
+ * <p>
+ * A hot key takes 12 bytes, against about 50 bytes for a HotKeyData of a boxed
+ * key and its slot in a SortedCollectionWithCapacity; clients convert it to
+ * HotKeyData with {@link #toHotKeys()} to merge it with the other results.
+ * 
+ * @see HotKeyInvocable#setKeyType(HotKeyInvocable.KeyType)
+ */
+public class PrimitiveHotKeys implements PortableObject, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_HEAP_SIZE = 16;
+
+    private int maxCapacity;
+    private boolean longKeys;
+    private transient long[] keys;
+    private transient int[] touchCounts;
+    private transient int size;
+
+    /**
+     * Default constructor, for POF deserialization.
+     */
+    public PrimitiveHotKeys() {
+    }
+
+    /**
+     * PrimitiveHotKeys sole constructor.
+     * 
+     * @param maxCapacity number of hot keys to keep
+     * @param longKeys    true for Long keys, false for Integer keys
+     */
+    public PrimitiveHotKeys(int maxCapacity, boolean longKeys) {
+	this.maxCapacity = maxCapacity;
+	this.longKeys = longKeys;
+	initHeap(Math.min(Math.max(maxCapacity, 0), INITIAL_HEAP_SIZE));
+    }
+
+    /**
+     * Tells if a key of the given touch count could be added, i.e. if the top
+     * n is not full yet or if the touch count is not lower than the lowest one
+     * kept.
+     * 
+     * @param touchCount touch count of the candidate key
+     * @return boolean
+     */
+    public boolean accepts(int touchCount) {
+	if (size < maxCapacity) {
+	    return true;
+	}
+	return size > 0 && touchCount >= touchCounts[0];
+    }
+
+    /**
+     * Tells if a key of the given touch count would be added whatever the key,
+     * i.e. if the top n is not full yet or if the touch count is higher than
+     * the lowest one kept. Scans check it before deserializing a key, so that
+     * the keys tied with the lowest touch count are not all deserialized, the
+     * first ones scanned winning the tie.
+     * 
+     * @param touchCount touch count of the candidate key
+     * @return boolean
+     */
+    public boolean acceptsAnyKey(int touchCount) {
+	return size < maxCapacity || (size > 0 && touchCount > touchCounts[0]);
+    }
+
+    /**
+     * Adds a key to the top n, the lowest key being dropped if it is full.
+     * 
+     * @param key        the key, an int widened to long for Integer keys
+     * @param touchCount touch count of the key
+     */
+    public void add(long key, int touchCount) {
+	if (size < maxCapacity) {
+	    if (size == keys.length) {
+		growHeap();
+	    }
+	    siftUp(size++, key, touchCount);
+	} else if (size > 0 && isGreater(key, touchCount, 0)) {
+	    siftDown(0, key, touchCount);
+	}
+    }
+
+    /**
+     * Merges the keys of another top n into this one.
+     * 
+     * @param other top n of the same key type
+     */
+    public void merge(PrimitiveHotKeys other) {
+	for (int i = 0; i < other.size; i++) {
+	    if (accepts(other.touchCounts[i])) {
+		add(other.keys[i], other.touchCounts[i]);
+	    }
+	}
+    }
+
+    /**
+     * Returns the hot keys as HotKeyData of Integer or Long keys, for the merge
+     * path of the other results.
+     * 
+     * @return SortedCollectionWithCapacity
+     */
+    @SuppressWarnings("unchecked")
+    public <K extends Comparable<K>> SortedCollectionWithCapacity<HotKeyData<K>> toHotKeys() {
+	SortedCollectionWithCapacity<HotKeyData<K>> hotKeys = new SortedCollectionWithCapacity<HotKeyData<K>>(
+		maxCapacity);
+	for (int i = 0; i < size; i++) {
+	    // no conditional expression, which would box the int keys as Long
+	    Object key;
+	    if (longKeys) {
+		key = Long.valueOf(keys[i]);
+	    } else {
+		key = Integer.valueOf((int) keys[i]);
+	    }
+	    hotKeys.add(new HotKeyData<K>((K) key, touchCounts[i]));
+	}
+	return hotKeys;
+    }
+
+    /**
+     * Returns the number of hot keys.
+     * 
+     * @return int
+     */
+    public int size() {
+	return size;
+    }
+
+    public int getMaxCapacity() {
+	return maxCapacity;
+    }
+
+    public boolean isLongKeys() {
+	return longKeys;
+    }
+
+    private void initHeap(int length) {
+	this.keys = new long[length];
+	this.touchCounts = new int[length];
+    }
+
+    private void growHeap() {
+	int length = (int) Math.min((long) maxCapacity, Math.max(INITIAL_HEAP_SIZE, keys.length * 2L));
+	keys = Arrays.copyOf(keys, length);
+	touchCounts = Arrays.copyOf(touchCounts, length);
+    }
+
+    private void siftUp(int index, long key, int touchCount) {
+	while (index > 0) {
+	    int parent = (index - 1) >>> 1;
+	    if (isGreater(key, touchCount, parent)) {
+		break;
+	    }
+	    keys[index] = keys[parent];
+	    touchCounts[index] = touchCounts[parent];
+	    index = parent;
+	}
+	keys[index] = key;
+	touchCounts[index] = touchCount;
+    }
+
+    private void siftDown(int index, long key, int touchCount) {
+	int half = size >>> 1;
+	while (index < half) {
+	    int child = 2 * index + 1;
+	    int right = child + 1;
+	    if (right < size && isGreater(keys[child], touchCounts[child], right)) {
+		child = right;
+	    }
+	    if (!isGreater(key, touchCount, child)) {
+		break;
+	    }
+	    keys[index] = keys[child];
+	    touchCounts[index] = touchCounts[child];
+	    index = child;
+	}
+	keys[index] = key;
+	touchCounts[index] = touchCount;
+    }
+
+    /**
+     * Tells if the given key is greater than the key at index.
+     */
+    private boolean isGreater(long key, int touchCount, int index) {
+	if (touchCount != touchCounts[index]) {
+	    return touchCount > touchCounts[index];
+	}
+	return key > keys[index];
+    }
+
+    /**
+     * Writes the heap content only, not its spare capacity.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+	out.defaultWriteObject();
+	out.writeObject(Arrays.copyOf(keys, size));
+	out.writeObject(Arrays.copyOf(touchCounts, size));
+    }
+
+    /**
+     * Reads the heap content, which is already in heap order.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+	in.defaultReadObject();
+	keys = (long[]) in.readObject();
+	touchCounts = (int[]) in.readObject();
+	size = keys.length;
+    }
+
+    /**
+     * POF readExternal; the arrays were written in heap order.
+     */
+    public void readExternal(PofReader pofReader) throws IOException {
+	maxCapacity = pofReader.readInt(0);
+	longKeys = pofReader.readBoolean(1);
+	touchCounts = pofReader.readIntArray(2);
+	if (longKeys) {
+	    keys = pofReader.readLongArray(3);
+	} else {
+	    int[] intKeys = pofReader.readIntArray(3);
+	    keys = new long[intKeys.length];
+	    for (int i = 0; i < intKeys.length; i++) {
+		keys[i] = intKeys[i];
+	    }
+	}
+	size = touchCounts.length;
+    }
+
+    /**
+     * POF writeExternal; Integer keys are written as an int array.
+     */
+    public void writeExternal(PofWriter pofWriter) throws IOException {
+	pofWriter.writeInt(0, maxCapacity);
+	pofWriter.writeBoolean(1, longKeys);
+	pofWriter.writeIntArray(2, Arrays.copyOf(touchCounts, size));
+	if (longKeys) {
+	    pofWriter.writeLongArray(3, Arrays.copyOf(keys, size));
+	} else {
+	    int[] intKeys = new int[size];
+	    for (int i = 0; i < size; i++) {
+		intKeys[i] = (int) keys[i];
+	    }
+	    pofWriter.writeIntArray(3, intKeys);
+	}
+    }
+
+    public String toString() {
+	return "PrimitiveHotKeys [size=" + size + ", maxCapacity=" + maxCapacity + ", longKeys=" + longKeys + "]";
+    }
+
+}
@@ -0,0 +1,224 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.net.Member;
+
+/**
+ * InvocationObserver merging the results of the members as they arrive, along
+ * with the intermediate chunks (see {@link HotKeyChunk}) members send while
+ * they scan a large backing map, into a live top n that can be read at any
+ * time. Chunks and results of a member hold disjoint partitions, so that once
+ * every member has completed the live top n is the exact top n.
+ * <p>
+ * The result of a member whose scan was sent in chunks is a ChunkedHotKeys
+ * holding the number of chunks it sent; the member is completed only once
+ * that many of its chunks are merged, whichever of its result and its last
+ * chunk arrives last. Observers are registered by request id until closed,
+ * for chunks to find them; chunks arriving after the observer is closed are
+ * dropped, and their members then leave the live top n partial.
+ * 
+ * @param K The type of the key of cache entries, should implement Comparable
+ */
+public class ProgressiveHotKeyObserver<K extends Comparable<K>> extends HotKeyInvocationObserver<K> {
+
+    private static final ConcurrentMap<String, ProgressiveHotKeyObserver<?>> observers = new ConcurrentHashMap<>();
+
+    private final String requestId;
+    private final Set<Member> members;
+    private final AtomicInteger chunkCount = new AtomicInteger();
+    private final ConcurrentMap<Integer, MemberChunks> memberChunks = new ConcurrentHashMap<>();
+
+    /**
+     * Chunks of a member: the number sent, known once its result arrives, and
+     * the number merged.
+     */
+    private static class MemberChunks {
+	private int sent;
+	private int merged;
+	private boolean done;
+    }
+
+    /**
+     * ProgressiveHotKeyObserver constructor; the observer is registered until
+     * {@link #close()} is called.
+     * 
+     * @param members members the invocables are run on
+     * @param topN    number of hot keys to collect
+     */
+    public ProgressiveHotKeyObserver(Set<Member> members, int topN) {
+	super(new CountDownLatch(members.size()), System.currentTimeMillis(),
+		Collections.synchronizedMap(new HashMap<Member, SortedCollectionWithCapacity<HotKeyData<K>>>()), topN);
+	this.requestId = UUID.randomUUID().toString();
+	this.members = members;
+	observers.put(requestId, this);
+    }
+
+    /**
+     * Returns the registered observer of a request, or null if it is closed.
+     * 
+     * @param requestId request id
+     * @return ProgressiveHotKeyObserver
+     */
+    public static ProgressiveHotKeyObserver<?> getObserver(String requestId) {
+	return observers.get(requestId);
+    }
+
+    /**
+     * Merges an intermediate chunk of a member into the live top n, completing
+     * the member if its result has arrived and this was its last chunk.
+     * 
+     * @param memberId id of the member that scanned the chunk
+     * @param chunk    top n of some of the partitions of the member
+     */
+    @SuppressWarnings("unchecked")
+    public void acceptChunk(int memberId, SortedCollectionWithCapacity<?> chunk) {
+	merge((SortedCollectionWithCapacity<HotKeyData<K>>) chunk);
+	chunkCount.incrementAndGet();
+	MemberChunks chunks = getMemberChunks(memberId);
+	synchronized (chunks) {
+	    chunks.merged++;
+	    if (!chunks.done || chunks.merged != chunks.sent) {
+		return;
+	    }
+	}
+	getCountDownLatch().countDown();
+    }
+
+    /**
+     * Unwraps the result of a member whose scan was sent in chunks, recording
+     * the number of chunks to merge before the member is completed.
+     */
+    public void memberCompleted(Member member, Object result) {
+	if (result instanceof ChunkedHotKeys) {
+	    ChunkedHotKeys chunkedHotKeys = (ChunkedHotKeys) result;
+	    MemberChunks chunks = getMemberChunks(member.getId());
+	    synchronized (chunks) {
+		chunks.sent = chunkedHotKeys.getChunkCount();
+	    }
+	    result = chunkedHotKeys.getResult();
+	}
+	super.memberCompleted(member, result);
+    }
+
+    /**
+     * Counts the latch down for a member, unless some of the chunks it sent
+     * are not merged yet, the last of them then counting it down.
+     */
+    protected void memberDone(Member member) {
+	MemberChunks chunks = getMemberChunks(member.getId());
+	synchronized (chunks) {
+	    chunks.done = true;
+	    if (chunks.merged < chunks.sent) {
+		return;
+	    }
+	}
+	super.memberDone(member);
+    }
+
+    private MemberChunks getMemberChunks(int memberId) {
+	return memberChunks.computeIfAbsent(memberId, id -> new MemberChunks());
+    }
+
+    /**
+     * Tells if every chunk a member sent, as far as known, has been merged.
+     */
+    private boolean isChunksMerged(Member member) {
+	MemberChunks chunks = memberChunks.get(member.getId());
+	if (chunks == null) {
+	    return true;
+	}
+	synchronized (chunks) {
+	    return chunks.merged >= chunks.sent;
+	}
+    }
+
+    /**
+     * Waits for every member to complete, at most for a timeout.
+     * 
+     * @param timeout maximum time to wait
+     * @param unit    unit of the timeout
+     * @return true if every member has completed, false if the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+	return getCountDownLatch().await(timeout, unit);
+    }
+
+    /**
+     * Returns a copy of the live top n, of the members that completed and of
+     * the chunks received so far.
+     * 
+     * @return SortedCollectionWithCapacity
+     */
+    public SortedCollectionWithCapacity<HotKeyData<K>> getMergedResult() {
+	return getMerger().getResult();
+    }
+
+    /**
+     * Returns whether the live top n is partial, i.e. some members have not
+     * completed yet, some of the chunks they sent have not been merged, or
+     * they have failed or left.
+     * 
+     * @return boolean
+     */
+    public boolean isPartial() {
+	return getCountDownLatch().getCount() > 0 || getInvocationResults().containsValue(null);
+    }
+
+    /**
+     * Returns the members that have not completed yet, including those whose
+     * result arrived before some of their chunks.
+     * 
+     * @return Set of Member
+     */
+    public Set<Member> getPendingMembers() {
+	Set<Member> pendingMembers = new HashSet<Member>(members);
+	synchronized (getInvocationResults()) {
+	    pendingMembers.removeAll(getInvocationResults().keySet());
+	}
+	for (Member member : members) {
+	    if (!isChunksMerged(member)) {
+		pendingMembers.add(member);
+	    }
+	}
+	return pendingMembers;
+    }
+
+    /**
+     * Returns the number of intermediate chunks received so far.
+     * 
+     * @return int
+     */
+    public int getChunkCount() {
+	return chunkCount.get();
+    }
+
+    /**
+     * Returns the id the invocables send their chunks with.
+     * 
+     * @return String
+     */
+    public String getRequestId() {
+	return requestId;
+    }
+
+    /**
+     * Unregisters the observer; later chunks are dropped, their members
+     * leaving the live top n partial.
+     */
+    public void close() {
+	observers.remove(requestId);
+    }
+
+}
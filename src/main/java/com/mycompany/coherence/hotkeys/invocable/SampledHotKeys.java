@@ -0,0 +1,101 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.io.pof.PofReader;
+import com.tangosol.io.pof.PofWriter;
+import com.tangosol.io.pof.PortableObject;
+
+/**
+ * Result of a sampled scan of a member: the top n of the sampled entries,
+ * with the number of entries sampled out of the entries of the member. The
+ * sample is a cluster sample, whole partitions being drawn at random.
+ * <p>
+ * Keys are spread over partitions by hash, so each key of a member, hot or
+ * not, is sampled with a probability of about the coverage (sampled entries /
+ * entries). The touch counts of the sampled keys are exact; what a sample
+ * misses are the hot keys that were not sampled, and the coverage is the
+ * expected fraction of the true top n found by the sample.
+ * 
+ * @param K The type of the key of cache entries, should implement Comparable
+ */
+public class SampledHotKeys<K extends Comparable<K>> implements PortableObject, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private SortedCollectionWithCapacity<HotKeyData<K>> hotKeys;
+    private long sampledEntryCount;
+    private long entryCount;
+
+    /**
+     * Default constructor, for POF deserialization.
+     */
+    public SampledHotKeys() {
+    }
+
+    /**
+     * SampledHotKeys constructor.
+     * 
+     * @param hotKeys           top n of the sampled entries
+     * @param sampledEntryCount number of entries sampled
+     * @param entryCount        number of entries of the member
+     */
+    public SampledHotKeys(SortedCollectionWithCapacity<HotKeyData<K>> hotKeys, long sampledEntryCount,
+	    long entryCount) {
+	this.hotKeys = hotKeys;
+	this.sampledEntryCount = sampledEntryCount;
+	this.entryCount = entryCount;
+    }
+
+    public SortedCollectionWithCapacity<HotKeyData<K>> getHotKeys() {
+	return hotKeys;
+    }
+
+    public long getSampledEntryCount() {
+	return sampledEntryCount;
+    }
+
+    public long getEntryCount() {
+	return entryCount;
+    }
+
+    /**
+     * Returns the fraction of the entries sampled, 1 for an empty member.
+     * 
+     * @return double
+     */
+    public double getCoverage() {
+	return entryCount == 0 ? 1.0 : (double) sampledEntryCount / entryCount;
+    }
+
+    /**
+     * POF readExternal
+     */
+    @SuppressWarnings("unchecked")
+    public void readExternal(PofReader pofReader) throws IOException {
+	hotKeys = (SortedCollectionWithCapacity<HotKeyData<K>>) pofReader.readObject(0);
+	sampledEntryCount = pofReader.readLong(1);
+	entryCount = pofReader.readLong(2);
+    }
+
+    /**
+     * POF writeExternal
+     */
+    public void writeExternal(PofWriter pofWriter) throws IOException {
+	pofWriter.writeObject(0, hotKeys);
+	pofWriter.writeLong(1, sampledEntryCount);
+	pofWriter.writeLong(2, entryCount);
+    }
+
+    /**
+     * Returns the hot keys and the coverage of the sample.
+     * 
+     * @return String
+     */
+    public String toString() {
+	return "SampledHotKeys [hotKeys=" + hotKeys + ", sampledEntryCount=" + sampledEntryCount + ", entryCount="
+		+ entryCount + "]";
+    }
+}
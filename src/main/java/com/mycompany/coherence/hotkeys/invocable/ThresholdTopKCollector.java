@@ -0,0 +1,231 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import com.mycompany.coherence.hotkeys.metrics.HotKeyClientMetrics;
+import com.mycompany.coherence.hotkeys.tracker.LockContention;
+import com.mycompany.coherence.hotkeys.tracker.RateWindow;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.net.InvocationService;
+import com.tangosol.net.Member;
+
+/**
+ * Collects the exact top n hot keys of a cache in three rounds of
+ * HotKeyInvocable, in the manner of the TPUT (three phase uniform threshold)
+ * algorithm, so that members send about n keys in total instead of n keys
+ * each:
+ * <ol>
+ * <li>each of the m members sends the touch counts only (a
+ * TouchCountHistogram) of its top n/m keys; as keys are owned by a single
+ * member, the n-th highest of these counts is a lower bound of the n-th
+ * highest touch count of the cache (0 if they are less than n);</li>
+ * <li>each member sends the touch counts of its top n keys at or above that
+ * lower bound, from which the exact n-th highest touch count of the cache is
+ * known, along with how many keys above it and at it each member has;</li>
+ * <li>each member sends the keys of its touch counts above the n-th highest
+ * one, plus its share of the keys at it.</li>
+ * </ol>
+ * The result holds the same touch counts as merging the top n of every member;
+ * only keys tied at the n-th highest touch count may differ, ties being shared
+ * out among members rather than broken on the keys. Each round scans the
+ * backing maps again, so that the touch counts must not change much while the
+ * rounds run, and partitions must not move between members.
+ * 
+ * @param K The type of the key of cache entries, should implement Comparable
+ */
+public class ThresholdTopKCollector<K extends Comparable<K>> {
+
+    private final InvocationService invocationService;
+    private final String cacheName;
+    private final String cacheServiceName;
+    private final int topN;
+    private int parallelism;
+    private HotKeyInvocable.Mode mode = HotKeyInvocable.Mode.TOUCH_COUNT;
+    private RateWindow rateWindow = RateWindow.ONE_MINUTE;
+    private LockContention.Metric contentionMetric = LockContention.Metric.INVOCATIONS;
+    private HotKeyClientMetrics metrics;
+    private final long[] transferredRecords = new long[3];
+
+    /**
+     * ThresholdTopKCollector sole constructor.
+     * 
+     * @param invocationService service running the invocables
+     * @param cacheName         cache name
+     * @param cacheServiceName  cache service name
+     * @param topN              number of hot keys to collect
+     */
+    public ThresholdTopKCollector(InvocationService invocationService, String cacheName, String cacheServiceName,
+	    int topN) {
+	this.invocationService = invocationService;
+	this.cacheName = cacheName;
+	this.cacheServiceName = cacheServiceName;
+	this.topN = topN;
+    }
+
+    /**
+     * Collects the top n hot keys of the storage members.
+     * 
+     * @param members storage members of the cache service
+     * @return the top n hot keys
+     * @throws InterruptedException if interrupted while waiting for the last
+     *                              round
+     */
+    public SortedCollectionWithCapacity<HotKeyData<K>> collect(Set<Member> members) throws InterruptedException {
+
+	Arrays.fill(transferredRecords, 0);
+
+	// round 1: counts of the top n/m of each member
+
+	int topPerMember = (topN + members.size() - 1) / Math.max(members.size(), 1);
+	HotKeyInvocable<K> task = createTask(topPerMember);
+	task.setCountsOnly(true);
+	Map<Member, TouchCountHistogram> histograms = query(task, members, 0);
+	int lowerBound = TouchCountHistogram.getNthTouchCount(histograms.values(), topN);
+
+	// round 2: counts of the top n at or above the lower bound
+
+	task = createTask(topN);
+	task.setCountsOnly(true);
+	task.setMinTouchCount(lowerBound);
+	histograms = query(task, members, 1);
+	int threshold = TouchCountHistogram.getNthTouchCount(histograms.values(), topN);
+
+	int ties = topN;
+	for (TouchCountHistogram histogram : histograms.values()) {
+	    ties -= histogram.getKeyCountAbove(threshold);
+	}
+
+	// round 3: keys above the threshold, and the ties needed to reach n
+
+	Map<Member, HotKeyInvocable<K>> tasks = new LinkedHashMap<Member, HotKeyInvocable<K>>();
+	for (Map.Entry<Member, TouchCountHistogram> entry : histograms.entrySet()) {
+	    TouchCountHistogram histogram = entry.getValue();
+	    int memberTies = Math.max(Math.min(histogram.getKeyCountAt(threshold), ties), 0);
+	    ties -= memberTies;
+	    int memberTopN = histogram.getKeyCountAbove(threshold) + memberTies;
+	    if (memberTopN > 0) {
+		task = createTask(memberTopN);
+		task.setMinTouchCount(threshold);
+		tasks.put(entry.getKey(), task);
+	    }
+	}
+	return fetch(tasks);
+    }
+
+    /**
+     * Runs a counts only round on every member.
+     */
+    private Map<Member, TouchCountHistogram> query(HotKeyInvocable<K> task, Set<Member> members, int round) {
+	Map<Member, TouchCountHistogram> histograms = new LinkedHashMap<Member, TouchCountHistogram>();
+	Map<?, ?> results = invocationService.query(task, members);
+	for (Member member : members) {
+	    TouchCountHistogram histogram = (TouchCountHistogram) results.get(member);
+	    if (histogram == null) {
+		throw new IllegalStateException("Missing result in round " + (round + 1) + " for member " + member);
+	    }
+	    histograms.put(member, histogram);
+	    transferredRecords[round] += histogram.size();
+	}
+	return histograms;
+    }
+
+    /**
+     * Runs the last round, each member with its own top n.
+     */
+    private SortedCollectionWithCapacity<HotKeyData<K>> fetch(Map<Member, HotKeyInvocable<K>> tasks)
+	    throws InterruptedException {
+	Map<Member, SortedCollectionWithCapacity<HotKeyData<K>>> results = Collections
+		.synchronizedMap(new HashMap<Member, SortedCollectionWithCapacity<HotKeyData<K>>>());
+	CountDownLatch countDownLatch = new CountDownLatch(tasks.size());
+	HotKeyInvocationObserver<K> observer = new HotKeyInvocationObserver<K>(countDownLatch,
+		System.currentTimeMillis(), results, topN);
+	observer.setMetrics(metrics);
+	for (Map.Entry<Member, HotKeyInvocable<K>> entry : tasks.entrySet()) {
+	    invocationService.execute(entry.getValue(), Collections.singleton(entry.getKey()), observer);
+	}
+	countDownLatch.await();
+
+	for (Member member : tasks.keySet()) {
+	    SortedCollectionWithCapacity<HotKeyData<K>> result = results.get(member);
+	    if (result == null) {
+		throw new IllegalStateException("Missing result in round 3 for member " + member);
+	    }
+	    transferredRecords[2] += result.size();
+	}
+	return observer.getMerger().getResult();
+    }
+
+    private HotKeyInvocable<K> createTask(int memberTopN) {
+	HotKeyInvocable<K> task = new HotKeyInvocable<K>(cacheName, cacheServiceName, memberTopN);
+	task.setParallelism(parallelism);
+	task.setMode(mode);
+	task.setRateWindow(rateWindow);
+	task.setContentionMetric(contentionMetric);
+	return task;
+    }
+
+    /**
+     * Returns the number of records sent by the members in a round of the last
+     * collect: touch counts for rounds 1 and 2, keys for round 3.
+     * 
+     * @param round 1, 2 or 3
+     * @return long
+     */
+    public long getTransferredRecords(int round) {
+	return transferredRecords[round - 1];
+    }
+
+    /**
+     * Sets the number of threads each storage member scans its partitions with.
+     * 
+     * @param parallelism
+     */
+    public void setParallelism(int parallelism) {
+	this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets where the storage members fetch the hot keys from.
+     * 
+     * @param mode
+     */
+    public void setMode(HotKeyInvocable.Mode mode) {
+	this.mode = mode;
+    }
+
+    /**
+     * Sets the metrics the latency and merge times of the members in the last
+     * round are recorded in.
+     * 
+     * @param metrics
+     */
+    public void setMetrics(HotKeyClientMetrics metrics) {
+	this.metrics = metrics;
+    }
+
+    /**
+     * Sets the window of the decayed access rates ranked on in DECAYED_RATE
+     * mode.
+     * 
+     * @param rateWindow
+     */
+    public void setRateWindow(RateWindow rateWindow) {
+	this.rateWindow = rateWindow;
+    }
+
+    /**
+     * Sets the entry processor statistic ranked on in LOCK_CONTENTION mode.
+     * 
+     * @param contentionMetric
+     */
+    public void setContentionMetric(LockContention.Metric contentionMetric) {
+	this.contentionMetric = contentionMetric;
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.mycompany.coherence.hotkeys.invocable;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.tangosol.io.pof.PofReader;
+import com.tangosol.io.pof.PofWriter;
+import com.tangosol.io.pof.PortableObject;
+
+/**
+ * Touch counts of the top n keys of a member without the keys: the distinct
+ * touch counts in descending order and the number of keys having each of
+ * them. Used by the counts only rounds of the {@link ThresholdTopKCollector}.
+ */
+public class TouchCountHistogram implements PortableObject, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int[] touchCounts;
+    private int[] keyCounts;
+
+    /**
+     * Default constructor, for POF deserialization.
+     */
+    public TouchCountHistogram() {
+	this(new int[0], new int[0]);
+    }
+
+    /**
+     * TouchCountHistogram constructor.
+     * 
+     * @param touchCounts distinct touch counts, in descending order
+     * @param keyCounts   number of keys having each touch count
+     */
+    public TouchCountHistogram(int[] touchCounts, int[] keyCounts) {
+	this.touchCounts = touchCounts;
+	this.keyCounts = keyCounts;
+    }
+
+    /**
+     * Builds the histogram of the touch counts of candidates, ignoring the ones
+     * below a minimum.
+     * 
+     * @param candidates    candidates in descending order
+     * @param minTouchCount lowest touch count kept
+     * @return TouchCountHistogram
+     */
+    public static TouchCountHistogram of(Collection<HotKeyCandidate> candidates, int minTouchCount) {
+	int[] touchCounts = new int[candidates.size()];
+	int[] keyCounts = new int[candidates.size()];
+	int size = 0;
+	for (HotKeyCandidate candidate : candidates) {
+	    int touchCount = candidate.getTouchCount();
+	    if (touchCount < minTouchCount) {
+		break;
+	    }
+	    if (size > 0 && touchCounts[size - 1] == touchCount) {
+		keyCounts[size - 1]++;
+	    } else {
+		touchCounts[size] = touchCount;
+		keyCounts[size++] = 1;
+	    }
+	}
+	return new TouchCountHistogram(Arrays.copyOf(touchCounts, size), Arrays.copyOf(keyCounts, size));
+    }
+
+    /**
+     * Returns the n-th highest touch count of the keys of several histograms.
+     * 
+     * @param histograms histograms of disjoint sets of keys
+     * @param n          rank of the touch count
+     * @return the touch count, 0 if the histograms hold less than n keys
+     */
+    public static int getNthTouchCount(Collection<TouchCountHistogram> histograms, int n) {
+	TreeMap<Integer, Integer> merged = new TreeMap<Integer, Integer>();
+	for (TouchCountHistogram histogram : histograms) {
+	    for (int i = 0; i < histogram.touchCounts.length; i++) {
+		merged.merge(histogram.touchCounts[i], histogram.keyCounts[i], Integer::sum);
+	    }
+	}
+	int keys = 0;
+	for (Map.Entry<Integer, Integer> entry : merged.descendingMap().entrySet()) {
+	    keys += entry.getValue();
+	    if (keys >= n) {
+		return entry.getKey();
+	    }
+	}
+	return 0;
+    }
+
+    /**
+     * Returns the number of keys with a touch count above a threshold.
+     * 
+     * @param threshold
+     * @return int
+     */
+    public int getKeyCountAbove(int threshold) {
+	int keys = 0;
+	for (int i = 0; i < touchCounts.length && touchCounts[i] > threshold; i++) {
+	    keys += keyCounts[i];
+	}
+	return keys;
+    }
+
+    /**
+     * Returns the number of keys with a given touch count.
+     * 
+     * @param touchCount
+     * @return int
+     */
+    public int getKeyCountAt(int touchCount) {
+	for (int i = 0; i < touchCounts.length; i++) {
+	    if (touchCounts[i] == touchCount) {
+		return keyCounts[i];
+	    }
+	}
+	return 0;
+    }
+
+    /**
+     * Returns the number of distinct touch counts, i.e. the number of records
+     * of the histogram.
+     * 
+     * @return int
+     */
+    public int size() {
+	return touchCounts.length;
+    }
+
+    /**
+     * POF readExternal
+     */
+    public void readExternal(PofReader pofReader) throws IOException {
+	touchCounts = pofReader.readIntArray(0);
+	keyCounts = pofReader.readIntArray(1);
+    }
+
+    /**
+     * POF writeExternal
+     */
+    public void writeExternal(PofWriter pofWriter) throws IOException {
+	pofWriter.writeIntArray(0, touchCounts);
+	pofWriter.writeIntArray(1, keyCounts);
+    }
+
+    /**
+     * Returns the touch counts and their number of keys.
+     * 
+     * @return String
+     */
+    public String toString() {
+	StringBuilder builder = new StringBuilder("TouchCountHistogram [");
+	for (int i = 0; i < touchCounts.length; i++) {
+	    builder.append(i == 0 ? "" : ", ").append(touchCounts[i]).append('x').append(keyCounts[i]);
+	}
+	return builder.append(']').toString();
+    }
+}
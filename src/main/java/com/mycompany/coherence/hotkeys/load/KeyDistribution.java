@@ -0,0 +1,222 @@
+package com.mycompany.coherence.hotkeys.load;
+
+import java.util.Random;
+
+/**
+ * Distribution of the keys read by a LoadGenerator, over the integer keys 0 to
+ * the key count excluded; key 0 is the hottest of the skewed distributions,
+ * before any shift.
+ */
+public abstract class KeyDistribution {
+
+    protected final int keyCount;
+
+    protected KeyDistribution(int keyCount) {
+	if (keyCount <= 0) {
+	    throw new IllegalArgumentException("The key count must be positive: " + keyCount);
+	}
+	this.keyCount = keyCount;
+    }
+
+    /**
+     * Draws a key.
+     * 
+     * @param random source of randomness of the calling thread
+     * @return key between 0 and the key count excluded
+     */
+    public abstract int nextKey(Random random);
+
+    public int getKeyCount() {
+	return keyCount;
+    }
+
+    /**
+     * Returns a distribution in which every key is as likely.
+     * 
+     * @param keyCount number of keys
+     * @return KeyDistribution
+     */
+    public static KeyDistribution uniform(int keyCount) {
+	return new Uniform(keyCount);
+    }
+
+    /**
+     * Returns a Zipfian distribution, in which the probability of the key of
+     * rank i is proportional to 1 / (i + 1)^theta.
+     * 
+     * @param keyCount number of keys
+     * @param theta    skew, between 0 and 1 excluded; 0.99 is the usual
+     *                 choice
+     * @return KeyDistribution
+     */
+    public static KeyDistribution zipfian(int keyCount, double theta) {
+	return new Zipfian(keyCount, theta);
+    }
+
+    /**
+     * Returns a distribution in which a fraction of the operations go to a
+     * fraction of the keys, uniformly within each set.
+     * 
+     * @param keyCount       number of keys
+     * @param hotKeyFraction fraction of the keys in the hot set, the lowest
+     *                       keys
+     * @param hotOpFraction  fraction of the operations going to the hot set
+     * @return KeyDistribution
+     */
+    public static KeyDistribution hotspot(int keyCount, double hotKeyFraction, double hotOpFraction) {
+	return new Hotspot(keyCount, hotKeyFraction, hotOpFraction);
+    }
+
+    /**
+     * Returns a distribution whose keys are shifted every period, so that the
+     * hot keys move to other keys, and partitions, over time.
+     * 
+     * @param distribution distribution shifted
+     * @param periodMillis time between two shifts
+     * @return KeyDistribution
+     */
+    public static KeyDistribution shifting(KeyDistribution distribution, long periodMillis) {
+	return new Shifting(distribution, periodMillis);
+    }
+
+    /**
+     * Parses a distribution: uniform, zipfian[:theta], hotspot[:hot key
+     * fraction[:hot op fraction]] or shifting[:theta[:period in
+     * milliseconds]], the latter being a shifting Zipfian distribution.
+     * 
+     * @param spec     distribution and its parameters separated by colons
+     * @param keyCount number of keys
+     * @return KeyDistribution
+     */
+    public static KeyDistribution parse(String spec, int keyCount) {
+	String[] parts = spec.split(":");
+	switch (parts[0]) {
+	case "uniform":
+	    return uniform(keyCount);
+	case "zipfian":
+	    return zipfian(keyCount, parameter(parts, 1, 0.99));
+	case "hotspot":
+	    return hotspot(keyCount, parameter(parts, 1, 0.01), parameter(parts, 2, 0.9));
+	case "shifting":
+	    return shifting(zipfian(keyCount, parameter(parts, 1, 0.99)), (long) parameter(parts, 2, 10000));
+	default:
+	    throw new IllegalArgumentException("Unknown key distribution " + spec
+		    + ", expected uniform, zipfian[:theta], hotspot[:keys[:ops]] or shifting[:theta[:period]].");
+	}
+    }
+
+    private static double parameter(String[] parts, int index, double defaultValue) {
+	return parts.length > index ? Double.parseDouble(parts[index]) : defaultValue;
+    }
+
+    private static final class Uniform extends KeyDistribution {
+
+	Uniform(int keyCount) {
+	    super(keyCount);
+	}
+
+	public int nextKey(Random random) {
+	    return random.nextInt(keyCount);
+	}
+
+	public String toString() {
+	    return "uniform";
+	}
+    }
+
+    /**
+     * Zipfian generator of Gray et al. ("Quickly generating billion-record
+     * synthetic databases"), drawing a key in constant time once the zeta
+     * constant of the key count is computed.
+     */
+    private static final class Zipfian extends KeyDistribution {
+
+	private final double theta;
+	private final double zetaN;
+	private final double alpha;
+	private final double eta;
+	private final double halfPowTheta;
+
+	Zipfian(int keyCount, double theta) {
+	    super(keyCount);
+	    if (theta <= 0 || theta >= 1) {
+		throw new IllegalArgumentException("The Zipfian skew must be between 0 and 1 excluded: " + theta);
+	    }
+	    this.theta = theta;
+	    double zeta = 0;
+	    for (int i = 1; i <= keyCount; i++) {
+		zeta += 1 / Math.pow(i, theta);
+	    }
+	    this.zetaN = zeta;
+	    this.halfPowTheta = Math.pow(0.5, theta);
+	    this.alpha = 1 / (1 - theta);
+	    this.eta = (1 - Math.pow(2.0 / keyCount, 1 - theta)) / (1 - (1 + halfPowTheta) / zetaN);
+	}
+
+	public int nextKey(Random random) {
+	    double u = random.nextDouble();
+	    double uz = u * zetaN;
+	    if (uz < 1) {
+		return 0;
+	    }
+	    if (uz < 1 + halfPowTheta) {
+		return Math.min(1, keyCount - 1);
+	    }
+	    return Math.min((int) (keyCount * Math.pow(eta * u - eta + 1, alpha)), keyCount - 1);
+	}
+
+	public String toString() {
+	    return "zipfian(theta=" + theta + ")";
+	}
+    }
+
+    private static final class Hotspot extends KeyDistribution {
+
+	private final int hotKeyCount;
+	private final double hotOpFraction;
+
+	Hotspot(int keyCount, double hotKeyFraction, double hotOpFraction) {
+	    super(keyCount);
+	    this.hotKeyCount = Math.max(1, Math.min(keyCount, (int) (keyCount * hotKeyFraction)));
+	    this.hotOpFraction = hotOpFraction;
+	}
+
+	public int nextKey(Random random) {
+	    if (hotKeyCount == keyCount || random.nextDouble() < hotOpFraction) {
+		return random.nextInt(hotKeyCount);
+	    }
+	    return hotKeyCount + random.nextInt(keyCount - hotKeyCount);
+	}
+
+	public String toString() {
+	    return "hotspot(hotKeys=" + hotKeyCount + ", hotOpFraction=" + hotOpFraction + ")";
+	}
+    }
+
+    private static final class Shifting extends KeyDistribution {
+
+	private final KeyDistribution distribution;
+	private final long periodMillis;
+	private final long startMillis = System.currentTimeMillis();
+	private final int stride;
+
+	Shifting(KeyDistribution distribution, long periodMillis) {
+	    super(distribution.getKeyCount());
+	    this.distribution = distribution;
+	    this.periodMillis = Math.max(periodMillis, 1);
+	    // a stride coprime with most key counts, for the hot keys not to come
+	    // back to the same keys for a long time
+	    this.stride = (int) (7919L % keyCount);
+	}
+
+	public int nextKey(Random random) {
+	    long shift = (System.currentTimeMillis() - startMillis) / periodMillis * stride;
+	    return (int) ((distribution.nextKey(random) + shift) % keyCount);
+	}
+
+	public String toString() {
+	    return "shifting(" + distribution + ", periodMillis=" + periodMillis + ")";
+	}
+    }
+
+}
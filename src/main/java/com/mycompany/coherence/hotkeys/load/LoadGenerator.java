@@ -0,0 +1,261 @@
+package com.mycompany.coherence.hotkeys.load;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+import com.mycompany.coherence.hotkeys.invocable.HotKeyData;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.net.NamedCache;
+import com.tangosol.util.InvocableMap;
+
+/**
+ * Load generator of a cache with integer keys: loads the entries with bounded
+ * putAll batches run by parallel threads, then reads keys drawn from a
+ * KeyDistribution with parallel readers at a target rate, so that the
+ * detection of the hot keys can be checked, and its overhead measured, under
+ * a production-like load. Keys drawn from the distribution can also be
+ * written with entry processors, for the hot keys of the writes to contend on
+ * their locks.
+ * <p>
+ * Each thread counts the reads, or invocations, of each key in an array of its
+ * own, without contention on the hot keys, the arrays being summed once the
+ * threads stop; the exact top n accessed can then be compared with the top n
+ * collected from the members. The counts take 4 bytes per key and thread.
+ */
+public class LoadGenerator {
+
+    private final NamedCache cache;
+    private final int keyCount;
+    private int threads = 4;
+    private int batchSize = 20000;
+    private int targetOpsPerSecond;
+    private KeyDistribution distribution;
+    private IntFunction<Object> valueFactory = key -> "Value #" + key;
+    private final int[] readCounts;
+    private long readTotal;
+
+    /**
+     * LoadGenerator sole constructor; keys are read uniformly unless another
+     * distribution is set.
+     * 
+     * @param cache    cache loaded and read
+     * @param keyCount number of keys, from 0 to the key count excluded
+     */
+    public LoadGenerator(NamedCache cache, int keyCount) {
+	this.cache = cache;
+	this.keyCount = keyCount;
+	this.distribution = KeyDistribution.uniform(keyCount);
+	this.readCounts = new int[keyCount];
+    }
+
+    /**
+     * Puts every key in the cache, in batches of at most the batch size spread
+     * over the threads.
+     * 
+     * @return long milliseconds taken
+     * @throws InterruptedException if interrupted while waiting for the batches
+     */
+    public long load() throws InterruptedException {
+	long startTime = System.currentTimeMillis();
+	List<Callable<Void>> batches = new ArrayList<>();
+	for (int start = 0; start < keyCount; start += batchSize) {
+	    int end = Math.min(start + batchSize, keyCount);
+	    int batchStart = start;
+	    batches.add(() -> {
+		Map<Integer, Object> entries = new HashMap<>(2 * (end - batchStart));
+		for (int key = batchStart; key < end; key++) {
+		    entries.put(key, valueFactory.apply(key));
+		}
+		cache.putAll(entries);
+		return null;
+	    });
+	}
+	runAll(batches);
+	return System.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * Reads keys drawn from the distribution with every thread for a duration,
+     * at the target rate if set, counting the reads of each key.
+     * 
+     * @param durationMillis duration of the reads
+     * @return long number of reads
+     * @throws InterruptedException if interrupted while waiting for the readers
+     */
+    public long read(long durationMillis) throws InterruptedException {
+	return run(durationMillis, cache::get);
+    }
+
+    /**
+     * Invokes entry processors on keys drawn from the distribution with every
+     * thread for a duration, at the target rate if set, counting the
+     * invocations of each key as reads.
+     * 
+     * @param durationMillis   duration of the invocations
+     * @param processorFactory function creating the processor invoked on a
+     *                         key
+     * @return long number of invocations
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public long invoke(long durationMillis, IntFunction<InvocableMap.EntryProcessor> processorFactory)
+	    throws InterruptedException {
+	return run(durationMillis, key -> cache.invoke(key, processorFactory.apply(key)));
+    }
+
+    /**
+     * Runs an operation on keys drawn from the distribution with every thread
+     * for a duration, at the target rate if set, counting the operations on
+     * each key.
+     */
+    private long run(long durationMillis, IntConsumer operation) throws InterruptedException {
+	long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+	long intervalNanos = targetOpsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(threads) / targetOpsPerSecond : 0;
+	List<Callable<int[]>> workers = new ArrayList<>();
+	for (int i = 0; i < threads; i++) {
+	    workers.add(() -> {
+		int[] counts = new int[keyCount];
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long next = System.nanoTime();
+		for (long now = next; now < deadline; now = System.nanoTime()) {
+		    if (intervalNanos > 0) {
+			if (now < next) {
+			    LockSupport.parkNanos(next - now);
+			    continue;
+			}
+			// no burst to catch up with operations missed while stalled
+			next = Math.max(next + intervalNanos, now - intervalNanos);
+		    }
+		    int key = distribution.nextKey(random);
+		    operation.accept(key);
+		    counts[key]++;
+		}
+		return counts;
+	    });
+	}
+	long operations = 0;
+	for (int[] counts : runAll(workers)) {
+	    synchronized (readCounts) {
+		for (int key = 0; key < keyCount; key++) {
+		    readCounts[key] += counts[key];
+		    operations += counts[key];
+		}
+	    }
+	}
+	synchronized (readCounts) {
+	    readTotal += operations;
+	}
+	return operations;
+    }
+
+    private <T> List<T> runAll(List<Callable<T>> tasks) throws InterruptedException {
+	ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+	    Thread thread = new Thread(runnable, "LoadGenerator");
+	    thread.setDaemon(true);
+	    return thread;
+	});
+	try {
+	    List<T> results = new ArrayList<>(tasks.size());
+	    for (Future<T> future : executor.invokeAll(tasks)) {
+		results.add(future.get());
+	    }
+	    return results;
+	} catch (ExecutionException ex) {
+	    throw new IllegalStateException("The load of the " + cache.getCacheName() + " cache failed.",
+		    ex.getCause());
+	} finally {
+	    executor.shutdownNow();
+	}
+    }
+
+    /**
+     * Returns the keys read, or invoked, the most so far, with their read
+     * counts.
+     * 
+     * @param n number of keys
+     * @return SortedCollectionWithCapacity
+     */
+    public SortedCollectionWithCapacity<HotKeyData<Integer>> getTopReadKeys(int n) {
+	SortedCollectionWithCapacity<HotKeyData<Integer>> topKeys = new SortedCollectionWithCapacity<HotKeyData<Integer>>(
+		n);
+	synchronized (readCounts) {
+	    for (int key = 0; key < keyCount; key++) {
+		if (readCounts[key] > 0 && topKeys.accepts(readCounts[key])) {
+		    topKeys.add(new HotKeyData<Integer>(key, readCounts[key]));
+		}
+	    }
+	}
+	return topKeys;
+    }
+
+    /**
+     * Returns the number of reads and invocations done so far.
+     * 
+     * @return long
+     */
+    public long getReadCount() {
+	synchronized (readCounts) {
+	    return readTotal;
+	}
+    }
+
+    /**
+     * Sets the number of threads loading, reading and invoking.
+     * 
+     * @param threads
+     */
+    public void setThreads(int threads) {
+	this.threads = threads;
+    }
+
+    /**
+     * Sets the maximum number of entries of a putAll. A putAll is split by
+     * partition, so that batches much smaller than a few entries per partition
+     * make many small requests and load slower than one large putAll.
+     * 
+     * @param batchSize
+     */
+    public void setBatchSize(int batchSize) {
+	this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the number of reads, or invocations, per second of all the threads.
+     * 
+     * @param targetOpsPerSecond operations per second, 0 for as fast as
+     *                           possible
+     */
+    public void setTargetOpsPerSecond(int targetOpsPerSecond) {
+	this.targetOpsPerSecond = targetOpsPerSecond;
+    }
+
+    /**
+     * Sets the distribution of the keys read or invoked.
+     * 
+     * @param distribution
+     */
+    public void setDistribution(KeyDistribution distribution) {
+	this.distribution = distribution;
+    }
+
+    /**
+     * Sets the function creating the value of a key when loading.
+     * 
+     * @param valueFactory
+     */
+    public void setValueFactory(IntFunction<Object> valueFactory) {
+	this.valueFactory = valueFactory;
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.mycompany.coherence.hotkeys.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.mycompany.coherence.hotkeys.util.LatencyHistogram;
+
+/**
+ * Cost of the hot key collections seen from the member invoking them: latency
+ * of the collections and of each member result, time spent merging results,
+ * and failed members, accumulated over repeated collections. An instance can
+ * be shared by any number of concurrent collections.
+ */
+public class HotKeyClientMetrics {
+
+    private final LatencyHistogram collectionLatencies = new LatencyHistogram();
+    private final LatencyHistogram memberLatencies = new LatencyHistogram();
+    private final LatencyHistogram mergeTimes = new LatencyHistogram();
+    private final LongAdder totalMergeNanos = new LongAdder();
+    private final LongAdder partialCollections = new LongAdder();
+    private final LongAdder failedMembers = new LongAdder();
+
+    /**
+     * Records a collection.
+     * 
+     * @param nanos   time from the invocation to the merged result
+     * @param partial whether some members did not complete
+     */
+    public void recordCollection(long nanos, boolean partial) {
+	collectionLatencies.record(nanos);
+	if (partial) {
+	    partialCollections.increment();
+	}
+    }
+
+    /**
+     * Records the result of a member.
+     * 
+     * @param nanos time from the invocation to the result of the member
+     */
+    public void recordMemberLatency(long nanos) {
+	memberLatencies.record(nanos);
+    }
+
+    /**
+     * Records the merge of a member result or chunk into the merged top n.
+     * 
+     * @param nanos merge time
+     */
+    public void recordMerge(long nanos) {
+	mergeTimes.record(nanos);
+	totalMergeNanos.add(nanos);
+    }
+
+    /**
+     * Records a member that failed or left before completing.
+     */
+    public void recordFailedMember() {
+	failedMembers.increment();
+    }
+
+    public LatencyHistogram getCollectionLatencies() {
+	return collectionLatencies;
+    }
+
+    public LatencyHistogram getMemberLatencies() {
+	return memberLatencies;
+    }
+
+    public LatencyHistogram getMergeTimes() {
+	return mergeTimes;
+    }
+
+    /**
+     * Returns the time spent merging results, in milliseconds.
+     * 
+     * @return double
+     */
+    public double getTotalMergeMillis() {
+	return totalMergeNanos.sum() / 1e6;
+    }
+
+    public long getPartialCollectionCount() {
+	return partialCollections.sum();
+    }
+
+    public long getFailedMemberCount() {
+	return failedMembers.sum();
+    }
+
+    /**
+     * Returns the latency distributions and the failure counts.
+     * 
+     * @return String
+     */
+    public String toString() {
+	return "HotKeyClientMetrics [collections=[" + collectionLatencies + "], members=[" + memberLatencies
+		+ "], merges=[" + mergeTimes + "], totalMergeMillis=" + getTotalMergeMillis() + ", partialCollections="
+		+ getPartialCollectionCount() + ", failedMembers=" + getFailedMemberCount() + "]";
+    }
+
+}
@@ -0,0 +1,209 @@
+package com.mycompany.coherence.hotkeys.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+import com.mycompany.coherence.hotkeys.util.LatencyHistogram;
+import com.tangosol.net.CacheFactory;
+import com.tangosol.net.management.Registry;
+
+/**
+ * Cost of the hot key scans of a cache on a member: wall clock and CPU time,
+ * entries visited, keys deserialized and bytes of the results, along with the
+ * distribution of the scan times over repeated runs. There is one instance per
+ * cache and member, registered as an MBean when first used.
+ */
+public class HotKeyScanMetrics implements HotKeyScanMetricsMBean {
+
+    private static final Logger logger = Logger.getLogger("Coherence");
+
+    private static final ConcurrentMap<String, HotKeyScanMetrics> metrics = new ConcurrentHashMap<>();
+
+    private final String cacheName;
+    private final LatencyHistogram wallTimes = new LatencyHistogram();
+    private final LatencyHistogram cpuTimes = new LatencyHistogram();
+    private final LongAdder totalWallNanos = new LongAdder();
+    private final LongAdder totalCpuNanos = new LongAdder();
+    private final LongAdder totalEntriesVisited = new LongAdder();
+    private final LongAdder totalKeysDeserialized = new LongAdder();
+    private final LongAdder totalResultBytes = new LongAdder();
+    private volatile long lastWallNanos;
+    private volatile long lastCpuNanos;
+    private volatile long lastEntriesVisited;
+    private volatile long lastKeysDeserialized;
+    private volatile long lastResultBytes;
+
+    /**
+     * HotKeyScanMetrics sole constructor; use {@link #forCache(String)} to get
+     * the registered instance of a cache.
+     * 
+     * @param cacheName name of the cache scanned
+     */
+    public HotKeyScanMetrics(String cacheName) {
+	this.cacheName = cacheName;
+    }
+
+    /**
+     * Returns the metrics of a cache on this member, creating and registering
+     * them as an MBean if needed.
+     * 
+     * @param cacheName cache name
+     * @return HotKeyScanMetrics
+     */
+    public static HotKeyScanMetrics forCache(String cacheName) {
+	return metrics.computeIfAbsent(cacheName, name -> {
+	    HotKeyScanMetrics cacheMetrics = new HotKeyScanMetrics(name);
+	    cacheMetrics.register();
+	    return cacheMetrics;
+	});
+    }
+
+    /**
+     * Records a scan.
+     * 
+     * @param wallNanos        wall clock time
+     * @param cpuNanos         CPU time summed over the threads that scanned
+     * @param entriesVisited   backing map entries visited
+     * @param keysDeserialized keys deserialized
+     * @param resultBytes      estimated serialized size of the result and its
+     *                         chunks
+     */
+    public void recordScan(long wallNanos, long cpuNanos, long entriesVisited, long keysDeserialized,
+	    long resultBytes) {
+	wallTimes.record(wallNanos);
+	cpuTimes.record(cpuNanos);
+	totalWallNanos.add(wallNanos);
+	totalCpuNanos.add(cpuNanos);
+	totalEntriesVisited.add(entriesVisited);
+	totalKeysDeserialized.add(keysDeserialized);
+	totalResultBytes.add(resultBytes);
+	lastWallNanos = wallNanos;
+	lastCpuNanos = cpuNanos;
+	lastEntriesVisited = entriesVisited;
+	lastKeysDeserialized = keysDeserialized;
+	lastResultBytes = resultBytes;
+    }
+
+    /**
+     * Returns the CPU time of the current thread, 0 if the JVM does not measure
+     * it.
+     * 
+     * @return long nanoseconds
+     */
+    public static long currentThreadCpuNanos() {
+	ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+	return threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : 0;
+    }
+
+    public String getCacheName() {
+	return cacheName;
+    }
+
+    public long getScanCount() {
+	return wallTimes.getCount();
+    }
+
+    public double getLastScanWallMillis() {
+	return lastWallNanos / 1e6;
+    }
+
+    public double getLastScanCpuMillis() {
+	return lastCpuNanos / 1e6;
+    }
+
+    public double getTotalScanWallMillis() {
+	return totalWallNanos.sum() / 1e6;
+    }
+
+    public double getTotalScanCpuMillis() {
+	return totalCpuNanos.sum() / 1e6;
+    }
+
+    public double getScanWallMillis50th() {
+	return wallTimes.getPercentileMillis(50);
+    }
+
+    public double getScanWallMillis99th() {
+	return wallTimes.getPercentileMillis(99);
+    }
+
+    public double getScanWallMillisMax() {
+	return wallTimes.getMaxMillis();
+    }
+
+    public double getScanCpuMillis50th() {
+	return cpuTimes.getPercentileMillis(50);
+    }
+
+    public double getScanCpuMillis99th() {
+	return cpuTimes.getPercentileMillis(99);
+    }
+
+    public long getLastEntriesVisited() {
+	return lastEntriesVisited;
+    }
+
+    public long getTotalEntriesVisited() {
+	return totalEntriesVisited.sum();
+    }
+
+    public long getLastKeysDeserialized() {
+	return lastKeysDeserialized;
+    }
+
+    public long getTotalKeysDeserialized() {
+	return totalKeysDeserialized.sum();
+    }
+
+    public long getLastResultBytes() {
+	return lastResultBytes;
+    }
+
+    public long getTotalResultBytes() {
+	return totalResultBytes.sum();
+    }
+
+    public void resetStatistics() {
+	wallTimes.reset();
+	cpuTimes.reset();
+	totalWallNanos.reset();
+	totalCpuNanos.reset();
+	totalEntriesVisited.reset();
+	totalKeysDeserialized.reset();
+	totalResultBytes.reset();
+    }
+
+    /**
+     * Returns the scan count, the distribution of the scan times and the totals.
+     * 
+     * @return String
+     */
+    public String toString() {
+	return "HotKeyScanMetrics [cacheName=" + cacheName + ", wallTimes=[" + wallTimes + "], cpuTimes=[" + cpuTimes
+		+ "], totalEntriesVisited=" + getTotalEntriesVisited() + ", totalKeysDeserialized="
+		+ getTotalKeysDeserialized() + ", totalResultBytes=" + getTotalResultBytes() + "]";
+    }
+
+    /**
+     * Registers this instance in the Coherence management registry; scans go
+     * on unmonitored if it fails.
+     */
+    private void register() {
+	try {
+	    Registry registry = CacheFactory.ensureCluster().getManagement();
+	    if (registry != null) {
+		registry.register(registry.ensureGlobalName("type=HotKeys,name=" + ObjectName.quote(cacheName)), this);
+	    }
+	} catch (RuntimeException ex) {
+	    logger.warn("Could not register the hot key metrics of the " + cacheName + " cache", ex);
+	}
+    }
+
+}
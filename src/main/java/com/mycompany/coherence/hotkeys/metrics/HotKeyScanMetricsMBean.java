@@ -0,0 +1,138 @@
+package com.mycompany.coherence.hotkeys.metrics;
+
+/**
+ * Management interface of the hot key scans of a cache on a member, registered
+ * in the Coherence management registry as type=HotKeys,name=cache
+ * name,nodeId=member id. Durations are in milliseconds; Last attributes are of
+ * the last scan, Total attributes of all scans since the statistics were
+ * reset.
+ */
+public interface HotKeyScanMetricsMBean {
+
+    /**
+     * Returns the name of the cache scanned.
+     * 
+     * @return String
+     */
+    String getCacheName();
+
+    /**
+     * Returns the number of scans.
+     * 
+     * @return long
+     */
+    long getScanCount();
+
+    /**
+     * Returns the wall clock time of the last scan.
+     * 
+     * @return double
+     */
+    double getLastScanWallMillis();
+
+    /**
+     * Returns the CPU time of the last scan, summed over the threads that
+     * scanned.
+     * 
+     * @return double
+     */
+    double getLastScanCpuMillis();
+
+    /**
+     * Returns the wall clock time of all scans.
+     * 
+     * @return double
+     */
+    double getTotalScanWallMillis();
+
+    /**
+     * Returns the CPU time of all scans.
+     * 
+     * @return double
+     */
+    double getTotalScanCpuMillis();
+
+    /**
+     * Returns the median wall clock time of a scan.
+     * 
+     * @return double
+     */
+    double getScanWallMillis50th();
+
+    /**
+     * Returns the 99th percentile of the wall clock time of a scan.
+     * 
+     * @return double
+     */
+    double getScanWallMillis99th();
+
+    /**
+     * Returns the longest wall clock time of a scan.
+     * 
+     * @return double
+     */
+    double getScanWallMillisMax();
+
+    /**
+     * Returns the median CPU time of a scan.
+     * 
+     * @return double
+     */
+    double getScanCpuMillis50th();
+
+    /**
+     * Returns the 99th percentile of the CPU time of a scan.
+     * 
+     * @return double
+     */
+    double getScanCpuMillis99th();
+
+    /**
+     * Returns the number of backing map entries visited by the last scan.
+     * 
+     * @return long
+     */
+    long getLastEntriesVisited();
+
+    /**
+     * Returns the number of backing map entries visited by all scans.
+     * 
+     * @return long
+     */
+    long getTotalEntriesVisited();
+
+    /**
+     * Returns the number of keys deserialized by the last scan.
+     * 
+     * @return long
+     */
+    long getLastKeysDeserialized();
+
+    /**
+     * Returns the number of keys deserialized by all scans.
+     * 
+     * @return long
+     */
+    long getTotalKeysDeserialized();
+
+    /**
+     * Returns the estimated serialized size of the result of the last scan,
+     * including its intermediate chunks.
+     * 
+     * @return long
+     */
+    long getLastResultBytes();
+
+    /**
+     * Returns the estimated serialized size of the results of all scans.
+     * 
+     * @return long
+     */
+    long getTotalResultBytes();
+
+    /**
+     * Resets the statistics.
+     */
+    void resetStatistics();
+
+}
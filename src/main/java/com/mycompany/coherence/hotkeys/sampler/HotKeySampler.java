@@ -0,0 +1,497 @@
+package com.mycompany.coherence.hotkeys.sampler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.log4j.Logger;
+
+import com.mycompany.coherence.hotkeys.history.HotKeyHistory;
+import com.mycompany.coherence.hotkeys.invocable.HotKeyDeltaView;
+import com.mycompany.coherence.hotkeys.invocable.HotKeyInvocable;
+import com.mycompany.coherence.hotkeys.invocable.ProgressiveHotKeyObserver;
+import com.mycompany.coherence.hotkeys.metrics.HotKeyClientMetrics;
+import com.mycompany.coherence.hotkeys.tracker.RateWindow;
+import com.tangosol.net.CacheFactory;
+import com.tangosol.net.DistributedCacheService;
+import com.tangosol.net.InvocationService;
+import com.tangosol.net.Member;
+import com.tangosol.net.NamedCache;
+
+/**
+ * Long running collector of the hot keys of a cache: at every interval the
+ * HotKeyInvocable is run on the storage members, scanning their backing map or
+ * reading their hot key tracker, and the merged top n is published as a
+ * HotKeySnapshot to the replicated HotKeys cache, where dashboards and clients
+ * read it locally.
+ * <p>
+ * Each member's scan is capped at a CPU budget, see
+ * HotKeyInvocable.setCpuBudgetMillis, and a collection at a timeout, members
+ * answering late being left out of a partial snapshot. The delay between two
+ * collections is the interval plus or minus a random jitter, so that samplers
+ * started together do not scan at the same time; it is doubled, up to a
+ * maximum, while the cluster is under load, i.e. when a collection is partial,
+ * fails, or takes more than a fraction of the interval, and halved back to the
+ * interval once collections take less than half that fraction.
+ * <p>
+ * With a delta threshold, members only send the changes of their top n since
+ * the previous collection, see HotKeyInvocable.setDelta, the sampler
+ * rebuilding the top n with a HotKeyDeltaView.
+ * 
+ * @param K The type of the key of cache entries, should implement Comparable
+ */
+public class HotKeySampler<K extends Comparable<K>> {
+
+    private static final Logger logger = Logger.getLogger("Coherence");
+
+    public static final String HOT_KEYS_CACHE_NAME = "HotKeys";
+
+    protected static final int DEFAULT_TOP_N = 100;
+    protected static final String DEFAULT_CACHE_SERVICE_NAME = "DistributedCache";
+    protected static final String DEFAULT_INVOCATION_SERVICE_NAME = "InvocationService";
+    protected static final String DEFAULT_CACHE_NAME = "default_cache";
+    protected static final long DEFAULT_INTERVAL_MILLIS = 60000;
+    protected static final double DEFAULT_JITTER = 0.1;
+    protected static final long DEFAULT_MAX_INTERVAL_MILLIS = 600000;
+    protected static final long DEFAULT_CPU_BUDGET_MILLIS = 1000;
+    protected static final long DEFAULT_TIMEOUT_MILLIS = 10000;
+    protected static final double DEFAULT_LOAD_THRESHOLD = 0.1;
+
+    private static Options cliOptions;
+
+    private final String cacheName;
+    private final String cacheServiceName;
+    private final String invocationServiceName;
+    private final int topN;
+    private HotKeyInvocable.Mode mode = HotKeyInvocable.Mode.TOUCH_COUNT;
+    private RateWindow rateWindow = RateWindow.ONE_MINUTE;
+    private int parallelism = 1;
+    private long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+    private double jitter = DEFAULT_JITTER;
+    private long maxIntervalMillis = DEFAULT_MAX_INTERVAL_MILLIS;
+    private long cpuBudgetMillis = DEFAULT_CPU_BUDGET_MILLIS;
+    private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private double loadThreshold = DEFAULT_LOAD_THRESHOLD;
+    private final HotKeyClientMetrics metrics = new HotKeyClientMetrics();
+    private HotKeyDeltaView<K> deltaView;
+    private int deltaThreshold;
+    private HotKeyHistory<K> history;
+    private volatile long currentIntervalMillis;
+    private volatile ScheduledExecutorService executor;
+
+    static {
+	cliOptions = new Options();
+	cliOptions.addOption(new Option("help", "print command line usage"));
+	cliOptions.addOption("n", true,
+		String.format("optional number of maximum hot keys to publish; defaults to %d", DEFAULT_TOP_N));
+	cliOptions.addOption("c", true, String.format("optional name of cache; defaults to %s", DEFAULT_CACHE_NAME));
+	cliOptions.addOption("d", true,
+		String.format("optional name of DistributedCache service; defaults to %s", DEFAULT_CACHE_SERVICE_NAME));
+	cliOptions.addOption("i", true,
+		String.format("optional name of InvocationService; defaults to %s", DEFAULT_INVOCATION_SERVICE_NAME));
+	cliOptions.addOption("p", true,
+		"optional number of threads scanning each member's partitions in parallel; defaults to 1");
+	cliOptions.addOption("e", true, String.format(
+		"optional interval in milliseconds between two collections; defaults to %d", DEFAULT_INTERVAL_MILLIS));
+	cliOptions.addOption("j", true, String.format(
+		"optional random jitter of the interval, as a fraction of it; defaults to %.2f", DEFAULT_JITTER));
+	cliOptions.addOption("o", true, String.format(
+		"optional maximum interval in milliseconds the sampler backs off to under load; defaults to %d",
+		DEFAULT_MAX_INTERVAL_MILLIS));
+	cliOptions.addOption("b", true, String.format(
+		"optional CPU time in milliseconds each member may spend scanning, 0 for no budget; defaults to %d",
+		DEFAULT_CPU_BUDGET_MILLIS));
+	cliOptions.addOption("w", true, String.format(
+		"optional timeout in milliseconds of a collection, after which the snapshot is published "
+			+ "partial; defaults to %d",
+		DEFAULT_TIMEOUT_MILLIS));
+	cliOptions.addOption("u", true,
+		"optional touch count threshold; members only send the keys that entered or left their top n, "
+			+ "or whose touch count changed by more than the threshold, since the previous collection");
+	cliOptions.addOption("y", true,
+		"optional directory of a hot key history every snapshot is also appended to");
+	cliOptions.addOption("t", false,
+		"fetch the hot keys from the hot key tracker of the cache instead of scanning its backing map");
+	cliOptions.addOption("r", true,
+		"optional window in minutes (1, 5 or 15) of the decayed access rates to rank on, "
+			+ "from the hot key tracker of the cache");
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+
+	CommandLine commandLine = null;
+	try {
+	    commandLine = new BasicParser().parse(cliOptions, args);
+	} catch (ParseException ex) {
+	    System.err.println(String.format("Command line parsing failed with message %s", ex.getMessage()));
+	    printCommandLineUsage();
+	    return;
+	}
+
+	if (commandLine.hasOption("help")) {
+	    printCommandLineUsage();
+	    return;
+	}
+
+	HotKeySampler<?> sampler = new HotKeySampler<>(
+		commandLine.getOptionValue("c", DEFAULT_CACHE_NAME),
+		commandLine.getOptionValue("d", DEFAULT_CACHE_SERVICE_NAME),
+		commandLine.getOptionValue("i", DEFAULT_INVOCATION_SERVICE_NAME),
+		Integer.parseInt(commandLine.getOptionValue("n", String.valueOf(DEFAULT_TOP_N))));
+	sampler.setParallelism(Integer.parseInt(commandLine.getOptionValue("p", "1")));
+	sampler.setIntervalMillis(
+		Long.parseLong(commandLine.getOptionValue("e", String.valueOf(DEFAULT_INTERVAL_MILLIS))));
+	sampler.setJitter(Double.parseDouble(commandLine.getOptionValue("j", String.valueOf(DEFAULT_JITTER))));
+	sampler.setMaxIntervalMillis(
+		Long.parseLong(commandLine.getOptionValue("o", String.valueOf(DEFAULT_MAX_INTERVAL_MILLIS))));
+	sampler.setCpuBudgetMillis(
+		Long.parseLong(commandLine.getOptionValue("b", String.valueOf(DEFAULT_CPU_BUDGET_MILLIS))));
+	sampler.setTimeoutMillis(
+		Long.parseLong(commandLine.getOptionValue("w", String.valueOf(DEFAULT_TIMEOUT_MILLIS))));
+	if (commandLine.hasOption("u")) {
+	    sampler.setDeltaThreshold(Integer.parseInt(commandLine.getOptionValue("u")));
+	}
+	if (commandLine.hasOption("y")) {
+	    sampler.openHistory(new File(commandLine.getOptionValue("y")));
+	}
+	if (commandLine.hasOption("t")) {
+	    sampler.setMode(HotKeyInvocable.Mode.TRACKER);
+	}
+	if (commandLine.hasOption("r")) {
+	    sampler.setMode(HotKeyInvocable.Mode.DECAYED_RATE);
+	    sampler.setRateWindow(RateWindow.ofMinutes(Integer.parseInt(commandLine.getOptionValue("r"))));
+	}
+
+	Runtime.getRuntime().addShutdownHook(new Thread(sampler::stop));
+	sampler.start();
+	sampler.awaitTermination();
+    }
+
+    /**
+     * HotKeySampler constructor.
+     * 
+     * @param cacheName             name of the sampled cache
+     * @param cacheServiceName      name of its distributed cache service
+     * @param invocationServiceName name of the invocation service running the
+     *                              HotKeyInvocable
+     * @param topN                  number of hot keys to publish
+     */
+    public HotKeySampler(String cacheName, String cacheServiceName, String invocationServiceName, int topN) {
+	this.cacheName = cacheName;
+	this.cacheServiceName = cacheServiceName;
+	this.invocationServiceName = invocationServiceName;
+	this.topN = topN;
+    }
+
+    /**
+     * Returns the last snapshot published for a cache, read from the local
+     * copy of the replicated HotKeys cache.
+     * 
+     * @param cacheName name of the sampled cache
+     * @return HotKeySnapshot, null if none was published
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<K>> HotKeySnapshot<K> getSnapshot(String cacheName) {
+	return (HotKeySnapshot<K>) getHotKeysCache().get(cacheName);
+    }
+
+    private static NamedCache getHotKeysCache() {
+	return CacheFactory.getCache(HOT_KEYS_CACHE_NAME);
+    }
+
+    /**
+     * Starts collecting and publishing the hot keys, the first collection
+     * running after a random delay of up to the jitter of the interval.
+     */
+    public synchronized void start() {
+	if (executor != null) {
+	    throw new IllegalStateException("The hot key sampler of the " + cacheName + " cache is already started.");
+	}
+	currentIntervalMillis = intervalMillis;
+	executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+	    Thread thread = new Thread(runnable, "HotKeySampler:" + cacheName);
+	    thread.setDaemon(true);
+	    return thread;
+	});
+	executor.schedule(this::sample, (long) (ThreadLocalRandom.current().nextDouble() * jitter * intervalMillis),
+		TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops collecting; a collection in progress is interrupted.
+     */
+    public synchronized void stop() {
+	if (executor != null) {
+	    executor.shutdownNow();
+	}
+    }
+
+    /**
+     * Waits for the sampler to be stopped.
+     * 
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitTermination() throws InterruptedException {
+	ScheduledExecutorService current = executor;
+	if (current != null) {
+	    current.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+	}
+    }
+
+    /**
+     * Runs a collection, publishes its snapshot and schedules the next one
+     * after the interval adapted to the duration and outcome of the
+     * collection.
+     */
+    private void sample() {
+	boolean underLoad = true;
+	boolean idle = false;
+	try {
+	    HotKeySnapshot<K> snapshot = collect();
+	    getHotKeysCache().put(cacheName, snapshot);
+	    appendToHistory(snapshot);
+	    underLoad = snapshot.isPartial() || snapshot.getElapsedMillis() > loadThreshold * currentIntervalMillis;
+	    // only speed up if the collection would not be under load at the
+	    // shorter interval, not to flip between two intervals
+	    idle = !snapshot.isPartial() && snapshot.getElapsedMillis() <= loadThreshold * currentIntervalMillis / 2;
+	    if (logger.isDebugEnabled()) {
+		logger.debug("Published " + snapshot);
+	    }
+	} catch (InterruptedException ex) {
+	    Thread.currentThread().interrupt();
+	    return;
+	} catch (RuntimeException ex) {
+	    logger.warn("The collection of the hot keys of the " + cacheName + " cache failed", ex);
+	}
+	if (underLoad) {
+	    currentIntervalMillis = Math.min(currentIntervalMillis * 2, Math.max(maxIntervalMillis, intervalMillis));
+	} else if (idle) {
+	    currentIntervalMillis = Math.max(currentIntervalMillis / 2, intervalMillis);
+	}
+	ScheduledExecutorService current = executor;
+	if (!current.isShutdown()) {
+	    current.schedule(this::sample, getNextDelay(), TimeUnit.MILLISECONDS);
+	}
+    }
+
+    private void appendToHistory(HotKeySnapshot<K> snapshot) {
+	if (history != null) {
+	    try {
+		history.append(snapshot.getTimestamp(), snapshot.getHotKeys());
+	    } catch (IOException ex) {
+		logger.warn("Could not append the snapshot of the " + cacheName + " cache to its history", ex);
+	    }
+	}
+    }
+
+    /**
+     * Runs the HotKeyInvocable on every storage member and merges the results
+     * that arrive before the timeout.
+     */
+    private HotKeySnapshot<K> collect() throws InterruptedException {
+	Set<Member> storageMembers = getDistributedCacheService().getOwnershipEnabledMembers();
+	if (storageMembers.isEmpty()) {
+	    throw new IllegalStateException(
+		    "There must be storage members in the cluster for the hot keys to be collected.");
+	}
+	long startTime = System.currentTimeMillis();
+	ProgressiveHotKeyObserver<K> observer = new ProgressiveHotKeyObserver<K>(storageMembers, topN);
+	observer.setMetrics(metrics);
+	observer.setDeltaView(deltaView);
+	try {
+	    for (Member member : storageMembers) {
+		getInvocationService().execute(createTask(member), Collections.singleton(member), observer);
+	    }
+	    observer.await(timeoutMillis, TimeUnit.MILLISECONDS);
+	    long elapsedMillis = System.currentTimeMillis() - startTime;
+	    metrics.recordCollection(TimeUnit.MILLISECONDS.toNanos(elapsedMillis), observer.isPartial());
+	    return new HotKeySnapshot<K>(cacheName, System.currentTimeMillis(), observer.getMergedResult(),
+		    observer.getCoverage(), observer.isPartial(), elapsedMillis);
+	} finally {
+	    observer.close();
+	}
+    }
+
+    private HotKeyInvocable<K> createTask(Member member) {
+	HotKeyInvocable<K> task = new HotKeyInvocable<K>(cacheName, cacheServiceName, topN);
+	task.setParallelism(parallelism);
+	task.setMode(mode);
+	task.setRateWindow(rateWindow);
+	task.setCpuBudgetMillis(cpuBudgetMillis);
+	if (deltaView != null) {
+	    task.setDelta(deltaView.getDeltaId(), deltaView.getVersion(member), deltaThreshold);
+	}
+	return task;
+    }
+
+    /**
+     * Returns the current interval plus or minus the jitter.
+     */
+    private long getNextDelay() {
+	double deviation = jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+	return Math.max((long) (currentIntervalMillis * (1 + deviation)), 0);
+    }
+
+    private InvocationService getInvocationService() {
+	return (InvocationService) CacheFactory.getService(invocationServiceName);
+    }
+
+    private DistributedCacheService getDistributedCacheService() {
+	return (DistributedCacheService) CacheFactory.getService(cacheServiceName);
+    }
+
+    private static void printCommandLineUsage() {
+	new HelpFormatter().printHelp(HotKeySampler.class.getSimpleName(), cliOptions);
+    }
+
+    /**
+     * Returns the interval between two collections, the sampler having backed
+     * off from the configured interval if the cluster is under load.
+     * 
+     * @return long milliseconds
+     */
+    public long getCurrentIntervalMillis() {
+	return currentIntervalMillis;
+    }
+
+    /**
+     * Returns the latency and merge times of the collections run so far.
+     * 
+     * @return HotKeyClientMetrics
+     */
+    public HotKeyClientMetrics getMetrics() {
+	return metrics;
+    }
+
+    /**
+     * Sets where the storage members fetch the hot keys from.
+     * 
+     * @param mode
+     */
+    public void setMode(HotKeyInvocable.Mode mode) {
+	this.mode = mode;
+    }
+
+    /**
+     * Sets the window of the decayed access rates ranked on in DECAYED_RATE
+     * mode.
+     * 
+     * @param rateWindow
+     */
+    public void setRateWindow(RateWindow rateWindow) {
+	this.rateWindow = rateWindow;
+    }
+
+    /**
+     * Sets the number of threads each storage member scans its partitions with.
+     * 
+     * @param parallelism
+     */
+    public void setParallelism(int parallelism) {
+	this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the interval between two collections when the cluster is not under
+     * load.
+     * 
+     * @param intervalMillis interval in milliseconds
+     */
+    public void setIntervalMillis(long intervalMillis) {
+	this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Sets the random deviation of the interval, as a fraction of it.
+     * 
+     * @param jitter fraction between 0 and 1
+     */
+    public void setJitter(double jitter) {
+	this.jitter = jitter;
+    }
+
+    /**
+     * Sets the maximum interval the sampler backs off to under load.
+     * 
+     * @param maxIntervalMillis interval in milliseconds
+     */
+    public void setMaxIntervalMillis(long maxIntervalMillis) {
+	this.maxIntervalMillis = maxIntervalMillis;
+    }
+
+    /**
+     * Sets the CPU time each member may spend scanning its backing map, see
+     * HotKeyInvocable.setCpuBudgetMillis; the hot key tracker modes read a
+     * bounded sketch and need no budget.
+     * 
+     * @param cpuBudgetMillis CPU budget in milliseconds, 0 or less for none
+     */
+    public void setCpuBudgetMillis(long cpuBudgetMillis) {
+	this.cpuBudgetMillis = cpuBudgetMillis;
+    }
+
+    /**
+     * Sets the time after which a collection is published without the members
+     * that have not answered yet.
+     * 
+     * @param timeoutMillis timeout in milliseconds
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+	this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Makes storage members send the changes of their top n since the previous
+     * collection instead of their whole top n. Deltas pay off with full scans
+     * or the hot key tracker; the top n of a scan cut by the CPU budget comes
+     * from different partitions every time.
+     * 
+     * @param deltaThreshold largest touch count change left unreported
+     */
+    public void setDeltaThreshold(int deltaThreshold) {
+	this.deltaThreshold = deltaThreshold;
+	this.deltaView = new HotKeyDeltaView<K>(topN);
+    }
+
+    /**
+     * Opens, or creates, the history every snapshot published is also
+     * appended to.
+     * 
+     * @param directory directory of the history of the sampled cache
+     * @throws IOException if the history cannot be read
+     */
+    public void openHistory(File directory) throws IOException {
+	this.history = new HotKeyHistory<K>(directory);
+    }
+
+    /**
+     * Returns the history the snapshots are appended to, to query it.
+     * 
+     * @return HotKeyHistory, null if none was opened
+     */
+    public HotKeyHistory<K> getHistory() {
+	return history;
+    }
+
+    /**
+     * Sets the fraction of the current interval a collection may take before
+     * the cluster is deemed under load and the sampler backs off.
+     * 
+     * @param loadThreshold fraction of the interval
+     */
+    public void setLoadThreshold(double loadThreshold) {
+	this.loadThreshold = loadThreshold;
+    }
+
+}
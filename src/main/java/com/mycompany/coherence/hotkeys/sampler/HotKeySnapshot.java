@@ -0,0 +1,130 @@
+package com.mycompany.coherence.hotkeys.sampler;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import com.mycompany.coherence.hotkeys.invocable.HotKeyData;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.io.pof.PofReader;
+import com.tangosol.io.pof.PofWriter;
+import com.tangosol.io.pof.PortableObject;
+
+/**
+ * Merged top n of a cache published by the HotKeySampler to the HotKeys cache,
+ * keyed by the name of the sampled cache.
+ * <p>
+ * A snapshot is partial when some members did not answer before the timeout
+ * of the collection; its coverage is below 1 when members sampled their
+ * backing map or ran out of CPU budget before scanning all of it.
+ * 
+ * @param K The type of the key of cache entries, should implement Comparable
+ */
+public class HotKeySnapshot<K extends Comparable<K>> implements PortableObject, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String cacheName;
+    private long timestamp;
+    private SortedCollectionWithCapacity<HotKeyData<K>> hotKeys;
+    private double coverage;
+    private boolean partial;
+    private long elapsedMillis;
+
+    /**
+     * Default constructor, for POF deserialization.
+     */
+    public HotKeySnapshot() {
+    }
+
+    /**
+     * HotKeySnapshot constructor.
+     * 
+     * @param cacheName     name of the sampled cache
+     * @param timestamp     time the collection completed
+     * @param hotKeys       merged top n
+     * @param coverage      fraction of the entries scanned
+     * @param partial       true if some members did not answer
+     * @param elapsedMillis duration of the collection
+     */
+    public HotKeySnapshot(String cacheName, long timestamp, SortedCollectionWithCapacity<HotKeyData<K>> hotKeys,
+	    double coverage, boolean partial, long elapsedMillis) {
+	this.cacheName = cacheName;
+	this.timestamp = timestamp;
+	this.hotKeys = hotKeys;
+	this.coverage = coverage;
+	this.partial = partial;
+	this.elapsedMillis = elapsedMillis;
+    }
+
+    public String getCacheName() {
+	return cacheName;
+    }
+
+    public long getTimestamp() {
+	return timestamp;
+    }
+
+    public SortedCollectionWithCapacity<HotKeyData<K>> getHotKeys() {
+	return hotKeys;
+    }
+
+    /**
+     * Returns the fraction of the entries of the answering members that were
+     * scanned, 1 if their backing maps were fully scanned.
+     * 
+     * @return double
+     */
+    public double getCoverage() {
+	return coverage;
+    }
+
+    /**
+     * Tells if some members did not answer before the timeout of the
+     * collection, their hot keys being missing.
+     * 
+     * @return boolean
+     */
+    public boolean isPartial() {
+	return partial;
+    }
+
+    public long getElapsedMillis() {
+	return elapsedMillis;
+    }
+
+    /**
+     * POF readExternal
+     */
+    @SuppressWarnings("unchecked")
+    public void readExternal(PofReader pofReader) throws IOException {
+	cacheName = pofReader.readString(0);
+	timestamp = pofReader.readLong(1);
+	hotKeys = (SortedCollectionWithCapacity<HotKeyData<K>>) pofReader.readObject(2);
+	coverage = pofReader.readDouble(3);
+	partial = pofReader.readBoolean(4);
+	elapsedMillis = pofReader.readLong(5);
+    }
+
+    /**
+     * POF writeExternal
+     */
+    public void writeExternal(PofWriter pofWriter) throws IOException {
+	pofWriter.writeString(0, cacheName);
+	pofWriter.writeLong(1, timestamp);
+	pofWriter.writeObject(2, hotKeys);
+	pofWriter.writeDouble(3, coverage);
+	pofWriter.writeBoolean(4, partial);
+	pofWriter.writeLong(5, elapsedMillis);
+    }
+
+    /**
+     * Returns the hot keys with the time, coverage and completeness of the
+     * collection.
+     * 
+     * @return String
+     */
+    public String toString() {
+	return "HotKeySnapshot [cacheName=" + cacheName + ", timestamp=" + timestamp + ", coverage=" + coverage
+		+ ", partial=" + partial + ", elapsedMillis=" + elapsedMillis + ", hotKeys=" + hotKeys + "]";
+    }
+}
@@ -0,0 +1,179 @@
+package com.mycompany.coherence.hotkeys.tracker;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.tangosol.net.cache.CacheMap;
+import com.tangosol.util.MapEvent;
+import com.tangosol.util.WrapperObservableMap;
+
+/**
+ * Backing map wrapper counting the reads and writes of every key of any
+ * backing map, such as a read-write-backing-map or an elastic data
+ * (flashjournal or ramjournal) map, whose entries have no touch count. It is
+ * meant to be configured as the class-scheme of a backing-map-scheme that is
+ * not partitioned, passing the wrapped scheme as a {scheme-ref} init-param,
+ * see the sample cache config.
+ * <p>
+ * The HotKeyInvocable detects the wrapper and collects its counts instead of
+ * scanning the backing map, ranking keys on their reads plus writes. Reads of
+ * existing entries and writes are counted; iterating over the entries, as
+ * queries do, is not. The counts of a key are forgotten when its entry is
+ * removed or evicted, and all counts when the cache is truncated, which
+ * replaces its backing map.
+ */
+public class AccessCountingBackingMap extends WrapperObservableMap<Object, Object>
+	implements CacheMap<Object, Object> {
+
+    public static final int DEFAULT_STRIPE_COUNT = 64;
+
+    private final AccessCounts counts;
+
+    /**
+     * AccessCountingBackingMap constructor using the default stripe count.
+     * 
+     * @param map wrapped backing map
+     */
+    public AccessCountingBackingMap(Map<Object, Object> map) {
+	this(map, DEFAULT_STRIPE_COUNT);
+    }
+
+    /**
+     * AccessCountingBackingMap constructor.
+     * 
+     * @param map         wrapped backing map
+     * @param stripeCount number of independently locked stripes of the counts
+     */
+    public AccessCountingBackingMap(Map<Object, Object> map, int stripeCount) {
+	super(map);
+	this.counts = new AccessCounts(stripeCount);
+    }
+
+    /**
+     * Records the read of an existing entry.
+     */
+    public Object get(Object key) {
+	Object value = super.get(key);
+	if (value != null) {
+	    counts.recordRead(key);
+	}
+	return value;
+    }
+
+    /**
+     * Records the reads of the existing entries.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Object, Object> getAll(Collection<? extends Object> keys) {
+	Map<Object, Object> values;
+	if (getMap() instanceof CacheMap) {
+	    values = ((CacheMap<Object, Object>) getMap()).getAll(keys);
+	} else {
+	    values = new HashMap<>();
+	    for (Object key : keys) {
+		Object value = getMap().get(key);
+		if (value != null || getMap().containsKey(key)) {
+		    values.put(key, value);
+		}
+	    }
+	}
+	for (Map.Entry<Object, Object> entry : values.entrySet()) {
+	    if (entry.getValue() != null) {
+		counts.recordRead(entry.getKey());
+	    }
+	}
+	return values;
+    }
+
+    /**
+     * Records the write.
+     */
+    public Object put(Object key, Object value) {
+	counts.recordWrite(key);
+	return super.put(key, value);
+    }
+
+    /**
+     * Records the write.
+     */
+    @SuppressWarnings("unchecked")
+    public Object put(Object key, Object value, long expiry) {
+	counts.recordWrite(key);
+	if (getMap() instanceof CacheMap) {
+	    return ((CacheMap<Object, Object>) getMap()).put(key, value, expiry);
+	}
+	return getMap().put(key, value);
+    }
+
+    /**
+     * Records the writes.
+     */
+    public void putAll(Map<? extends Object, ? extends Object> map) {
+	for (Object key : map.keySet()) {
+	    counts.recordWrite(key);
+	}
+	super.putAll(map);
+    }
+
+    /**
+     * Forgets the counts of the removed entry.
+     */
+    public Object remove(Object key) {
+	counts.remove(key);
+	return super.remove(key);
+    }
+
+    /**
+     * Forgets the counts of the removed entry.
+     */
+    protected boolean removeBlind(Object key) {
+	counts.remove(key);
+	return super.removeBlind(key);
+    }
+
+    /**
+     * Forgets all counts.
+     */
+    public synchronized void clear() {
+	counts.clear();
+	super.clear();
+    }
+
+    /**
+     * Returns the read and write counts of the keys of this map.
+     * 
+     * @return AccessCounts
+     */
+    public AccessCounts getAccessCounts() {
+	return counts;
+    }
+
+    /**
+     * Forgets the counts of the entries the wrapped map evicts or expires.
+     */
+    protected void dispatchEvent(MapEvent<? extends Object, ? extends Object> event) {
+	if (event.getId() == MapEvent.ENTRY_DELETED) {
+	    counts.remove(event.getKey());
+	}
+	super.dispatchEvent(event);
+    }
+
+    /**
+     * Iterates over the entries of the wrapped map, so that their values are
+     * not read through {@link #get(Object)} and counted.
+     */
+    protected Set<Map.Entry<Object, Object>> instantiateEntrySet() {
+	return getMap().entrySet();
+    }
+
+    /**
+     * Iterates over the values of the wrapped map, so that they are not read
+     * through {@link #get(Object)} and counted.
+     */
+    protected Collection<Object> instantiateValues() {
+	return getMap().values();
+    }
+
+}
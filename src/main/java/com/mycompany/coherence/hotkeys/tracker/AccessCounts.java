@@ -0,0 +1,284 @@
+package com.mycompany.coherence.hotkeys.tracker;
+
+import java.util.function.Predicate;
+
+import com.mycompany.coherence.hotkeys.invocable.HotKeyCandidate;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.util.Binary;
+
+/**
+ * Exact per key read and write counts of a backing map, recorded by an
+ * AccessCountingBackingMap.
+ * <p>
+ * Counts are kept in independently locked stripes, a key always going to the
+ * same stripe. A stripe is an open addressing hash table of primitive arrays
+ * (keys, hashes, read counts and write counts), so that recording an access
+ * allocates nothing once the key is counted and a key costs about 40 bytes
+ * besides the key itself. Counts saturate at Integer.MAX_VALUE.
+ */
+public class AccessCounts {
+
+    private static final int INITIAL_STRIPE_CAPACITY = 16;
+
+    private final Stripe[] stripes;
+
+    /**
+     * AccessCounts sole constructor.
+     * 
+     * @param stripeCount number of independently locked stripes
+     */
+    public AccessCounts(int stripeCount) {
+	if (stripeCount <= 0) {
+	    throw new IllegalArgumentException("stripe count must be positive");
+	}
+	this.stripes = new Stripe[stripeCount];
+	for (int i = 0; i < stripeCount; i++) {
+	    stripes[i] = new Stripe();
+	}
+    }
+
+    /**
+     * Records a read of a key.
+     * 
+     * @param key internal key of the read entry
+     */
+    public void recordRead(Object key) {
+	int hash = key.hashCode();
+	stripeOf(hash).record(key, mix(hash), false);
+    }
+
+    /**
+     * Records a write of a key.
+     * 
+     * @param key internal key of the written entry
+     */
+    public void recordWrite(Object key) {
+	int hash = key.hashCode();
+	stripeOf(hash).record(key, mix(hash), true);
+    }
+
+    /**
+     * Forgets the counts of a key.
+     * 
+     * @param key internal key of the removed entry
+     */
+    public void remove(Object key) {
+	int hash = key.hashCode();
+	stripeOf(hash).remove(key, mix(hash));
+    }
+
+    /**
+     * Returns the number of reads of a key.
+     * 
+     * @param key internal key
+     * @return int
+     */
+    public int getReadCount(Object key) {
+	int hash = key.hashCode();
+	return stripeOf(hash).get(key, mix(hash), false);
+    }
+
+    /**
+     * Returns the number of writes of a key.
+     * 
+     * @param key internal key
+     * @return int
+     */
+    public int getWriteCount(Object key) {
+	int hash = key.hashCode();
+	return stripeOf(hash).get(key, mix(hash), true);
+    }
+
+    /**
+     * Adds the counted keys matching a filter to a top n, ranked on their reads
+     * plus writes as touch count.
+     * 
+     * @param results       the top n to add to
+     * @param filter        filter on the internal keys, may be null
+     * @param minTouchCount lowest reads plus writes of the keys added
+     */
+    public void collect(SortedCollectionWithCapacity<HotKeyCandidate> results, Predicate<Object> filter,
+	    int minTouchCount) {
+	for (Stripe stripe : stripes) {
+	    stripe.collect(results, filter, minTouchCount);
+	}
+    }
+
+    /**
+     * Returns the number of counted keys.
+     * 
+     * @return int
+     */
+    public int size() {
+	int size = 0;
+	for (Stripe stripe : stripes) {
+	    synchronized (stripe) {
+		size += stripe.size;
+	    }
+	}
+	return size;
+    }
+
+    /**
+     * Forgets the counts of all keys.
+     */
+    public void clear() {
+	for (Stripe stripe : stripes) {
+	    stripe.clear();
+	}
+    }
+
+    private Stripe stripeOf(int hash) {
+	return stripes[((hash ^ (hash >>> 16)) & 0x7fffffff) % stripes.length];
+    }
+
+    /**
+     * Mixes all bits of a hash code into the low bits the slot of a key is
+     * taken from, so that keys of a stripe, which share hash code bits when
+     * the stripe count is a power of two, still spread over its table.
+     */
+    private static int mix(int hash) {
+	hash ^= hash >>> 16;
+	hash *= 0x85ebca6b;
+	hash ^= hash >>> 13;
+	hash *= 0xc2b2ae35;
+	return hash ^ (hash >>> 16);
+    }
+
+    private static int increment(int count) {
+	return count == Integer.MAX_VALUE ? count : count + 1;
+    }
+
+    /**
+     * Linear probing hash table of the counts of the keys of a stripe, resized
+     * at three quarters full; removals shift the following keys back rather
+     * than leaving tombstones.
+     */
+    private static final class Stripe {
+
+	private Object[] keys;
+	private int[] hashes;
+	private int[] reads;
+	private int[] writes;
+	private int size;
+
+	Stripe() {
+	    allocate(INITIAL_STRIPE_CAPACITY);
+	}
+
+	synchronized void record(Object key, int hash, boolean write) {
+	    int index = find(key, hash);
+	    if (index < 0) {
+		if (size >= keys.length - (keys.length >>> 2)) {
+		    resize();
+		    index = find(key, hash);
+		}
+		index = ~index;
+		keys[index] = key;
+		hashes[index] = hash;
+		size++;
+	    }
+	    if (write) {
+		writes[index] = increment(writes[index]);
+	    } else {
+		reads[index] = increment(reads[index]);
+	    }
+	}
+
+	synchronized int get(Object key, int hash, boolean write) {
+	    int index = find(key, hash);
+	    if (index < 0) {
+		return 0;
+	    }
+	    return write ? writes[index] : reads[index];
+	}
+
+	synchronized void remove(Object key, int hash) {
+	    int hole = find(key, hash);
+	    if (hole < 0) {
+		return;
+	    }
+	    int mask = keys.length - 1;
+	    for (int i = (hole + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+		// a key can fill the hole if the hole is not before its home slot
+		int home = hashes[i] & mask;
+		if (((i - home) & mask) >= ((i - hole) & mask)) {
+		    keys[hole] = keys[i];
+		    hashes[hole] = hashes[i];
+		    reads[hole] = reads[i];
+		    writes[hole] = writes[i];
+		    hole = i;
+		}
+	    }
+	    keys[hole] = null;
+	    reads[hole] = 0;
+	    writes[hole] = 0;
+	    size--;
+	}
+
+	synchronized void collect(SortedCollectionWithCapacity<HotKeyCandidate> results, Predicate<Object> filter,
+		int minTouchCount) {
+	    for (int i = 0; i < keys.length; i++) {
+		if (keys[i] == null) {
+		    continue;
+		}
+		int touchCount = (int) Math.min((long) reads[i] + writes[i], Integer.MAX_VALUE);
+		if (touchCount >= minTouchCount && results.accepts(touchCount)
+			&& (filter == null || filter.test(keys[i]))) {
+		    results.add(new HotKeyCandidate((Binary) keys[i], touchCount));
+		}
+	    }
+	}
+
+	synchronized void clear() {
+	    allocate(INITIAL_STRIPE_CAPACITY);
+	    size = 0;
+	}
+
+	/**
+	 * Returns the slot of a key, or the complement of the free slot it would
+	 * go to.
+	 */
+	private int find(Object key, int hash) {
+	    int mask = keys.length - 1;
+	    for (int i = hash & mask;; i = (i + 1) & mask) {
+		Object slotKey = keys[i];
+		if (slotKey == null) {
+		    return ~i;
+		}
+		if (hashes[i] == hash && slotKey.equals(key)) {
+		    return i;
+		}
+	    }
+	}
+
+	private void resize() {
+	    Object[] oldKeys = keys;
+	    int[] oldHashes = hashes;
+	    int[] oldReads = reads;
+	    int[] oldWrites = writes;
+	    allocate(oldKeys.length * 2);
+	    int mask = keys.length - 1;
+	    for (int i = 0; i < oldKeys.length; i++) {
+		if (oldKeys[i] != null) {
+		    int index = oldHashes[i] & mask;
+		    while (keys[index] != null) {
+			index = (index + 1) & mask;
+		    }
+		    keys[index] = oldKeys[i];
+		    hashes[index] = oldHashes[i];
+		    reads[index] = oldReads[i];
+		    writes[index] = oldWrites[i];
+		}
+	    }
+	}
+
+	private void allocate(int capacity) {
+	    keys = new Object[capacity];
+	    hashes = new int[capacity];
+	    reads = new int[capacity];
+	    writes = new int[capacity];
+	}
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.mycompany.coherence.hotkeys.tracker;
+
+import java.io.Serializable;
+
+/**
+ * Exponentially decayed access rates of a key, in accesses per second, over
+ * the 1, 5 and 15 minute windows.
+ */
+public class AccessRates implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final double oneMinuteRate;
+    private final double fiveMinuteRate;
+    private final double fifteenMinuteRate;
+
+    /**
+     * AccessRates sole constructor.
+     * 
+     * @param oneMinuteRate     rate over the last minute
+     * @param fiveMinuteRate    rate over the last 5 minutes
+     * @param fifteenMinuteRate rate over the last 15 minutes
+     */
+    public AccessRates(double oneMinuteRate, double fiveMinuteRate, double fifteenMinuteRate) {
+	this.oneMinuteRate = oneMinuteRate;
+	this.fiveMinuteRate = fiveMinuteRate;
+	this.fifteenMinuteRate = fifteenMinuteRate;
+    }
+
+    public double getOneMinuteRate() {
+	return oneMinuteRate;
+    }
+
+    public double getFiveMinuteRate() {
+	return fiveMinuteRate;
+    }
+
+    public double getFifteenMinuteRate() {
+	return fifteenMinuteRate;
+    }
+
+    /**
+     * Returns the rate over a window.
+     * 
+     * @param window
+     * @return double
+     */
+    public double getRate(RateWindow window) {
+	switch (window) {
+	case ONE_MINUTE:
+	    return oneMinuteRate;
+	case FIVE_MINUTES:
+	    return fiveMinuteRate;
+	default:
+	    return fifteenMinuteRate;
+	}
+    }
+
+    /**
+     * Returns the rates per second.
+     * 
+     * @return String
+     */
+    public String toString() {
+	return String.format("[1m=%.2f/s, 5m=%.2f/s, 15m=%.2f/s]", oneMinuteRate, fiveMinuteRate, fifteenMinuteRate);
+    }
+}
@@ -0,0 +1,363 @@
+package com.mycompany.coherence.hotkeys.tracker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import com.mycompany.coherence.hotkeys.invocable.HotKeyCandidate;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.util.Binary;
+
+/**
+ * Fixed memory heavy hitters sketch implementing the Space-Saving algorithm
+ * (Metwally, Agrawal, El Abbadi).
+ * <p>
+ * The sketch monitors at most capacity keys. A key that is not monitored when
+ * it is recorded replaces the monitored key of lowest count and inherits that
+ * count, remembered as its maximum overestimation error. Every key accessed
+ * more than N / capacity times, N being the number of accesses recorded, is
+ * guaranteed to be monitored, and every count is overestimated by at most N /
+ * capacity.
+ * <p>
+ * To keep contention low the sketch is split in independently locked stripes,
+ * a key always going to the same stripe; the error bound then applies per
+ * stripe, with N being the accesses recorded by the stripe and capacity the
+ * stripe capacity.
+ * <p>
+ * Besides its lifetime count, each monitored key keeps exponentially decayed
+ * access rates over 1, 5 and 15 minutes, updated every 5 seconds, so that keys
+ * can also be ranked on their recent heat rather than on their history.
+ */
+public class HeavyHitterSketch {
+
+    private final Stripe[] stripes;
+    private final int capacity;
+
+    /**
+     * HeavyHitterSketch sole constructor.
+     * 
+     * @param capacity    total number of monitored keys, which bounds memory use
+     * @param stripeCount number of independently locked stripes
+     */
+    public HeavyHitterSketch(int capacity, int stripeCount) {
+	if (capacity <= 0 || stripeCount <= 0) {
+	    throw new IllegalArgumentException("capacity and stripe count must be positive");
+	}
+	int stripeCapacity = (capacity + stripeCount - 1) / stripeCount;
+	this.stripes = new Stripe[stripeCount];
+	for (int i = 0; i < stripeCount; i++) {
+	    stripes[i] = new Stripe(stripeCapacity);
+	}
+	this.capacity = stripeCapacity * stripeCount;
+    }
+
+    /**
+     * Returns the capacity needed for counts to be overestimated by at most
+     * errorBound times the number of recorded accesses.
+     * 
+     * @param errorBound    relative error bound, between 0 and 1
+     * @param stripeCount   number of stripes of the sketch
+     * @return int
+     */
+    public static int getCapacity(double errorBound, int stripeCount) {
+	if (errorBound <= 0 || errorBound >= 1) {
+	    throw new IllegalArgumentException("error bound must be between 0 and 1");
+	}
+	// a stripe sees about 1/stripeCount of the accesses
+	return (int) Math.ceil(1 / errorBound) * stripeCount;
+    }
+
+    /**
+     * Records an access to a key.
+     * 
+     * @param key internal key of the accessed entry
+     */
+    public void record(Object key) {
+	stripes[(spread(key.hashCode()) & 0x7fffffff) % stripes.length].record(key, System.nanoTime());
+    }
+
+    /**
+     * Adds the monitored keys matching a filter to a top n, ranked on their
+     * estimated lifetime count, or on their decayed rate over a window times the
+     * length of the window, i.e. their number of accesses over the window at
+     * the current rate.
+     * 
+     * @param results the top n to add to
+     * @param filter  filter on the internal keys, may be null
+     * @param window  window of the decayed count to rank on, null to rank on
+     *                the lifetime count
+     */
+    public void collect(SortedCollectionWithCapacity<HotKeyCandidate> results, Predicate<Object> filter,
+	    RateWindow window) {
+	long now = System.nanoTime();
+	for (Stripe stripe : stripes) {
+	    stripe.collect(results, filter, window, now);
+	}
+    }
+
+    /**
+     * Returns the total number of monitored keys.
+     * 
+     * @return int
+     */
+    public int getCapacity() {
+	return capacity;
+    }
+
+    /**
+     * Returns the number of accesses recorded.
+     * 
+     * @return long
+     */
+    public long getRecordedCount() {
+	long total = 0;
+	for (Stripe stripe : stripes) {
+	    synchronized (stripe) {
+		total += stripe.recorded;
+	    }
+	}
+	return total;
+    }
+
+    /**
+     * Returns the current maximum overestimation error of a count, i.e. the
+     * largest error over all stripes.
+     * 
+     * @return long
+     */
+    public long getMaxError() {
+	long maxError = 0;
+	for (Stripe stripe : stripes) {
+	    synchronized (stripe) {
+		if (stripe.size == stripe.heap.length) {
+		    maxError = Math.max(maxError, stripe.heap[0].count);
+		}
+	    }
+	}
+	return maxError;
+    }
+
+    /**
+     * Forgets all monitored keys.
+     */
+    public void clear() {
+	for (Stripe stripe : stripes) {
+	    stripe.clear();
+	}
+    }
+
+    private static int spread(int hash) {
+	return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Counter of a monitored key, with its decayed rates.
+     */
+    private static final class Counter {
+
+	private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(RateWindow.TICK_SECONDS);
+
+	Object key;
+	long count;
+	long error;
+	int index;
+
+	long uncounted;
+	long lastTick;
+	boolean ticked;
+	double oneMinuteRate;
+	double fiveMinuteRate;
+	double fifteenMinuteRate;
+
+	/**
+	 * Starts monitoring a key.
+	 */
+	void reset(Object key, long now) {
+	    this.key = key;
+	    this.uncounted = 0;
+	    this.lastTick = now;
+	    this.ticked = false;
+	    this.oneMinuteRate = 0;
+	    this.fiveMinuteRate = 0;
+	    this.fifteenMinuteRate = 0;
+	}
+
+	void mark(long now) {
+	    tick(now);
+	    count++;
+	    uncounted++;
+	}
+
+	/**
+	 * Folds the accesses of the elapsed ticks into the decayed rates.
+	 */
+	void tick(long now) {
+	    long ticks = (now - lastTick) / TICK_NANOS;
+	    if (ticks <= 0) {
+		return;
+	    }
+	    lastTick += ticks * TICK_NANOS;
+	    double instantRate = (double) uncounted / RateWindow.TICK_SECONDS;
+	    uncounted = 0;
+	    if (!ticked) {
+		oneMinuteRate = instantRate;
+		fiveMinuteRate = instantRate;
+		fifteenMinuteRate = instantRate;
+		ticked = true;
+	    } else {
+		oneMinuteRate = decay(oneMinuteRate, instantRate, RateWindow.ONE_MINUTE, 1);
+		fiveMinuteRate = decay(fiveMinuteRate, instantRate, RateWindow.FIVE_MINUTES, 1);
+		fifteenMinuteRate = decay(fifteenMinuteRate, instantRate, RateWindow.FIFTEEN_MINUTES, 1);
+	    }
+	    if (ticks > 1) {
+		// ticks without any access
+		oneMinuteRate = decay(oneMinuteRate, 0, RateWindow.ONE_MINUTE, ticks - 1);
+		fiveMinuteRate = decay(fiveMinuteRate, 0, RateWindow.FIVE_MINUTES, ticks - 1);
+		fifteenMinuteRate = decay(fifteenMinuteRate, 0, RateWindow.FIFTEEN_MINUTES, ticks - 1);
+	    }
+	}
+
+	private static double decay(double rate, double instantRate, RateWindow window, long ticks) {
+	    if (ticks == 1) {
+		return rate + window.getAlpha() * (instantRate - rate);
+	    }
+	    return rate * Math.pow(1 - window.getAlpha(), ticks);
+	}
+
+	/**
+	 * Returns the decayed rate over a window, including the accesses of the
+	 * ongoing tick pro rata of its elapsed time, so that a key that just
+	 * turned hot shows before the end of the tick. The counter must have been
+	 * ticked up to now.
+	 */
+	double getRate(RateWindow window, long now) {
+	    double elapsed = (double) (now - lastTick) / TICK_NANOS;
+	    if (!ticked) {
+		return (double) uncounted / RateWindow.TICK_SECONDS;
+	    }
+	    double rate;
+	    switch (window) {
+	    case ONE_MINUTE:
+		rate = oneMinuteRate;
+		break;
+	    case FIVE_MINUTES:
+		rate = fiveMinuteRate;
+		break;
+	    default:
+		rate = fifteenMinuteRate;
+	    }
+	    if (uncounted == 0 || elapsed <= 0) {
+		return rate;
+	    }
+	    double instantRate = uncounted / (elapsed * RateWindow.TICK_SECONDS);
+	    return rate + window.getAlpha() * elapsed * (instantRate - rate);
+	}
+
+	AccessRates getRates(long now) {
+	    return new AccessRates(getRate(RateWindow.ONE_MINUTE, now), getRate(RateWindow.FIVE_MINUTES, now),
+		    getRate(RateWindow.FIFTEEN_MINUTES, now));
+	}
+    }
+
+    /**
+     * Space-Saving stripe: monitored keys with their counter, the counters
+     * being kept in a min-heap on their count.
+     */
+    private static final class Stripe {
+
+	private final Map<Object, Counter> counters;
+	private final Counter[] heap;
+	private int size;
+	private long recorded;
+
+	Stripe(int capacity) {
+	    this.counters = new HashMap<>(capacity * 4 / 3 + 1);
+	    this.heap = new Counter[capacity];
+	}
+
+	synchronized void record(Object key, long now) {
+	    recorded++;
+	    Counter counter = counters.get(key);
+	    if (counter == null) {
+		if (size < heap.length) {
+		    counter = new Counter();
+		    counter.reset(key, now);
+		    counter.mark(now);
+		    counter.index = size;
+		    heap[size++] = counter;
+		    counters.put(key, counter);
+		    siftUp(counter.index);
+		    return;
+		}
+		// replace the key of lowest count, reusing its counter
+		counter = heap[0];
+		counters.remove(counter.key);
+		counter.error = counter.count;
+		counter.reset(key, now);
+		counters.put(key, counter);
+	    }
+	    counter.mark(now);
+	    siftDown(counter.index);
+	}
+
+	synchronized void collect(SortedCollectionWithCapacity<HotKeyCandidate> results, Predicate<Object> filter,
+		RateWindow window, long now) {
+	    for (int i = 0; i < size; i++) {
+		Counter counter = heap[i];
+		counter.tick(now);
+		long count = window == null ? counter.count
+			: Math.round(counter.getRate(window, now) * window.getSeconds());
+		int rank = (int) Math.min(count, Integer.MAX_VALUE);
+		if (results.accepts(rank) && (filter == null || filter.test(counter.key))) {
+		    results.add(new HotKeyCandidate((Binary) counter.key, rank, counter.getRates(now)));
+		}
+	    }
+	}
+
+	synchronized void clear() {
+	    counters.clear();
+	    for (int i = 0; i < size; i++) {
+		heap[i] = null;
+	    }
+	    size = 0;
+	    recorded = 0;
+	}
+
+	private void siftUp(int index) {
+	    Counter counter = heap[index];
+	    while (index > 0) {
+		int parent = (index - 1) >>> 1;
+		if (heap[parent].count <= counter.count) {
+		    break;
+		}
+		heap[index] = heap[parent];
+		heap[index].index = index;
+		index = parent;
+	    }
+	    heap[index] = counter;
+	    counter.index = index;
+	}
+
+	private void siftDown(int index) {
+	    Counter counter = heap[index];
+	    int half = size >>> 1;
+	    while (index < half) {
+		int child = 2 * index + 1;
+		int right = child + 1;
+		if (right < size && heap[right].count < heap[child].count) {
+		    child = right;
+		}
+		if (counter.count <= heap[child].count) {
+		    break;
+		}
+		heap[index] = heap[child];
+		heap[index].index = index;
+		index = child;
+	    }
+	    heap[index] = counter;
+	    counter.index = index;
+	}
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.mycompany.coherence.hotkeys.tracker;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per member registry of the heavy hitters sketches, one per tracked cache.
+ * Backing maps of a tracked cache, one per partition when the backing map is
+ * partitioned, all record into the same sketch.
+ */
+public final class HotKeyTracker {
+
+    private static final ConcurrentMap<String, HeavyHitterSketch> sketches = new ConcurrentHashMap<>();
+
+    private HotKeyTracker() {
+    }
+
+    /**
+     * Returns the sketch of a cache, creating it if needed.
+     * 
+     * @param cacheName   cache name
+     * @param capacity    number of monitored keys if the sketch is created
+     * @param stripeCount number of stripes if the sketch is created
+     * @return HeavyHitterSketch
+     */
+    public static HeavyHitterSketch register(String cacheName, int capacity, int stripeCount) {
+	return sketches.computeIfAbsent(cacheName, name -> new HeavyHitterSketch(capacity, stripeCount));
+    }
+
+    /**
+     * Returns the sketch of a cache, or null if the cache is not tracked on this
+     * member.
+     * 
+     * @param cacheName cache name
+     * @return HeavyHitterSketch
+     */
+    public static HeavyHitterSketch getSketch(String cacheName) {
+	return sketches.get(cacheName);
+    }
+
+}
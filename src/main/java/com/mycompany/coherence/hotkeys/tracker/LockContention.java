@@ -0,0 +1,170 @@
+package com.mycompany.coherence.hotkeys.tracker;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry processor statistics of a key, recorded by a LockContentionTracker:
+ * the number of invocations and, for the invocations of a
+ * TimedEntryProcessor, the cumulative and max time waited for the key lock and
+ * spent executing while holding it.
+ */
+public class LockContention implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long invocations;
+    private final long timedInvocations;
+    private final long totalLockWaitNanos;
+    private final long maxLockWaitNanos;
+    private final long totalExecutionNanos;
+    private final long maxExecutionNanos;
+
+    /**
+     * What the keys are ranked on, as touch count, when collected in
+     * LOCK_CONTENTION mode.
+     */
+    public enum Metric {
+	/**
+	 * Number of entry processor invocations.
+	 */
+	INVOCATIONS,
+	/**
+	 * Cumulative lock wait, in microseconds.
+	 */
+	LOCK_WAIT,
+	/**
+	 * Cumulative execution time, i.e. time the key lock was held, in
+	 * microseconds.
+	 */
+	EXECUTION
+    }
+
+    /**
+     * LockContention sole constructor.
+     * 
+     * @param invocations         number of invocations
+     * @param timedInvocations    number of invocations whose times are known
+     * @param totalLockWaitNanos  cumulative lock wait of the timed invocations
+     * @param maxLockWaitNanos    longest lock wait
+     * @param totalExecutionNanos cumulative execution time of the timed
+     *                            invocations
+     * @param maxExecutionNanos   longest execution time
+     */
+    public LockContention(long invocations, long timedInvocations, long totalLockWaitNanos, long maxLockWaitNanos,
+	    long totalExecutionNanos, long maxExecutionNanos) {
+	this.invocations = invocations;
+	this.timedInvocations = timedInvocations;
+	this.totalLockWaitNanos = totalLockWaitNanos;
+	this.maxLockWaitNanos = maxLockWaitNanos;
+	this.totalExecutionNanos = totalExecutionNanos;
+	this.maxExecutionNanos = maxExecutionNanos;
+    }
+
+    public long getInvocations() {
+	return invocations;
+    }
+
+    public long getTimedInvocations() {
+	return timedInvocations;
+    }
+
+    public long getTotalLockWaitNanos() {
+	return totalLockWaitNanos;
+    }
+
+    public long getMaxLockWaitNanos() {
+	return maxLockWaitNanos;
+    }
+
+    public long getTotalExecutionNanos() {
+	return totalExecutionNanos;
+    }
+
+    public long getMaxExecutionNanos() {
+	return maxExecutionNanos;
+    }
+
+    /**
+     * Returns the value of a metric, saturated at Integer.MAX_VALUE so that it
+     * can be ranked on as a touch count.
+     * 
+     * @param metric
+     * @return int
+     */
+    public int getRank(Metric metric) {
+	long value;
+	switch (metric) {
+	case LOCK_WAIT:
+	    value = TimeUnit.NANOSECONDS.toMicros(totalLockWaitNanos);
+	    break;
+	case EXECUTION:
+	    value = TimeUnit.NANOSECONDS.toMicros(totalExecutionNanos);
+	    break;
+	default:
+	    value = invocations;
+	}
+	return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Packs statistics, six longs each, a negative invocation count standing
+     * for unknown statistics.
+     * 
+     * @param contentions statistics, possibly null
+     * @return long[]
+     */
+    public static long[] pack(LockContention[] contentions) {
+	long[] packed = new long[contentions.length * 6];
+	for (int i = 0; i < contentions.length; i++) {
+	    LockContention contention = contentions[i];
+	    if (contention == null) {
+		packed[i * 6] = -1;
+		continue;
+	    }
+	    packed[i * 6] = contention.invocations;
+	    packed[i * 6 + 1] = contention.timedInvocations;
+	    packed[i * 6 + 2] = contention.totalLockWaitNanos;
+	    packed[i * 6 + 3] = contention.maxLockWaitNanos;
+	    packed[i * 6 + 4] = contention.totalExecutionNanos;
+	    packed[i * 6 + 5] = contention.maxExecutionNanos;
+	}
+	return packed;
+    }
+
+    /**
+     * Unpacks statistics packed by {@link #pack(LockContention[])}.
+     * 
+     * @param packed packed statistics, possibly null or empty
+     * @return LockContention[] or null if there are no packed statistics
+     */
+    public static LockContention[] unpack(long[] packed) {
+	if (packed == null || packed.length == 0) {
+	    return null;
+	}
+	LockContention[] contentions = new LockContention[packed.length / 6];
+	for (int i = 0; i < contentions.length; i++) {
+	    if (packed[i * 6] >= 0) {
+		contentions[i] = new LockContention(packed[i * 6], packed[i * 6 + 1], packed[i * 6 + 2],
+			packed[i * 6 + 3], packed[i * 6 + 4], packed[i * 6 + 5]);
+	    }
+	}
+	return contentions;
+    }
+
+    /**
+     * Returns the invocations and, if some were timed, the times in
+     * microseconds.
+     * 
+     * @return String
+     */
+    public String toString() {
+	if (timedInvocations == 0) {
+	    return "[invocations=" + invocations + "]";
+	}
+	return "[invocations=" + invocations + ", lockWaitMicros=" + TimeUnit.NANOSECONDS.toMicros(totalLockWaitNanos)
+		+ ", maxLockWaitMicros=" + TimeUnit.NANOSECONDS.toMicros(maxLockWaitNanos) + ", executionMicros="
+		+ TimeUnit.NANOSECONDS.toMicros(totalExecutionNanos) + ", maxExecutionMicros="
+		+ TimeUnit.NANOSECONDS.toMicros(maxExecutionNanos) + "]";
+    }
+}
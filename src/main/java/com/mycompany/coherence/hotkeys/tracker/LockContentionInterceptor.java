@@ -0,0 +1,62 @@
+package com.mycompany.coherence.hotkeys.tracker;
+
+import com.tangosol.net.events.EventInterceptor;
+import com.tangosol.net.events.annotation.Interceptor;
+import com.tangosol.net.events.partition.cache.EntryProcessorEvent;
+import com.tangosol.util.BinaryEntry;
+
+/**
+ * Storage side interceptor recording every entry processor executed on a
+ * cache into the LockContentionTracker of the cache: an invocation per key
+ * and, for a TimedEntryProcessor, the time it waited for the lock of the key
+ * and the time its execution held it, see
+ * {@link com.mycompany.coherence.hotkeys.invocable.HotKeyInvocable.Mode#LOCK_CONTENTION}.
+ * <p>
+ * It handles the EXECUTED events, which are dispatched once the processor
+ * has run, on the event dispatcher thread of the service, so that recording
+ * adds nothing to the time the locks are held. Register it in the
+ * interceptors of the distributed schemes of the caches to track.
+ */
+@Interceptor(identifier = "HotKeysLockContention", entryProcessorEvents = EntryProcessorEvent.Type.EXECUTED)
+public class LockContentionInterceptor implements EventInterceptor<EntryProcessorEvent> {
+
+    /**
+     * Number of keys each thread recording into a tracker keeps by default.
+     */
+    public static final int DEFAULT_KEYS_PER_THREAD = 4096;
+
+    private final int maxKeysPerThread;
+
+    /**
+     * Default constructor, keeping the default number of keys per thread.
+     */
+    public LockContentionInterceptor() {
+	this(DEFAULT_KEYS_PER_THREAD);
+    }
+
+    /**
+     * LockContentionInterceptor constructor.
+     * 
+     * @param maxKeysPerThread number of keys each thread recording into a
+     *                         tracker keeps
+     */
+    public LockContentionInterceptor(int maxKeysPerThread) {
+	this.maxKeysPerThread = maxKeysPerThread;
+    }
+
+    public void onEvent(EntryProcessorEvent event) {
+	String cacheName = event.getDispatcher().getBackingMapContext().getCacheName();
+	LockContentionTracker tracker = LockContentionTracker.register(cacheName, maxKeysPerThread);
+	long lockWaitNanos = -1;
+	long executionNanos = -1;
+	if (event.getProcessor() instanceof TimedEntryProcessor) {
+	    TimedEntryProcessor<?, ?, ?> processor = (TimedEntryProcessor<?, ?, ?>) event.getProcessor();
+	    lockWaitNanos = processor.getLockWaitNanos();
+	    executionNanos = processor.getExecutionNanos();
+	}
+	for (BinaryEntry entry : event.getEntrySet()) {
+	    tracker.record(entry.getBinaryKey(), lockWaitNanos, executionNanos);
+	}
+    }
+
+}
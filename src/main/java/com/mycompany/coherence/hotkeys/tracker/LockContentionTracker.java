@@ -0,0 +1,322 @@
+package com.mycompany.coherence.hotkeys.tracker;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+import com.mycompany.coherence.hotkeys.invocable.HotKeyCandidate;
+import com.mycompany.coherence.hotkeys.util.SortedCollectionWithCapacity;
+import com.tangosol.util.Binary;
+
+/**
+ * Per key entry processor statistics of a cache, recorded by a
+ * LockContentionInterceptor, with the per member registry of the trackers, one
+ * per cache.
+ * <p>
+ * Each recording thread has a table of its own, so that threads recording the
+ * same hot key never contend: a table is only locked by its thread, and by a
+ * collection while it is merged. A table is a linear probing hash table of
+ * primitive arrays growing up to a number of keys; when it is full, the half of
+ * its keys that held their locks the least is evicted, their statistics being
+ * lost, so that the keys that throttle the writes are the ones kept. The
+ * tables are merged on demand by {@link #collect}; tables of threads that
+ * ended are kept, for their statistics not to be lost.
+ */
+public class LockContentionTracker {
+
+    private static final ConcurrentMap<String, LockContentionTracker> trackers = new ConcurrentHashMap<>();
+
+    private static final int INITIAL_TABLE_CAPACITY = 16;
+
+    private static final int STATS = 6;
+    private static final int INVOCATIONS = 0;
+    private static final int TIMED_INVOCATIONS = 1;
+    private static final int TOTAL_LOCK_WAIT = 2;
+    private static final int MAX_LOCK_WAIT = 3;
+    private static final int TOTAL_EXECUTION = 4;
+    private static final int MAX_EXECUTION = 5;
+
+    private final int maxKeysPerThread;
+    private final List<ThreadTable> tables = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<ThreadTable> localTable = ThreadLocal.withInitial(this::newTable);
+
+    /**
+     * LockContentionTracker sole constructor.
+     * 
+     * @param maxKeysPerThread number of keys each recording thread keeps
+     */
+    public LockContentionTracker(int maxKeysPerThread) {
+	if (maxKeysPerThread <= 1) {
+	    throw new IllegalArgumentException("the number of keys per thread must be at least 2");
+	}
+	this.maxKeysPerThread = maxKeysPerThread;
+    }
+
+    /**
+     * Returns the tracker of a cache, creating it if needed.
+     * 
+     * @param cacheName        cache name
+     * @param maxKeysPerThread number of keys per thread if the tracker is
+     *                         created
+     * @return LockContentionTracker
+     */
+    public static LockContentionTracker register(String cacheName, int maxKeysPerThread) {
+	LockContentionTracker tracker = trackers.get(cacheName);
+	if (tracker == null) {
+	    tracker = trackers.computeIfAbsent(cacheName, name -> new LockContentionTracker(maxKeysPerThread));
+	}
+	return tracker;
+    }
+
+    /**
+     * Returns the tracker of a cache, or null if no invocation of the cache
+     * was recorded on this member.
+     * 
+     * @param cacheName cache name
+     * @return LockContentionTracker
+     */
+    public static LockContentionTracker getTracker(String cacheName) {
+	return trackers.get(cacheName);
+    }
+
+    /**
+     * Records an invocation of an entry processor on a key, by the calling
+     * thread.
+     * 
+     * @param key             internal key of the entry
+     * @param lockWaitNanos   time waited for the key lock, negative if unknown
+     * @param executionNanos  time spent executing, negative if unknown
+     */
+    public void record(Binary key, long lockWaitNanos, long executionNanos) {
+	localTable.get().record(key, mix(key.hashCode()), lockWaitNanos, executionNanos);
+    }
+
+    /**
+     * Merges the tables of all threads and adds the keys matching a filter to
+     * a top n, ranked on a metric as touch count.
+     * 
+     * @param results       the top n to add to
+     * @param filter        filter on the internal keys, may be null
+     * @param metric        metric ranked on
+     * @param minTouchCount lowest metric value of the keys added
+     */
+    public void collect(SortedCollectionWithCapacity<HotKeyCandidate> results, Predicate<Object> filter,
+	    LockContention.Metric metric, int minTouchCount) {
+	for (Map.Entry<Binary, LockContention> entry : merge().entrySet()) {
+	    int rank = entry.getValue().getRank(metric);
+	    if (rank >= minTouchCount && results.accepts(rank) && (filter == null || filter.test(entry.getKey()))) {
+		results.add(new HotKeyCandidate(entry.getKey(), rank, null, entry.getValue()));
+	    }
+	}
+    }
+
+    /**
+     * Returns the statistics of all the keys, merged over the threads.
+     * 
+     * @return Map of statistics by internal key
+     */
+    public Map<Binary, LockContention> merge() {
+	Map<Binary, long[]> merged = new HashMap<>();
+	for (ThreadTable table : tables) {
+	    table.mergeInto(merged);
+	}
+	Map<Binary, LockContention> contentions = new HashMap<>(merged.size() * 2);
+	for (Map.Entry<Binary, long[]> entry : merged.entrySet()) {
+	    long[] stats = entry.getValue();
+	    contentions.put(entry.getKey(), new LockContention(stats[INVOCATIONS], stats[TIMED_INVOCATIONS],
+		    stats[TOTAL_LOCK_WAIT], stats[MAX_LOCK_WAIT], stats[TOTAL_EXECUTION], stats[MAX_EXECUTION]));
+	}
+	return contentions;
+    }
+
+    /**
+     * Forgets the statistics of all keys.
+     */
+    public void clear() {
+	for (ThreadTable table : tables) {
+	    table.clear();
+	}
+    }
+
+    private ThreadTable newTable() {
+	ThreadTable table = new ThreadTable(maxKeysPerThread);
+	tables.add(table);
+	return table;
+    }
+
+    /**
+     * Mixes all bits of a hash code into the low bits the slot of a key is
+     * taken from.
+     */
+    private static int mix(int hash) {
+	hash ^= hash >>> 16;
+	hash *= 0x85ebca6b;
+	hash ^= hash >>> 13;
+	hash *= 0xc2b2ae35;
+	return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Linear probing hash table of the statistics of the keys recorded by a
+     * thread, six longs per key, kept at most half full by doubling its
+     * capacity until it holds the maximum number of keys.
+     */
+    private static final class ThreadTable {
+
+	private final int maxKeys;
+	private Binary[] keys;
+	private int[] hashes;
+	private long[] stats;
+	private int size;
+
+	ThreadTable(int maxKeys) {
+	    this.maxKeys = maxKeys;
+	    allocate(INITIAL_TABLE_CAPACITY);
+	}
+
+	synchronized void record(Binary key, int hash, long lockWaitNanos, long executionNanos) {
+	    int index = find(key, hash);
+	    if (index < 0) {
+		if (size >= maxKeys) {
+		    evictHalf();
+		    index = find(key, hash);
+		} else if (size >= keys.length >>> 1) {
+		    rehash(keys.length * 2, null, keys.length);
+		    index = find(key, hash);
+		}
+		index = ~index;
+		keys[index] = key;
+		hashes[index] = hash;
+		size++;
+	    }
+	    int offset = index * STATS;
+	    stats[offset + INVOCATIONS]++;
+	    if (lockWaitNanos >= 0 && executionNanos >= 0) {
+		stats[offset + TIMED_INVOCATIONS]++;
+		stats[offset + TOTAL_LOCK_WAIT] += lockWaitNanos;
+		stats[offset + MAX_LOCK_WAIT] = Math.max(stats[offset + MAX_LOCK_WAIT], lockWaitNanos);
+		stats[offset + TOTAL_EXECUTION] += executionNanos;
+		stats[offset + MAX_EXECUTION] = Math.max(stats[offset + MAX_EXECUTION], executionNanos);
+	    }
+	}
+
+	synchronized void mergeInto(Map<Binary, long[]> merged) {
+	    for (int i = 0; i < keys.length; i++) {
+		if (keys[i] == null) {
+		    continue;
+		}
+		int offset = i * STATS;
+		long[] sums = merged.get(keys[i]);
+		if (sums == null) {
+		    merged.put(keys[i], Arrays.copyOfRange(stats, offset, offset + STATS));
+		} else {
+		    sums[INVOCATIONS] += stats[offset + INVOCATIONS];
+		    sums[TIMED_INVOCATIONS] += stats[offset + TIMED_INVOCATIONS];
+		    sums[TOTAL_LOCK_WAIT] += stats[offset + TOTAL_LOCK_WAIT];
+		    sums[MAX_LOCK_WAIT] = Math.max(sums[MAX_LOCK_WAIT], stats[offset + MAX_LOCK_WAIT]);
+		    sums[TOTAL_EXECUTION] += stats[offset + TOTAL_EXECUTION];
+		    sums[MAX_EXECUTION] = Math.max(sums[MAX_EXECUTION], stats[offset + MAX_EXECUTION]);
+		}
+	    }
+	}
+
+	synchronized void clear() {
+	    allocate(INITIAL_TABLE_CAPACITY);
+	    size = 0;
+	}
+
+	/**
+	 * Returns the slot of a key, or the complement of the free slot it would
+	 * go to.
+	 */
+	private int find(Binary key, int hash) {
+	    int mask = keys.length - 1;
+	    for (int i = hash & mask;; i = (i + 1) & mask) {
+		Binary slotKey = keys[i];
+		if (slotKey == null) {
+		    return ~i;
+		}
+		if (hashes[i] == hash && slotKey.equals(key)) {
+		    return i;
+		}
+	    }
+	}
+
+	/**
+	 * Keeps the half of the keys that held their locks the longest, or were
+	 * invoked the most when not timed, and rebuilds the table with them.
+	 */
+	private void evictHalf() {
+	    long[] heldTimes = new long[size];
+	    int count = 0;
+	    for (int i = 0; i < keys.length; i++) {
+		if (keys[i] != null) {
+		    heldTimes[count++] = heldTime(i);
+		}
+	    }
+	    Arrays.sort(heldTimes);
+	    long threshold = heldTimes[size / 2];
+	    int toKeep = size - size / 2 - 1;
+
+	    int[] kept = new int[toKeep];
+	    int keptCount = 0;
+	    for (int pass = 0; pass < 2 && keptCount < toKeep; pass++) {
+		for (int i = 0; i < keys.length && keptCount < toKeep; i++) {
+		    if (keys[i] == null) {
+			continue;
+		    }
+		    long heldTime = heldTime(i);
+		    // keys above the threshold first, then the ones tied with it
+		    if (pass == 0 ? heldTime > threshold : heldTime == threshold) {
+			kept[keptCount++] = i;
+		    }
+		}
+	    }
+	    rehash(keys.length, kept, keptCount);
+	}
+
+	/**
+	 * Moves keys to a new table of a capacity: the keys of the given slots,
+	 * or all keys when the slots are null.
+	 */
+	private void rehash(int capacity, int[] slots, int count) {
+	    Binary[] oldKeys = keys;
+	    int[] oldHashes = hashes;
+	    long[] oldStats = stats;
+	    allocate(capacity);
+	    int mask = capacity - 1;
+	    size = 0;
+	    for (int k = 0; k < count; k++) {
+		int i = slots == null ? k : slots[k];
+		if (oldKeys[i] == null) {
+		    continue;
+		}
+		int index = oldHashes[i] & mask;
+		while (keys[index] != null) {
+		    index = (index + 1) & mask;
+		}
+		keys[index] = oldKeys[i];
+		hashes[index] = oldHashes[i];
+		System.arraycopy(oldStats, i * STATS, stats, index * STATS, STATS);
+		size++;
+	    }
+	}
+
+	private long heldTime(int index) {
+	    int offset = index * STATS;
+	    return stats[offset + TOTAL_LOCK_WAIT] + stats[offset + TOTAL_EXECUTION] + stats[offset + INVOCATIONS];
+	}
+
+	private void allocate(int capacity) {
+	    keys = new Binary[capacity];
+	    hashes = new int[capacity];
+	    stats = new long[capacity * STATS];
+	}
+    }
+
+}
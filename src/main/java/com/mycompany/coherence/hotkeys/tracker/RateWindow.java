@@ -0,0 +1,57 @@
+package com.mycompany.coherence.hotkeys.tracker;
+
+/**
+ * Windows of the exponentially decayed access rates, in the manner of the Unix
+ * load averages: the weight of past accesses is divided by e every window.
+ */
+public enum RateWindow {
+
+    ONE_MINUTE(60), FIVE_MINUTES(300), FIFTEEN_MINUTES(900);
+
+    /**
+     * Interval in seconds between two updates of a decayed rate.
+     */
+    static final int TICK_SECONDS = 5;
+
+    private final int seconds;
+    private final double alpha;
+
+    private RateWindow(int seconds) {
+	this.seconds = seconds;
+	this.alpha = 1 - Math.exp(-(double) TICK_SECONDS / seconds);
+    }
+
+    /**
+     * Returns the length of the window in seconds.
+     * 
+     * @return int
+     */
+    public int getSeconds() {
+	return seconds;
+    }
+
+    /**
+     * Returns the weight of the last tick in the decayed rate.
+     * 
+     * @return double
+     */
+    double getAlpha() {
+	return alpha;
+    }
+
+    /**
+     * Returns the window of the given length in minutes.
+     * 
+     * @param minutes 1, 5 or 15
+     * @return RateWindow
+     */
+    public static RateWindow ofMinutes(int minutes) {
+	for (RateWindow window : values()) {
+	    if (window.seconds == minutes * 60) {
+		return window;
+	    }
+	}
+	throw new IllegalArgumentException("There is no " + minutes + " minute(s) rate window; use 1, 5 or 15.");
+    }
+
+}
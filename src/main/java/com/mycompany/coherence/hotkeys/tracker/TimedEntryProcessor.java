@@ -0,0 +1,157 @@
+package com.mycompany.coherence.hotkeys.tracker;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.tangosol.io.pof.PofReader;
+import com.tangosol.io.pof.PofWriter;
+import com.tangosol.io.pof.PortableObject;
+import com.tangosol.net.CacheFactory;
+import com.tangosol.net.Cluster;
+import com.tangosol.util.InvocableMap;
+
+/**
+ * Entry processor wrapping another one to time it for a
+ * LockContentionInterceptor: it carries the cluster time at which it was
+ * sent, and measures on the storage member the time from then to its
+ * execution, i.e. the time waited for the key lock, and the time its
+ * execution held the lock.
+ * <p>
+ * Storage members only deserialize an entry processor once it holds the lock
+ * of its key, so the wait cannot be measured from its arrival; it is measured
+ * from the cluster time at which the client serialized it, which also counts
+ * the transit and the wait in the queue of the service, at the millisecond
+ * resolution of the cluster time. Under contention on a key, the lock wait
+ * makes up most of it.
+ * 
+ * @param K The type of the key of cache entries
+ * @param V The type of the value of cache entries
+ * @param R The type of the result of the wrapped processor
+ */
+public class TimedEntryProcessor<K, V, R>
+	implements InvocableMap.EntryProcessor<K, V, R>, PortableObject, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private InvocableMap.EntryProcessor<K, V, R> processor;
+    private long sentMillis;
+    private transient long lockWaitNanos = -1;
+    private transient long executionNanos = -1;
+
+    /**
+     * Default constructor, for POF deserialization.
+     */
+    public TimedEntryProcessor() {
+    }
+
+    /**
+     * TimedEntryProcessor sole constructor.
+     * 
+     * @param processor the processor timed
+     */
+    public TimedEntryProcessor(InvocableMap.EntryProcessor<K, V, R> processor) {
+	this.processor = processor;
+	this.sentMillis = getClusterTimeMillis();
+    }
+
+    public R process(InvocableMap.Entry<K, V> entry) {
+	long startNanos = start();
+	try {
+	    return processor.process(entry);
+	} finally {
+	    executionNanos = System.nanoTime() - startNanos;
+	}
+    }
+
+    public Map<K, R> processAll(Set<? extends InvocableMap.Entry<K, V>> entries) {
+	long startNanos = start();
+	try {
+	    return processor.processAll(entries);
+	} finally {
+	    executionNanos = System.nanoTime() - startNanos;
+	}
+    }
+
+    /**
+     * Computes the lock wait once the execution starts.
+     */
+    private long start() {
+	lockWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(getClusterTimeMillis() - sentMillis, 0));
+	return System.nanoTime();
+    }
+
+    public InvocableMap.EntryProcessor<K, V, R> getProcessor() {
+	return processor;
+    }
+
+    /**
+     * Returns the time from the sending of this processor to its execution,
+     * once executed.
+     * 
+     * @return long nanoseconds, -1 if not executed
+     */
+    public long getLockWaitNanos() {
+	return lockWaitNanos;
+    }
+
+    /**
+     * Returns the time the execution of this processor took, once executed.
+     * 
+     * @return long nanoseconds, -1 if not executed
+     */
+    public long getExecutionNanos() {
+	return executionNanos;
+    }
+
+    /**
+     * Returns the time of the cluster, which members and clients agree on,
+     * falling back on the local time when not a cluster member.
+     */
+    private static long getClusterTimeMillis() {
+	Cluster cluster = CacheFactory.getCluster();
+	return cluster.isRunning() ? cluster.getTimeMillis() : System.currentTimeMillis();
+    }
+
+    /**
+     * Stamps the sending time when serialized.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+	sentMillis = getClusterTimeMillis();
+	out.defaultWriteObject();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+	in.defaultReadObject();
+	lockWaitNanos = -1;
+	executionNanos = -1;
+    }
+
+    /**
+     * POF readExternal
+     */
+    @SuppressWarnings("unchecked")
+    public void readExternal(PofReader pofReader) throws IOException {
+	processor = (InvocableMap.EntryProcessor<K, V, R>) pofReader.readObject(0);
+	sentMillis = pofReader.readLong(1);
+	lockWaitNanos = -1;
+	executionNanos = -1;
+    }
+
+    /**
+     * POF writeExternal; stamps the sending time.
+     */
+    public void writeExternal(PofWriter pofWriter) throws IOException {
+	sentMillis = getClusterTimeMillis();
+	pofWriter.writeObject(0, processor);
+	pofWriter.writeLong(1, sentMillis);
+    }
+
+    public String toString() {
+	return "TimedEntryProcessor [processor=" + processor + "]";
+    }
+}
@@ -0,0 +1,87 @@
+package com.mycompany.coherence.hotkeys.tracker;
+
+import com.tangosol.net.cache.LocalCache;
+import com.tangosol.util.SafeHashMap;
+
+/**
+ * Local cache recording every access to its entries into the heavy hitters
+ * sketch of its cache. It is meant to be configured as the class-scheme of a
+ * backing-map-scheme, passing {cache-name} as first init-param, see the sample
+ * cache config.
+ * <p>
+ * Accesses are recorded where the touch count of an entry is incremented, so
+ * that the sketch counts what LocalCache.Entry.getTouchCount() does.
+ */
+public class TrackingLocalCache extends LocalCache {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int DEFAULT_STRIPE_COUNT = 16;
+
+    private final HeavyHitterSketch sketch;
+
+    /**
+     * TrackingLocalCache constructor using the default sketch capacity and
+     * stripe count.
+     * 
+     * @param cacheName name of the cache this is the backing map of
+     */
+    public TrackingLocalCache(String cacheName) {
+	this(cacheName, DEFAULT_CAPACITY, DEFAULT_STRIPE_COUNT);
+    }
+
+    /**
+     * TrackingLocalCache constructor.
+     * 
+     * @param cacheName   name of the cache this is the backing map of
+     * @param capacity    number of keys monitored by the sketch of the cache
+     * @param stripeCount number of stripes of the sketch of the cache
+     */
+    public TrackingLocalCache(String cacheName, int capacity, int stripeCount) {
+	this(cacheName, capacity, stripeCount, DEFAULT_EXPIRE);
+    }
+
+    /**
+     * TrackingLocalCache constructor.
+     * 
+     * @param cacheName   name of the cache this is the backing map of
+     * @param capacity    number of keys monitored by the sketch of the cache
+     * @param stripeCount number of stripes of the sketch of the cache
+     * @param expiryDelay expiry delay of the entries in milliseconds, 0 for no
+     *                    expiry
+     */
+    public TrackingLocalCache(String cacheName, int capacity, int stripeCount, int expiryDelay) {
+	super(DEFAULT_UNITS, expiryDelay);
+	this.sketch = HotKeyTracker.register(cacheName, capacity, stripeCount);
+    }
+
+    /**
+     * TrackingLocalCache constructor sizing the sketch of the cache for a
+     * relative error bound of its counts, see
+     * {@link HeavyHitterSketch#getCapacity(double, int)}.
+     * 
+     * @param cacheName   name of the cache this is the backing map of
+     * @param capacity    number of keys monitored by the sketch of the cache,
+     *                    used when the error bound is 0
+     * @param stripeCount number of stripes of the sketch of the cache
+     * @param expiryDelay expiry delay of the entries in milliseconds, 0 for no
+     *                    expiry
+     * @param errorBound  relative error bound of the counts, between 0 and 1,
+     *                    or 0 to monitor capacity keys
+     */
+    public TrackingLocalCache(String cacheName, int capacity, int stripeCount, int expiryDelay, double errorBound) {
+	this(cacheName, errorBound == 0 ? capacity : HeavyHitterSketch.getCapacity(errorBound, stripeCount),
+		stripeCount, expiryDelay);
+    }
+
+    /**
+     * Records the access to an existing entry.
+     */
+    public SafeHashMap.Entry getEntry(Object key) {
+	SafeHashMap.Entry entry = super.getEntry(key);
+	if (entry != null) {
+	    sketch.record(key);
+	}
+	return entry;
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.mycompany.coherence.hotkeys.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Thread-safe top n folding the results of the members as they arrive,
+ * without locking: the top n is an immutable array sorted from high to low,
+ * replaced by compare-and-set with the merge of itself and a new result.
+ * <p>
+ * The elements of a result that cannot beat the current n-th element are
+ * left out before anything is sorted, with a primitive rank comparison and a
+ * key comparison on ties only, so that once the top n has settled most
+ * results only cost a scan of their ranks. The remaining elements are sorted
+ * and merged with the current top n, the merge stopping as soon as n elements
+ * are taken. A merge losing a race with another one is retried against the
+ * new top n.
+ * 
+ * @param K The type of the elements, should implement Comparable
+ */
+public class ConcurrentTopNMerger<K extends Comparable<K>> {
+
+	private final int topN;
+	private final AtomicReference<TopN> current = new AtomicReference<>(new TopN(new Object[0], new long[0]));
+
+	/**
+	 * ConcurrentTopNMerger sole constructor.
+	 * 
+	 * @param topN number of elements to keep
+	 */
+	public ConcurrentTopNMerger(int topN) {
+		this.topN = Math.max(topN, 0);
+	}
+
+	/**
+	 * Folds a result into the top n.
+	 * 
+	 * @param result top n of a member, or of a chunk of its partitions
+	 */
+	public void merge(SortedCollectionWithCapacity<K> result) {
+		TopN snapshot = current.get();
+		TopN incoming = sortedCandidates(result, snapshot);
+		while (incoming.size() > 0) {
+			if (snapshot.size() == topN && !isGreater(incoming, 0, snapshot, topN - 1)) {
+				return;
+			}
+			TopN merged = merge(snapshot, incoming);
+			if (current.compareAndSet(snapshot, merged)) {
+				return;
+			}
+			snapshot = current.get();
+		}
+	}
+
+	/**
+	 * Returns the top n as a new collection.
+	 * 
+	 * @return SortedCollectionWithCapacity
+	 */
+	public SortedCollectionWithCapacity<K> getResult() {
+		TopN snapshot = current.get();
+		SortedCollectionWithCapacity<K> result = new SortedCollectionWithCapacity<K>(topN);
+		// from low to high, each element is added at the bottom of the min-heap
+		// without moving
+		for (int i = snapshot.size() - 1; i >= 0; i--) {
+			result.add(cast(snapshot.elements[i]), snapshot.ranks[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the top n, ordered from high to low.
+	 * 
+	 * @return List
+	 */
+	public List<K> getReversedOrder() {
+		TopN snapshot = current.get();
+		List<K> elements = new ArrayList<K>(snapshot.size());
+		for (Object element : snapshot.elements) {
+			elements.add(cast(element));
+		}
+		return elements;
+	}
+
+	/**
+	 * Returns the number of elements of the top n.
+	 * 
+	 * @return int
+	 */
+	public int size() {
+		return current.get().size();
+	}
+
+	/**
+	 * Returns the elements of a result that may enter the top n, sorted from
+	 * high to low. The n-th element only grows, so filtering on an older top n
+	 * is safe.
+	 */
+	private TopN sortedCandidates(SortedCollectionWithCapacity<K> result, TopN snapshot) {
+		boolean full = snapshot.size() == topN && topN > 0;
+		long minRank = full ? snapshot.ranks[topN - 1] : Long.MIN_VALUE;
+		int count = 0;
+		Object[] elements = new Object[result.size()];
+		for (int i = 0; i < result.size(); i++) {
+			long rank = result.rankAt(i);
+			if (rank > minRank || (rank == minRank
+					&& (!full || result.elementAt(i).compareTo(cast(snapshot.elements[topN - 1])) > 0))) {
+				elements[count++] = result.elementAt(i);
+			}
+		}
+		Arrays.sort(elements, 0, count, (a, b) -> {
+			long rankA = rankOf(a);
+			long rankB = rankOf(b);
+			if (rankA != rankB) {
+				return Long.compare(rankB, rankA);
+			}
+			return cast(b).compareTo(cast(a));
+		});
+		int size = Math.min(count, topN);
+		long[] ranks = new long[size];
+		for (int i = 0; i < size; i++) {
+			ranks[i] = rankOf(elements[i]);
+		}
+		return new TopN(Arrays.copyOf(elements, size), ranks);
+	}
+
+	/**
+	 * Merges two top n sorted from high to low, stopping at n elements.
+	 */
+	private TopN merge(TopN left, TopN right) {
+		int size = Math.min(topN, left.size() + right.size());
+		Object[] elements = new Object[size];
+		long[] ranks = new long[size];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (k < size && i < left.size() && j < right.size()) {
+			if (isGreater(right, j, left, i)) {
+				elements[k] = right.elements[j];
+				ranks[k++] = right.ranks[j++];
+			} else {
+				elements[k] = left.elements[i];
+				ranks[k++] = left.ranks[i++];
+			}
+		}
+		if (k < size && i < left.size()) {
+			System.arraycopy(left.elements, i, elements, k, size - k);
+			System.arraycopy(left.ranks, i, ranks, k, size - k);
+		} else if (k < size) {
+			System.arraycopy(right.elements, j, elements, k, size - k);
+			System.arraycopy(right.ranks, j, ranks, k, size - k);
+		}
+		return new TopN(elements, ranks);
+	}
+
+	/**
+	 * Tells if the element at index i of a is greater than the element at
+	 * index j of b.
+	 */
+	private boolean isGreater(TopN a, int i, TopN b, int j) {
+		if (a.ranks[i] != b.ranks[j]) {
+			return a.ranks[i] > b.ranks[j];
+		}
+		return cast(a.elements[i]).compareTo(cast(b.elements[j])) > 0;
+	}
+
+	private static long rankOf(Object element) {
+		return element instanceof Ranked ? ((Ranked) element).getRank() : 0L;
+	}
+
+	@SuppressWarnings("unchecked")
+	private K cast(Object element) {
+		return (K) element;
+	}
+
+	/**
+	 * Immutable elements and ranks sorted from high to low.
+	 */
+	private static final class TopN {
+
+		private final Object[] elements;
+		private final long[] ranks;
+
+		TopN(Object[] elements, long[] ranks) {
+			this.elements = elements;
+			this.ranks = ranks;
+		}
+
+		int size() {
+			return elements.length;
+		}
+	}
+
+}
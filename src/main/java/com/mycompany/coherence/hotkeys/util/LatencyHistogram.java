@@ -0,0 +1,127 @@
+package com.mycompany.coherence.hotkeys.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of durations with a fixed memory footprint, recorded
+ * in microseconds into log-linear buckets: each power of two is split in 8
+ * buckets, so that a percentile is off by at most 12.5%.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKETS = 8;
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Records a duration.
+	 * 
+	 * @param nanos duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		long micros = Math.max(nanos, 0) / 1000;
+		counts.incrementAndGet(bucketOf(micros));
+		count.increment();
+		sum.add(micros);
+		max.accumulate(micros);
+	}
+
+	/**
+	 * Returns the number of durations recorded.
+	 * 
+	 * @return long
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Returns the mean duration in milliseconds, 0 if none was recorded.
+	 * 
+	 * @return double
+	 */
+	public double getMeanMillis() {
+		long recorded = count.sum();
+		return recorded == 0 ? 0 : sum.sum() / 1000.0 / recorded;
+	}
+
+	/**
+	 * Returns the longest duration in milliseconds.
+	 * 
+	 * @return double
+	 */
+	public double getMaxMillis() {
+		return max.get() / 1000.0;
+	}
+
+	/**
+	 * Returns the upper bound of the bucket of a percentile in milliseconds, 0
+	 * if no duration was recorded.
+	 * 
+	 * @param percentile between 0 and 100
+	 * @return double
+	 */
+	public double getPercentileMillis(double percentile) {
+		long recorded = count.sum();
+		if (recorded == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * recorded));
+		long cumulated = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			cumulated += counts.get(bucket);
+			if (cumulated >= rank) {
+				return Math.min(upperBoundOf(bucket), max.get()) / 1000.0;
+			}
+		}
+		return getMaxMillis();
+	}
+
+	/**
+	 * Forgets all recorded durations.
+	 */
+	public void reset() {
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			counts.set(bucket, 0);
+		}
+		count.reset();
+		sum.reset();
+		max.reset();
+	}
+
+	/**
+	 * Returns the count, mean, median, 99th percentile and max.
+	 * 
+	 * @return String
+	 */
+	public String toString() {
+		return String.format("count=%d, mean=%.3f ms, p50=%.3f ms, p99=%.3f ms, max=%.3f ms", getCount(),
+				getMeanMillis(), getPercentileMillis(50), getPercentileMillis(99), getMaxMillis());
+	}
+
+	private static int bucketOf(long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	private static long upperBoundOf(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+		return ((SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+	}
+
+}
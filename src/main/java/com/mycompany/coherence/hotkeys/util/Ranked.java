@@ -0,0 +1,19 @@
+package com.mycompany.coherence.hotkeys.util;
+
+/**
+ * Element exposing a primitive rank that is consistent with its natural
+ * ordering: an element with a higher rank must compare greater than an element
+ * with a lower rank. Elements with the same rank are ordered by compareTo.
+ * 
+ * @see SortedCollectionWithCapacity#accepts(long)
+ */
+public interface Ranked {
+
+	/**
+	 * Returns the primitive rank of the element.
+	 * 
+	 * @return long
+	 */
+	long getRank();
+
+}
@@ -1,7 +1,11 @@
 package com.mycompany.coherence.hotkeys.util;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.TreeSet;
@@ -9,8 +13,17 @@ import java.util.TreeSet;
 import com.mycompany.coherence.hotkeys.invocable.HotKeyData;
 
 /**
- * Simple sorted Set with a max capacity. Once the max capacity is reached, new
- * entries added will force the lowest comparable to be removed from the Set.
+ * Simple sorted collection with a max capacity. Once the max capacity is
+ * reached, new entries added will force the lowest comparable to be removed
+ * from the collection.
+ * <p>
+ * Elements are kept in a bounded array-backed min-heap, the lowest element
+ * being at the root. When elements implement {@link Ranked}, their primitive
+ * rank is kept in a parallel array so that {@link #accepts(long)} can reject a
+ * candidate with a single comparison, before the candidate is even created.
+ * <p>
+ * As with a set, an element equal to one already held is not added again;
+ * only the part of the heap not greater than the element is searched for it.
  * 
  * @param K The type of the key, should implement Comparable
  */
@@ -18,8 +31,12 @@ public class SortedCollectionWithCapacity<K extends Comparable<K>> implements Se
 
 	private static final long serialVersionUID = 1L;
 
-	private final TreeSet<K> sortedSet;
+	private static final int INITIAL_HEAP_SIZE = 16;
+
 	private final int maxCapacity;
+	private transient Object[] heap;
+	private transient long[] ranks;
+	private transient int size;
 	private long created;
 	private long lastTouch;
 
@@ -30,68 +47,147 @@ public class SortedCollectionWithCapacity<K extends Comparable<K>> implements Se
 	 */
 	public SortedCollectionWithCapacity(int maxCapacity) {
 		this.maxCapacity = maxCapacity;
-		this.sortedSet = new TreeSet<>();
+		initHeap(Math.min(Math.max(maxCapacity, 0), INITIAL_HEAP_SIZE));
+	}
+
+	/**
+	 * Tells if an element of the given rank could be added to the collection,
+	 * i.e. if the collection is not full yet or if the rank is not lower than
+	 * the rank of the current lowest element. Callers can use it to avoid
+	 * building elements that would be rejected right away.
+	 * 
+	 * @param rank rank of the candidate element
+	 * @return boolean
+	 */
+	public boolean accepts(long rank) {
+		if (size < maxCapacity) {
+			return true;
+		}
+		return size > 0 && rank >= ranks[0];
+	}
+
+	/**
+	 * Tells if an element of the given rank would be added whatever the
+	 * element, i.e. if the collection is not full yet or if the rank is higher
+	 * than the rank of the current lowest element. Callers ranking on a coarse
+	 * value, where ties are common and arbitrary, can use it so that the
+	 * elements tied with the lowest one are not all built, the first ones
+	 * added winning the tie.
+	 * 
+	 * @param rank rank of the candidate element
+	 * @return boolean
+	 */
+	public boolean acceptsAnyElement(long rank) {
+		return size < maxCapacity || (size > 0 && rank > ranks[0]);
 	}
 
 	/**
-	 * Adds an element to the Set.
+	 * Adds an element to the collection, unless an equal element is already
+	 * held.
 	 * 
 	 * @param element
 	 */
 	public void add(K element) {
-		if (sortedSet.size() == 0) {
+		add(element, rankOf(element));
+	}
+
+	/**
+	 * Adds an element of a known rank to the collection.
+	 * 
+	 * @param element
+	 * @param rank
+	 */
+	void add(K element, long rank) {
+		if (size == 0) {
 			resetTime();
 		}
-		if (sortedSet.size() < maxCapacity) {
-			sortedSet.add(element);
-		} else {
-			K smallestElement = sortedSet.first();
-			if (element.compareTo(smallestElement) > 0) {
-				sortedSet.remove(smallestElement);
-				sortedSet.add(element);
+		if (size < maxCapacity) {
+			if (contains(element, rank, 0)) {
+				touch();
+				return;
 			}
+			if (size == heap.length) {
+				growHeap();
+			}
+			heap[size] = element;
+			ranks[size] = rank;
+			siftUp(size++);
+		} else if (size > 0 && isGreater(element, rank, 0) && !contains(element, rank, 0)) {
+			heap[0] = element;
+			ranks[0] = rank;
+			siftDown(0);
 		}
 		touch();
 	}
 
 	/**
-	 * Returns the underlying TreeSet<K>.
+	 * Returns the content as a TreeSet<K>, ordered from low to high. The
+	 * returned set is a copy of the collection content.
 	 */
 	public TreeSet<K> getSortedSet() {
+		TreeSet<K> sortedSet = new TreeSet<>();
+		for (int i = 0; i < size; i++) {
+			sortedSet.add(elementAt(i));
+		}
 		return sortedSet;
 	}
 
 	/**
-	 * Merges the underlying TreeSet<K> with another one.
+	 * Merges the content of another collection into this one.
 	 * 
 	 * @param SortedCollectionWithCapacity<K>
 	 */
 	public void merge(SortedCollectionWithCapacity<K> setToMerger) {
 		synchronized (this) {
-			for (K item : setToMerger.getSortedSet()) {
-				this.add(item);
+			for (int i = 0; i < setToMerger.size; i++) {
+				long rank = setToMerger.ranks[i];
+				if (accepts(rank)) {
+					this.add(setToMerger.elementAt(i), rank);
+				}
 			}
 		}
 	}
 
 	/**
-	 * Returns the Set content, ordered form high to low.
+	 * Returns the collection content, ordered form high to low.
 	 * 
 	 * @return
 	 */
 	public List<K> getReversedOrder() {
-		List<K> sortedList = new ArrayList<>(sortedSet);
-		Collections.reverse(sortedList);
+		Object[] elements = Arrays.copyOf(heap, size);
+		Arrays.sort(elements, Collections.reverseOrder());
+		List<K> sortedList = new ArrayList<>(size);
+		for (Object element : elements) {
+			sortedList.add(cast(element));
+		}
 		return sortedList;
 	}
 
+	/**
+	 * Returns the number of elements in the collection.
+	 * 
+	 * @return int
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the max capacity of the collection.
+	 * 
+	 * @return int
+	 */
+	public int getMaxCapacity() {
+		return maxCapacity;
+	}
+
 	/**
 	 * Resets the baseline for last modified time.
 	 */
 	private void resetTime() {
 		this.created = System.currentTimeMillis();
 	}
-	
+
 	/**
 	 * Updates time modified time.
 	 */
@@ -108,6 +204,154 @@ public class SortedCollectionWithCapacity<K extends Comparable<K>> implements Se
 		return this.lastTouch - this.created;
 	}
 
+	long getCreated() {
+		return created;
+	}
+
+	long getLastTouch() {
+		return lastTouch;
+	}
+
+	/**
+	 * Restores the times of a deserialized collection.
+	 */
+	void setTimes(long created, long lastTouch) {
+		this.created = created;
+		this.lastTouch = lastTouch;
+	}
+
+	private void initHeap(int length) {
+		this.heap = new Object[length];
+		this.ranks = new long[length];
+	}
+
+	private void growHeap() {
+		int length = (int) Math.min((long) maxCapacity, Math.max(INITIAL_HEAP_SIZE, heap.length * 2L));
+		heap = Arrays.copyOf(heap, length);
+		ranks = Arrays.copyOf(ranks, length);
+	}
+
+	private void siftUp(int index) {
+		Object element = heap[index];
+		long rank = ranks[index];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (!isGreater(parent, element, rank)) {
+				break;
+			}
+			heap[index] = heap[parent];
+			ranks[index] = ranks[parent];
+			index = parent;
+		}
+		heap[index] = element;
+		ranks[index] = rank;
+	}
+
+	private void siftDown(int index) {
+		Object element = heap[index];
+		long rank = ranks[index];
+		int half = size >>> 1;
+		while (index < half) {
+			int child = 2 * index + 1;
+			int right = child + 1;
+			if (right < size && isGreater(child, heap[right], ranks[right])) {
+				child = right;
+			}
+			if (!isGreater(element, rank, child)) {
+				break;
+			}
+			heap[index] = heap[child];
+			ranks[index] = ranks[child];
+			index = child;
+		}
+		heap[index] = element;
+		ranks[index] = rank;
+	}
+
+	/**
+	 * Tells if an element equal to the given one is held in the subtree of the
+	 * heap at index; subtrees whose root is greater than the element cannot
+	 * hold it and are not searched.
+	 */
+	private boolean contains(Object element, long rank, int index) {
+		if (index >= size || isGreater(index, element, rank)) {
+			return false;
+		}
+		if (!isGreater(element, rank, index)) {
+			return true;
+		}
+		return contains(element, rank, 2 * index + 1) || contains(element, rank, 2 * index + 2);
+	}
+
+	/**
+	 * Tells if the given element is greater than the element at index.
+	 */
+	private boolean isGreater(Object element, long rank, int index) {
+		if (rank != ranks[index]) {
+			return rank > ranks[index];
+		}
+		return cast(element).compareTo(elementAt(index)) > 0;
+	}
+
+	/**
+	 * Tells if the element at index is greater than the given element.
+	 */
+	private boolean isGreater(int index, Object element, long rank) {
+		if (rank != ranks[index]) {
+			return ranks[index] > rank;
+		}
+		return elementAt(index).compareTo(cast(element)) > 0;
+	}
+
+	/**
+	 * Returns the element at an index of the heap, for serializers.
+	 */
+	K elementAt(int index) {
+		return cast(heap[index]);
+	}
+
+	/**
+	 * Returns the rank of the element at an index of the heap.
+	 */
+	long rankAt(int index) {
+		return ranks[index];
+	}
+
+	@SuppressWarnings("unchecked")
+	private K cast(Object element) {
+		return (K) element;
+	}
+
+	private static long rankOf(Object element) {
+		return element instanceof Ranked ? ((Ranked) element).getRank() : 0L;
+	}
+
+	/**
+	 * Writes the heap content only, not its spare capacity.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			out.writeObject(heap[i]);
+		}
+	}
+
+	/**
+	 * Reads the heap content, which is already in heap order.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		int count = in.readInt();
+		initHeap(Math.min(Math.max(maxCapacity, 0), Math.max(count, INITIAL_HEAP_SIZE)));
+		for (int i = 0; i < count; i++) {
+			Object element = in.readObject();
+			heap[i] = element;
+			ranks[i] = rankOf(element);
+		}
+		size = count;
+	}
+
 	/**
 	 * For test purposes
 	 * 
@@ -131,7 +375,7 @@ public class SortedCollectionWithCapacity<K extends Comparable<K>> implements Se
 	}
 
 	/**
-	 * Returns the sorted set content and the max capacity value.
+	 * Returns the sorted content and the max capacity value.
 	 * 
 	 * @return String
 	 */
@@ -0,0 +1,158 @@
+package com.mycompany.coherence.hotkeys.util;
+
+import java.io.IOException;
+
+import com.mycompany.coherence.hotkeys.invocable.HotKeyData;
+import com.mycompany.coherence.hotkeys.invocable.HotKeyDataPofSerializer;
+import com.mycompany.coherence.hotkeys.tracker.AccessRates;
+import com.mycompany.coherence.hotkeys.tracker.LockContention;
+import com.tangosol.io.ByteArrayWriteBuffer;
+import com.tangosol.io.ReadBuffer;
+import com.tangosol.io.WriteBuffer;
+import com.tangosol.io.pof.PofContext;
+import com.tangosol.io.pof.PofReader;
+import com.tangosol.io.pof.PofSerializer;
+import com.tangosol.io.pof.PofWriter;
+import com.tangosol.util.Binary;
+import com.tangosol.util.ExternalizableHelper;
+
+/**
+ * POF serializer of SortedCollectionWithCapacity. A collection of HotKeyData,
+ * which is what members return, is written in a packed form: the touch counts
+ * as an int array, the keys in their binary form concatenated in a single
+ * binary, the access rates, if any, as a double array and the entry processor
+ * statistics, if any, as a long array. Collections of
+ * other elements are written as an object array.
+ * <p>
+ * The binary keys held by the HotKeyData, see HotKeyData.getBinaryKey(), are
+ * written as they are, and kept by the HotKeyData deserialized.
+ */
+@SuppressWarnings("rawtypes")
+public class SortedCollectionWithCapacityPofSerializer implements PofSerializer<SortedCollectionWithCapacity> {
+
+	/**
+	 * Estimated size of a packed int, a POF header or a small key, in bytes.
+	 */
+	public static final int ESTIMATED_VALUE_BYTES = 5;
+
+	public void serialize(PofWriter pofWriter, SortedCollectionWithCapacity collection) throws IOException {
+		int size = collection.size();
+		pofWriter.writeInt(0, collection.getMaxCapacity());
+		pofWriter.writeLong(1, collection.getCreated());
+		pofWriter.writeLong(2, collection.getLastTouch());
+		if (isHotKeyDataOnly(collection)) {
+			PofContext pofContext = pofWriter.getPofContext();
+			int[] touchCounts = new int[size];
+			AccessRates[] rates = new AccessRates[size];
+			boolean hasRates = false;
+			LockContention[] contentions = new LockContention[size];
+			boolean hasContentions = false;
+			ByteArrayWriteBuffer keys = new ByteArrayWriteBuffer(size * 8);
+			WriteBuffer.BufferOutput keysOutput = keys.getBufferOutput();
+			for (int i = 0; i < size; i++) {
+				HotKeyData<?> data = (HotKeyData<?>) collection.elementAt(i);
+				touchCounts[i] = data.getTouchCount();
+				rates[i] = data.getRates();
+				hasRates |= rates[i] != null;
+				contentions[i] = data.getContention();
+				hasContentions |= contentions[i] != null;
+				Binary binaryKey = HotKeyDataPofSerializer.getBinaryKey(data, pofContext);
+				keysOutput.writePackedInt(binaryKey.length());
+				keysOutput.writeBuffer(binaryKey);
+			}
+			pofWriter.writeIntArray(3, touchCounts);
+			pofWriter.writeBinary(4, keys.toBinary());
+			if (hasRates) {
+				pofWriter.writeDoubleArray(5, HotKeyDataPofSerializer.packRates(rates));
+			}
+			if (hasContentions) {
+				pofWriter.writeLongArray(7, LockContention.pack(contentions));
+			}
+		} else {
+			Object[] elements = new Object[size];
+			for (int i = 0; i < size; i++) {
+				elements[i] = collection.elementAt(i);
+			}
+			pofWriter.writeObjectArray(6, elements);
+		}
+		pofWriter.writeRemainder(null);
+	}
+
+	@SuppressWarnings("unchecked")
+	public SortedCollectionWithCapacity deserialize(PofReader pofReader) throws IOException {
+		SortedCollectionWithCapacity collection = new SortedCollectionWithCapacity(pofReader.readInt(0));
+		long created = pofReader.readLong(1);
+		long lastTouch = pofReader.readLong(2);
+		int[] touchCounts = pofReader.readIntArray(3);
+		Binary keys = pofReader.readBinary(4);
+		AccessRates[] rates = HotKeyDataPofSerializer.unpackRates(pofReader.readDoubleArray(5));
+		Object[] elements = pofReader.readObjectArray(6, null);
+		LockContention[] contentions = LockContention.unpack(pofReader.readLongArray(7));
+		pofReader.readRemainder();
+
+		// elements were written in heap order, so adding them keeps that order
+		if (touchCounts != null && touchCounts.length > 0) {
+			PofContext pofContext = pofReader.getPofContext();
+			ReadBuffer.BufferInput keysInput = keys.getBufferInput();
+			for (int i = 0; i < touchCounts.length; i++) {
+				Binary binaryKey = keysInput.readBuffer(keysInput.readPackedInt()).toBinary();
+				Comparable key = (Comparable) ExternalizableHelper.fromBinary(binaryKey, pofContext);
+				HotKeyData data = new HotKeyData(key, touchCounts[i], rates == null ? null : rates[i]);
+				if (contentions != null) {
+					data.setContention(contentions[i]);
+				}
+				data.setBinaryKey(binaryKey);
+				collection.add(data);
+			}
+		} else if (elements != null) {
+			for (Object element : elements) {
+				collection.add((Comparable) element);
+			}
+		}
+		collection.setTimes(created, lastTouch);
+		return collection;
+	}
+
+	/**
+	 * Returns an estimate of the size a collection is written in by this
+	 * serializer, without serializing it: the binary size of the keys held by
+	 * its HotKeyData, an estimate for the keys not held, the packed size of the
+	 * touch counts and key lengths, and the size of the rates and statistics.
+	 * 
+	 * @param collection the collection
+	 * @return long bytes
+	 */
+	public static long estimateSize(SortedCollectionWithCapacity collection) {
+		long size = 4 * ESTIMATED_VALUE_BYTES;
+		for (int i = 0; i < collection.size(); i++) {
+			Object element = collection.elementAt(i);
+			if (element instanceof HotKeyData) {
+				HotKeyData<?> data = (HotKeyData<?>) element;
+				Binary binaryKey = data.getBinaryKey();
+				int keyBytes = binaryKey == null ? ESTIMATED_VALUE_BYTES : binaryKey.length();
+				size += ExternalizableHelper.calculatePackedLength(data.getTouchCount())
+						+ ExternalizableHelper.calculatePackedLength(keyBytes) + keyBytes
+						+ (data.getRates() == null ? 0 : 3 * 8) + (data.getContention() == null ? 0 : 6 * 8);
+			} else {
+				size += ESTIMATED_VALUE_BYTES;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Tells if all elements are plain HotKeyData, which can be packed.
+	 */
+	private static boolean isHotKeyDataOnly(SortedCollectionWithCapacity collection) {
+		if (collection.size() == 0) {
+			return false;
+		}
+		for (int i = 0; i < collection.size(); i++) {
+			if (collection.elementAt(i).getClass() != HotKeyData.class) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
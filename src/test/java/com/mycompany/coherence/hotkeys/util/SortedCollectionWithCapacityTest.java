@@ -0,0 +1,171 @@
+package com.mycompany.coherence.hotkeys.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.mycompany.coherence.hotkeys.invocable.HotKeyData;
+
+/**
+ * Randomized comparison of SortedCollectionWithCapacity with the TreeSet it
+ * was backed by: a TreeSet keeping the highest elements up to the max
+ * capacity, an element equal to one already held not being added again.
+ */
+public class SortedCollectionWithCapacityTest {
+
+	private static final int ROUNDS = 500;
+
+	private final Random random = new Random(42);
+
+	@Test
+	public void addKeepsTheHighestDistinctElements() {
+		for (int round = 0; round < ROUNDS; round++) {
+			int maxCapacity = random.nextInt(40);
+			SortedCollectionWithCapacity<HotKeyData<Integer>> collection = new SortedCollectionWithCapacity<>(
+					maxCapacity);
+			TreeSet<HotKeyData<Integer>> expected = new TreeSet<>();
+			for (HotKeyData<Integer> element : randomElements()) {
+				collection.add(element);
+				add(expected, element, maxCapacity);
+			}
+			assertSame(expected, collection);
+		}
+	}
+
+	@Test
+	public void addKeepsTheHighestDistinctUnrankedElements() {
+		for (int round = 0; round < ROUNDS; round++) {
+			int maxCapacity = random.nextInt(40);
+			SortedCollectionWithCapacity<Integer> collection = new SortedCollectionWithCapacity<>(maxCapacity);
+			TreeSet<Integer> expected = new TreeSet<>();
+			int count = random.nextInt(200);
+			for (int i = 0; i < count; i++) {
+				Integer element = random.nextInt(100);
+				collection.add(element);
+				add(expected, element, maxCapacity);
+			}
+			assertSame(expected, collection);
+		}
+	}
+
+	@Test
+	public void mergeKeepsTheHighestDistinctElements() {
+		for (int round = 0; round < ROUNDS; round++) {
+			int maxCapacity = 1 + random.nextInt(40);
+			SortedCollectionWithCapacity<HotKeyData<Integer>> collection = new SortedCollectionWithCapacity<>(
+					maxCapacity);
+			TreeSet<HotKeyData<Integer>> expected = new TreeSet<>();
+			int members = 1 + random.nextInt(4);
+			for (int member = 0; member < members; member++) {
+				SortedCollectionWithCapacity<HotKeyData<Integer>> memberCollection = new SortedCollectionWithCapacity<>(
+						maxCapacity);
+				TreeSet<HotKeyData<Integer>> memberExpected = new TreeSet<>();
+				for (HotKeyData<Integer> element : randomElements()) {
+					memberCollection.add(element);
+					add(memberExpected, element, maxCapacity);
+				}
+				collection.merge(memberCollection);
+				for (HotKeyData<Integer> element : memberExpected) {
+					add(expected, element, maxCapacity);
+				}
+				assertSame(memberExpected, memberCollection);
+			}
+			assertSame(expected, collection);
+		}
+	}
+
+	@Test
+	public void serializationKeepsTheElements() throws IOException, ClassNotFoundException {
+		for (int round = 0; round < ROUNDS / 10; round++) {
+			int maxCapacity = random.nextInt(40);
+			SortedCollectionWithCapacity<HotKeyData<Integer>> collection = new SortedCollectionWithCapacity<>(
+					maxCapacity);
+			TreeSet<HotKeyData<Integer>> expected = new TreeSet<>();
+			for (HotKeyData<Integer> element : randomElements()) {
+				collection.add(element);
+				add(expected, element, maxCapacity);
+			}
+			SortedCollectionWithCapacity<HotKeyData<Integer>> copy = roundTrip(collection);
+			assertEquals(maxCapacity, copy.getMaxCapacity());
+			assertSame(expected, copy);
+
+			// the copy must still be a valid heap
+			for (HotKeyData<Integer> element : randomElements()) {
+				copy.add(element);
+				add(expected, element, maxCapacity);
+			}
+			assertSame(expected, copy);
+		}
+	}
+
+	/**
+	 * Returns random elements over a small range of keys and touch counts, so
+	 * that ties on the touch count and equal elements are common.
+	 */
+	private List<HotKeyData<Integer>> randomElements() {
+		int count = random.nextInt(200);
+		List<HotKeyData<Integer>> elements = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			elements.add(new HotKeyData<Integer>(random.nextInt(50), random.nextInt(10)));
+		}
+		return elements;
+	}
+
+	/**
+	 * Adds an element to the reference TreeSet, as the TreeSet backed
+	 * collection did.
+	 */
+	private static <K extends Comparable<K>> void add(TreeSet<K> sortedSet, K element, int maxCapacity) {
+		if (sortedSet.contains(element)) {
+			return;
+		}
+		if (sortedSet.size() < maxCapacity) {
+			sortedSet.add(element);
+		} else if (!sortedSet.isEmpty() && element.compareTo(sortedSet.first()) > 0) {
+			sortedSet.pollFirst();
+			sortedSet.add(element);
+		}
+	}
+
+	/**
+	 * Asserts that the collection holds the elements of the reference TreeSet,
+	 * comparing elements rather than testing their equality, HotKeyData being
+	 * equal on their key only.
+	 */
+	private static <K extends Comparable<K>> void assertSame(TreeSet<K> expected,
+			SortedCollectionWithCapacity<K> collection) {
+		assertEquals(expected.size(), collection.size());
+		assertOrdered(new ArrayList<>(expected), new ArrayList<>(collection.getSortedSet()));
+		assertOrdered(new ArrayList<>(expected.descendingSet()), collection.getReversedOrder());
+	}
+
+	private static <K extends Comparable<K>> void assertOrdered(List<K> expected, List<K> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected + " != " + actual, 0, expected.get(i).compareTo(actual.get(i)));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K extends Comparable<K>> SortedCollectionWithCapacity<K> roundTrip(
+			SortedCollectionWithCapacity<K> collection) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(collection);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (SortedCollectionWithCapacity<K>) in.readObject();
+		}
+	}
+
+}